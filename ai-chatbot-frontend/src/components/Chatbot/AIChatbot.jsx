@@ -9,6 +9,7 @@ import {
   MessageSquare,
   Loader2,
 } from "lucide-react";
+import chatAPI from "../../services/api";
 
 const AIChatbot = () => {
   const [messages, setMessages] = useState([
@@ -426,6 +427,72 @@ const AIChatbot = () => {
     }
   };
 
+  // Streaming call: shows the generated SQL and incoming rows while the
+  // backend is still working, instead of a spinner for the whole pipeline
+  const streamFromBackend = async (queryText, botMessageId) => {
+    setIsTyping(true);
+
+    let conversationId = null;
+    let sql = "";
+    let answer = null;
+    const rows = [];
+
+    const updatePlaceholder = () => {
+      const parts = [];
+      if (sql) parts.push(`sql: ${sql}`);
+      if (rows.length) parts.push(`${rows.length} rows received…`);
+
+      const placeholder = {
+        id: botMessageId,
+        type: "bot",
+        content: parts.join("\n\n") || "…",
+        timestamp: new Date(),
+        isStreaming: true,
+      };
+      setMessages((prev) =>
+        prev.some((m) => m.id === botMessageId)
+          ? prev.map((m) => (m.id === botMessageId ? placeholder : m))
+          : [...prev, placeholder]
+      );
+    };
+
+    try {
+      await chatAPI.askQuestionStream(queryText, 1, (event, data) => {
+        switch (event) {
+          case "conversation":
+            conversationId = data.conversationId;
+            break;
+          case "sql-token":
+            sql += data.token;
+            break;
+          case "sql":
+            sql = data.sql;
+            break;
+          case "rows":
+            rows.push(...data.rows);
+            break;
+          case "answer":
+            answer = data.answer;
+            break;
+          default:
+            return;
+        }
+        updatePlaceholder();
+      });
+    } finally {
+      setIsTyping(false);
+    }
+
+    return {
+      conversationId,
+      question: queryText,
+      sql,
+      answer:
+        answer ??
+        (rows.length ? JSON.stringify(rows, null, 2) : "No results found."),
+    };
+  };
+
   // Enhanced smart response formatter with detailed logging
   const formatAIResponse = (response, requestId) => {
     console.log(`🎨 Formatting Response #${requestId}:`, {
@@ -555,7 +622,14 @@ const AIChatbot = () => {
     try {
       console.log(`✅ Question approved for backend processing`);
       console.log(`🔄 Processing message #${messageId}`);
-      const response = await sendToBackend(currentInput);
+      let response;
+      try {
+        response = await streamFromBackend(currentInput, messageId + 1);
+      } catch (streamError) {
+        console.warn("⚠️ Streaming failed, falling back to /ask:", streamError);
+        setMessages((prev) => prev.filter((m) => m.id !== messageId + 1));
+        response = await sendToBackend(currentInput);
+      }
 
       console.group(`🤖 Creating Bot Response #${messageId}`);
       console.log("📥 Raw backend response:", response);
@@ -599,7 +673,11 @@ const AIChatbot = () => {
       });
 
       console.groupEnd();
-      setMessages((prev) => [...prev, botMessage]);
+      setMessages((prev) =>
+        prev.some((m) => m.id === botMessage.id)
+          ? prev.map((m) => (m.id === botMessage.id ? botMessage : m))
+          : [...prev, botMessage]
+      );
     } catch (error) {
       console.group(`💥 Error Handling Message #${messageId}`);
       console.error("Full error details:", {
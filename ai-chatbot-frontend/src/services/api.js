@@ -38,6 +38,71 @@ export const chatAPI = {
     }
   },
 
+  /**
+   * Send a query and receive stage events as they happen (SSE over POST)
+   * @param {string} question - The user's question
+   * @param {number} userId - The user's ID (default: 1)
+   * @param {function} onEvent - Called with (eventName, data) for every event
+   * @returns {Promise} - Resolves with the "done" event payload
+   */
+  async askQuestionStream(question, userId = 1, onEvent = () => {}) {
+    const url = `${API_BASE_URL}/api/queries/ask/stream?userId=${userId}&question=${encodeURIComponent(
+      question
+    )}`;
+
+    const response = await fetch(url, {
+      method: "POST",
+      headers: { Accept: "text/event-stream" },
+    });
+
+    if (!response.ok || !response.body) {
+      throw new Error(`HTTP error! status: ${response.status}`);
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = "";
+    let donePayload = null;
+
+    // SSE frames are separated by a blank line
+    const dispatch = (frame) => {
+      let eventName = "message";
+      const dataLines = [];
+      frame.split("\n").forEach((line) => {
+        if (line.startsWith("event:")) eventName = line.slice(6).trim();
+        else if (line.startsWith("data:")) dataLines.push(line.slice(5));
+      });
+      if (dataLines.length === 0) return;
+
+      let data = dataLines.join("\n");
+      try {
+        data = JSON.parse(data);
+      } catch (e) {
+        // plain text payload
+      }
+      if (eventName === "done") donePayload = data;
+      if (eventName === "error") {
+        throw new Error((data && data.error) || "Streaming request failed");
+      }
+      onEvent(eventName, data);
+    };
+
+    while (true) {
+      const { value, done } = await reader.read();
+      if (done) break;
+      buffer += decoder.decode(value, { stream: true }).replace(/\r\n/g, "\n");
+
+      let boundary;
+      while ((boundary = buffer.indexOf("\n\n")) !== -1) {
+        dispatch(buffer.slice(0, boundary));
+        buffer = buffer.slice(boundary + 2);
+      }
+    }
+    if (buffer.trim()) dispatch(buffer);
+
+    return donePayload;
+  },
+
   /**
    * Upload a file (for future use)
    * @param {File} file - The file to upload
@@ -0,0 +1,21 @@
+package com.agentic.humanoid.DTO;
+
+import java.util.List;
+
+import com.agentic.humanoid.model.ConversationMessage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Prompt context for one ask: a rolling summary of older turns, the user's
+ * most recent questions elsewhere, and the newest turns that fit the budget.
+ */
+@Data
+@AllArgsConstructor
+public class ConversationContext {
+    private String summary;
+    private List<String> recentQuestions;
+    private List<ConversationMessage> turns; // chronological, user/assistant alternating
+    private int estimatedTokens;
+}
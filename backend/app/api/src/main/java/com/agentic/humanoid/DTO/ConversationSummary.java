@@ -0,0 +1,13 @@
+package com.agentic.humanoid.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * A conversation for listing: no rolling summary text.
+ */
+public record ConversationSummary(Long id, String title, LocalDateTime createdAt) {
+
+    public PageCursor cursor() {
+        return new PageCursor(createdAt, id);
+    }
+}
@@ -0,0 +1,29 @@
+package com.agentic.humanoid.DTO;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset scan; {@code nextCursor} is null on the last page.
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+
+    /**
+     * Requested page size, at least 1 and at most {@code max}.
+     */
+    public static int clamp(int limit, int max) {
+        return Math.max(1, Math.min(limit, max));
+    }
+
+    /**
+     * {@code fetched} was read with a limit of {@code limit + 1}: the extra
+     * row only tells whether another page exists and is not returned.
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, int limit, Function<T, PageCursor> cursor) {
+        if (fetched.size() <= limit) {
+            return new KeysetPage<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new KeysetPage<>(List.copyOf(items), cursor.apply(items.get(limit - 1)).encode());
+    }
+}
@@ -0,0 +1,13 @@
+package com.agentic.humanoid.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * A conversation message; {@code content} is null unless requested.
+ */
+public record MessageItem(Long id, String role, String content, String answerId, LocalDateTime createdAt) {
+
+    public PageCursor cursor() {
+        return new PageCursor(createdAt, id);
+    }
+}
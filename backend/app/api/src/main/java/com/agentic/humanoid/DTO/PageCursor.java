@@ -0,0 +1,38 @@
+package com.agentic.humanoid.DTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position {@code (createdAt, id)} of the last row on a page, sent to
+ * clients as an opaque URL-safe token. The next page starts strictly after it
+ * in {@code created_at desc, id desc} order. Queries compare it as a row
+ * value, {@code (createdAt, id) < (:createdAt, :id)}, which Postgres uses as
+ * an index bound (the equivalent OR form is only a filter), so a page costs
+ * the same however deep the client is, and rows inserted meanwhile don't
+ * shift it.
+ */
+public record PageCursor(LocalDateTime createdAt, long id) {
+
+    // sorts after every real row: the first page is just "before the end of time"
+    public static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 2);
+            return new PageCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
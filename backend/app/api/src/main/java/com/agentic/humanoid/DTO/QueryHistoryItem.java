@@ -0,0 +1,15 @@
+package com.agentic.humanoid.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * A {@code queries} row without the answer unless it was asked for. For
+ * large results {@code answer} is only the stored preview; the full result
+ * is at {@code /api/queries/answers/{answerId}}.
+ */
+public record QueryHistoryItem(Long id, String question, String answer, String answerId, LocalDateTime createdAt) {
+
+    public PageCursor cursor() {
+        return new PageCursor(createdAt, id);
+    }
+}
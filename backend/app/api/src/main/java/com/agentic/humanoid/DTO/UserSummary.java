@@ -0,0 +1,10 @@
+package com.agentic.humanoid.DTO;
+
+import java.time.LocalDateTime;
+
+public record UserSummary(Long id, String username, String email, String role, LocalDateTime createdAt) {
+
+    public PageCursor cursor() {
+        return new PageCursor(createdAt, id);
+    }
+}
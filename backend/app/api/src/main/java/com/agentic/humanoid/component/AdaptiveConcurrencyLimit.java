@@ -0,0 +1,65 @@
+package com.agentic.humanoid.component;
+
+/**
+ * Concurrency limit that follows measured latency (gradient control, as
+ * in Netflix's concurrency-limits "Gradient2"). Each sample is compared
+ * with a slow moving average of past latencies: while a call takes no
+ * longer than {@code tolerance} × that baseline the limit moves toward
+ * limit + √limit, and beyond it toward limit × baseline × tolerance /
+ * sample (at most halving). A dropped
+ * call — upstream 429/503, outage, timeout — cuts it multiplicatively by
+ * {@code backoff} (AIMD). The limit only grows while it is actually in
+ * use, and stays within [{@code min}, {@code max}].
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // weight of a new sample in the baseline (≈ the last 100 calls) and in the limit
+    private static final double BASELINE_ALPHA = 2.0 / 101;
+    private static final double SMOOTHING = 0.2;
+
+    private final int min;
+    private final int max;
+    private final double tolerance;
+    private final double backoff;
+
+    private double limit;
+    private double baselineNanos;
+
+    public AdaptiveConcurrencyLimit(int initial, int min, int max, double tolerance, double backoff) {
+        this.min = min;
+        this.max = max;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.limit = Math.max(min, Math.min(max, initial));
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized long baselineNanos() {
+        return (long) baselineNanos;
+    }
+
+    /**
+     * Feed one finished call: its latency and how many calls were in flight when it started.
+     */
+    public synchronized void onSample(long latencyNanos, int inFlight) {
+        baselineNanos = baselineNanos == 0
+                ? latencyNanos
+                : baselineNanos + BASELINE_ALPHA * (latencyNanos - baselineNanos);
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineNanos / Math.max(1, latencyNanos)));
+        // an idle limit proves nothing about capacity: don't grow it
+        boolean grow = gradient == 1.0 && inFlight >= limit / 2;
+        double target = grow ? limit + Math.sqrt(limit) : limit * gradient;
+        set(limit + SMOOTHING * (target - limit));
+    }
+
+    public synchronized void onDropped() {
+        set(limit * backoff);
+    }
+
+    private void set(double next) {
+        limit = Math.max(min, Math.min(max, next));
+    }
+}
@@ -0,0 +1,22 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+
+/**
+ * A user's LLM call was shed by {@link LlmAdmission}: over their rate,
+ * or it could not start within the queue wait limit. Surfaced as 429
+ * with {@link #getRetryAfter()}.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
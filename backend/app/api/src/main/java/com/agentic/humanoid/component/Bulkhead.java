@@ -0,0 +1,76 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps how many callers may use a shared resource at once. Callers beyond
+ * the limit wait up to {@code maxWait} and are then turned away with
+ * {@link BulkheadFullException} instead of queueing inside the resource
+ * (for a connection pool, that queue is where everyone else stalls too).
+ */
+public class Bulkhead {
+
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final Duration maxWait;
+    private final Semaphore permits;
+    private final AtomicLong waiting = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public <T, E extends Exception> T call(Work<T, E> work) throws E {
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadFullException(name + " bulkhead wait interrupted");
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            rejected.incrementAndGet();
+            throw new BulkheadFullException(name + " is busy (" + maxConcurrent + " queries running), try again");
+        }
+        try {
+            return work.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public long waiting() {
+        return waiting.get();
+    }
+
+    public long rejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,11 @@
+package com.agentic.humanoid.component;
+
+/**
+ * No permit became free within the bulkhead's wait limit.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
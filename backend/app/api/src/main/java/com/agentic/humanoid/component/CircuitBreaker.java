@@ -0,0 +1,144 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling a dependency whose recent calls mostly fail. The outcomes
+ * of the last {@code window} calls are kept; once at least {@code minCalls}
+ * of them are in and the failure rate reaches {@code failureRate}, the
+ * breaker opens and {@link #tryAcquire()} refuses every call for
+ * {@code openDuration}. After that a single trial call is let through
+ * (half-open): success closes the breaker, failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final int minCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] failed;
+    private int next;
+    private int calls;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int window, int minCalls, double failureRate, Duration openDuration) {
+        this(window, minCalls, failureRate, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int window, int minCalls, double failureRate, Duration openDuration, LongSupplier nanoClock) {
+        this.failed = new boolean[window];
+        this.minCalls = Math.min(minCalls, window);
+        this.failureRate = failureRate;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * True if a call may go ahead now. In half-open state only the first
+     * caller gets through; it must report back with {@link #onSuccess()}
+     * or {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    /**
+     * Whether {@link #tryAcquire()} would let a call through, without taking the trial slot.
+     */
+    public synchronized boolean available() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> nanoClock.getAsLong() - openedAt >= openNanos;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (calls >= minCalls && failures >= failureRate * calls) {
+            open();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * How long until an open breaker lets a trial call through; zero otherwise.
+     */
+    public synchronized Duration retryAfter() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openNanos - (nanoClock.getAsLong() - openedAt)));
+    }
+
+    private void record(boolean failure) {
+        if (calls == failed.length) {
+            failures -= failed[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failed[next] = failure;
+        failures += failure ? 1 : 0;
+        next = (next + 1) % failed.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        trialInFlight = false;
+        reset();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        reset();
+    }
+
+    private void reset() {
+        next = 0;
+        calls = 0;
+        failures = 0;
+    }
+}
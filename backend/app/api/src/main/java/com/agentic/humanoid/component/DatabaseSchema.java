@@ -0,0 +1,280 @@
+package com.agentic.humanoid.component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tables and columns as reported by JDBC {@link DatabaseMetaData}, in the
+ * compact form the SQL prompt uses:
+ *
+ * <pre>
+ * queries(id bigint PK, user_id bigint → users.id, query_text text, created_at timestamp) -- questions users asked
+ * </pre>
+ *
+ * References come from foreign keys, plus {@code <name>_id} columns that
+ * match a table called {@code <name>s} (the conversation tables have no FK
+ * constraints). {@link #prune} keeps the tables and columns a question is
+ * about, ranked by word overlap with table names, column names and comments.
+ */
+public record DatabaseSchema(List<Table> tables) {
+
+    private static final Pattern WORD = Pattern.compile("[^a-z0-9]+");
+
+    // words that say nothing about which table a question is about
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "the", "of", "in", "on", "for", "to", "by",
+            "and", "or", "with", "is", "are", "was", "were", "be", "me", "my", "i", "all", "show", "list", "find",
+            "get", "give", "what", "which", "who", "how", "many", "much", "did", "do", "does", "there", "id", "at",
+            "per", "each", "every", "this", "that", "from", "has", "have", "had", "most", "first", "last", "it",
+            "their", "they", "we", "our", "you", "your");
+
+    private static final Map<String, String> TYPE_NAMES = Map.of("int2", "smallint", "int4", "int", "int8",
+            "bigint", "float4", "real", "float8", "double", "bool", "boolean", "bpchar", "char", "serial", "int",
+            "bigserial", "bigint");
+
+    public record Column(String name, String type, boolean primaryKey, String references) {
+    }
+
+    public record Table(String name, List<Column> columns, String comment) {
+
+        Set<String> referencedTables() {
+            Set<String> referenced = new LinkedHashSet<>();
+            for (Column column : columns) {
+                if (column.references() != null) {
+                    referenced.add(column.references().substring(0, column.references().indexOf('.')));
+                }
+            }
+            return referenced;
+        }
+    }
+
+    /**
+     * Read every table and view in {@code schema}, skipping {@code excluded}.
+     */
+    public static DatabaseSchema load(DatabaseMetaData meta, String schema, Set<String> excluded)
+            throws SQLException {
+        Map<String, String> comments = new LinkedHashMap<>();
+        try (ResultSet rs = meta.getTables(null, schema, "%",
+                new String[] { "TABLE", "VIEW", "MATERIALIZED VIEW", "PARTITIONED TABLE" })) {
+            while (rs.next()) {
+                String name = rs.getString("TABLE_NAME");
+                if (!excluded.contains(name.toLowerCase(Locale.ROOT))) {
+                    comments.put(name, rs.getString("REMARKS"));
+                }
+            }
+        }
+
+        List<Table> tables = new ArrayList<>();
+        for (Map.Entry<String, String> entry : comments.entrySet()) {
+            String table = entry.getKey();
+            Set<String> primaryKey = new HashSet<>();
+            try (ResultSet rs = meta.getPrimaryKeys(null, schema, table)) {
+                while (rs.next()) {
+                    primaryKey.add(rs.getString("COLUMN_NAME"));
+                }
+            }
+            Map<String, String> foreignKeys = new HashMap<>();
+            try (ResultSet rs = meta.getImportedKeys(null, schema, table)) {
+                while (rs.next()) {
+                    foreignKeys.put(rs.getString("FKCOLUMN_NAME"),
+                            rs.getString("PKTABLE_NAME") + "." + rs.getString("PKCOLUMN_NAME"));
+                }
+            }
+            List<Column> columns = new ArrayList<>();
+            try (ResultSet rs = meta.getColumns(null, schema, table, "%")) {
+                while (rs.next()) {
+                    String column = rs.getString("COLUMN_NAME");
+                    String type = rs.getString("TYPE_NAME").toLowerCase(Locale.ROOT);
+                    columns.add(new Column(column, TYPE_NAMES.getOrDefault(type, type), primaryKey.contains(column),
+                            foreignKeys.get(column)));
+                }
+            }
+            tables.add(new Table(table, columns, entry.getValue()));
+        }
+        return new DatabaseSchema(inferReferences(tables));
+    }
+
+    // user_id → users.id when there is no FK constraint to say so
+    private static List<Table> inferReferences(List<Table> tables) {
+        Set<String> names = new HashSet<>();
+        tables.forEach(table -> names.add(table.name()));
+        List<Table> result = new ArrayList<>(tables.size());
+        for (Table table : tables) {
+            List<Column> columns = new ArrayList<>(table.columns().size());
+            for (Column column : table.columns()) {
+                String target = column.name().endsWith("_id")
+                        ? column.name().substring(0, column.name().length() - 3) + "s"
+                        : null;
+                if (column.references() == null && target != null && names.contains(target)
+                        && !target.equals(table.name())) {
+                    columns.add(new Column(column.name(), column.type(), column.primaryKey(), target + ".id"));
+                } else {
+                    columns.add(column);
+                }
+            }
+            result.add(new Table(table.name(), List.copyOf(columns), table.comment()));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * The part of the schema relevant to {@code text}: the best-matching
+     * {@code maxTables} tables plus the tables they reference, each trimmed to
+     * at most {@code maxColumns} columns (keys and matching columns first).
+     * When nothing matches, the whole schema is returned.
+     */
+    public DatabaseSchema prune(String text, int maxTables, int maxColumns) {
+        Set<String> words = words(text);
+        Map<String, Table> byName = new LinkedHashMap<>();
+        tables.forEach(table -> byName.put(table.name(), table));
+
+        // words most tables share (created_at, user_id, "per user") don't tell tables apart
+        Map<String, Integer> tablesUsing = new HashMap<>();
+        for (Table table : tables) {
+            Set<String> tableWords = words(table.comment());
+            table.columns().forEach(column -> tableWords.addAll(words(column.name())));
+            tableWords.forEach(word -> tablesUsing.merge(word, 1, Integer::sum));
+        }
+        Set<String> distinctive = new HashSet<>(words);
+        distinctive.removeIf(word -> tablesUsing.getOrDefault(word, 0) * 2 > tables.size());
+
+        Map<Table, Integer> scores = new HashMap<>();
+        for (Table table : tables) {
+            int score = 3 * overlap(words, table.name()) + 2 * overlap(distinctive, table.comment());
+            for (Column column : table.columns()) {
+                score += overlap(distinctive, column.name());
+            }
+            if (score > 0) {
+                scores.put(table, score);
+            }
+        }
+        if (scores.isEmpty()) {
+            return this;
+        }
+
+        // weak matches next to a strong one are noise
+        int best = scores.values().stream().max(Integer::compare).orElse(0);
+        Set<Table> selected = new LinkedHashSet<>();
+        scores.entrySet().stream()
+                .filter(entry -> entry.getValue() * 3 >= best)
+                .sorted(Map.Entry.<Table, Integer>comparingByValue().reversed()
+                        .thenComparing(entry -> entry.getKey().name()))
+                .limit(maxTables)
+                .forEach(entry -> selected.add(entry.getKey()));
+        // joins need the referenced tables too ("questions asked by alice" → users)
+        for (Table table : List.copyOf(selected)) {
+            for (String referenced : table.referencedTables()) {
+                if (selected.size() >= maxTables) {
+                    break;
+                }
+                if (byName.containsKey(referenced)) {
+                    selected.add(byName.get(referenced));
+                }
+            }
+        }
+
+        List<Table> pruned = new ArrayList<>();
+        for (Table table : tables) {
+            if (selected.contains(table)) {
+                pruned.add(pruneColumns(table, words, maxColumns));
+            }
+        }
+        return new DatabaseSchema(List.copyOf(pruned));
+    }
+
+    private static Table pruneColumns(Table table, Set<String> words, int maxColumns) {
+        if (table.columns().size() <= maxColumns) {
+            return table;
+        }
+        List<Column> ranked = new ArrayList<>(table.columns());
+        ranked.sort(Comparator.comparingInt((Column column) -> column.primaryKey() || column.references() != null
+                ? 0
+                : overlap(words, column.name()) > 0 ? 1 : 2));
+        Set<Column> kept = new HashSet<>(ranked.subList(0, maxColumns));
+        List<Column> columns = table.columns().stream().filter(kept::contains).toList();
+        return new Table(table.name(), columns, table.comment());
+    }
+
+    /**
+     * One line per table; columns in table order.
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder();
+        for (Table table : tables) {
+            out.append(table.name()).append('(');
+            for (int i = 0; i < table.columns().size(); i++) {
+                Column column = table.columns().get(i);
+                if (i > 0) {
+                    out.append(", ");
+                }
+                out.append(column.name()).append(' ').append(column.type());
+                if (column.primaryKey()) {
+                    out.append(" PK");
+                }
+                if (column.references() != null) {
+                    out.append(" → ").append(column.references());
+                }
+            }
+            out.append(')');
+            if (table.comment() != null && !table.comment().isBlank()) {
+                out.append(" -- ").append(table.comment());
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    public Collection<String> tableNames() {
+        return tables.stream().map(Table::name).toList();
+    }
+
+    private static int overlap(Set<String> words, String name) {
+        if (name == null) {
+            return 0;
+        }
+        int matches = 0;
+        for (String word : words(name)) {
+            if (words.contains(word)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    // lower-case words, singular, minus stop words: "Queries by users" → {query, user}
+    static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            words.add(singular(word));
+        }
+        return words;
+    }
+
+    private static String singular(String word) {
+        if (word.length() > 4 && word.endsWith("ies")) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+}
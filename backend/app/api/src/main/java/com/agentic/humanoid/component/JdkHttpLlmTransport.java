@@ -0,0 +1,158 @@
+package com.agentic.humanoid.component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link LlmTransport} on the JDK {@link HttpClient}: one shared client per
+ * application gives a keep-alive connection pool, HTTP/2 multiplexing over
+ * TLS (ALPN) and non-blocking I/O. Auth headers are built once per endpoint.
+ */
+public class JdkHttpLlmTransport implements LlmTransport {
+
+    private final HttpClient httpClient;
+    private final URI endpoint;
+    private final String authorization;
+    private final ObjectMapper mapper;
+
+    public JdkHttpLlmTransport(HttpClient httpClient, URI endpoint, String apiKey, ObjectMapper mapper) {
+        this.httpClient = httpClient;
+        this.endpoint = endpoint;
+        this.authorization = "Bearer " + apiKey;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public CompletableFuture<JsonNode> complete(Object requestBody, Duration deadline) {
+        HttpRequest request;
+        try {
+            request = newRequest(requestBody, deadline, "application/json");
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new LlmTransportException("Could not serialize request", e));
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new LlmTransportException(response.statusCode(), "LLM returned HTTP "
+                                + response.statusCode() + ": " + new String(response.body(), StandardCharsets.UTF_8));
+                    }
+                    try {
+                        return mapper.readTree(response.body());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<Void> stream(Object requestBody, Duration deadline, Consumer<JsonNode> onChunk) {
+        HttpRequest request;
+        try {
+            request = newRequest(requestBody, deadline, "text/event-stream");
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new LlmTransportException("Could not serialize request", e));
+        }
+
+        EventStreamSubscriber subscriber = new EventStreamSubscriber(onChunk);
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(subscriber))
+                .thenCompose(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        subscriber.cancel();
+                        throw new LlmTransportException(response.statusCode(),
+                                "LLM returned HTTP " + response.statusCode());
+                    }
+                    return subscriber.done;
+                })
+                .orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        subscriber.cancel();
+                    }
+                });
+    }
+
+    private HttpRequest newRequest(Object requestBody, Duration deadline, String accept) throws IOException {
+        return HttpRequest.newBuilder(endpoint)
+                .timeout(deadline)
+                .header("Content-Type", "application/json")
+                .header("Accept", accept)
+                .header("Authorization", authorization)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(requestBody)))
+                .build();
+    }
+
+    /**
+     * Pushes OpenAI-style SSE lines ({@code data: {...}}) to the consumer as
+     * they arrive and completes {@link #done} on {@code [DONE]} or end of body.
+     */
+    private final class EventStreamSubscriber implements Flow.Subscriber<String> {
+
+        private final Consumer<JsonNode> onChunk;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+
+        private EventStreamSubscriber(Consumer<JsonNode> onChunk) {
+            this.onChunk = onChunk;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (done.isDone() || !line.startsWith("data:")) {
+                return;
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                done.complete(null);
+                return;
+            }
+            if (data.isEmpty()) {
+                return;
+            }
+            try {
+                onChunk.accept(mapper.readTree(data));
+            } catch (IOException | RuntimeException e) {
+                done.completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+                cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+
+        void cancel() {
+            Flow.Subscription s = subscription;
+            if (s != null) {
+                s.cancel();
+            }
+        }
+    }
+}
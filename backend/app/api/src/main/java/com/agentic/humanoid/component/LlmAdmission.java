@@ -0,0 +1,328 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Admission control for upstream LLM calls, so one busy user can't spend
+ * the node's upstream capacity (and rate limit) for everyone else.
+ * <ol>
+ * <li>Per-user token bucket: {@code user-rate} calls/s, bursts of up to
+ * {@code user-burst}. An empty bucket is a 429 straight away.</li>
+ * <li>Global concurrency limit ({@link AdaptiveConcurrencyLimit}), tuned
+ * continuously from the latency of the calls it lets through.</li>
+ * <li>Calls beyond the limit wait in a start-time fair queue: each user's
+ * calls are tagged one after another in virtual time (steps of
+ * 1/weight), so a burst only queues behind itself and a user with one
+ * call goes ahead of it. A call is shed with 429 up front when its
+ * user already has {@code max-queued-per-user} waiting, the queue holds
+ * {@code max-queued}, or the expected wait exceeds
+ * {@code max-queue-wait}; and when it is still waiting after that.</li>
+ * </ol>
+ * Calls come from {@link LlmClient} after its caches and coalescing, so
+ * only real upstream requests are counted.
+ */
+@Component
+public class LlmAdmission {
+
+    private static final int MAX_USERS = 10_000;
+
+    private final double userRate;
+    private final int userBurst;
+    private final int maxQueued;
+    private final int maxQueuedPerUser;
+    private final Duration maxQueueWait;
+    private final Map<Long, Double> weights;
+    private final AdaptiveConcurrencyLimit limit;
+
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparingDouble(Waiter::finishTag).thenComparingLong(Waiter::seq));
+    // access-ordered, least recently seen users without queued calls dropped past MAX_USERS
+    private final LinkedHashMap<Long, UserState> users = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int inFlight;
+    private double virtualTime;
+    private long seq;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejectedRate = new AtomicLong();
+    private final AtomicLong rejectedQueue = new AtomicLong();
+    private final AtomicLong rejectedWait = new AtomicLong();
+
+    public LlmAdmission(@Value("${llm.admission.user-rate:2}") double userRate,
+            @Value("${llm.admission.user-burst:10}") int userBurst,
+            @Value("${llm.admission.user-weights:}") String userWeights,
+            @Value("${llm.admission.initial-limit:20}") int initialLimit,
+            @Value("${llm.admission.min-limit:4}") int minLimit,
+            @Value("${llm.admission.max-limit:200}") int maxLimit,
+            @Value("${llm.admission.latency-tolerance:1.5}") double tolerance,
+            @Value("${llm.admission.backoff:0.9}") double backoff,
+            @Value("${llm.admission.max-queued:500}") int maxQueued,
+            @Value("${llm.admission.max-queued-per-user:20}") int maxQueuedPerUser,
+            @Value("${llm.admission.max-queue-wait:5s}") Duration maxQueueWait,
+            MeterRegistry meterRegistry) {
+        this.userRate = userRate;
+        this.userBurst = userBurst;
+        this.weights = parseWeights(userWeights);
+        this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, backoff);
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+        this.maxQueueWait = maxQueueWait;
+
+        Gauge.builder("llm.admission.limit", limit, AdaptiveConcurrencyLimit::limit).register(meterRegistry);
+        Gauge.builder("llm.admission.in-flight", this, LlmAdmission::inFlight).register(meterRegistry);
+        Gauge.builder("llm.admission.queued", this, LlmAdmission::queued).register(meterRegistry);
+        FunctionCounter.builder("llm.admission.calls", admitted, AtomicLong::get).tag("outcome", "admitted")
+                .register(meterRegistry);
+        FunctionCounter.builder("llm.admission.calls", rejectedRate, AtomicLong::get).tag("outcome", "rate-limited")
+                .register(meterRegistry);
+        FunctionCounter.builder("llm.admission.calls", rejectedQueue, AtomicLong::get).tag("outcome", "queue-full")
+                .register(meterRegistry);
+        FunctionCounter.builder("llm.admission.calls", rejectedWait, AtomicLong::get).tag("outcome", "wait-expired")
+                .register(meterRegistry);
+    }
+
+    private record Waiter(Long userId, double finishTag, long seq, CompletableFuture<Void> turn) {
+    }
+
+    private static final class UserState {
+        double tokens;
+        long refilledAt;
+        double lastFinish;
+        int queued;
+        final double weight;
+
+        UserState(double tokens, long now, double weight) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Run {@code call} once {@code userId} may make an upstream call and a
+     * slot is free. {@code sampled} calls feed their latency to the
+     * concurrency limit (streams don't: their duration is the answer's length).
+     * Fails with {@link AdmissionRejectedException} when shed.
+     */
+    public <T> CompletableFuture<T> submit(Long userId, boolean sampled, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<Void> turn;
+        synchronized (this) {
+            long now = System.nanoTime();
+            UserState user = user(userId, now);
+            refill(user, now);
+            if (user.tokens < 1) {
+                rejectedRate.incrementAndGet();
+                return CompletableFuture.failedFuture(rateLimited(user));
+            }
+
+            double start = Math.max(virtualTime, user.lastFinish);
+            double finish = start + 1 / user.weight;
+            if (queue.isEmpty() && inFlight < limit.limit()) {
+                user.tokens--;
+                user.lastFinish = finish;
+                virtualTime = start;
+                inFlight++;
+                turn = null;
+            } else {
+                // only the calls tagged before this one are ahead of it
+                Duration expectedWait = expectedWait(1 + queue.stream().filter(w -> w.finishTag() <= finish).count());
+                if (user.queued >= maxQueuedPerUser || queue.size() >= maxQueued
+                        || expectedWait.compareTo(maxQueueWait) > 0) {
+                    rejectedQueue.incrementAndGet();
+                    return CompletableFuture.failedFuture(saturated(expectedWait));
+                }
+                user.tokens--;
+                user.queued++;
+                user.lastFinish = finish;
+                Waiter waiter = new Waiter(userId, finish, seq++, new CompletableFuture<>());
+                queue.add(waiter);
+                turn = waiter.turn();
+                CompletableFuture.delayedExecutor(maxQueueWait.toNanos(), TimeUnit.NANOSECONDS)
+                        .execute(() -> expire(waiter));
+            }
+        }
+
+        if (turn == null) {
+            return run(sampled, call);
+        }
+        return turn.thenCompose(ready -> run(sampled, call));
+    }
+
+    /**
+     * Throw the {@link AdmissionRejectedException} {@link #submit} would fail
+     * with if {@code userId} called now, without taking a token or a slot.
+     * Asks call this before they create or save anything, so a shed ask
+     * leaves no conversation or message behind for the client's retry to
+     * add to. A call that passes can still be shed when it is submitted.
+     */
+    public void check(Long userId) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            UserState user = user(userId, now);
+            refill(user, now);
+            if (user.tokens < 1) {
+                rejectedRate.incrementAndGet();
+                throw rateLimited(user);
+            }
+            if (queue.isEmpty() && inFlight < limit.limit()) {
+                return;
+            }
+            Duration expectedWait = expectedWait(1 + queue.size());
+            if (user.queued >= maxQueuedPerUser || queue.size() >= maxQueued
+                    || expectedWait.compareTo(maxQueueWait) > 0) {
+                rejectedQueue.incrementAndGet();
+                throw saturated(expectedWait);
+            }
+        }
+    }
+
+    public int inFlight() {
+        synchronized (this) {
+            return inFlight;
+        }
+    }
+
+    public int queued() {
+        synchronized (this) {
+            return queue.size();
+        }
+    }
+
+    public int limit() {
+        return limit.limit();
+    }
+
+    // the slot is already taken: run the call and give it back when it settles
+    private <T> CompletableFuture<T> run(boolean sampled, Supplier<CompletableFuture<T>> call) {
+        admitted.incrementAndGet();
+        int concurrent = inFlight();
+        long started = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            release(sampled, started, concurrent, e);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> release(sampled, started, concurrent, error));
+    }
+
+    private void release(boolean sampled, long started, int concurrent, Throwable error) {
+        if (dropped(error)) {
+            limit.onDropped();
+        } else if (sampled && error == null) {
+            limit.onSample(System.nanoTime() - started, concurrent);
+        }
+
+        List<CompletableFuture<Void>> ready = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            while (!queue.isEmpty() && inFlight < limit.limit()) {
+                Waiter next = queue.poll();
+                UserState user = users.get(next.userId());
+                if (user != null) {
+                    user.queued--;
+                }
+                virtualTime = Math.max(virtualTime, next.finishTag() - 1 / (user == null ? 1 : user.weight));
+                inFlight++;
+                ready.add(next.turn());
+            }
+        }
+        // outside the lock: completing a turn runs that caller's upstream call
+        ready.forEach(turn -> turn.complete(null));
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+            UserState user = users.get(waiter.userId());
+            if (user != null) {
+                user.queued--;
+            }
+            rejectedWait.incrementAndGet();
+        }
+        waiter.turn().completeExceptionally(new AdmissionRejectedException(
+                "No LLM capacity within " + maxQueueWait.toSeconds() + "s, try again shortly", maxQueueWait));
+    }
+
+    // upstream pushback, outage or deadline: the limit is too high
+    private static boolean dropped(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof LlmUnavailableException || cause instanceof TimeoutException) {
+            return true;
+        }
+        return cause instanceof LlmTransportException transport
+                && (transport.getStatusCode() == 429 || transport.getStatusCode() == 503);
+    }
+
+    // callers hold the lock
+    private AdmissionRejectedException rateLimited(UserState user) {
+        Duration wait = Duration.ofNanos((long) ((1 - user.tokens) / userRate * 1e9));
+        return new AdmissionRejectedException("Too many LLM requests for this user, try again shortly", wait);
+    }
+
+    private static AdmissionRejectedException saturated(Duration expectedWait) {
+        return new AdmissionRejectedException("LLM capacity is saturated, try again shortly", expectedWait);
+    }
+
+    // callers hold the lock
+    private Duration expectedWait(long position) {
+        long baseline = limit.baselineNanos();
+        return Duration.ofNanos(baseline * position / Math.max(1, limit.limit()));
+    }
+
+    private UserState user(Long userId, long now) {
+        UserState user = users.get(userId);
+        if (user == null) {
+            user = new UserState(userBurst, now, weights.getOrDefault(userId, 1.0));
+            users.put(userId, user);
+            Iterator<UserState> eldest = users.values().iterator();
+            while (users.size() > MAX_USERS && eldest.hasNext()) {
+                if (eldest.next().queued == 0) {
+                    eldest.remove();
+                }
+            }
+        }
+        return user;
+    }
+
+    private void refill(UserState user, long now) {
+        user.tokens = Math.min(userBurst, user.tokens + (now - user.refilledAt) / 1e9 * userRate);
+        user.refilledAt = now;
+    }
+
+    // "42:4,7:2" → user 42 gets 4 shares of the queue, user 7 gets 2, everyone else 1
+    static Map<Long, Double> parseWeights(String spec) {
+        Map<Long, Double> weights = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.strip().split(":");
+            if (parts.length == 2) {
+                weights.put(Long.valueOf(parts[0].strip()), Double.valueOf(parts[1].strip()));
+            }
+        }
+        return weights;
+    }
+}
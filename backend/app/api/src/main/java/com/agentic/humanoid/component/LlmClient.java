@@ -1,209 +1,419 @@
 package com.agentic.humanoid.component;
 
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
+import com.agentic.humanoid.DTO.ConversationContext;
 import com.agentic.humanoid.model.ConversationMessage;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
+@Slf4j
 @Component
 public class LlmClient {
 
-    private static final String API_URL = "https://api.perplexity.ai/chat/completions";
-    private static final String MODEL = "sonar-pro"; // Perplexity Sonar model
+    // ✅ Static prompt parts are built once; only the schema section varies per question
+    private static final Map<String, String> ANSWER_SYSTEM_MESSAGE = Map.of("role", "system", "content",
+            "You are an intelligent agent that helps users query databases, Jira, and reports.");
+
+    private static final String SQL_RULES = "You are an expert SQL generator. " +
+            "Convert natural language questions into SQL queries for a PostgreSQL database. \n\n"
+            +
+            "STRICT RULES:\n" +
+            "- Only generate safe SELECT queries.\n" +
+            "- Allowed: WHERE filters, ORDER BY, LIMIT, GROUP BY, aggregations (COUNT, SUM, etc.), safe joins.\n"
+            +
+            "- Forbidden: INSERT, UPDATE, DELETE, DROP, ALTER, CREATE, TRUNCATE, or any DDL/DML.\n"
+            +
+            "- If impossible with a SELECT query, respond only with: UNSUPPORTED.\n\n";
+
+    private static final String SQL_GUIDE = "\n" +
+            "Interpretation:\n" +
+            "- 'User <number>' → users.id = <number>\n" +
+            "- 'User <name>' → users.username = '<name>' (case-insensitive)\n" +
+            "- To fetch questions asked by a user → select from queries table using queries.user_id.\n\n"
+            +
+            "Examples:\n" +
+            "Q: How many users are there?\n" +
+            "SQL: SELECT COUNT(*) FROM users;\n\n" +
+            "Q: What was the first question asked by User 1?\n" +
+            "SQL: SELECT query_text FROM queries WHERE user_id = 1 ORDER BY created_at ASC LIMIT 1;\n\n"
+            +
+            "Q: Find questions asked by User 3.\n" +
+            "SQL: SELECT query_text FROM queries WHERE user_id = 3 ORDER BY created_at ASC;\n\n"
+            +
+            "Q: Find questions asked by Alice.\n" +
+            "SQL: SELECT q.query_text FROM queries q JOIN users u ON q.user_id = u.id WHERE LOWER(u.username) = 'alice' ORDER BY q.created_at ASC;\n\n"
+            +
+            "Always output only the SQL query, no explanations, no markdown.";
+
+    private static final Map<String, String> PLAN_SYSTEM_MESSAGE = Map.of("role", "system", "content",
+            "You split questions about a PostgreSQL database into independent sub-questions. " +
+                    "Each sub-question must be answerable on its own by one SELECT query, without the " +
+                    "result of another. Keep names, ids and time ranges from the original wording.\n\n" +
+                    "Respond only with a JSON array of strings, no explanations, no markdown. " +
+                    "If the question needs a single query, or its parts depend on each other, respond " +
+                    "with a one-element array holding the question unchanged.\n\n" +
+                    "Q: How many users are there, and what did Alice ask last?\n" +
+                    "[\"How many users are there?\", \"What was the last question asked by Alice?\"]");
+
+    private static final ObjectMapper PLAN_READER = new ObjectMapper();
+
+    // Perplexity Sonar model by default; any OpenAI-compatible model name works
+    @Value("${llm.model:sonar-pro}")
+    private String model;
 
-    // Load your Perplexity API key from application.properties or env
-    @Value("${perplexity.api.key}")
-    private String apiKey;
+    // Per-call deadlines so a stalled upstream can never pin a thread
+    @Value("${llm.http.request-timeout:30s}")
+    private Duration requestTimeout;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Value("${llm.http.stream-timeout:120s}")
+    private Duration streamTimeout;
+
+    private final LlmTransport transport;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SqlGenerationCache sqlCache;
+    private final SchemaCatalog schemaCatalog;
+    private final RequestCoalescer coalescer;
+    private final PipelineMetrics metrics;
+    private final Tracer tracer;
+    private final LlmAdmission admission;
+
+    public LlmClient(LlmTransport transport, SqlGenerationCache sqlCache, SchemaCatalog schemaCatalog,
+            RequestCoalescer coalescer, PipelineMetrics metrics, Tracer tracer, LlmAdmission admission) {
+        this.transport = transport;
+        this.sqlCache = sqlCache;
+        this.schemaCatalog = schemaCatalog;
+        this.coalescer = coalescer;
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.admission = admission;
+    }
+
+    /**
+     * Fail with {@link AdmissionRejectedException} now if {@code userId}'s
+     * next upstream call would be shed (see {@link LlmAdmission#check}).
+     */
+    public void checkAdmission(Long userId) {
+        admission.check(userId);
+    }
 
     public String getAnswer(String question) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-
-            Map<String, Object> requestBody = Map.of(
-                    "model", MODEL,
-                    "messages", new Object[] {
-                            Map.of("role", "system", "content",
-                                    "You are an intelligent agent that helps users query databases, Jira, and reports."),
-                            Map.of("role", "user", "content", question)
-                    });
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            Map<String, Object> response = (Map<String, Object>) restTemplate.postForObject(API_URL, entity, Map.class);
-
-            if (response != null && response.containsKey("choices")) {
-                Map firstChoice = ((List<Map>) response.get("choices")).get(0);
-                Map message = (Map) firstChoice.get("message");
-                return message.get("content").toString().trim();
-            }
+        return getAnswerAsync(question).join();
+    }
 
-            return "Sorry, I could not generate a response.";
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "Error contacting LLM: " + e.getMessage();
-        }
+    public CompletableFuture<String> getAnswerAsync(String question) {
+        List<Map<String, String>> messages = List.of(ANSWER_SYSTEM_MESSAGE, userMessage(question));
+        Map<String, Object> requestBody = Map.of(
+                "model", model,
+                "messages", messages);
+
+        return coalescer.coalesce(coalescingKey("answer", messages),
+                () -> complete("answer", null, requestBody)
+                        .thenApply(response -> firstContent(response).orElse("Sorry, I could not generate a response."))
+                        .exceptionally(e -> fallback(e, "Error contacting LLM: " + rootCause(e).getMessage())));
     }
 
     /**
      * SQL Generator (strict safe SELECT queries only)
      */
     public String generateSql(String question) {
+        return generateSqlAsync(question).join();
+    }
+
+    public CompletableFuture<String> generateSqlAsync(String question) {
+        List<Map<String, String>> messages = List.of(sqlSystemMessage(question), userMessage(question));
+        Map<String, Object> requestBody = Map.of(
+                "model", model,
+                "messages", messages);
+
+        return coalescer.coalesce(coalescingKey("sql", messages),
+                () -> complete("sql", null, requestBody)
+                        .thenApply(response -> firstContent(response).map(LlmClient::stripMarkdown)
+                                .orElse("UNSUPPORTED"))
+                        .exceptionally(e -> fallback(e, "UNSUPPORTED")));
+    }
+
+    /**
+     * Planner: the independent sub-questions of a compound question, in the
+     * order asked. Falls back to the question itself when the reply isn't a
+     * JSON array of strings or the call fails.
+     */
+    public CompletableFuture<List<String>> planQuestionsAsync(String question, Long userId) {
+        List<Map<String, String>> messages = List.of(PLAN_SYSTEM_MESSAGE, userMessage(question));
+        Map<String, Object> requestBody = Map.of(
+                "model", model,
+                "messages", messages);
+
+        return coalescer.coalesce(coalescingKey("plan", messages),
+                () -> complete("plan", userId, requestBody)
+                        .thenApply(response -> firstContent(response)
+                                .map(content -> parsePlan(stripMarkdown(content.replace("```json", "")), question))
+                                .orElse(List.of(question)))
+                        .exceptionally(e -> fallback(e, List.of(question))));
+    }
+
+    static List<String> parsePlan(String content, String question) {
+        List<String> questions = new ArrayList<>();
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-
-            Map<String, Object> requestBody = Map.of(
-                    "model", MODEL,
-                    "messages", new Object[] {
-                            Map.of("role", "system", "content",
-                                    "You are an expert SQL generator. " +
-                                            "Convert natural language questions into SQL queries for a PostgreSQL database. \n\n"
-                                            +
-                                            "STRICT RULES:\n" +
-                                            "- Only generate safe SELECT queries.\n" +
-                                            "- Allowed: WHERE filters, ORDER BY, LIMIT, GROUP BY, aggregations (COUNT, SUM, etc.), safe joins.\n"
-                                            +
-                                            "- Forbidden: INSERT, UPDATE, DELETE, DROP, ALTER, CREATE, TRUNCATE, or any DDL/DML.\n"
-                                            +
-                                            "- If impossible with a SELECT query, respond only with: UNSUPPORTED.\n\n" +
-                                            "Database schema:\n" +
-                                            "users(id SERIAL, username VARCHAR, email VARCHAR, role VARCHAR, created_at TIMESTAMP)\n"
-                                            +
-                                            "queries(id SERIAL, user_id INT, query_text TEXT, response_text TEXT, created_at TIMESTAMP)\n"
-                                            +
-                                            "reports(id SERIAL, user_id INT, report_name VARCHAR, report_file VARCHAR, created_at TIMESTAMP)\n"
-                                            +
-                                            "audit_logs(id SERIAL, user_id INT, action VARCHAR, metadata JSONB, created_at TIMESTAMP)\n\n"
-                                            +
-                                            "Interpretation:\n" +
-                                            "- 'User <number>' → users.id = <number>\n" +
-                                            "- 'User <name>' → users.username = '<name>' (case-insensitive)\n" +
-                                            "- To fetch questions asked by a user → select from queries table using queries.user_id.\n\n"
-                                            +
-                                            "Examples:\n" +
-                                            "Q: How many users are there?\n" +
-                                            "SQL: SELECT COUNT(*) FROM users;\n\n" +
-                                            "Q: What was the first question asked by User 1?\n" +
-                                            "SQL: SELECT query_text FROM queries WHERE user_id = 1 ORDER BY created_at ASC LIMIT 1;\n\n"
-                                            +
-                                            "Q: Find questions asked by User 3.\n" +
-                                            "SQL: SELECT query_text FROM queries WHERE user_id = 3 ORDER BY created_at ASC;\n\n"
-                                            +
-                                            "Q: Find questions asked by Alice.\n" +
-                                            "SQL: SELECT q.query_text FROM queries q JOIN users u ON q.user_id = u.id WHERE LOWER(u.username) = 'alice' ORDER BY q.created_at ASC;\n\n"
-                                            +
-                                            "Always output only the SQL query, no explanations, no markdown."),
-                            Map.of("role", "user", "content", question)
-                    });
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            Map<String, Object> response = restTemplate.postForObject(API_URL, entity, Map.class);
-
-            if (response != null && response.containsKey("choices")) {
-                Map firstChoice = ((List<Map>) response.get("choices")).get(0);
-                Map message = (Map) firstChoice.get("message");
-                String sql = message.get("content").toString().trim();
-                return sql.replace("```sql", "").replace("```", "").trim();
+            JsonNode plan = PLAN_READER.readTree(content);
+            for (JsonNode item : plan.isArray() ? plan : List.<JsonNode>of()) {
+                String sub = item.isTextual() ? item.asText().strip() : "";
+                if (!sub.isEmpty() && !questions.contains(sub)) {
+                    questions.add(sub);
+                }
             }
-
-            return "UNSUPPORTED";
         } catch (Exception e) {
-            e.printStackTrace();
-            return "UNSUPPORTED";
+            log.debug("Planner reply is not a JSON array: {}", content);
         }
+        return questions.isEmpty() ? List.of(question) : questions;
     }
 
     /**
      * SQL Generator with chat history context (Phase 1 & beyond)
      */
-    @SuppressWarnings("unchecked")
-    public String generateSqlWithContext(String question, List<ConversationMessage> history, Long userId) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-
-            List<Map<String, String>> messages = new ArrayList<>();
-
-            // ✅ System instruction (must be first)
-            messages.add(Map.of("role", "system", "content",
-                    "You are an expert SQL generator. Convert natural language questions into SQL queries for a PostgreSQL database.\n\n"
-                            + "STRICT RULES:\n"
-                            + "- Only generate safe SELECT queries.\n"
-                            + "- Allowed operations: WHERE filters, ORDER BY, LIMIT, GROUP BY, aggregations (COUNT, SUM, etc.), and safe joins.\n"
-                            + "- Forbidden: INSERT, UPDATE, DELETE, DROP, ALTER, CREATE, TRUNCATE, or any DDL/DML.\n"
-                            + "- If truly impossible with a SELECT query, respond only with: UNSUPPORTED.\n\n"
-                            + "Interpretation rules:\n"
-                            + "- The phrase 'I' or 'me' always refers to the current user with id = " + userId + ".\n"
-                            + "- 'User <number>' means users.id = <number>.\n"
-                            + "- 'User <name>' means users.username = '<name>' (case-insensitive).\n"
-                            + "- To fetch questions asked by a user, select from the queries table using queries.user_id.\n\n"
-                            + "Database schema:\n"
-                            + "users(id SERIAL, username VARCHAR, email VARCHAR, role VARCHAR, created_at TIMESTAMP)\n"
-                            + "queries(id SERIAL, user_id INT, query_text TEXT, response_text TEXT, created_at TIMESTAMP)\n"
-                            + "reports(id SERIAL, user_id INT, report_name VARCHAR, report_file VARCHAR, created_at TIMESTAMP)\n"
-                            + "audit_logs(id SERIAL, user_id INT, action VARCHAR, metadata JSONB, created_at TIMESTAMP)\n\n"
-                            + "Examples:\n"
-                            + "- Question: 'Show me all questions I have asked.'\n"
-                            + "  SQL: SELECT query_text FROM queries WHERE user_id = " + userId
-                            + " ORDER BY created_at ASC;\n\n"
-                            + "Always output only the SQL query, no explanations, no markdown."));
-
-            // ✅ Add conversation history (ensure alternation)
-            String lastRole = "system";
-            for (ConversationMessage msg : history) {
-                if (lastRole.equals(msg.getRole())) {
-                    System.out.println("⚠️ Skipping duplicate role in history: " + msg.getRole());
-                    continue; // skip duplicates to avoid API 400 error
-                }
-                messages.add(Map.of("role", msg.getRole(), "content", msg.getContent()));
-                lastRole = msg.getRole();
-            }
+    public String generateSqlWithContext(String question, ConversationContext context, Long userId) {
+        return generateSqlWithContextAsync(question, context, userId).join();
+    }
+
+    public CompletableFuture<String> generateSqlWithContextAsync(String question, ConversationContext context,
+            Long userId) {
+        // ✅ Repeated questions (in the same conversation state) skip the LLM entirely
+        Optional<String> cached = sqlCache.get(question, userId, context);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        List<Map<String, String>> messages = buildSqlContextMessages(question, context, userId);
+        Map<String, Object> requestBody = Map.of(
+                "model", model,
+                "messages", messages);
 
-            // ✅ Add current user question only if last isn't already "user"
-            if (!"user".equals(lastRole)) {
-                messages.add(Map.of("role", "user", "content", question));
+        // ✅ Identical prompts already in flight (same question, same history) share one call
+        return coalescer.coalesce(coalescingKey("sql-context", messages),
+                () -> completeSqlWithContext(requestBody, question, context, userId));
+    }
+
+    private CompletableFuture<String> completeSqlWithContext(Map<String, Object> requestBody, String question,
+            ConversationContext context, Long userId) {
+        // ✅ Payloads are only serialized when debug logging is on for this class
+        if (log.isDebugEnabled()) {
+            try {
+                log.debug("➡️ Sending to LLM: {}", mapper.writeValueAsString(requestBody));
+            } catch (Exception ignored) {
+                // debug output only
             }
+        }
 
-            Map<String, Object> requestBody = Map.of(
-                    "model", MODEL,
-                    "messages", messages);
+        return complete("sql-context", userId, requestBody)
+                .thenApply(response -> {
+                    Optional<String> content = firstContent(response);
+                    if (content.isEmpty()) {
+                        return "UNSUPPORTED";
+                    }
 
-            // ✅ Debug print request JSON
-            ObjectMapper mapper = new ObjectMapper();
-            System.out.println("➡️ Sending to LLM: " + mapper.writeValueAsString(requestBody));
+                    log.debug("⬅️ RAW LLM SQL RESPONSE: {}", content.get());
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            Map<String, Object> response = restTemplate.postForObject(API_URL, entity, Map.class);
+                    String sql = stripMarkdown(content.get());
+                    sqlCache.put(question, userId, context, sql);
+                    return sql;
+                })
+                .exceptionally(e -> fallback(e, "UNSUPPORTED"));
+    }
 
-            if (response != null && response.containsKey("choices")) {
-                Map firstChoice = ((List<Map>) response.get("choices")).get(0);
-                Map message = (Map) firstChoice.get("message");
-                String sql = message.get("content").toString().trim();
+    /**
+     * Same as {@link #generateSqlWithContext} but asks the provider for
+     * {@code stream: true} and hands every content delta to {@code onToken}
+     * as it arrives. Returns the complete, cleaned SQL.
+     */
+    public String streamSqlWithContext(String question, ConversationContext context, Long userId,
+            Consumer<String> onToken) {
+        Optional<String> cached = sqlCache.get(question, userId, context);
+        if (cached.isPresent()) {
+            onToken.accept(cached.get());
+            return cached.get();
+        }
 
-                // ✅ Debug log response
-                System.out.println("⬅️ RAW LLM SQL RESPONSE: " + sql);
+        Map<String, Object> requestBody = Map.of(
+                "model", model,
+                "stream", true,
+                "messages", buildSqlContextMessages(question, context, userId));
 
-                return sql.replace("```sql", "").replace("```", "").trim();
-            }
+        StringBuilder sql = new StringBuilder();
+        try {
+            tracer.async(tracer.current(), "llm sql-stream", span -> admission.submit(userId, false,
+                    () -> tracer.within(span, () -> metrics.llm("sql-stream",
+                    () -> transport.stream(requestBody, streamTimeout, chunk -> {
+                        JsonNode delta = chunk.path("choices").path(0).path("delta").path("content");
+                        if (delta.isTextual() && !delta.asText().isEmpty()) {
+                            sql.append(delta.asText());
+                            onToken.accept(delta.asText());
+                        }
+                        // providers that report usage on a stream send it with the last chunk
+                        if (chunk.has("usage")) {
+                            metrics.recordTokens("sql-stream", chunk.path("usage"));
+                            tagTokens(span, chunk.path("usage"));
+                        }
+                    })))).whenComplete((done, error) -> span.tag("llm.model", model))).join();
+        } catch (CompletionException e) {
+            return fallback(e, "UNSUPPORTED");
+        }
 
-            return "UNSUPPORTED";
-        } catch (Exception e) {
-            e.printStackTrace();
+        String cleaned = stripMarkdown(sql.toString());
+        if (cleaned.isEmpty()) {
             return "UNSUPPORTED";
         }
+        sqlCache.put(question, userId, context, cleaned);
+        return cleaned;
+    }
+
+    // one upstream completion: admitted for userId, then timed, token-counted and traced per method
+    private CompletableFuture<JsonNode> complete(String method, Long userId, Map<String, Object> requestBody) {
+        return tracer.async(tracer.current(), "llm " + method, span -> admission
+                .submit(userId, true, () -> tracer.within(span,
+                        () -> metrics.llm(method, () -> transport.complete(requestBody, requestTimeout))))
+                .thenApply(response -> {
+                    metrics.recordTokens(method, response.path("usage"));
+                    span.tag("llm.model", model);
+                    tagTokens(span, response.path("usage"));
+                    return response;
+                }));
+    }
+
+    private static void tagTokens(Trace.Span span, JsonNode usage) {
+        for (String type : new String[] { "prompt", "completion" }) {
+            JsonNode count = usage.path(type + "_tokens");
+            span.tag("llm." + type + "_tokens", count.canConvertToLong() ? count.asLong() : null);
+        }
+    }
+
+    private List<Map<String, String>> buildSqlContextMessages(String question, ConversationContext context,
+            Long userId) {
+        List<Map<String, String>> messages = new ArrayList<>();
+
+        // ✅ System instruction (must be first)
+        messages.add(Map.of("role", "system", "content",
+                "You are an expert SQL generator. Convert natural language questions into SQL queries for a PostgreSQL database.\n\n"
+                        + "STRICT RULES:\n"
+                        + "- Only generate safe SELECT queries.\n"
+                        + "- Allowed operations: WHERE filters, ORDER BY, LIMIT, GROUP BY, aggregations (COUNT, SUM, etc.), and safe joins.\n"
+                        + "- Forbidden: INSERT, UPDATE, DELETE, DROP, ALTER, CREATE, TRUNCATE, or any DDL/DML.\n"
+                        + "- If truly impossible with a SELECT query, respond only with: UNSUPPORTED.\n\n"
+                        + "Interpretation rules:\n"
+                        + "- The phrase 'I' or 'me' always refers to the current user with id = " + userId + ".\n"
+                        + "- 'User <number>' means users.id = <number>.\n"
+                        + "- 'User <name>' means users.username = '<name>' (case-insensitive).\n"
+                        + "- To fetch questions asked by a user, select from the queries table using queries.user_id.\n\n"
+                        + "Database schema:\n"
+                        + schemaCatalog.render(relevanceText(question, context)) + "\n"
+                        + "Examples:\n"
+                        + "- Question: 'Show me all questions I have asked.'\n"
+                        + "  SQL: SELECT query_text FROM queries WHERE user_id = " + userId
+                        + " ORDER BY created_at ASC;\n\n"
+                        + "Always output only the SQL query, no explanations, no markdown."
+                        + renderContextNotes(context)));
+
+        // ✅ Add conversation history (ensure alternation)
+        String lastRole = "system";
+        for (ConversationMessage msg : context.getTurns()) {
+            if (lastRole.equals(msg.getRole())) {
+                log.debug("⚠️ Skipping duplicate role in history: {}", msg.getRole());
+                continue; // skip duplicates to avoid API 400 error
+            }
+            messages.add(Map.of("role", msg.getRole(), "content", msg.getContent()));
+            lastRole = msg.getRole();
+        }
+
+        // ✅ Add current user question only if last isn't already "user"
+        if (!"user".equals(lastRole)) {
+            messages.add(userMessage(question));
+        }
+        return messages;
+    }
+
+    private Map<String, String> sqlSystemMessage(String question) {
+        return Map.of("role", "system", "content",
+                SQL_RULES + "Database schema:\n" + schemaCatalog.render(question) + SQL_GUIDE);
+    }
+
+    // follow-ups ("and last week?") are about the tables earlier turns used
+    private static String relevanceText(String question, ConversationContext context) {
+        StringBuilder text = new StringBuilder(question);
+        for (ConversationMessage msg : context.getTurns()) {
+            if (!"assistant".equals(msg.getRole())) {
+                text.append('\n').append(msg.getContent());
+            }
+        }
+        return text.toString();
+    }
+
+    private static String renderContextNotes(ConversationContext context) {
+        StringBuilder notes = new StringBuilder();
+        if (context.getSummary() != null && !context.getSummary().isBlank()) {
+            notes.append("\n\nEarlier in this conversation:\n").append(context.getSummary());
+        }
+        if (!context.getRecentQuestions().isEmpty()) {
+            notes.append("\n\nThis user's most recent questions:\n- ")
+                    .append(String.join("\n- ", context.getRecentQuestions()));
+        }
+        return notes.toString();
+    }
+
+    // same model + same messages (modulo whitespace) → same completion
+    private String coalescingKey(String operation, List<Map<String, String>> messages) {
+        StringBuilder key = new StringBuilder(operation).append('|').append(model);
+        for (Map<String, String> message : messages) {
+            key.append('|').append(message.get("role")).append(':')
+                    .append(message.get("content").replaceAll("\\s+", " ").strip());
+        }
+        return key.toString();
+    }
+
+    private static Map<String, String> userMessage(String question) {
+        return Map.of("role", "user", "content", question);
+    }
+
+    private static Optional<String> firstContent(JsonNode response) {
+        JsonNode content = response.path("choices").path(0).path("message").path("content");
+        return content.isTextual() ? Optional.of(content.asText().trim()) : Optional.empty();
+    }
+
+    // ✅ A failed call answers with the fallback, but an outage (no provider
+    // could answer) or a shed call propagates so callers report it as one, not as "unsupported"
+    private static <T> T fallback(Throwable e, T value) {
+        if (rootCause(e) instanceof LlmUnavailableException unavailable) {
+            throw unavailable;
+        }
+        if (rootCause(e) instanceof AdmissionRejectedException rejected) {
+            throw rejected;
+        }
+        log.warn("⚠️ LLM call failed, answering with the fallback: {}", rootCause(e).toString());
+        log.debug("LLM call failure", e);
+        return value;
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static String stripMarkdown(String sql) {
+        return sql.replace("```sql", "").replace("```", "").trim();
     }
 
 }
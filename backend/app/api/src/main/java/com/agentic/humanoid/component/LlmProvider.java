@@ -0,0 +1,73 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * One configured upstream for {@link LlmRouter}: its transport, the model
+ * name to send there, a {@link CircuitBreaker}, and the latencies of its
+ * last successful completions, from which the router reads a p95.
+ */
+public class LlmProvider {
+
+    private final String name;
+    private final String model;
+    private final LlmTransport transport;
+    private final CircuitBreaker breaker;
+
+    private final long[] latencyMillis;
+    private int next;
+    private int samples;
+
+    public LlmProvider(String name, String model, LlmTransport transport, CircuitBreaker breaker, int latencyWindow) {
+        this.name = name;
+        this.model = model;
+        this.transport = transport;
+        this.breaker = breaker;
+        this.latencyMillis = new long[latencyWindow];
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // blank → keep the model the request was built with
+    public String model() {
+        return model;
+    }
+
+    public LlmTransport transport() {
+        return transport;
+    }
+
+    public CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    public synchronized void recordLatency(Duration latency) {
+        latencyMillis[next] = latency.toMillis();
+        next = (next + 1) % latencyMillis.length;
+        samples = Math.min(samples + 1, latencyMillis.length);
+    }
+
+    public synchronized int samples() {
+        return samples;
+    }
+
+    /**
+     * 95th percentile of the recorded latencies, or zero before the first one.
+     */
+    public synchronized Duration p95() {
+        if (samples == 0) {
+            return Duration.ZERO;
+        }
+        long[] sorted = Arrays.copyOf(latencyMillis, samples);
+        Arrays.sort(sorted);
+        return Duration.ofMillis(sorted[(int) Math.ceil(samples * 0.95) - 1]);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,377 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link LlmTransport} over several {@link LlmProvider}s.
+ * <ul>
+ * <li>Each call goes to the provider with the lowest p95 latency whose
+ * circuit breaker is closed; providers with fewer than {@code minSamples}
+ * latencies sort first so they get measured, ties keep configuration
+ * order.</li>
+ * <li>If the primary has not answered after its own p95 (never less than
+ * {@code hedgeMinDelay}; {@code hedgeDefaultDelay} until it has samples),
+ * the same request goes to the next provider — or the primary again, when
+ * it is the only one — and the first answer wins. Hedges are capped at
+ * {@code hedgeBudget} of calls so a slow upstream isn't sent twice the
+ * load: each call adds {@code hedgeBudget} to a bucket and each hedge takes
+ * one from it. The bucket holds at most {@value #HEDGE_BURST_CALLS} calls'
+ * worth (at least one hedge), so a long quiet spell doesn't save up a burst
+ * of hedges for when the upstream slows down.</li>
+ * <li>A failed call moves on to the next provider at once. When none is
+ * left, or every breaker is open, the call fails with
+ * {@link LlmUnavailableException}. Only 5xx, 408, 429, timeouts and I/O
+ * errors count as failures; any other 4xx means the request itself was
+ * refused (bad prompt, key or parameters), which the next provider would
+ * refuse too, so it is returned to the caller as is and the breaker is
+ * left alone.</li>
+ * </ul>
+ * Streams are never hedged (tokens are already on their way to the
+ * client) and fail over only before their first chunk.
+ */
+@Slf4j
+public class LlmRouter implements LlmTransport {
+
+    static final int HEDGE_BURST_CALLS = 50;
+
+    private final List<LlmProvider> providers;
+    private final boolean hedge;
+    private final Duration hedgeMinDelay;
+    private final Duration hedgeDefaultDelay;
+    private final double hedgeBudget;
+    private final double hedgeCapacity;
+    private final int minSamples;
+    private final Tracer tracer;
+
+    private final Map<String, Counter> hedgesSent = new LinkedHashMap<>();
+    private final Map<String, Counter> hedgesWon = new LinkedHashMap<>();
+    private final Map<String, Counter> successes = new LinkedHashMap<>();
+    private final Map<String, Counter> failures = new LinkedHashMap<>();
+    private final Map<String, Counter> rejections = new LinkedHashMap<>();
+    private final Counter calls;
+    private final Counter unavailable;
+    private double hedgeTokens;
+
+    public LlmRouter(List<LlmProvider> providers, boolean hedge, Duration hedgeMinDelay, Duration hedgeDefaultDelay,
+            double hedgeBudget, int minSamples, MeterRegistry registry, Tracer tracer) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one LLM provider is required");
+        }
+        this.providers = List.copyOf(providers);
+        this.hedge = hedge;
+        this.hedgeMinDelay = hedgeMinDelay;
+        this.hedgeDefaultDelay = hedgeDefaultDelay;
+        this.hedgeBudget = hedgeBudget;
+        this.hedgeCapacity = Math.max(1.0, hedgeBudget * HEDGE_BURST_CALLS);
+        this.minSamples = minSamples;
+        this.tracer = tracer;
+
+        calls = Counter.builder("llm.router.calls").register(registry);
+        unavailable = Counter.builder("llm.router.unavailable").register(registry);
+        for (LlmProvider provider : this.providers) {
+            String name = provider.name();
+            successes.put(name, registry.counter("llm.router.attempts", "provider", name, "outcome", "success"));
+            failures.put(name, registry.counter("llm.router.attempts", "provider", name, "outcome", "failure"));
+            rejections.put(name, registry.counter("llm.router.attempts", "provider", name, "outcome", "rejected"));
+            hedgesSent.put(name, registry.counter("llm.router.hedges", "provider", name, "outcome", "sent"));
+            hedgesWon.put(name, registry.counter("llm.router.hedges", "provider", name, "outcome", "won"));
+            Gauge.builder("llm.router.latency.p95", provider, p -> p.p95().toMillis())
+                    .baseUnit("milliseconds").tag("provider", name).register(registry);
+            // 0 closed, 1 half-open, 2 open
+            Gauge.builder("llm.router.breaker.state", provider, p -> p.breaker().state().ordinal())
+                    .tag("provider", name).register(registry);
+        }
+    }
+
+    public List<LlmProvider> providers() {
+        return providers;
+    }
+
+    @Override
+    public CompletableFuture<JsonNode> complete(Object requestBody, Duration deadline) {
+        calls.increment();
+        earnHedge();
+        List<LlmProvider> ranked = ranked();
+        if (ranked.isEmpty()) {
+            return CompletableFuture.failedFuture(unavailable(null));
+        }
+        return new Call(requestBody, deadline, ranked, tracer.current()).start();
+    }
+
+    @Override
+    public CompletableFuture<Void> stream(Object requestBody, Duration deadline, Consumer<JsonNode> onChunk) {
+        calls.increment();
+        List<LlmProvider> ranked = ranked();
+        if (ranked.isEmpty()) {
+            return CompletableFuture.failedFuture(unavailable(null));
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        streamFrom(new ArrayDeque<>(ranked), requestBody, deadline, System.nanoTime(), onChunk, tracer.current(),
+                result, null);
+        return result;
+    }
+
+    private void streamFrom(Deque<LlmProvider> remaining, Object requestBody, Duration deadline, long started,
+            Consumer<JsonNode> onChunk, Trace.Span span, CompletableFuture<Void> result, Throwable lastError) {
+        Duration left = deadline.minusNanos(System.nanoTime() - started);
+        LlmProvider provider = nextAcquired(remaining);
+        if (provider == null || left.isNegative() || left.isZero()) {
+            result.completeExceptionally(unavailable(lastError));
+            return;
+        }
+        AtomicBoolean firstChunk = new AtomicBoolean();
+        span.tag("llm.provider", provider.name());
+        send(() -> provider.transport().stream(withModel(requestBody, provider), left, chunk -> {
+            firstChunk.set(true);
+            onChunk.accept(chunk);
+        })).whenComplete((done, error) -> {
+            if (error == null) {
+                provider.breaker().onSuccess();
+                successes.get(provider.name()).increment();
+                result.complete(null);
+                return;
+            }
+            if (!isProviderFault(error)) {
+                rejected(provider, error);
+                result.completeExceptionally(unwrap(error));
+                return;
+            }
+            failed(provider, error);
+            if (firstChunk.get()) {
+                // part of the answer is already out: another provider can't continue it
+                result.completeExceptionally(error);
+            } else {
+                streamFrom(remaining, requestBody, deadline, started, onChunk, span, result, error);
+            }
+        });
+    }
+
+    /**
+     * One routed completion: the attempts in flight and the providers not
+     * tried yet. Attempts that lose a hedge race are left to finish; their
+     * latency still counts toward their provider's p95.
+     */
+    private final class Call {
+
+        private final Object requestBody;
+        private final Duration deadline;
+        private final long started = System.nanoTime();
+        private final Deque<LlmProvider> remaining;
+        private final LlmProvider primary;
+        private final Trace.Span span;
+        private final CompletableFuture<JsonNode> result = new CompletableFuture<>();
+        private int inFlight;
+        private boolean hedged;
+        private Throwable lastError;
+
+        Call(Object requestBody, Duration deadline, List<LlmProvider> ranked, Trace.Span span) {
+            this.requestBody = requestBody;
+            this.deadline = deadline;
+            this.remaining = new ArrayDeque<>(ranked);
+            this.primary = ranked.get(0);
+            this.span = span;
+        }
+
+        CompletableFuture<JsonNode> start() {
+            synchronized (this) {
+                if (!launchNext(false)) {
+                    return CompletableFuture.failedFuture(unavailable(null));
+                }
+            }
+            if (hedge) {
+                Duration delay = hedgeDelay(primary);
+                CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS).execute(this::hedge);
+            }
+            return result;
+        }
+
+        private synchronized void hedge() {
+            if (result.isDone() || hedged || !takeHedge()) {
+                return;
+            }
+            hedged = true;
+            // the only provider is hedged against itself, on another connection/stream
+            if (remaining.isEmpty() && primary.breaker().available()) {
+                remaining.add(primary);
+            }
+            launchNext(true);
+        }
+
+        // caller holds the lock
+        private boolean launchNext(boolean isHedge) {
+            Duration left = deadline.minusNanos(System.nanoTime() - started);
+            if (left.isNegative() || left.isZero()) {
+                return false;
+            }
+            LlmProvider provider = nextAcquired(remaining);
+            if (provider == null) {
+                return false;
+            }
+            inFlight++;
+            if (isHedge) {
+                hedgesSent.get(provider.name()).increment();
+            }
+            long sent = System.nanoTime();
+            send(() -> provider.transport().complete(withModel(requestBody, provider), left))
+                    .whenComplete((response, error) -> finished(provider, isHedge, sent, response, error));
+            return true;
+        }
+
+        private synchronized void finished(LlmProvider provider, boolean isHedge, long sent, JsonNode response,
+                Throwable error) {
+            inFlight--;
+            if (error == null) {
+                provider.recordLatency(Duration.ofNanos(System.nanoTime() - sent));
+                provider.breaker().onSuccess();
+                successes.get(provider.name()).increment();
+                // tagged and counted before callers can see the answer
+                if (!result.isDone()) {
+                    span.tag("llm.provider", provider.name());
+                    span.tag("llm.hedged", hedged);
+                    if (isHedge) {
+                        hedgesWon.get(provider.name()).increment();
+                    }
+                    result.complete(response);
+                }
+                return;
+            }
+            if (!isProviderFault(error)) {
+                rejected(provider, error);
+                if (!result.isDone()) {
+                    result.completeExceptionally(unwrap(error));
+                }
+                return;
+            }
+            failed(provider, error);
+            lastError = error;
+            if (result.isDone()) {
+                return;
+            }
+            // fail over right away; give up only when nothing is left in flight either
+            if (!launchNext(isHedge) && inFlight == 0) {
+                result.completeExceptionally(unavailable(lastError));
+            }
+        }
+    }
+
+    // a transport that throws instead of returning a failed future is a failed attempt too
+    private static <T> CompletableFuture<T> send(Supplier<CompletableFuture<T>> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void failed(LlmProvider provider, Throwable error) {
+        provider.breaker().onFailure();
+        failures.get(provider.name()).increment();
+        log.warn("⚠️ LLM provider {} failed: {}", provider.name(), unwrap(error).toString());
+    }
+
+    // the provider is up and answered; it just won't take this request
+    private void rejected(LlmProvider provider, Throwable error) {
+        provider.breaker().onSuccess();
+        rejections.get(provider.name()).increment();
+        log.warn("⚠️ LLM provider {} rejected the request: {}", provider.name(), unwrap(error).toString());
+    }
+
+    /**
+     * Whether {@code error} says the provider is unhealthy (5xx, 408, 429,
+     * timeout, I/O) rather than that this request is unacceptable (other 4xx).
+     */
+    static boolean isProviderFault(Throwable error) {
+        if (unwrap(error) instanceof LlmTransportException transport) {
+            int status = transport.getStatusCode();
+            return status < 400 || status >= 500 || status == 408 || status == 429;
+        }
+        return true;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // streams are never hedged, so only completions earn hedges
+    private synchronized void earnHedge() {
+        hedgeTokens = Math.min(hedgeTokens + hedgeBudget, hedgeCapacity);
+    }
+
+    private synchronized boolean takeHedge() {
+        if (hedgeTokens < 1.0) {
+            return false;
+        }
+        hedgeTokens -= 1.0;
+        return true;
+    }
+
+    Duration hedgeDelay(LlmProvider provider) {
+        Duration delay = provider.samples() < minSamples ? hedgeDefaultDelay : provider.p95();
+        return delay.compareTo(hedgeMinDelay) < 0 ? hedgeMinDelay : delay;
+    }
+
+    // providers whose breaker lets calls through, fastest p95 first
+    List<LlmProvider> ranked() {
+        List<LlmProvider> ranked = new ArrayList<>();
+        for (LlmProvider provider : providers) {
+            if (provider.breaker().available()) {
+                ranked.add(provider);
+            }
+        }
+        ranked.sort(Comparator.comparingLong(p -> p.samples() < minSamples ? 0 : p.p95().toMillis()));
+        return ranked;
+    }
+
+    private static LlmProvider nextAcquired(Deque<LlmProvider> remaining) {
+        while (!remaining.isEmpty()) {
+            LlmProvider provider = remaining.poll();
+            if (provider.breaker().tryAcquire()) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object withModel(Object requestBody, LlmProvider provider) {
+        if (provider.model() == null || provider.model().isBlank() || !(requestBody instanceof Map)) {
+            return requestBody;
+        }
+        Map<String, Object> body = new LinkedHashMap<>((Map<String, Object>) requestBody);
+        body.put("model", provider.model());
+        return body;
+    }
+
+    private LlmUnavailableException unavailable(Throwable lastError) {
+        unavailable.increment();
+        Duration retryAfter = providers.stream()
+                .map(p -> p.breaker().retryAfter())
+                .filter(d -> !d.isZero())
+                .min(Comparator.naturalOrder())
+                .orElse(Duration.ofSeconds(1));
+        String message = lastError == null
+                ? "No LLM provider available (all circuit breakers open)"
+                : "No LLM provider could answer";
+        return new LlmUnavailableException(message, retryAfter, lastError);
+    }
+}
@@ -0,0 +1,27 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Wire-level access to one OpenAI-compatible chat completions endpoint.
+ * Implementations own connection pooling, auth headers and deadlines;
+ * {@link LlmClient} only builds request bodies and reads responses.
+ */
+public interface LlmTransport {
+
+    /**
+     * POST {@code requestBody} as JSON and complete with the parsed response.
+     * Completes exceptionally on non-2xx status or when {@code deadline} passes.
+     */
+    CompletableFuture<JsonNode> complete(Object requestBody, Duration deadline);
+
+    /**
+     * POST a {@code stream: true} request and hand every SSE {@code data:}
+     * chunk to {@code onChunk} as it arrives. Completes after {@code [DONE]}.
+     */
+    CompletableFuture<Void> stream(Object requestBody, Duration deadline, Consumer<JsonNode> onChunk);
+}
@@ -0,0 +1,23 @@
+package com.agentic.humanoid.component;
+
+/**
+ * Upstream LLM call failed: non-2xx status, unreadable body or deadline.
+ */
+public class LlmTransportException extends RuntimeException {
+
+    private final int statusCode;
+
+    public LlmTransportException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public LlmTransportException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = -1;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
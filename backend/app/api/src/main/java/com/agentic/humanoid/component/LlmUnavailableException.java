@@ -0,0 +1,22 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+
+/**
+ * No configured LLM provider could answer: every one failed, ran out of
+ * time, or has its circuit breaker open. An outage, not a bad question;
+ * callers surface it as 503 with {@link #getRetryAfter()}.
+ */
+public class LlmUnavailableException extends LlmTransportException {
+
+    private final Duration retryAfter;
+
+    public LlmUnavailableException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,102 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the monthly partitions of {@code audit_logs} and
+ * {@code conversation_messages} (see the V3-V5 migrations) rolling: the
+ * next {@code partitions.months-ahead} months are created before rows
+ * arrive for them, and months that ended more than the table's retention
+ * ago are detached and dropped, or moved into {@code partitions.archive-schema}
+ * when one is set. Dropping a month is a catalog change instead of a
+ * DELETE over millions of rows, so neither the table nor its indexes bloat.
+ *
+ * Runs at startup and on {@code partitions.maintenance-cron}. Both steps
+ * are idempotent; with several instances the later run finds nothing to do.
+ */
+@Slf4j
+@Component
+public class PartitionMaintenance {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final Map<String, Duration> retention = new LinkedHashMap<>();
+    private final String archiveSchema;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong removed = new AtomicLong();
+
+    public PartitionMaintenance(JdbcTemplate jdbcTemplate,
+            PipelineMetrics metrics,
+            @Value("${partitions.months-ahead:3}") int monthsAhead,
+            @Value("${partitions.audit-logs.retention:365d}") Duration auditLogsRetention,
+            @Value("${partitions.conversation-messages.retention:0}") Duration messagesRetention,
+            @Value("${partitions.archive-schema:}") String archiveSchema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retention.put("audit_logs", auditLogsRetention);
+        this.retention.put("conversation_messages", messagesRetention);
+        this.archiveSchema = archiveSchema.isBlank() ? null : archiveSchema.strip();
+
+        FunctionCounter.builder("partitions.maintained", created, AtomicLong::get).tag("action", "created")
+                .register(metrics.registry());
+        FunctionCounter.builder("partitions.maintained", removed, AtomicLong::get)
+                .tag("action", this.archiveSchema == null ? "dropped" : "archived")
+                .register(metrics.registry());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${partitions.maintenance-cron:0 15 3 * * *}")
+    public void maintainOnSchedule() {
+        maintain();
+    }
+
+    public synchronized void maintain() {
+        LocalDateTime now = LocalDateTime.now();
+        retention.forEach((table, keep) -> {
+            try {
+                List<String> added = jdbcTemplate.queryForList(
+                        "SELECT create_monthly_partitions(?, ?, ?)", String.class,
+                        table, now, now.plusMonths(monthsAhead));
+                created.addAndGet(added.size());
+                if (!added.isEmpty()) {
+                    log.info("🗓️ Created partitions {}", added);
+                }
+
+                if (keep.isZero() || keep.isNegative()) {
+                    return;
+                }
+                List<String> old = jdbcTemplate.queryForList(
+                        "SELECT drop_partitions_before(?, ?, ?)", String.class,
+                        table, now.minus(keep), archiveSchema);
+                removed.addAndGet(old.size());
+                if (!old.isEmpty()) {
+                    log.info("🧹 {} partitions {}", archiveSchema == null ? "Dropped" : "Archived to " + archiveSchema,
+                            old);
+                }
+            } catch (DataAccessException e) {
+                log.warn("⚠️ Partition maintenance for {} failed: {}", table, e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package com.agentic.humanoid.component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters for each stage of an ask, so a slow answer can be pinned on the
+ * LLM, Postgres, serialization or the write path:
+ *
+ * <pre>
+ * ask.stage{stage}                     lookup, conversation, history, llm, execute, total
+ * llm.request{method,outcome}          answer, sql, sql-context, sql-stream
+ * llm.tokens{method,type}              prompt / completion, from the provider's usage block
+ * sql.execution{path,outcome}          generated SQL on the analytics pool
+ * sql.rows{path}, sql.response.bytes{path}
+ * persistence.write{kind,outcome}      write-behind batches and row-by-row retries
+ * </pre>
+ *
+ * Every timer also carries {@code outcome} (success, error, timeout).
+ * Histogram buckets are switched on per meter in application.properties.
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Time an asynchronous ask stage from the call to completion.
+     */
+    public <T> CompletableFuture<T> stage(String stage, Supplier<CompletableFuture<T>> work) {
+        return time("ask.stage", work, "stage", stage);
+    }
+
+    /**
+     * Time one upstream LLM call (a completion, or a stream until its last chunk).
+     */
+    public <T> CompletableFuture<T> llm(String method, Supplier<CompletableFuture<T>> call) {
+        return time("llm.request", call, "method", method);
+    }
+
+    /**
+     * Record a {@code usage} block ({@code prompt_tokens}, {@code completion_tokens});
+     * missing counts are skipped.
+     */
+    public void recordTokens(String method, JsonNode usage) {
+        for (String type : new String[] { "prompt", "completion" }) {
+            JsonNode count = usage.path(type + "_tokens");
+            if (count.canConvertToLong()) {
+                DistributionSummary.builder("llm.tokens")
+                        .baseUnit("tokens")
+                        .tags("method", method, "type", type)
+                        .register(registry)
+                        .record(count.asLong());
+            }
+        }
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void stopSql(Timer.Sample sample, String path, Throwable error) {
+        sample.stop(Timer.builder("sql.execution").tags("path", path, "outcome", outcome(error)).register(registry));
+    }
+
+    public void recordRows(String path, long rows) {
+        DistributionSummary.builder("sql.rows").baseUnit("rows").tags("path", path).register(registry).record(rows);
+    }
+
+    // serialized JSON answer size; not recorded for SSE chunks, which Spring serializes
+    public void recordBytes(String path, long bytes) {
+        DistributionSummary.builder("sql.response.bytes").baseUnit("bytes").tags("path", path).register(registry)
+                .record(bytes);
+    }
+
+    public void stopWrite(Timer.Sample sample, String kind, Throwable error) {
+        sample.stop(Timer.builder("persistence.write").tags("kind", kind, "outcome", outcome(error))
+                .register(registry));
+    }
+
+    public void recordBatch(int rows) {
+        DistributionSummary.builder("persistence.batch.rows").baseUnit("rows").register(registry).record(rows);
+    }
+
+    private <T> CompletableFuture<T> time(String name, Supplier<CompletableFuture<T>> work, String key,
+            String value) {
+        Timer.Sample sample = Timer.start(registry);
+        CompletableFuture<T> future;
+        try {
+            future = work.get();
+        } catch (RuntimeException e) {
+            sample.stop(Timer.builder(name).tags(key, value, "outcome", outcome(e)).register(registry));
+            throw e;
+        }
+        return future.whenComplete((result, error) -> sample
+                .stop(Timer.builder(name).tags(key, value, "outcome", outcome(error)).register(registry)));
+    }
+
+    private static String outcome(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause == null ? "success" : cause instanceof TimeoutException ? "timeout" : "error";
+    }
+}
@@ -0,0 +1,191 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Results of generated SELECTs, keyed by template text plus bound values and
+ * tagged with the tables the query reads. Bounded by entry count and by total
+ * size; least recently used entries go first.
+ *
+ * Entries are dropped as soon as one of their tables changes: writes made
+ * through JPA arrive via {@link TableChangeEntityListener}, writes from
+ * anywhere else via Postgres NOTIFY ({@link TableChangeNotificationListener}).
+ *
+ * A query that was already running when its table changed must not store
+ * its (possibly stale) result, so callers take a {@link Ticket} before
+ * executing; {@link #put} refuses the value if any tagged table's version
+ * moved in between.
+ */
+@Component
+public class QueryResultCache {
+
+    // results that depend on the clock or on sequences are never cached
+    private static final Pattern VOLATILE = Pattern.compile(
+            "(?i)\\b(now|random|clock_timestamp|statement_timestamp|timeofday|nextval|currval|gen_random_uuid"
+                    + "|current_date|current_time|current_timestamp|localtime|localtimestamp|txid_current)\\b");
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong staleRejections = new AtomicLong();
+
+    public QueryResultCache(@Value("${queries.result-cache.max-entries:500}") int maxEntries,
+            @Value("${queries.result-cache.max-bytes:64MB}") DataSize maxBytes,
+            @Value("${queries.result-cache.max-entry-bytes:1MB}") DataSize maxEntryBytes,
+            @Value("${queries.result-cache.ttl:10m}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes.toBytes();
+        this.maxEntryBytes = maxEntryBytes.toBytes();
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    private record Key(String sql, List<Object> params) {
+    }
+
+    private record Entry(String result, Set<String> tables, long weight, long expiresAt) {
+    }
+
+    /**
+     * Table versions observed before a query ran.
+     */
+    public record Ticket(Key key, Set<String> tables, Map<String, Long> versions) {
+    }
+
+    public boolean isCacheable(SqlTemplate template) {
+        return maxEntries > 0 && !template.tables().isEmpty() && !VOLATILE.matcher(template.text()).find();
+    }
+
+    public Optional<String> get(SqlTemplate template) {
+        if (!isCacheable(template)) {
+            return Optional.empty();
+        }
+        Key key = new Key(template.text(), template.params());
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.expiresAt() - System.nanoTime() < 0) {
+                if (entry != null) {
+                    remove(key);
+                }
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            return Optional.of(entry.result());
+        }
+    }
+
+    public Ticket ticket(SqlTemplate template) {
+        Map<String, Long> versions = new HashMap<>();
+        for (String table : template.tables()) {
+            versions.put(table, version(table).get());
+        }
+        return new Ticket(new Key(template.text(), template.params()), template.tables(), versions);
+    }
+
+    public void put(Ticket ticket, String result) {
+        long weight = 2L * result.length();
+        if (weight > maxEntryBytes) {
+            return;
+        }
+        synchronized (entries) {
+            // a table changed while the query ran → the result may predate the change
+            for (Map.Entry<String, Long> seen : ticket.versions().entrySet()) {
+                if (version(seen.getKey()).get() != seen.getValue()) {
+                    staleRejections.incrementAndGet();
+                    return;
+                }
+            }
+            remove(ticket.key());
+            entries.put(ticket.key(), new Entry(result, ticket.tables(), weight, System.nanoTime() + ttlNanos));
+            bytes += weight;
+
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().weight();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drop every entry that reads {@code table} and fence off queries that
+     * are already in flight against it.
+     */
+    public void invalidateTable(String table) {
+        String name = table.toLowerCase(Locale.ROOT);
+        version(name).incrementAndGet();
+        synchronized (entries) {
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next().getValue();
+                if (entry.tables().contains(name)) {
+                    bytes -= entry.weight();
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        tableVersions.values().forEach(AtomicLong::incrementAndGet);
+        synchronized (entries) {
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    private void remove(Key key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            bytes -= old.weight();
+        }
+    }
+
+    private AtomicLong version(String table) {
+        return tableVersions.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    public Map<String, Object> stats() {
+        synchronized (entries) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", entries.size());
+            stats.put("bytes", bytes);
+            stats.put("maxEntries", maxEntries);
+            stats.put("maxBytes", maxBytes);
+            stats.put("hits", hits.get());
+            stats.put("misses", misses.get());
+            stats.put("evictions", evictions.get());
+            stats.put("invalidations", invalidations.get());
+            stats.put("staleRejections", staleRejections.get());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.agentic.humanoid.component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+/**
+ * A span for every Spring Data repository call made inside a traced request,
+ * named after the application's repository interface ({@code UserRepository.findById}),
+ * not the inherited {@code CrudRepository} method. Outside a trace (scheduled
+ * flushes, startup) the call goes straight through.
+ */
+@Aspect
+@Component
+public class RepositoryTracingAspect {
+
+    private final Tracer tracer;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    public RepositoryTracingAspect(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object trace(ProceedingJoinPoint call) throws Throwable {
+        if (!tracer.current().trace().recording()) {
+            return call.proceed();
+        }
+        String repository = repositoryNames.computeIfAbsent(call.getThis().getClass(),
+                RepositoryTracingAspect::repositoryName);
+        return tracer.inSpan("repository " + repository + "." + call.getSignature().getName(), call::proceed);
+    }
+
+    private static String repositoryName(Class<?> proxyClass) {
+        for (Class<?> type : proxyClass.getInterfaces()) {
+            if (Repository.class.isAssignableFrom(type) && type.getName().startsWith("com.agentic.")) {
+                return type.getSimpleName();
+            }
+        }
+        return proxyClass.getSimpleName();
+    }
+}
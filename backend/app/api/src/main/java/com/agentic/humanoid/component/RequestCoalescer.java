@@ -0,0 +1,81 @@
+package com.agentic.humanoid.component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Single-flight for upstream LLM calls: while a call for a key is in flight,
+ * further callers with the same key wait for it instead of starting their own.
+ *
+ * Every caller gets its own {@link CompletableFuture#copy() copy} of the
+ * shared future, so a caller that times out or cancels only gives up its
+ * copy; the shared call keeps running for everyone else. The key is removed
+ * before the shared future completes, so callers arriving afterwards start a
+ * fresh call (or hit the SQL cache the first call filled).
+ */
+@Component
+public class RequestCoalescer {
+
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong upstream = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("llm.requests.upstream", upstream, AtomicLong::get)
+                .description("LLM calls actually sent upstream").register(meterRegistry);
+        FunctionCounter.builder("llm.requests.coalesced", coalesced, AtomicLong::get)
+                .description("LLM calls answered by joining an identical in-flight call").register(meterRegistry);
+        Gauge.builder("llm.requests.in-flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Join the in-flight call for {@code key}, or start one with {@code call}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> coalesce(String key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> shared = new CompletableFuture<>();
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.copy();
+        }
+
+        upstream.incrementAndGet();
+        try {
+            call.get().whenComplete((value, error) -> {
+                inFlight.remove(key, shared);
+                if (error != null) {
+                    shared.completeExceptionally(error);
+                } else {
+                    shared.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+        }
+        return shared.copy();
+    }
+
+    public Map<String, Object> stats() {
+        long u = upstream.get();
+        long c = coalesced.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("upstream", u);
+        stats.put("coalesced", c);
+        stats.put("coalescedRatio", u + c == 0 ? 0.0 : (double) c / (u + c));
+        return stats;
+    }
+}
@@ -0,0 +1,167 @@
+package com.agentic.humanoid.component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The schema the SQL prompt describes, read from {@link java.sql.DatabaseMetaData}
+ * of the database generated queries run against, instead of a hand-written
+ * copy that drifts.
+ *
+ * Loaded at startup and reloaded when DDL runs (the {@code schema_changes}
+ * event trigger installed by the migrations, picked up by
+ * {@link TableChangeNotificationListener}) and on a slow timer as a fallback
+ * for databases where the event trigger can't be installed. When the schema
+ * actually changed, generated SQL cached against the old one is dropped.
+ *
+ * Partitions are left out: queries go through the partitioned parent, and a
+ * table per month would crowd everything else out of the prompt.
+ */
+@Slf4j
+@Component
+public class SchemaCatalog {
+
+    private final DataSource dataSource;
+    private final SqlGenerationCache sqlCache;
+    private final Set<String> excludedTables;
+    private final int maxTables;
+    private final int maxColumns;
+
+    private volatile DatabaseSchema schema;
+    private volatile int schemaChars;
+    private volatile Instant loadedAt;
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong prompts = new AtomicLong();
+    private final AtomicLong fullChars = new AtomicLong();
+    private final AtomicLong prunedChars = new AtomicLong();
+
+    public SchemaCatalog(@Qualifier("analyticsDataSource") DataSource dataSource,
+            SqlGenerationCache sqlCache,
+            @Value("${schema-catalog.exclude-tables:result_blobs,flyway_schema_history,conversations,conversation_messages,audit_logs}") String excludedTables,
+            @Value("${schema-catalog.max-tables:6}") int maxTables,
+            @Value("${schema-catalog.max-columns:12}") int maxColumns) {
+        this.dataSource = dataSource;
+        this.sqlCache = sqlCache;
+        this.excludedTables = Arrays.stream(excludedTables.split(","))
+                .map(name -> name.strip().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.maxTables = maxTables;
+        this.maxColumns = maxColumns;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${schema-catalog.refresh-interval:10m}",
+            initialDelayString = "${schema-catalog.refresh-interval:10m}")
+    public void refreshOnSchedule() {
+        refresh();
+    }
+
+    /**
+     * Re-read the schema; returns true if it differs from the one in use.
+     */
+    public synchronized boolean refresh() {
+        DatabaseSchema loaded;
+        try (Connection conn = dataSource.getConnection()) {
+            Set<String> excluded = new HashSet<>(excludedTables);
+            excluded.addAll(partitions(conn));
+            loaded = DatabaseSchema.load(conn.getMetaData(), conn.getSchema(), excluded);
+        } catch (SQLException e) {
+            log.warn("⚠️ Schema catalog refresh failed, keeping the previous one: {}", e.getMessage());
+            return false;
+        }
+        refreshes.incrementAndGet();
+        DatabaseSchema previous = schema;
+        schema = loaded;
+        schemaChars = loaded.render().length();
+        loadedAt = Instant.now();
+        if (previous == null || previous.equals(loaded)) {
+            return false;
+        }
+        changes.incrementAndGet();
+        log.info("🔄 Schema changed, now {}; dropping cached SQL", loaded.tableNames());
+        sqlCache.invalidateAll();
+        return true;
+    }
+
+    private static Set<String> partitions(Connection conn) throws SQLException {
+        Set<String> names = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT relname FROM pg_class "
+                        + "WHERE relispartition AND relnamespace = current_schema()::regnamespace")) {
+            while (rs.next()) {
+                names.add(rs.getString(1).toLowerCase(Locale.ROOT));
+            }
+        }
+        return names;
+    }
+
+    public DatabaseSchema schema() {
+        DatabaseSchema current = schema;
+        if (current == null) {
+            refresh();
+            current = schema;
+        }
+        return current == null ? new DatabaseSchema(List.of()) : current;
+    }
+
+    public DatabaseSchema relevant(String text) {
+        return schema().prune(text, maxTables, maxColumns);
+    }
+
+    /**
+     * Prompt lines for the tables and columns relevant to {@code text}
+     * (the question plus recent conversation).
+     */
+    public String render(String text) {
+        String pruned = relevant(text).render();
+        prompts.incrementAndGet();
+        fullChars.addAndGet(schemaChars);
+        prunedChars.addAndGet(pruned.length());
+        return pruned;
+    }
+
+    public Map<String, Object> stats() {
+        DatabaseSchema current = schema;
+        long full = fullChars.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tables", current == null ? 0 : current.tables().size());
+        stats.put("loadedAt", String.valueOf(loadedAt));
+        stats.put("refreshes", refreshes.get());
+        stats.put("changes", changes.get());
+        stats.put("prompts", prompts.get());
+        stats.put("promptChars", prunedChars.get());
+        stats.put("fullSchemaChars", full);
+        stats.put("pruneRatio", full == 0 ? 1.0 : (double) prunedChars.get() / full);
+        return stats;
+    }
+}
@@ -0,0 +1,219 @@
+package com.agentic.humanoid.component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.agentic.humanoid.DTO.ConversationContext;
+import com.agentic.humanoid.model.ConversationMessage;
+
+/**
+ * Bounded LRU + TTL cache of generated SQL, keyed by the normalized question,
+ * the resolved userId (the prompt inlines {@code id = userId}), a fingerprint
+ * of the conversation so far (summary and turns: "sort them by date" means
+ * something else in every conversation) and the current prompt/schema
+ * version. A hit lets the caller skip the LLM round trip.
+ */
+@Component
+public class SqlGenerationCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final String promptVersion;
+
+    // access-order map → iteration order is least-recently-used first
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // part of every key; bumped on invalidateAll() so older keys can never match again
+    private volatile long generation;
+
+    public SqlGenerationCache(@Value("${llm.sql-cache.max-entries:1000}") int maxEntries,
+            @Value("${llm.sql-cache.ttl:10m}") Duration ttl,
+            @Value("${llm.sql-cache.prompt-version:v1}") String promptVersion) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.promptVersion = promptVersion;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > SqlGenerationCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<String> get(String question, Long userId) {
+        return get(question, userId, null);
+    }
+
+    public Optional<String> get(String question, Long userId, ConversationContext context) {
+        if (maxEntries <= 0) {
+            return Optional.empty();
+        }
+        Key key = keyFor(question, userId, context);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            if (entry.isExpired(System.nanoTime())) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            return Optional.of(entry.sql());
+        }
+    }
+
+    public void put(String question, Long userId, String sql) {
+        put(question, userId, null, sql);
+    }
+
+    public void put(String question, Long userId, ConversationContext context, String sql) {
+        if (maxEntries <= 0 || sql == null || sql.isBlank() || "UNSUPPORTED".equalsIgnoreCase(sql)) {
+            return;
+        }
+        Key key = keyFor(question, userId, context);
+        synchronized (entries) {
+            entries.put(key, new Entry(sql, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    /**
+     * Drop every entry. Call this whenever the system prompt or schema changes.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Drop every entry generated for one user.
+     */
+    public int invalidateUser(Long userId) {
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<Key> it = entries.keySet().iterator();
+            while (it.hasNext()) {
+                if (Objects.equals(it.next().userId(), userId)) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        invalidations.addAndGet(removed);
+        return removed;
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxEntries", maxEntries);
+        stats.put("version", currentVersion());
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    public String currentVersion() {
+        return promptVersion + "#" + generation;
+    }
+
+    /**
+     * Lower-case, collapse whitespace and strip trailing punctuation so that
+     * "How many users are there?" and "how many users are there" share an entry.
+     */
+    static String normalize(String question) {
+        if (question == null) {
+            return "";
+        }
+        String normalized = question.toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .trim();
+        return normalized.replaceAll("[\\s?.!;]+$", "");
+    }
+
+    /**
+     * SHA-256 of the summary and turns, or "" for a conversation that has
+     * neither yet, so first questions still share entries across conversations.
+     */
+    static String fingerprint(ConversationContext context) {
+        boolean noSummary = context == null || context.getSummary() == null || context.getSummary().isBlank();
+        boolean noTurns = context == null || context.getTurns() == null || context.getTurns().isEmpty();
+        if (noSummary && noTurns) {
+            return "";
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, noSummary ? "" : context.getSummary());
+        if (!noTurns) {
+            for (ConversationMessage turn : context.getTurns()) {
+                update(digest, turn.getRole());
+                update(digest, turn.getContent());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // length-prefixed, so ("ab", "c") and ("a", "bc") differ
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private Key keyFor(String question, Long userId, ConversationContext context) {
+        return new Key(normalize(question), userId, fingerprint(context), currentVersion());
+    }
+
+    private record Key(String question, Long userId, String context, String version) {
+    }
+
+    private record Entry(String sql, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos > 0;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.agentic.humanoid.component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A generated query split into a parameterized shape and its literal values:
+ * {@code WHERE user_id = 3 AND LOWER(u.username) = 'alice'} becomes
+ * {@code WHERE user_id = ? AND LOWER(u.username) = ?} with {@code [3, "alice"]}.
+ *
+ * Only literals in WHERE, ON and HAVING conditions are extracted. Select-list,
+ * GROUP BY and ORDER BY expressions keep their literals so that ordinals and
+ * grouped expressions still match, and so do LIMIT / OFFSET, typed literals
+ * ({@code DATE '…'}, {@code INTERVAL '…'}), prefixed strings ({@code E'…'}) and
+ * type modifiers ({@code ::numeric(10,2)}). Each value is bound with the
+ * type Postgres gives the inline literal: numbers as integer, bigint or
+ * numeric by their form ({@code id * 0.5} must not make {@code 0.5} a bigint),
+ * strings untyped so Postgres infers them from their context.
+ *
+ * The same pass records the tables named in FROM / JOIN (unqualified, lower
+ * case) so results can be tagged with what they read.
+ */
+public record SqlTemplate(String text, List<Object> params, String originalSql, Set<String> tables) {
+
+    private static final Set<String> CLAUSES = Set.of("SELECT", "FROM", "WHERE", "GROUP", "HAVING", "ORDER",
+            "LIMIT", "OFFSET", "FETCH", "ON", "JOIN", "UNION", "INTERSECT", "EXCEPT", "WINDOW", "RETURNING");
+
+    private static final Set<String> BINDABLE_CLAUSES = Set.of("WHERE", "ON", "HAVING");
+
+    private static final Set<String> TYPED_LITERAL_PREFIXES = Set.of("DATE", "TIME", "TIMESTAMP", "TIMESTAMPTZ",
+            "INTERVAL");
+
+    public boolean isParameterized() {
+        return !params.isEmpty();
+    }
+
+    /**
+     * The query with its literals left inline; used when a bound shape is
+     * rejected by the server (e.g. a parameter whose type can't be inferred).
+     */
+    public SqlTemplate literal() {
+        return new SqlTemplate(originalSql, List.of(), originalSql, tables);
+    }
+
+    public void bind(PreparedStatement ps) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            if (params.get(i) instanceof String value) {
+                ps.setObject(i + 1, value, Types.OTHER);
+            } else {
+                ps.setObject(i + 1, params.get(i));
+            }
+        }
+    }
+
+    // integer if it fits, then bigint, else numeric: the type of the same literal inline
+    static Object number(String literal) {
+        if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+            try {
+                long value = Long.parseLong(literal);
+                return value == (int) value ? (Object) (int) value : (Object) value;
+            } catch (NumberFormatException e) {
+                // past bigint: numeric, as Postgres reads it
+            }
+        }
+        return new BigDecimal(literal);
+    }
+
+    /**
+     * Lex {@code sql} once, dropping comments, collapsing whitespace and
+     * replacing bindable literals with {@code ?}. Queries that already use
+     * {@code ?} (jsonb operators) or dollar quoting are returned as-is.
+     */
+    public static SqlTemplate parse(String sql) {
+        String original = sql.strip();
+        StringBuilder out = new StringBuilder(original.length());
+        List<Object> params = new ArrayList<>();
+        Set<String> tables = new LinkedHashSet<>();
+        boolean expectTable = false;
+
+        Deque<String> outerClauses = new ArrayDeque<>();
+        String clause = "";
+        String prevWord = "";
+        boolean afterCast = false;
+        int typeModifierDepth = 0;
+        int depth = 0;
+
+        int i = 0;
+        int n = original.length();
+        while (i < n) {
+            char c = original.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                appendSpace(out);
+                i++;
+                continue;
+            }
+            if (c == '-' && i + 1 < n && original.charAt(i + 1) == '-') {
+                int end = original.indexOf('\n', i);
+                i = end < 0 ? n : end;
+                appendSpace(out);
+                continue;
+            }
+            if (c == '/' && i + 1 < n && original.charAt(i + 1) == '*') {
+                int end = original.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+                appendSpace(out);
+                continue;
+            }
+            if (c == '?' || c == '$') {
+                return new SqlTemplate(original, List.of(), original, Set.of());
+            }
+
+            if (c == '\'') {
+                int end = endOfString(original, i);
+                String raw = original.substring(i, end);
+                boolean typed = TYPED_LITERAL_PREFIXES.contains(prevWord);
+                if (BINDABLE_CLAUSES.contains(clause) && !typed && typeModifierDepth == 0) {
+                    out.append('?');
+                    params.add(raw.substring(1, raw.length() - 1).replace("''", "'"));
+                } else {
+                    out.append(raw);
+                }
+                prevWord = "";
+                i = end;
+                continue;
+            }
+
+            if (c == '"') {
+                int end = original.indexOf('"', i + 1);
+                end = end < 0 ? n : end + 1;
+                if (expectTable && nextNonSpace(original, end) != '.') {
+                    tables.add(original.substring(i + 1, Math.max(i + 1, end - 1)));
+                    expectTable = false;
+                }
+                out.append(original, i, end);
+                prevWord = "";
+                i = end;
+                continue;
+            }
+
+            boolean signed = c == '-' && i + 1 < n && Character.isDigit(original.charAt(i + 1))
+                    && "=<>(,".indexOf(lastNonSpace(out)) >= 0;
+            if (signed || Character.isDigit(c)
+                    || (c == '.' && i + 1 < n && Character.isDigit(original.charAt(i + 1)))) {
+                int end = endOfNumber(original, signed ? i + 1 : i);
+                if (BINDABLE_CLAUSES.contains(clause) && typeModifierDepth == 0) {
+                    out.append('?');
+                    params.add(number(original.substring(i, end)));
+                } else {
+                    out.append(original, i, end);
+                }
+                prevWord = "";
+                i = end;
+                continue;
+            }
+
+            if (Character.isLetter(c) || c == '_') {
+                int end = i + 1;
+                while (end < n && (Character.isLetterOrDigit(original.charAt(end)) || original.charAt(end) == '_'
+                        || original.charAt(end) == '$')) {
+                    end++;
+                }
+                String word = original.substring(i, end);
+                String upper = word.toUpperCase(Locale.ROOT);
+
+                // E'…', B'…', X'…', N'…', U&'…' keep their literal form
+                if (end < n && (original.charAt(end) == '\''
+                        || (upper.equals("U") && original.startsWith("&'", end)))) {
+                    int start = original.charAt(end) == '&' ? end + 1 : end;
+                    int stringEnd = endOfString(original, start);
+                    out.append(original, i, stringEnd);
+                    prevWord = "";
+                    i = stringEnd;
+                    continue;
+                }
+
+                boolean castType = afterCast;
+                if (expectTable && !upper.equals("ONLY") && !upper.equals("LATERAL")) {
+                    char next = nextNonSpace(original, end);
+                    // schema.table keeps looking for the table; name( is a function
+                    if (next != '.') {
+                        if (next != '(') {
+                            tables.add(word.toLowerCase(Locale.ROOT));
+                        }
+                        expectTable = false;
+                    }
+                } else if (!castType && (upper.equals("FROM") || upper.equals("JOIN"))) {
+                    expectTable = true;
+                }
+                if (CLAUSES.contains(upper) && !castType) {
+                    clause = upper;
+                }
+                out.append(word);
+                prevWord = castType ? "" : upper;
+                // a cast's type name may carry a modifier list: ::numeric(10,2)
+                afterCast = castType && nextNonSpace(original, end) == '(';
+                i = end;
+                continue;
+            }
+
+            if (c == ':' && i + 1 < n && original.charAt(i + 1) == ':') {
+                out.append("::");
+                afterCast = true;
+                i += 2;
+                continue;
+            }
+
+            if (c == ',' && clause.equals("FROM")) {
+                expectTable = true;
+            } else if (c != '.') {
+                expectTable = false;
+            }
+            if (c == '(') {
+                if (afterCast || typeModifierDepth > 0) {
+                    typeModifierDepth++;
+                }
+                outerClauses.push(clause);
+                depth++;
+            } else if (c == ')') {
+                if (typeModifierDepth > 0) {
+                    typeModifierDepth--;
+                }
+                if (depth > 0) {
+                    clause = outerClauses.pop();
+                    depth--;
+                }
+            }
+            afterCast = false;
+            out.append(c);
+            prevWord = "";
+            i++;
+        }
+
+        String text = out.toString().strip();
+        Set<String> read = Set.copyOf(tables);
+        return params.isEmpty()
+                ? new SqlTemplate(original, List.of(), original, read)
+                : new SqlTemplate(text, List.copyOf(params), original, read);
+    }
+
+    private static void appendSpace(StringBuilder out) {
+        if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+            out.append(' ');
+        }
+    }
+
+    private static char lastNonSpace(StringBuilder out) {
+        for (int i = out.length() - 1; i >= 0; i--) {
+            if (out.charAt(i) != ' ') {
+                return out.charAt(i);
+            }
+        }
+        return '(';
+    }
+
+    private static char nextNonSpace(String sql, int from) {
+        for (int i = from; i < sql.length(); i++) {
+            if (!Character.isWhitespace(sql.charAt(i))) {
+                return sql.charAt(i);
+            }
+        }
+        return 0;
+    }
+
+    // index just past the closing quote, honouring '' escapes
+    private static int endOfString(String sql, int openQuote) {
+        int i = openQuote + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    private static int endOfNumber(String sql, int start) {
+        int i = start;
+        while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+            i++;
+        }
+        if (i < sql.length() && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int exp = i + 1;
+            if (exp < sql.length() && (sql.charAt(exp) == '+' || sql.charAt(exp) == '-')) {
+                exp++;
+            }
+            if (exp < sql.length() && Character.isDigit(sql.charAt(exp))) {
+                i = exp;
+                while (i < sql.length() && Character.isDigit(sql.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        return i;
+    }
+}
@@ -0,0 +1,150 @@
+package com.agentic.humanoid.component;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs generated SELECTs as parameterized {@link PreparedStatement}s.
+ *
+ * Every query is turned into a {@link SqlTemplate}; the template text is the
+ * statement shape, so "user 3" and "user 7" share one SQL string. pgjdbc keeps
+ * a per-connection cache keyed by that string and switches to a named
+ * server-side statement after {@code prepareThreshold} executions, which lets
+ * Postgres reuse its plan across users and questions.
+ *
+ * The bounded LRU here tracks the shapes seen so far and remembers the ones
+ * the server refused to plan with parameters; those run with their literals
+ * inline from then on.
+ */
+@Slf4j
+@Component
+public class SqlTemplateCache {
+
+    // parameter type could not be inferred / no matching operator or function / grouping mismatch /
+    // a value that doesn't parse as the type inferred for its parameter
+    private static final Set<String> BIND_FAILURE_STATES = Set.of("42P18", "42725", "42883", "42804", "42803",
+            "22P02");
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Shape> shapes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong literalFallbacks = new AtomicLong();
+
+    public SqlTemplateCache(@Value("${queries.template-cache.max-entries:2000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.shapes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Shape> eldest) {
+                return size() > SqlTemplateCache.this.maxEntries;
+            }
+        };
+    }
+
+    private static final class Shape {
+        private long executions;
+        private boolean literalOnly;
+    }
+
+    @FunctionalInterface
+    public interface ResultSetHandler<T> {
+        T apply(ResultSet rs) throws SQLException, IOException;
+    }
+
+    /**
+     * Template for {@code sql}, or its literal form if this shape is known
+     * not to plan with parameters.
+     */
+    public SqlTemplate templateFor(String sql) {
+        SqlTemplate template = SqlTemplate.parse(sql);
+        if (!template.isParameterized()) {
+            return template;
+        }
+        synchronized (shapes) {
+            Shape shape = shapes.get(template.text());
+            if (shape == null) {
+                misses.incrementAndGet();
+                shape = new Shape();
+                shapes.put(template.text(), shape);
+            } else {
+                hits.incrementAndGet();
+            }
+            shape.executions++;
+            return shape.literalOnly ? template.literal() : template;
+        }
+    }
+
+    /**
+     * Prepare, bind and execute {@code sql} forward-only on {@code con}, then
+     * hand the open ResultSet to {@code handler}. A shape the server rejects
+     * at plan time is retried once with literals inline and remembered.
+     */
+    public <T> T query(Connection con, String sql, int fetchSize, ResultSetHandler<T> handler)
+            throws SQLException, IOException {
+        return query(con, templateFor(sql), fetchSize, handler);
+    }
+
+    /**
+     * As {@link #query(Connection, String, int, ResultSetHandler)} for a
+     * template the caller already obtained from {@link #templateFor}.
+     */
+    public <T> T query(Connection con, SqlTemplate template, int fetchSize, ResultSetHandler<T> handler)
+            throws SQLException, IOException {
+        try (PreparedStatement ps = con.prepareStatement(template.text(), ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            template.bind(ps);
+            ResultSet rs;
+            try {
+                rs = ps.executeQuery();
+            } catch (SQLException e) {
+                if (!template.isParameterized() || !BIND_FAILURE_STATES.contains(e.getSQLState())) {
+                    throw e;
+                }
+                log.warn("⚠️ Template rejected ({}), using literals: {}", e.getSQLState(), template.text());
+                markLiteralOnly(template);
+                if (!con.getAutoCommit()) {
+                    con.rollback();
+                }
+                return query(con, template.literal(), fetchSize, handler);
+            }
+            try (ResultSet open = rs) {
+                return handler.apply(open);
+            }
+        }
+    }
+
+    private void markLiteralOnly(SqlTemplate template) {
+        literalFallbacks.incrementAndGet();
+        synchronized (shapes) {
+            shapes.computeIfAbsent(template.text(), text -> new Shape()).literalOnly = true;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        synchronized (shapes) {
+            long literalOnly = shapes.values().stream().filter(shape -> shape.literalOnly).count();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", shapes.size());
+            stats.put("maxEntries", maxEntries);
+            stats.put("hits", hits.get());
+            stats.put("misses", misses.get());
+            stats.put("literalOnly", literalOnly);
+            stats.put("literalFallbacks", literalFallbacks.get());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.agentic.humanoid.component;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.Table;
+
+/**
+ * JPA listener on every entity: a write invalidates cached results for the
+ * entity's table right away (fencing in-flight queries) and once more after
+ * the transaction completes, because readers can still see the old rows
+ * until the commit. Hibernate gets this bean from Spring, so it is a normal
+ * singleton.
+ */
+@Component
+public class TableChangeEntityListener {
+
+    private final QueryResultCache resultCache;
+    private final Map<Class<?>, String> tableNames = new ConcurrentHashMap<>();
+
+    public TableChangeEntityListener(QueryResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        String table = tableNames.computeIfAbsent(entity.getClass(), TableChangeEntityListener::tableName);
+        resultCache.invalidateTable(table);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        // one afterCompletion per transaction, however many rows it writes
+        @SuppressWarnings("unchecked")
+        Set<String> touched = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (touched == null) {
+            Set<String> tables = new HashSet<>();
+            touched = tables;
+            TransactionSynchronizationManager.bindResource(this, tables);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TableChangeEntityListener.this);
+                    tables.forEach(resultCache::invalidateTable);
+                }
+            });
+        }
+        touched.add(table);
+    }
+
+    private static String tableName(Class<?> type) {
+        Table table = type.getAnnotation(Table.class);
+        return (table != null && !table.name().isEmpty() ? table.name() : type.getSimpleName())
+                .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,142 @@
+package com.agentic.humanoid.component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LISTENs on the {@code table_changes} channel, which the
+ * {@code notify_table_change} trigger (see R__change_notifications.sql) fires after any
+ * statement that writes a table, including writes from psql, batch jobs or
+ * other services. Each notification invalidates that table's cached results.
+ * The {@code schema_changes} channel (DDL event trigger) reloads the
+ * {@link SchemaCatalog}.
+ *
+ * Uses its own connection outside the pool, since a LISTEN connection is held
+ * for the life of the application. After a reconnect everything is
+ * invalidated and the schema re-read, as notifications sent while
+ * disconnected are lost.
+ */
+@Slf4j
+@Component
+public class TableChangeNotificationListener {
+
+    static final String CHANNEL = "table_changes";
+    static final String SCHEMA_CHANNEL = "schema_changes";
+
+    private final DataSourceProperties dataSourceProperties;
+    private final QueryResultCache resultCache;
+    private final SchemaCatalog schemaCatalog;
+
+    @Value("${queries.result-cache.listen:true}")
+    private boolean enabled;
+
+    @Value("${queries.result-cache.listen-poll:5s}")
+    private Duration pollTimeout;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread worker;
+
+    public TableChangeNotificationListener(DataSourceProperties dataSourceProperties,
+            QueryResultCache resultCache, SchemaCatalog schemaCatalog) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.resultCache = resultCache;
+        this.schemaCatalog = schemaCatalog;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::listenLoop, "table-change-listener");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void listenLoop() {
+        long backoffMs = 1000;
+        boolean reconnect = false;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                connection = conn;
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                    stmt.execute("LISTEN " + SCHEMA_CHANNEL);
+                }
+                resultCache.invalidateAll();
+                if (reconnect) {
+                    schemaCatalog.refresh();
+                }
+                reconnect = true;
+                backoffMs = 1000;
+
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications == null) {
+                        continue;
+                    }
+                    boolean schemaChanged = false;
+                    for (PGNotification notification : notifications) {
+                        if (SCHEMA_CHANNEL.equals(notification.getName())) {
+                            schemaChanged = true;
+                        } else {
+                            resultCache.invalidateTable(notification.getParameter());
+                        }
+                    }
+                    // one reload per batch; a migration sends many
+                    if (schemaChanged) {
+                        schemaCatalog.refresh();
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("⚠️ Table change listener disconnected, retrying in {}ms", backoffMs, e);
+                resultCache.invalidateAll();
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Connection conn = connection;
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+                // shutting down
+            }
+        }
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.agentic.humanoid.component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One request's spans. The root span is the request itself; every other
+ * span names its parent, so the tree can be rebuilt by the exporter.
+ *
+ * Spans may be started and ended from any thread (pipeline stages hop
+ * between the ask executor and the LLM client's I/O threads); the span list
+ * is guarded by the trace. At most {@code maxSpans} are recorded, the rest
+ * are only counted, so a runaway loop can't hold a request's memory.
+ *
+ * {@link #NOOP} stands in when nothing is being traced, so instrumented code
+ * never checks for null; it records nothing.
+ */
+public final class Trace {
+
+    public static final Trace NOOP = new Trace("noop", 0);
+
+    private final String traceId = hex(16);
+    private final long startEpochNanos = nowEpochNanos();
+    private final long startNanos = System.nanoTime();
+    private final int maxSpans;
+    private final List<Span> spans = new ArrayList<>();
+    private final AtomicInteger droppedSpans = new AtomicInteger();
+    private final Map<String, Object> tags = new LinkedHashMap<>();
+    private final Span root;
+
+    Trace(String name, int maxSpans) {
+        this.maxSpans = maxSpans;
+        this.root = startSpan(name, null);
+    }
+
+    public String traceId() {
+        return traceId;
+    }
+
+    public Span root() {
+        return root;
+    }
+
+    public boolean recording() {
+        return maxSpans > 0;
+    }
+
+    /**
+     * Attribute of the whole request (userId, conversationId, ...); exported
+     * on every span.
+     */
+    public synchronized Trace tag(String key, Object value) {
+        if (value != null && recording()) {
+            tags.put(key, value);
+        }
+        return this;
+    }
+
+    public synchronized Map<String, Object> tags() {
+        return new LinkedHashMap<>(tags);
+    }
+
+    public boolean failed() {
+        synchronized (this) {
+            return spans.stream().anyMatch(span -> span.error != null);
+        }
+    }
+
+    public long durationNanos() {
+        return root.durationNanos();
+    }
+
+    public int droppedSpans() {
+        return droppedSpans.get();
+    }
+
+    public List<Span> spans() {
+        synchronized (this) {
+            return List.copyOf(spans);
+        }
+    }
+
+    Span startSpan(String name, Span parent) {
+        if (!recording() && root != null) {
+            return root;
+        }
+        Span span = new Span(name, parent == null ? null : parent.spanId);
+        synchronized (this) {
+            if (spans.size() < maxSpans) {
+                spans.add(span);
+            } else {
+                droppedSpans.incrementAndGet();
+            }
+        }
+        return span;
+    }
+
+    private long epochNanos(long nanoTime) {
+        return startEpochNanos + (nanoTime - startNanos);
+    }
+
+    private static long nowEpochNanos() {
+        Instant now = Instant.now();
+        return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+    }
+
+    private static String hex(int bytes) {
+        StringBuilder out = new StringBuilder(bytes * 2);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < bytes; i++) {
+            out.append(String.format("%02x", random.nextInt(256)));
+        }
+        return out.toString();
+    }
+
+    /**
+     * A timed operation within the trace. {@link #end()} is idempotent.
+     */
+    public final class Span {
+
+        private final String spanId = hex(8);
+        private final String parentId;
+        private final String name;
+        private final long start = System.nanoTime();
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+        private volatile long end;
+        private volatile String error;
+
+        private Span(String name, String parentId) {
+            this.name = name;
+            this.parentId = parentId;
+        }
+
+        public Trace trace() {
+            return Trace.this;
+        }
+
+        public String spanId() {
+            return spanId;
+        }
+
+        public String parentId() {
+            return parentId;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public synchronized Span tag(String key, Object value) {
+            if (value != null && recording()) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+
+        public synchronized Map<String, Object> attributes() {
+            return new LinkedHashMap<>(attributes);
+        }
+
+        public String error() {
+            return error;
+        }
+
+        public void end() {
+            if (end == 0) {
+                end = System.nanoTime();
+            }
+        }
+
+        public void end(Throwable failure) {
+            if (failure != null && error == null && recording()) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause()
+                        : failure;
+                error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+            }
+            end();
+        }
+
+        public boolean ended() {
+            return end != 0;
+        }
+
+        public long durationNanos() {
+            return (end == 0 ? System.nanoTime() : end) - start;
+        }
+
+        public long startEpochNanos() {
+            return epochNanos(start);
+        }
+
+        public long endEpochNanos() {
+            return epochNanos(end == 0 ? System.nanoTime() : end);
+        }
+    }
+}
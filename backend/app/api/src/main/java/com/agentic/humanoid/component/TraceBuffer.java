@@ -0,0 +1,125 @@
+package com.agentic.humanoid.component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Tail sampling and in-memory storage for finished traces.
+ *
+ * The decision is made when a request is done, so it can look at the
+ * outcome: every failed trace and every trace slower than
+ * {@code tracing.slow-threshold} is kept, fast successful ones with
+ * probability {@code tracing.sample-rate}. Kept traces go into a ring buffer
+ * of {@code tracing.buffer-size}, oldest evicted first, read through the
+ * {@code traces} actuator endpoint.
+ */
+@Component
+public class TraceBuffer {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+
+    private final ArrayDeque<Trace> traces = new ArrayDeque<>();
+
+    private final AtomicLong keptSlow = new AtomicLong();
+    private final AtomicLong keptFailed = new AtomicLong();
+    private final AtomicLong keptSampled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public TraceBuffer(@Value("${tracing.enabled:true}") boolean enabled,
+            @Value("${tracing.buffer-size:200}") int capacity,
+            @Value("${tracing.slow-threshold:2s}") Duration slowThreshold,
+            @Value("${tracing.sample-rate:0.1}") double sampleRate,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.sampleRate = sampleRate;
+
+        FunctionCounter.builder("tracing.traces", keptFailed, AtomicLong::get).tag("decision", "failed")
+                .register(meterRegistry);
+        FunctionCounter.builder("tracing.traces", keptSlow, AtomicLong::get).tag("decision", "slow")
+                .register(meterRegistry);
+        FunctionCounter.builder("tracing.traces", keptSampled, AtomicLong::get).tag("decision", "sampled")
+                .register(meterRegistry);
+        FunctionCounter.builder("tracing.traces", dropped, AtomicLong::get).tag("decision", "dropped")
+                .register(meterRegistry);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Keep or drop a finished trace; returns true if kept.
+     */
+    public boolean offer(Trace trace) {
+        if (trace.failed()) {
+            keptFailed.incrementAndGet();
+        } else if (trace.durationNanos() >= slowThresholdNanos) {
+            keptSlow.incrementAndGet();
+        } else if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            keptSampled.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        synchronized (traces) {
+            if (traces.size() >= capacity) {
+                traces.pollFirst();
+            }
+            traces.addLast(trace);
+        }
+        return true;
+    }
+
+    /**
+     * Kept traces, newest first.
+     */
+    public List<Trace> recent(int limit) {
+        List<Trace> recent = new ArrayList<>(Math.min(limit, capacity));
+        synchronized (traces) {
+            Iterator<Trace> newestFirst = traces.descendingIterator();
+            while (newestFirst.hasNext() && recent.size() < limit) {
+                recent.add(newestFirst.next());
+            }
+        }
+        return recent;
+    }
+
+    public Optional<Trace> find(String traceId) {
+        synchronized (traces) {
+            return traces.stream().filter(trace -> trace.traceId().equals(traceId)).findFirst();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (traces) {
+            stats.put("buffered", traces.size());
+        }
+        stats.put("capacity", capacity);
+        stats.put("keptFailed", keptFailed.get());
+        stats.put("keptSlow", keptSlow.get());
+        stats.put("keptSampled", keptSampled.get());
+        stats.put("dropped", dropped.get());
+        return stats;
+    }
+}
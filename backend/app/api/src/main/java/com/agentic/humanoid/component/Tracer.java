@@ -0,0 +1,135 @@
+package com.agentic.humanoid.component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-request tracing. A trace is started by the controller, and the span
+ * that is current on a thread becomes the parent of spans started there
+ * (repository calls, LLM calls, generated-SQL execution).
+ *
+ * The current span lives in a thread local, which does not follow work onto
+ * other threads by itself: work handed to an executor is {@link #wrap
+ * wrapped}, and asynchronous stages name their parent explicitly
+ * ({@link #async}), because their callbacks run on whichever thread
+ * completed the previous stage.
+ *
+ * Finished traces go to the {@link TraceBuffer}, which decides what to keep.
+ */
+@Component
+public class Tracer {
+
+    private static final ThreadLocal<Trace.Span> CURRENT = new ThreadLocal<>();
+
+    private final TraceBuffer buffer;
+    private final int maxSpans;
+
+    public Tracer(TraceBuffer buffer, @Value("${tracing.max-spans:200}") int maxSpans) {
+        this.buffer = buffer;
+        this.maxSpans = maxSpans;
+    }
+
+    @FunctionalInterface
+    public interface Work<T, E extends Throwable> {
+        T run() throws E;
+    }
+
+    public Trace startTrace(String name) {
+        return buffer.enabled() ? new Trace(name, maxSpans) : Trace.NOOP;
+    }
+
+    /**
+     * End the root span and offer the trace for sampling.
+     */
+    public void finish(Trace trace, Throwable error) {
+        trace.root().end(error);
+        if (trace.recording()) {
+            buffer.offer(trace);
+        }
+    }
+
+    /**
+     * The span current on this thread, or the no-op span.
+     */
+    public Trace.Span current() {
+        Trace.Span span = CURRENT.get();
+        return span == null ? Trace.NOOP.root() : span;
+    }
+
+    /**
+     * Run {@code work} with {@code span} current on this thread.
+     */
+    public <T, E extends Throwable> T within(Trace.Span span, Work<T, E> work) throws E {
+        Trace.Span previous = CURRENT.get();
+        CURRENT.set(span);
+        try {
+            return work.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Run {@code work} in a new child of the current span, ended when it
+     * returns or throws.
+     */
+    public <T, E extends Throwable> T inSpan(String name, Work<T, E> work) throws E {
+        Trace.Span parent = current();
+        if (!parent.trace().recording()) {
+            return work.run();
+        }
+        Trace.Span span = parent.trace().startSpan(name, parent);
+        try {
+            T result = within(span, work);
+            span.end();
+            return result;
+        } catch (Throwable e) {
+            span.end(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Start {@code work} in a new child of {@code parent}; the span ends when
+     * the returned future completes. The span is current while {@code work}
+     * is being called (not while the future runs), and is passed in for tags.
+     */
+    public <T> CompletableFuture<T> async(Trace.Span parent, String name,
+            Function<Trace.Span, CompletableFuture<T>> work) {
+        Trace.Span span = parent.trace().startSpan(name, parent);
+        if (!parent.trace().recording()) {
+            return work.apply(span);
+        }
+        CompletableFuture<T> future;
+        try {
+            future = within(span, () -> work.apply(span));
+        } catch (RuntimeException e) {
+            span.end(e);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> span.end(error));
+    }
+
+    /**
+     * Carry the current span to the thread that runs {@code work}.
+     */
+    public <T> Supplier<T> wrap(Supplier<T> work) {
+        Trace.Span span = CURRENT.get();
+        if (span == null) {
+            return work;
+        }
+        return () -> within(span, work::get);
+    }
+
+    private static void restore(Trace.Span previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.agentic.humanoid.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor askExecutor;
+    private final Duration requestTimeout;
+
+    public AsyncConfig(@Qualifier("askExecutor") ThreadPoolTaskExecutor askExecutor,
+            @Value("${ask.timeout.request:60s}") Duration requestTimeout) {
+        this.askExecutor = askExecutor;
+        this.requestTimeout = requestTimeout;
+    }
+
+    // Async MVC (CompletableFuture / StreamingResponseBody) runs on the ask pool
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(askExecutor);
+        configurer.setDefaultTimeout(requestTimeout.toMillis());
+    }
+}
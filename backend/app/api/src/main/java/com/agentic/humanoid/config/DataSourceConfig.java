@@ -0,0 +1,107 @@
+package com.agentic.humanoid.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+
+import com.agentic.humanoid.component.Bulkhead;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Two pools: the primary one for JPA and the write path, and a separate
+ * read-only "analytics" pool for LLM-generated SELECTs. Slow generated
+ * queries can exhaust the analytics pool (and its bulkhead) without taking
+ * connections the conversation writes need.
+ *
+ * Both pools report hikaricp.* metrics tagged with their pool name.
+ * If analytics.datasource.url points at a replica, generated queries read
+ * from it and may lag the primary by the replica's delay.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    // Defining any DataSource turns off Boot's auto-configured one, so the primary is explicit
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public HikariDataSource analyticsDataSource(DataSourceProperties dataSourceProperties,
+            @Value("${analytics.datasource.url:}") String replicaUrl,
+            @Value("${analytics.datasource.username:}") String replicaUsername,
+            @Value("${analytics.datasource.password:}") String replicaPassword,
+            @Value("${analytics.datasource.maximum-pool-size:8}") int maximumPoolSize,
+            @Value("${analytics.datasource.minimum-idle:2}") int minimumIdle,
+            @Value("${analytics.datasource.connection-timeout:2s}") Duration connectionTimeout) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("analytics");
+        dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        // no replica configured → same database, separate pool
+        if (StringUtils.hasText(replicaUrl)) {
+            dataSource.setJdbcUrl(replicaUrl);
+            dataSource.setUsername(replicaUsername);
+            dataSource.setPassword(replicaPassword);
+        } else {
+            dataSource.setJdbcUrl(dataSourceProperties.determineUrl());
+            dataSource.setUsername(dataSourceProperties.determineUsername());
+            dataSource.setPassword(dataSourceProperties.determinePassword());
+        }
+        dataSource.setReadOnly(true);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setMinimumIdle(Math.min(minimumIdle, maximumPoolSize));
+        dataSource.setConnectionTimeout(connectionTimeout.toMillis());
+        return dataSource;
+    }
+
+    @Bean
+    public JdbcTemplate analyticsJdbcTemplate(@Qualifier("analyticsDataSource") DataSource analyticsDataSource) {
+        return new JdbcTemplate(analyticsDataSource);
+    }
+
+    // Admission control in front of the analytics pool
+    @Bean
+    public Bulkhead analyticsBulkhead(MeterRegistry meterRegistry,
+            @Value("${analytics.bulkhead.max-concurrent:8}") int maxConcurrent,
+            @Value("${analytics.bulkhead.max-wait:1s}") Duration maxWait) {
+        Bulkhead bulkhead = new Bulkhead("analytics", maxConcurrent, maxWait);
+        Gauge.builder("bulkhead.active", bulkhead, Bulkhead::active).tag("name", bulkhead.name())
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.waiting", bulkhead, Bulkhead::waiting).tag("name", bulkhead.name())
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.rejected", bulkhead, Bulkhead::rejected).tag("name", bulkhead.name())
+                .register(meterRegistry);
+        return bulkhead;
+    }
+}
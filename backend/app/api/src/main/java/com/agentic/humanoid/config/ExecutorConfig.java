@@ -0,0 +1,46 @@
+package com.agentic.humanoid.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// Scheduling drives the write-behind flush timer
+@Configuration
+@EnableScheduling
+public class ExecutorConfig {
+
+    // Worker pool for the ask pipeline's DB stages and streaming responses
+    @Bean
+    public ThreadPoolTaskExecutor askExecutor(
+            @Value("${ask.executor.core-size:16}") int coreSize,
+            @Value("${ask.executor.max-size:64}") int maxSize,
+            @Value("${ask.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ask-");
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Planned sub-queries run here, not on askExecutor: a burst of plans can
+    // hold at most size connections' worth of work and queue-capacity more,
+    // then further parts fail fast instead of starving single asks
+    @Bean
+    public ThreadPoolTaskExecutor subQueryExecutor(
+            @Value("${agent.planner.executor.size:8}") int size,
+            @Value("${agent.planner.executor.queue-capacity:32}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("subquery-");
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,73 @@
+package com.agentic.humanoid.config;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.agentic.humanoid.component.CircuitBreaker;
+import com.agentic.humanoid.component.JdkHttpLlmTransport;
+import com.agentic.humanoid.component.LlmProvider;
+import com.agentic.humanoid.component.LlmRouter;
+import com.agentic.humanoid.component.LlmTransport;
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.component.Tracer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Configuration
+public class LlmConfig {
+
+    // One client for the whole app → shared keep-alive pool + HTTP/2 multiplexing
+    @Bean
+    public HttpClient llmHttpClient(@Value("${llm.http.connect-timeout:5s}") Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    // Every provider in llm.providers (llm.provider.<name>.url/model/api-key) behind one router
+    @Bean
+    public LlmTransport llmTransport(HttpClient llmHttpClient,
+            Environment env,
+            ObjectMapper objectMapper,
+            PipelineMetrics metrics,
+            Tracer tracer,
+            @Value("${llm.providers:perplexity}") List<String> names,
+            @Value("${llm.router.hedge:true}") boolean hedge,
+            @Value("${llm.router.hedge-min-delay:250ms}") Duration hedgeMinDelay,
+            @Value("${llm.router.hedge-default-delay:5s}") Duration hedgeDefaultDelay,
+            @Value("${llm.router.hedge-budget:0.1}") double hedgeBudget,
+            @Value("${llm.router.latency-window:200}") int latencyWindow,
+            @Value("${llm.router.min-samples:20}") int minSamples,
+            @Value("${llm.router.breaker.window:20}") int breakerWindow,
+            @Value("${llm.router.breaker.min-calls:10}") int breakerMinCalls,
+            @Value("${llm.router.breaker.failure-rate:0.5}") double breakerFailureRate,
+            @Value("${llm.router.breaker.open-duration:30s}") Duration breakerOpenDuration) {
+        List<LlmProvider> providers = new ArrayList<>();
+        for (String name : names) {
+            String prefix = "llm.provider." + name.strip() + ".";
+            String url = env.getProperty(prefix + "url",
+                    env.getProperty("llm.api.url", "https://api.perplexity.ai/chat/completions"));
+            String apiKey = env.getProperty(prefix + "api-key", env.getProperty("perplexity.api.key", ""));
+            JdkHttpLlmTransport transport = new JdkHttpLlmTransport(llmHttpClient, URI.create(url), apiKey,
+                    objectMapper);
+            providers.add(new LlmProvider(name.strip(), env.getProperty(prefix + "model", ""), transport,
+                    new CircuitBreaker(breakerWindow, breakerMinCalls, breakerFailureRate, breakerOpenDuration),
+                    latencyWindow));
+            log.info("🔌 LLM provider {} → {}", name.strip(), url);
+        }
+        return new LlmRouter(providers, hedge, hedgeMinDelay, hedgeDefaultDelay, hedgeBudget, minSamples,
+                metrics.registry(), tracer);
+    }
+}
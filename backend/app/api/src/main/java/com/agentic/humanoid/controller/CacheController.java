@@ -0,0 +1,97 @@
+package com.agentic.humanoid.controller;
+
+import com.agentic.humanoid.component.QueryResultCache;
+import com.agentic.humanoid.component.RequestCoalescer;
+import com.agentic.humanoid.component.SchemaCatalog;
+import com.agentic.humanoid.component.SqlGenerationCache;
+import com.agentic.humanoid.component.SqlTemplateCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+public class CacheController {
+
+    private final SqlGenerationCache sqlCache;
+    private final SqlTemplateCache sqlTemplates;
+    private final QueryResultCache resultCache;
+    private final SchemaCatalog schemaCatalog;
+    private final RequestCoalescer coalescer;
+
+    public CacheController(SqlGenerationCache sqlCache, SqlTemplateCache sqlTemplates,
+            QueryResultCache resultCache, SchemaCatalog schemaCatalog, RequestCoalescer coalescer) {
+        this.sqlCache = sqlCache;
+        this.sqlTemplates = sqlTemplates;
+        this.resultCache = resultCache;
+        this.schemaCatalog = schemaCatalog;
+        this.coalescer = coalescer;
+    }
+
+    // GET hit/miss/eviction counters for the NL-to-SQL cache
+    @GetMapping("/sql")
+    public Map<String, Object> sqlCacheStats() {
+        return sqlCache.stats();
+    }
+
+    // DELETE cached SQL (all, or one user's) after a prompt or schema change
+    @DeleteMapping("/sql")
+    public ResponseEntity<Map<String, Object>> invalidateSqlCache(@RequestParam(required = false) Long userId) {
+        if (userId != null) {
+            int removed = sqlCache.invalidateUser(userId);
+            return ResponseEntity.ok(Map.of("userId", userId, "removed", removed));
+        }
+        sqlCache.invalidateAll();
+        return ResponseEntity.ok(Map.of("version", sqlCache.currentVersion()));
+    }
+
+    // GET identical LLM calls that joined one already in flight
+    @GetMapping("/llm-inflight")
+    public Map<String, Object> llmCoalescingStats() {
+        return coalescer.stats();
+    }
+
+    // GET prepared-statement shapes seen so far and literal fallbacks
+    @GetMapping("/sql-templates")
+    public Map<String, Object> sqlTemplateStats() {
+        return sqlTemplates.stats();
+    }
+
+    // GET result cache size/hit/invalidation counters
+    @GetMapping("/results")
+    public Map<String, Object> resultCacheStats() {
+        return resultCache.stats();
+    }
+
+    // DELETE cached results (all, or those reading one table)
+    @DeleteMapping("/results")
+    public ResponseEntity<Map<String, Object>> invalidateResultCache(@RequestParam(required = false) String table) {
+        if (table != null) {
+            resultCache.invalidateTable(table);
+            return ResponseEntity.ok(Map.of("table", table));
+        }
+        resultCache.invalidateAll();
+        return ResponseEntity.ok(resultCache.stats());
+    }
+
+    // GET the schema catalog behind the SQL prompt and how much pruning saves
+    @GetMapping("/schema")
+    public Map<String, Object> schemaCatalogStats(@RequestParam(required = false) String question) {
+        if (question != null) {
+            return Map.of("question", question, "prompt", schemaCatalog.relevant(question).render());
+        }
+        return schemaCatalog.stats();
+    }
+
+    // DELETE the catalog → re-read it from the database now
+    @DeleteMapping("/schema")
+    public ResponseEntity<Map<String, Object>> refreshSchemaCatalog() {
+        boolean changed = schemaCatalog.refresh();
+        Map<String, Object> body = new LinkedHashMap<>(schemaCatalog.stats());
+        body.put("changed", changed);
+        return ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,80 @@
+package com.agentic.humanoid.controller;
+
+import com.agentic.humanoid.DTO.ConversationSummary;
+import com.agentic.humanoid.DTO.KeysetPage;
+import com.agentic.humanoid.DTO.MessageItem;
+import com.agentic.humanoid.DTO.PageCursor;
+import com.agentic.humanoid.model.ConversationMessageRepository;
+import com.agentic.humanoid.repository.ConversationRepository;
+import com.agentic.humanoid.service.MessageWriteBehind;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Conversations and their messages, newest first, paged by (createdAt, id)
+ * keyset: pass a page's {@code nextCursor} back as {@code cursor}.
+ */
+@CrossOrigin(origins = "http://localhost:3000")
+@RestController
+@RequestMapping("/api/conversations")
+public class ConversationController {
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationMessageRepository messageRepository;
+    private final MessageWriteBehind writeBehind;
+
+    @Value("${pagination.max-limit:100}")
+    private int maxPageSize;
+
+    public ConversationController(ConversationRepository conversationRepository,
+            ConversationMessageRepository messageRepository,
+            MessageWriteBehind writeBehind) {
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.writeBehind = writeBehind;
+    }
+
+    // GET a user's conversations (id, title, createdAt)
+    @GetMapping
+    public KeysetPage<ConversationSummary> getConversations(@RequestParam Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = KeysetPage.clamp(limit, maxPageSize);
+        List<ConversationSummary> rows = conversationRepository.findSummaryPage(userId, after.createdAt(),
+                after.id(), PageRequest.of(0, size + 1));
+        return KeysetPage.of(rows, size, ConversationSummary::cursor);
+    }
+
+    // GET a conversation's messages; content only with content=true. 404 unless it is userId's
+    @GetMapping("/{conversationId}/messages")
+    public ResponseEntity<KeysetPage<MessageItem>> getMessages(@PathVariable Long conversationId,
+            @RequestParam Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "false") boolean content) {
+        if (!conversationRepository.existsByIdAndUserId(conversationId, userId)) {
+            return ResponseEntity.notFound().build();
+        }
+        PageCursor after = PageCursor.decode(cursor);
+        int size = KeysetPage.clamp(limit, maxPageSize);
+        writeBehind.flushConversation(conversationId);
+        PageRequest fetch = PageRequest.of(0, size + 1);
+        List<MessageItem> rows = content
+                ? messageRepository.findItemPageWithContent(conversationId, after.createdAt(), after.id(), fetch)
+                : messageRepository.findItemPage(conversationId, after.createdAt(), after.id(), fetch);
+        return ResponseEntity.ok(KeysetPage.of(rows, size, MessageItem::cursor));
+    }
+
+    // malformed cursors
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
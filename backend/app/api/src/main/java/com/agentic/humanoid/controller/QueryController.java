@@ -1,7 +1,14 @@
 package com.agentic.humanoid.controller;
 
-import com.agentic.humanoid.component.LlmClient;
-import com.agentic.humanoid.model.Conversation;
+import com.agentic.humanoid.component.AdmissionRejectedException;
+import com.agentic.humanoid.component.BulkheadFullException;
+import com.agentic.humanoid.component.LlmTransportException;
+import com.agentic.humanoid.component.LlmUnavailableException;
+import com.agentic.humanoid.component.Trace;
+import com.agentic.humanoid.component.Tracer;
+import com.agentic.humanoid.DTO.KeysetPage;
+import com.agentic.humanoid.DTO.PageCursor;
+import com.agentic.humanoid.DTO.QueryHistoryItem;
 import com.agentic.humanoid.model.ConversationMessage;
 import com.agentic.humanoid.model.ConversationMessageRepository;
 import com.agentic.humanoid.model.Queries;
@@ -9,14 +16,39 @@ import com.agentic.humanoid.model.User;
 import com.agentic.humanoid.repository.ConversationRepository;
 import com.agentic.humanoid.repository.QueryRepository;
 import com.agentic.humanoid.repository.UserRepository;
+import com.agentic.humanoid.service.AgentService;
+import com.agentic.humanoid.service.AskPipelineService;
+import com.agentic.humanoid.service.AskPipelineService.AskListener;
+import com.agentic.humanoid.service.ColumnarResults;
 import com.agentic.humanoid.service.DatabaseToolService;
+import com.agentic.humanoid.service.MessageWriteBehind;
+import com.agentic.humanoid.service.ResultFormat;
+import com.agentic.humanoid.service.ResultStore;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.util.RawValue;
 
-import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.Optional;
 
@@ -25,142 +57,360 @@ import java.util.Optional;
 @RequestMapping("/api/queries")
 public class QueryController {
 
+    private static final String TRACE_HEADER = "X-Trace-Id";
+
     private final QueryRepository queryRepository;
     private final UserRepository userRepository;
     private final DatabaseToolService databaseToolService;
-    private final LlmClient llmClient;
-    private final ConversationRepository conversationRepository;
     private final ConversationMessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final AskPipelineService askPipeline;
+    private final AgentService agentService;
+    private final MessageWriteBehind writeBehind;
+    private final ResultStore resultStore;
+    private final Tracer tracer;
+
+    @Value("${queries.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    @Value("${pagination.max-limit:100}")
+    private int maxPageSize;
 
     public QueryController(QueryRepository queryRepository,
             UserRepository userRepository,
             DatabaseToolService databaseToolService,
-            LlmClient llmClient,
+            ConversationMessageRepository messageRepository,
             ConversationRepository conversationRepository,
-            ConversationMessageRepository messageRepository) {
+            AskPipelineService askPipeline,
+            AgentService agentService,
+            MessageWriteBehind writeBehind,
+            ResultStore resultStore,
+            Tracer tracer) {
         this.queryRepository = queryRepository;
         this.userRepository = userRepository;
         this.databaseToolService = databaseToolService;
-        this.llmClient = llmClient;
-        this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
+        this.conversationRepository = conversationRepository;
+        this.askPipeline = askPipeline;
+        this.agentService = agentService;
+        this.writeBehind = writeBehind;
+        this.resultStore = resultStore;
+        this.tracer = tracer;
     }
 
+    /**
+     * Runs the staged ask pipeline; the request thread is released while
+     * the lookups, LLM call, execution and writes are in flight. The trace id
+     * comes back in {@code X-Trace-Id} (see {@code /actuator/traces/{id}}).
+     * Result sets come back as rows unless the client asks for
+     * {@link ResultFormat#COLUMNAR} ({@code ?format=columnar} or the Accept header).
+     */
     @PostMapping("/ask")
-    public ResponseEntity<Map<String, Object>> askQuestion(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> askQuestion(
+            @RequestParam Long userId,
+            @RequestParam String question,
+            @RequestParam(required = false) Long conversationId,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        ResultFormat resultFormat = ResultFormat.negotiate(format, accept);
+        Trace trace = startTrace("POST /api/queries/ask", userId, conversationId);
+        return tracer.within(trace.root(), () -> askPipeline.ask(userId, question, conversationId))
+                .whenComplete((result, error) -> tracer.finish(trace, error))
+                .thenApply(result -> ResponseEntity.ok().header(TRACE_HEADER, trace.traceId())
+                        .contentType(resultFormat.mediaType()).body(result.toBody(resultFormat)))
+                .exceptionally(QueryController::errorResponse);
+    }
+
+    /**
+     * Planning mode for compound questions ("how many users, and what did
+     * Alice ask last?"): split into independent sub-questions that run in
+     * parallel, each with its own deadline. {@code answer} combines them;
+     * {@code parts} has each sub-question's SQL, answer, time and outcome.
+     */
+    @PostMapping("/ask/plan")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> askPlanned(
+            @RequestParam Long userId,
+            @RequestParam String question,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        ResultFormat resultFormat = ResultFormat.negotiate(format, accept);
+        Trace trace = startTrace("POST /api/queries/ask/plan", userId, null);
+        return tracer.within(trace.root(), () -> agentService.handlePlannedQuery(userId, question))
+                .whenComplete((result, error) -> tracer.finish(trace, error))
+                .thenApply(result -> ResponseEntity.ok().header(TRACE_HEADER, trace.traceId())
+                        .contentType(resultFormat.mediaType()).body(result.toBody(resultFormat)))
+                .exceptionally(QueryController::errorResponse);
+    }
+
+    /**
+     * Streaming variant of {@link #askQuestion}. Emits SSE events as each
+     * stage finishes: {@code conversation}, {@code sql-token} (LLM deltas),
+     * {@code sql}, {@code rows} (chunks), then {@code done} or {@code error}.
+     * Rows stop at the same caps as a plain ask; {@code done} says whether they did.
+     */
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter askQuestionStream(
             @RequestParam Long userId,
             @RequestParam String question,
             @RequestParam(required = false) Long conversationId) {
 
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity.badRequest().body(Map.of("error", "User not found"));
-        }
-        User user = userOpt.get();
-
-        // 🔹 Step 1: Ensure conversation exists
-        Conversation conversation;
-        if (conversationId == null) {
-            conversation = new Conversation();
-            conversation.setUserId(userId);
-            conversation.setTitle("Conversation started at " + LocalDateTime.now());
-            conversation = conversationRepository.save(conversation);
-        } else {
-            conversation = conversationRepository.findById(conversationId)
-                    .orElseThrow(() -> new RuntimeException("Conversation not found"));
-        }
-
-        // 🔹 Step 2: Save user message
-        ConversationMessage userMsg = new ConversationMessage();
-        userMsg.setConversationId(conversation.getId());
-        userMsg.setRole("user");
-        userMsg.setContent(question);
-        messageRepository.save(userMsg);
-
-        // 🔹 Step 3: Build context from history
-        List<ConversationMessage> history = messageRepository
-                .findByConversationIdOrderByCreatedAtAsc(conversation.getId());
-
-        // 🔹 Step 4: Ask LLM for SQL
-        List<Queries> historyEntities = queryRepository.findByUserIdOrderByCreatedAtAsc(userId);
-
-        for (Queries q : historyEntities) {
-            ConversationMessage userHistoryMsg = new ConversationMessage();
-            userHistoryMsg.setRole("user");
-            userHistoryMsg.setContent(q.getQueryText());
-            history.add(userHistoryMsg);
-
-            ConversationMessage assistantHistoryMsg = new ConversationMessage();
-            assistantHistoryMsg.setRole("assistant");
-            assistantHistoryMsg.setContent(q.getResponseText());
-            history.add(assistantHistoryMsg);
-        }
-
-        // Now generate SQL with context
-        String sql = llmClient.generateSqlWithContext(question, history, userId);
-
-        // 🔹 Step 5: Save SQL message
-        ConversationMessage sqlMsg = new ConversationMessage();
-        sqlMsg.setConversationId(conversation.getId());
-        sqlMsg.setRole("sql");
-        sqlMsg.setContent(sql);
-        messageRepository.save(sqlMsg);
-
-        // 🔹 Step 6: Execute SQL safely
-        String response;
-        if (sql == null || sql.equalsIgnoreCase("UNSUPPORTED")) {
-            response = "I can only answer safe database-related questions. " +
-                    "Examples:\n- How many users are there?\n" +
-                    "- What was the first question asked by User 1?\n" +
-                    "- Show me all reports for User 2.";
-        } else {
-            response = databaseToolService.executeSafeQuery(sql, userId);
-        }
-
-        // 🔹 Step 7: Save assistant response
-        ConversationMessage assistantMsg = new ConversationMessage();
-        assistantMsg.setConversationId(conversation.getId());
-        assistantMsg.setRole("assistant");
-        assistantMsg.setContent(response);
-        messageRepository.save(assistantMsg);
-
-        // 🔹 Step 8: Also store in legacy Queries table (if you want to keep it)
-        Queries query = new Queries();
-        query.setUser(user);
-        query.setQueryText(question);
-        query.setResponseText(response);
-        queryRepository.save(query);
-
-        // 🔹 Step 9: Return response
-        return ResponseEntity.ok(Map.of(
-                "conversationId", conversation.getId(),
-                "question", question,
-                "sql", sql,
-                "answer", response));
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        SseAskListener listener = new SseAskListener(emitter);
+
+        Trace trace = startTrace("POST /api/queries/ask/stream", userId, conversationId);
+        CompletableFuture<AskPipelineService.AskResult> asked = tracer.within(trace.root(),
+                () -> askPipeline.ask(userId, question, conversationId, listener));
+        asked.whenComplete((result, error) -> {
+            tracer.finish(trace, error);
+            if (error != null) {
+                listener.send("error", errorResponse(error).getBody());
+                emitter.complete();
+                return;
+            }
+            listener.send("done", Map.of("conversationId", result.conversationId(), "rowCount", listener.rowCount,
+                    "truncated", listener.truncated, "traceId", trace.traceId()));
+            emitter.complete();
+        });
+        return emitter;
+    }
+
+    /**
+     * Re-run the SQL of a stored "sql" message and stream every row from the
+     * database cursor straight into the response (bounded by the result caps).
+     * Only messages in one of {@code userId}'s conversations are served; any
+     * other id is a 404, the same as one that does not exist.
+     */
+    @GetMapping("/results/{messageId}")
+    public ResponseEntity<StreamingResponseBody> streamResults(@PathVariable Long messageId,
+            @RequestParam Long userId,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        ResultFormat resultFormat = ResultFormat.negotiate(format, accept);
+        // no flush: a message id is only handed out once the message has been written
+        Optional<ConversationMessage> sqlMsg = messageRepository.findById(messageId)
+                .filter(m -> "sql".equals(m.getRole()))
+                .filter(m -> m.getContent() != null && !m.getContent().equalsIgnoreCase("UNSUPPORTED"))
+                .filter(m -> conversationRepository.existsByIdAndUserId(m.getConversationId(), userId));
+        if (sqlMsg.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String sql = sqlMsg.get().getContent();
+        StreamingResponseBody body = out -> databaseToolService.streamSafeQuery(sql, out, resultFormat);
+        return ResponseEntity.ok().contentType(resultFormat.mediaType()).body(body);
     }
 
     /**
-     * Fetch chat history
+     * Full answer behind an {@code answerId} from the history. Content-addressed,
+     * so it never changes: cacheable forever and revalidated by ETag.
+     * Ids are hashes of the result, and small results are easy to guess, so
+     * only answers of {@code userId}'s own queries or conversation messages
+     * are served; any other id is a 404, like one that does not exist.
+     */
+    @GetMapping("/answers/{answerId}")
+    public ResponseEntity<String> getAnswer(@PathVariable String answerId,
+            @RequestParam Long userId,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        ResultFormat resultFormat = ResultFormat.negotiate(format, accept);
+        if (!ownsAnswer(userId, answerId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return resultStore.load(answerId)
+                .map(answer -> ResponseEntity.ok()
+                        .contentType(resultFormat.mediaType())
+                        .eTag(answerId + "-" + resultFormat.name().toLowerCase(Locale.ROOT))
+                        .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                        .body(ColumnarResults.render(answer, resultFormat)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // a just-asked answer's rows may still be in the write-behind log; a flush writes them all
+    private boolean ownsAnswer(Long userId, String answerId) {
+        writeBehind.flushUser(userId);
+        return queryRepository.existsByUserIdAndResultHash(userId, answerId)
+                || messageRepository.existsByUserIdAndResultHash(userId, answerId);
+    }
+
+    /**
+     * Forwards pipeline stage callbacks to the SSE stream.
+     */
+    private static final class SseAskListener implements AskListener {
+
+        private final SseEmitter emitter;
+        private volatile int rowCount;
+        private volatile boolean truncated;
+
+        private SseAskListener(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public boolean streaming() {
+            return true;
+        }
+
+        @Override
+        public void onConversation(Long conversationId) {
+            send("conversation", Map.of("conversationId", conversationId));
+        }
+
+        @Override
+        public void onSqlToken(String token) {
+            send("sql-token", Map.of("token", token));
+        }
+
+        @Override
+        public void onSql(String sql) {
+            send("sql", Map.of("sql", sql));
+        }
+
+        @Override
+        public void onRows(int offset, List<Map<String, Object>> rows) {
+            rowCount = offset + rows.size();
+            send("rows", Map.of("offset", offset, "rows", rows));
+        }
+
+        @Override
+        public void onRowsComplete(long rowCount, boolean truncated) {
+            this.truncated = truncated;
+        }
+
+        @Override
+        public void onAnswer(String answer) {
+            send("answer", Map.of("answer", answer));
+        }
+
+        private synchronized void send(String name, Object data) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+            } catch (IOException | IllegalStateException e) {
+                // client went away – keep going so the answer is still persisted
+            }
+        }
+    }
+
+    private Trace startTrace(String name, Long userId, Long conversationId) {
+        return tracer.startTrace(name).tag("userId", userId).tag("conversationId", conversationId);
+    }
+
+    private static ResponseEntity<Map<String, Object>> errorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest().body(Map.of("error", cause.getMessage()));
+        }
+        if (cause instanceof BulkheadFullException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", cause.getMessage()));
+        }
+        if (cause instanceof AdmissionRejectedException rejected) {
+            // shed before reaching the LLM: this user (or the node) is over its share
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(rejected.getRetryAfter()))
+                    .body(Map.of("error", rejected.getMessage()));
+        }
+        if (cause instanceof LlmUnavailableException unavailable) {
+            // an upstream outage, not a bad question: clients may retry once a breaker half-opens
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(unavailable.getRetryAfter()))
+                    .body(Map.of("error", unavailable.getMessage()));
+        }
+        if (cause instanceof LlmTransportException refused) {
+            // the LLM refused this request (4xx); retrying or another provider won't help
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(Map.of("error", refused.getMessage()));
+        }
+        if (cause instanceof TimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Map.of("error", "Request timed out"));
+        }
+        cause.printStackTrace();
+        return ResponseEntity.internalServerError().body(Map.of("error", String.valueOf(cause.getMessage())));
+    }
+
+    // whole seconds, rounded up, at least 1
+    private static String retryAfterSeconds(Duration retryAfter) {
+        return String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+    }
+
+    // unknown ?format= values
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Fetch chat history. Large results come back as a preview plus an
+     * {@code answerId} for {@code /answers/{answerId}}; {@code expand=true}
+     * loads them all inline instead.
      */
 
     @GetMapping("/history")
-    public ResponseEntity<List<Map<String, Object>>> getHistory(@RequestParam Long userId) {
+    public ResponseEntity<List<Map<String, Object>>> getHistory(@RequestParam Long userId,
+            @RequestParam(defaultValue = "false") boolean expand,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        ResultFormat resultFormat = ResultFormat.negotiate(format, accept);
+        Trace trace = startTrace("GET /api/queries/history", userId, null);
+        try {
+            ResponseEntity<List<Map<String, Object>>> response = tracer.within(trace.root(),
+                    () -> history(userId, expand, resultFormat));
+            tracer.finish(trace, null);
+            return response;
+        } catch (RuntimeException e) {
+            tracer.finish(trace, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Newest-first history page by (createdAt, id) keyset; pass {@code nextCursor}
+     * back as {@code cursor} for the next one. Answers are only read with
+     * {@code answers=true}, and then as stored (previews for large results).
+     */
+    @GetMapping("/history/page")
+    public ResponseEntity<KeysetPage<QueryHistoryItem>> getHistoryPage(@RequestParam Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "false") boolean answers) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = KeysetPage.clamp(limit, maxPageSize);
+        writeBehind.flushUser(userId);
+        PageRequest fetch = PageRequest.of(0, size + 1);
+        List<QueryHistoryItem> rows = answers
+                ? queryRepository.findHistoryPageWithAnswers(userId, after.createdAt(), after.id(), fetch)
+                : queryRepository.findHistoryPage(userId, after.createdAt(), after.id(), fetch);
+        return ResponseEntity.ok(KeysetPage.of(rows, size, QueryHistoryItem::cursor));
+    }
+
+    private ResponseEntity<List<Map<String, Object>>> history(Long userId, boolean expand, ResultFormat format) {
         Optional<User> userOpt = userRepository.findById(userId);
         if (userOpt.isEmpty()) {
             return ResponseEntity.badRequest().body(null);
         }
 
+        writeBehind.flushUser(userId);
         List<Queries> history = queryRepository.findByUserIdOrderByCreatedAtAsc(userId);
+        Map<String, String> answers = expand
+                ? resultStore.loadAll(history.stream().map(Queries::getResultHash).filter(Objects::nonNull)
+                        .distinct().toList())
+                : Map.of();
 
         // Convert into Chat-like format
         List<Map<String, Object>> chatHistory = history.stream().map(q -> {
             Map<String, Object> entry = new HashMap<>();
             entry.put("question", q.getQueryText());
-            entry.put("answer", q.getResponseText());
+            String stored = q.getResultHash() == null ? q.getResponseText()
+                    : answers.getOrDefault(q.getResultHash(), q.getResponseText());
+            String answer = ColumnarResults.render(stored, format);
+            entry.put("answer", ColumnarResults.isColumnar(answer) ? new RawValue(answer) : answer);
+            if (q.getResultHash() != null) {
+                entry.put("answerId", q.getResultHash());
+            }
             entry.put("timestamp", q.getCreatedAt());
             return entry;
         }).toList();
 
-        return ResponseEntity.ok(chatHistory);
+        return ResponseEntity.ok().contentType(format.mediaType()).body(chatHistory);
     }
 }
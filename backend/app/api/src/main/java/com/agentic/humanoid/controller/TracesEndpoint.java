@@ -0,0 +1,109 @@
+package com.agentic.humanoid.controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.agentic.humanoid.component.Trace;
+import com.agentic.humanoid.component.TraceBuffer;
+
+/**
+ * {@code GET /actuator/traces[?limit=n]} and {@code /actuator/traces/{traceId}}:
+ * the sampled traces in OTLP-JSON ({@code resourceSpans}), so they can be
+ * loaded into any OTLP viewer or replayed to a collector as-is.
+ */
+@Component
+@Endpoint(id = "traces")
+public class TracesEndpoint {
+
+    private final TraceBuffer buffer;
+
+    public TracesEndpoint(TraceBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> traces(@Nullable Integer limit) {
+        Map<String, Object> body = toOtlp(buffer.recent(limit == null ? 20 : limit));
+        body.put("sampling", buffer.stats());
+        return body;
+    }
+
+    @ReadOperation
+    public Map<String, Object> trace(@Selector String traceId) {
+        return buffer.find(traceId).map(trace -> toOtlp(List.of(trace))).orElse(null);
+    }
+
+    private static Map<String, Object> toOtlp(List<Trace> traces) {
+        List<Map<String, Object>> spans = new ArrayList<>();
+        for (Trace trace : traces) {
+            Map<String, Object> tags = trace.tags();
+            if (trace.droppedSpans() > 0) {
+                tags.put("trace.dropped_spans", trace.droppedSpans());
+            }
+            for (Trace.Span span : trace.spans()) {
+                spans.add(toOtlp(trace, span, tags));
+            }
+        }
+
+        Map<String, Object> scopeSpans = new LinkedHashMap<>();
+        scopeSpans.put("scope", Map.of("name", "com.agentic.humanoid"));
+        scopeSpans.put("spans", spans);
+        Map<String, Object> resourceSpans = new LinkedHashMap<>();
+        Map<String, Object> resource = Map.of("service.name", "humanoid");
+        resourceSpans.put("resource", Map.of("attributes", attributes(resource)));
+        resourceSpans.put("scopeSpans", List.of(scopeSpans));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("resourceSpans", List.of(resourceSpans));
+        return body;
+    }
+
+    private static Map<String, Object> toOtlp(Trace trace, Trace.Span span, Map<String, Object> traceTags) {
+        Map<String, Object> attributes = new LinkedHashMap<>(traceTags);
+        attributes.putAll(span.attributes());
+
+        Map<String, Object> otlp = new LinkedHashMap<>();
+        otlp.put("traceId", trace.traceId());
+        otlp.put("spanId", span.spanId());
+        if (span.parentId() != null) {
+            otlp.put("parentSpanId", span.parentId());
+        }
+        otlp.put("name", span.name());
+        otlp.put("kind", span.parentId() == null ? 2 : 1); // SERVER for the request, INTERNAL below it
+        // OTLP-JSON encodes 64-bit integers as strings
+        otlp.put("startTimeUnixNano", Long.toString(span.startEpochNanos()));
+        otlp.put("endTimeUnixNano", Long.toString(span.endEpochNanos()));
+        otlp.put("attributes", attributes(attributes));
+        otlp.put("status", span.error() == null
+                ? Map.of("code", 1)
+                : Map.of("code", 2, "message", span.error()));
+        return otlp;
+    }
+
+    private static List<Map<String, Object>> attributes(Map<String, Object> values) {
+        List<Map<String, Object>> attributes = new ArrayList<>(values.size());
+        values.forEach((key, value) -> attributes.add(Map.of("key", key, "value", anyValue(value))));
+        return attributes;
+    }
+
+    private static Map<String, Object> anyValue(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return Map.of("doubleValue", value);
+        }
+        if (value instanceof Number number) {
+            return Map.of("intValue", number.toString());
+        }
+        if (value instanceof Boolean) {
+            return Map.of("boolValue", value);
+        }
+        return Map.of("stringValue", String.valueOf(value));
+    }
+}
@@ -1,10 +1,18 @@
 package com.agentic.humanoid.controller;
 
+import com.agentic.humanoid.DTO.KeysetPage;
+import com.agentic.humanoid.DTO.PageCursor;
+import com.agentic.humanoid.DTO.UserSummary;
 import com.agentic.humanoid.model.User;
 import com.agentic.humanoid.repository.UserRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/users")
@@ -12,6 +20,9 @@ public class UserController {
 
     private final UserRepository userRepository;
 
+    @Value("${pagination.max-limit:100}")
+    private int maxPageSize;
+
     public UserController(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
@@ -22,9 +33,26 @@ public class UserController {
         return userRepository.findAll();
     }
 
+    // GET users newest first, paged by (createdAt, id) keyset
+    @GetMapping("/page")
+    public KeysetPage<UserSummary> getUserPage(@RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = KeysetPage.clamp(limit, maxPageSize);
+        List<UserSummary> rows = userRepository.findSummaryPage(after.createdAt(), after.id(),
+                PageRequest.of(0, size + 1));
+        return KeysetPage.of(rows, size, UserSummary::cursor);
+    }
+
     // POST create new user
     @PostMapping
     public User createUser(@RequestBody User user) {
         return userRepository.save(user);
     }
-}
\ No newline at end of file
+
+    // malformed cursors
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
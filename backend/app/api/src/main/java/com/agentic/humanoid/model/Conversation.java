@@ -4,29 +4,46 @@ import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import com.agentic.humanoid.component.TableChangeEntityListener;
+
 @Entity
-@Table(name = "conversations")
+@EntityListeners(TableChangeEntityListener.class)
+@Table(name = "conversations",
+        indexes = @Index(name = "idx_conversations_user_created", columnList = "userId, createdAt, id"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Conversation {
+    // Pooled sequence (allocationSize 50) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "conversations_seq")
+    @SequenceGenerator(name = "conversations_seq", sequenceName = "conversations_seq", allocationSize = 50)
     private Long id;
 
     private Long userId;
     private String title;
 
+    // Rolling summary of turns that fell out of the prompt window
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+
+    // (created_at, id) of the last message folded into the summary; messages after it are still raw
+    private LocalDateTime summarizedThroughAt;
+    private Long summarizedThroughId;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 }
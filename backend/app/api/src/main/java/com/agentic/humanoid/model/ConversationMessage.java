@@ -4,24 +4,33 @@ import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import com.agentic.humanoid.component.TableChangeEntityListener;
+
 @Entity
-@Table(name = "conversation_messages")
+@EntityListeners(TableChangeEntityListener.class)
+@Table(name = "conversation_messages", indexes = @Index(name = "idx_conversation_messages_conversation_created",
+        columnList = "conversationId, createdAt, id"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class ConversationMessage {
+    // Pooled sequence (allocationSize 50) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "conversation_messages_seq")
+    @SequenceGenerator(name = "conversation_messages_seq", sequenceName = "conversation_messages_seq", allocationSize = 50)
     private Long id;
 
     private Long conversationId;
@@ -29,6 +38,10 @@ public class ConversationMessage {
     @Column(columnDefinition = "TEXT")
     private String content;
 
+    // Set when content is only a preview; the full answer is in result_blobs
+    @Column(length = 64)
+    private String resultHash;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 }
@@ -1,9 +1,77 @@
 package com.agentic.humanoid.model;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.agentic.humanoid.DTO.MessageItem;
 
 public interface ConversationMessageRepository extends JpaRepository<ConversationMessage, Long> {
     List<ConversationMessage> findByConversationIdOrderByCreatedAtAsc(Long conversationId);
-}
\ No newline at end of file
+
+    // Whether a message in one of userId's conversations references the stored result
+    @Query("""
+            select count(m) > 0 from ConversationMessage m
+            where m.resultHash = :resultHash
+              and m.conversationId in (select c.id from Conversation c where c.userId = :userId)""")
+    boolean existsByUserIdAndResultHash(@Param("userId") Long userId, @Param("resultHash") String resultHash);
+
+    // Newest page of a conversation (start of a keyset scan)
+    List<ConversationMessage> findByConversationIdOrderByCreatedAtDescIdDesc(Long conversationId, Pageable page);
+
+    // Next newest-first page strictly before the (createdAt, id) cursor
+    @Query("""
+            select m from ConversationMessage m
+            where m.conversationId = :conversationId
+              and (m.createdAt < :createdAt or (m.createdAt = :createdAt and m.id < :id))
+            order by m.createdAt desc, m.id desc""")
+    List<ConversationMessage> findPageBefore(@Param("conversationId") Long conversationId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable page);
+
+    // Oldest-first page strictly between the (afterCreatedAt, afterId) and (createdAt, id) cursors;
+    // the plain createdAt bound lets Postgres skip months that were folded long ago
+    @Query("""
+            select m from ConversationMessage m
+            where m.conversationId = :conversationId
+              and m.createdAt >= :afterCreatedAt
+              and (m.createdAt, m.id) > (:afterCreatedAt, :afterId)
+              and (m.createdAt, m.id) < (:createdAt, :id)
+            order by m.createdAt asc, m.id asc""")
+    List<ConversationMessage> findPageBetween(@Param("conversationId") Long conversationId,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") Long afterId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable page);
+
+    // Newest-first keyset page before (createdAt, id) as projections, content left out
+    @Query("""
+            select new com.agentic.humanoid.DTO.MessageItem(m.id, m.role, cast(null as String), m.resultHash,
+                m.createdAt)
+            from ConversationMessage m
+            where m.conversationId = :conversationId
+              and (m.createdAt, m.id) < (:createdAt, :id)
+            order by m.createdAt desc, m.id desc""")
+    List<MessageItem> findItemPage(@Param("conversationId") Long conversationId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable page);
+
+    // Same page with content
+    @Query("""
+            select new com.agentic.humanoid.DTO.MessageItem(m.id, m.role, m.content, m.resultHash, m.createdAt)
+            from ConversationMessage m
+            where m.conversationId = :conversationId
+              and (m.createdAt, m.id) < (:createdAt, :id)
+            order by m.createdAt desc, m.id desc""")
+    List<MessageItem> findItemPageWithContent(@Param("conversationId") Long conversationId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable page);
+}
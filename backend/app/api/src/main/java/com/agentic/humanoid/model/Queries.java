@@ -1,5 +1,7 @@
 package com.agentic.humanoid.model;
 
+import com.agentic.humanoid.component.TableChangeEntityListener;
+
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -12,15 +14,19 @@ import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
 @Entity
-@Table(name = "queries")
+@EntityListeners(TableChangeEntityListener.class)
+// (user_id, created_at, id) serves the per-user keyset history pages
+@Table(name = "queries", indexes = @Index(name = "idx_queries_user_created", columnList = "user_id, created_at, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Queries {
 
+    // Pooled sequence (allocationSize 50) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "queries_seq")
+    @SequenceGenerator(name = "queries_seq", sequenceName = "queries_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "query_text", columnDefinition = "TEXT")
@@ -32,6 +38,10 @@ public class Queries {
     @JdbcTypeCode(SqlTypes.VARCHAR)
     private String responseText;
 
+    // Large results live in result_blobs; responseText is then their preview
+    @Column(length = 64)
+    private String resultHash;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -41,6 +51,9 @@ public class Queries {
 
     @PrePersist
     public void prePersist() {
-        this.createdAt = LocalDateTime.now();
+        // write-behind stamps the row when it is queued, not when it is flushed
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
     }
 }
@@ -0,0 +1,46 @@
+package com.agentic.humanoid.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A query result stored once, keyed by the SHA-256 of its text. Messages and
+ * queries point at it through {@code result_hash}; rows are written with
+ * {@code ON CONFLICT DO NOTHING} (see {@code MessageWriteBehind}), never updated.
+ */
+@Entity
+@Table(name = "result_blobs")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ResultBlob {
+
+    public static final String DEFLATE = "deflate";
+    public static final String IDENTITY = "identity";
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // deflate, or identity when compressing didn't help
+    @Column(nullable = false, length = 16)
+    private String encoding;
+
+    @Column(nullable = false)
+    private int rawBytes;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
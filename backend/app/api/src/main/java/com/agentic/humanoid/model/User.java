@@ -1,12 +1,15 @@
 package com.agentic.humanoid.model;
 
+import com.agentic.humanoid.component.TableChangeEntityListener;
+
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@EntityListeners(TableChangeEntityListener.class)
+@Table(name = "users", indexes = @Index(name = "idx_users_created", columnList = "createdAt, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,5 +27,14 @@ public class User {
 
     private String role = "user";
 
+    // keyset pages order by (createdAt, id): a NULL would never be reached
+    @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    @PrePersist
+    public void prePersist() {
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
+    }
 }
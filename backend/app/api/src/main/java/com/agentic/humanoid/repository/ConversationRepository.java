@@ -1,11 +1,47 @@
 package com.agentic.humanoid.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.agentic.humanoid.DTO.ConversationSummary;
 import com.agentic.humanoid.model.Conversation;
 
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
     List<Conversation> findByUserId(Long userId);
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    // Newest-first keyset page before (createdAt, id), without the summary text
+    @Query("""
+            select new com.agentic.humanoid.DTO.ConversationSummary(c.id, c.title, c.createdAt)
+            from Conversation c
+            where c.userId = :userId
+              and (c.createdAt, c.id) < (:createdAt, :id)
+            order by c.createdAt desc, c.id desc""")
+    List<ConversationSummary> findSummaryPage(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable page);
+
+    // Move the summary cursor only if it is still where the caller read it: of two
+    // asks folding at once, the first one wins and the other updates nothing
+    @Modifying
+    @Transactional
+    @Query("""
+            update Conversation c
+            set c.summary = :summary, c.summarizedThroughAt = :throughAt, c.summarizedThroughId = :throughId
+            where c.id = :id
+              and (c.summarizedThroughId = :expectedId or (c.summarizedThroughId is null and :expectedId is null))""")
+    int advanceSummary(@Param("id") Long id,
+            @Param("expectedId") Long expectedId,
+            @Param("summary") String summary,
+            @Param("throughAt") LocalDateTime throughAt,
+            @Param("throughId") Long throughId);
 }
@@ -1,12 +1,47 @@
 package com.agentic.humanoid.repository;
 
+import com.agentic.humanoid.DTO.QueryHistoryItem;
 import com.agentic.humanoid.model.Queries;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface QueryRepository extends JpaRepository<Queries, Long> {
 
     List<Queries> findByUserIdOrderByCreatedAtAsc(Long userId);
+
+    List<Queries> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, Pageable page);
+
+    boolean existsByUserIdAndResultHash(Long userId, String resultHash);
+
+    // Newest-first keyset page before (createdAt, id), question only
+    @Query("""
+            select new com.agentic.humanoid.DTO.QueryHistoryItem(q.id, q.queryText, cast(null as String),
+                q.resultHash, q.createdAt)
+            from Queries q
+            where q.user.id = :userId
+              and (q.createdAt, q.id) < (:createdAt, :id)
+            order by q.createdAt desc, q.id desc""")
+    List<QueryHistoryItem> findHistoryPage(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable page);
+
+    // Same page with the stored answer (a preview for results in result_blobs)
+    @Query("""
+            select new com.agentic.humanoid.DTO.QueryHistoryItem(q.id, q.queryText, q.responseText,
+                q.resultHash, q.createdAt)
+            from Queries q
+            where q.user.id = :userId
+              and (q.createdAt, q.id) < (:createdAt, :id)
+            order by q.createdAt desc, q.id desc""")
+    List<QueryHistoryItem> findHistoryPageWithAnswers(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable page);
 }
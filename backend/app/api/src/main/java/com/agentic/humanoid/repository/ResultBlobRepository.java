@@ -0,0 +1,8 @@
+package com.agentic.humanoid.repository;
+
+import com.agentic.humanoid.model.ResultBlob;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ResultBlobRepository extends JpaRepository<ResultBlob, String> {
+}
@@ -1,9 +1,27 @@
 package com.agentic.humanoid.repository;
 
+import com.agentic.humanoid.DTO.UserSummary;
 import com.agentic.humanoid.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    // Newest-first keyset page before (createdAt, id)
+    @Query("""
+            select new com.agentic.humanoid.DTO.UserSummary(u.id, u.username, u.email, u.role, u.createdAt)
+            from User u
+            where (u.createdAt, u.id) < (:createdAt, :id)
+            order by u.createdAt desc, u.id desc""")
+    List<UserSummary> findSummaryPage(@Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable page);
 }
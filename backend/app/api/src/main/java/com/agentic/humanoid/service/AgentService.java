@@ -1,31 +1,132 @@
 package com.agentic.humanoid.service;
 
+import com.agentic.humanoid.DTO.ConversationContext;
+import com.agentic.humanoid.component.AdmissionRejectedException;
 import com.agentic.humanoid.component.LlmClient;
+import com.agentic.humanoid.component.LlmUnavailableException;
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.component.Trace;
+import com.agentic.humanoid.component.Tracer;
 import com.agentic.humanoid.model.Queries;
 import com.agentic.humanoid.model.User;
 import com.agentic.humanoid.repository.QueryRepository;
 import com.agentic.humanoid.repository.UserRepository;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 @Service
 public class AgentService {
 
+    // more than one question mark, or a conjunction: worth asking the planner
+    private static final Pattern COMPOUND = Pattern.compile("\\?.*\\?|;|\\b(and|also|plus|as well as)\\b");
+
+    private static final ConversationContext NO_CONTEXT = new ConversationContext(null, List.of(), List.of(), 0);
+
     private final QueryRepository queryRepository;
     private final UserRepository userRepository;
     private final LlmClient llmClient; // we'll create this wrapper next
     private final DatabaseTool databaseTool;
+    private final ResultStore resultStore;
+    private final Executor askExecutor;
+    private final Executor subQueryExecutor;
+    private final PipelineMetrics metrics;
+    private final Tracer tracer;
+    private final AuditLog auditLog;
+    private final int maxSubQueries;
+    private final Duration subQueryTimeout;
 
     public AgentService(QueryRepository queryRepository,
             UserRepository userRepository,
             LlmClient llmClient,
-            DatabaseTool databaseTool) {
+            DatabaseTool databaseTool,
+            ResultStore resultStore,
+            @Qualifier("askExecutor") Executor askExecutor,
+            @Qualifier("subQueryExecutor") Executor subQueryExecutor,
+            PipelineMetrics metrics,
+            Tracer tracer,
+            AuditLog auditLog,
+            @Value("${agent.planner.max-subqueries:4}") int maxSubQueries,
+            @Value("${agent.planner.subquery-timeout:30s}") Duration subQueryTimeout) {
         this.queryRepository = queryRepository;
         this.userRepository = userRepository;
         this.llmClient = llmClient;
         this.databaseTool = databaseTool;
+        this.resultStore = resultStore;
+        this.askExecutor = askExecutor;
+        this.subQueryExecutor = subQueryExecutor;
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.auditLog = auditLog;
+        this.maxSubQueries = maxSubQueries;
+        this.subQueryTimeout = subQueryTimeout;
+    }
+
+    /**
+     * One sub-question of a plan. {@code outcome} is answered, unsupported,
+     * rejected (by the governor), failed (errored, or the database was busy),
+     * timeout, or skipped (planned past {@code agent.planner.max-subqueries});
+     * {@code status} is the same for a part whose SQL was run, null otherwise.
+     */
+    public record SubQuery(String question, String sql, String answer, String answerId, long millis,
+            String outcome, QueryOutcome.Status status) {
+    }
+
+    public record PlannedAnswer(Long queryId, String question, String answer, List<SubQuery> parts) {
+        /**
+         * The worst status of the parts that were run (null: none was), for
+         * the audit trail.
+         */
+        public QueryOutcome.Status status() {
+            return parts.stream().map(SubQuery::status).filter(Objects::nonNull).max(Comparator.naturalOrder())
+                    .orElse(null);
+        }
+
+        public Map<String, Object> toBody(ResultFormat format) {
+            List<Map<String, Object>> rendered = new ArrayList<>();
+            for (SubQuery part : parts) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("question", part.question());
+                item.put("sql", part.sql());
+                item.put("answer", render(part.answer(), format));
+                item.put("answerId", part.answerId());
+                item.put("millis", part.millis());
+                item.put("outcome", part.outcome());
+                rendered.add(item);
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("queryId", queryId);
+            body.put("question", question);
+            body.put("answer", parts.size() == 1 ? render(answer, format) : answer);
+            body.put("parts", rendered);
+            return body;
+        }
+
+        private static Object render(String answer, ResultFormat format) {
+            String rendered = ColumnarResults.render(answer, format);
+            return ColumnarResults.isColumnar(rendered) ? new RawValue(rendered) : rendered;
+        }
     }
 
     @Transactional
@@ -38,33 +139,162 @@ public class AgentService {
 
         String answer;
         if (sql != null) {
-            String lowered = sql.toLowerCase();
-
-            if (sql.equalsIgnoreCase("UNSUPPORTED") ||
-                    lowered.contains("insert") ||
-                    lowered.contains("update") ||
-                    lowered.contains("delete") ||
-                    lowered.contains("drop") ||
-                    lowered.contains("alter") ||
-                    lowered.contains("create") ||
-                    lowered.contains("truncate")) {
-
+            if (sql.equalsIgnoreCase("UNSUPPORTED")) {
                 answer = "This type of query is not supported for safety reasons.";
             } else {
+                // validation happens once, in the QueryGovernor behind runQuery
                 answer = databaseTool.runQuery(sql);
             }
         } else {
             answer = llmClient.getAnswer(question);
         }
 
-        // Step 3: Save query + response
+        // Step 3: Save query + response (large results by reference)
+        ResultStore.Stored stored = resultStore.externalize(answer);
         Queries query = new Queries();
         query.setUser(user);
         query.setQueryText(question);
-        query.setResponseText(answer);
+        query.setResponseText(stored.content());
+        query.setResultHash(stored.hash());
         query.setCreatedAt(LocalDateTime.now());
 
         return queryRepository.save(query);
     }
 
+    /**
+     * Planning mode: the LLM splits a compound question into independent
+     * sub-questions; the first {@code agent.planner.max-subqueries} are turned
+     * into SQL and executed in parallel on the bounded sub-query executor,
+     * each through the same governor and bulkhead as a single question and
+     * each with its own {@code agent.planner.subquery-timeout}, and the rest
+     * are reported as skipped. The answers are combined into one Queries row,
+     * so the wall-clock time is the plan plus the slowest sub-query. Questions
+     * with nothing to split skip the plan call.
+     */
+    public CompletableFuture<PlannedAnswer> handlePlannedQuery(Long userId, String question) {
+        Trace.Span request = tracer.current();
+        long started = System.nanoTime();
+        auditLog.record(request, "ask.received", userId, AuditLog.details("question", question, "planned", true));
+        return metrics.stage("planned", () -> {
+            // 🔹 shed before looking anything up; sub-queries can still be shed one by one
+            try {
+                llmClient.checkAdmission(userId);
+            } catch (AdmissionRejectedException e) {
+                return CompletableFuture.<PlannedAnswer>failedFuture(e);
+            }
+            CompletableFuture<User> userF = CompletableFuture.supplyAsync(tracer.wrap(
+                    () -> userRepository.findById(userId)
+                            .orElseThrow(() -> new IllegalArgumentException("User not found"))),
+                    askExecutor);
+            CompletableFuture<List<String>> planF = looksCompound(question)
+                    ? stage(request, "plan", () -> llmClient.planQuestionsAsync(question, userId))
+                    : CompletableFuture.completedFuture(List.of(question));
+
+            // 🔹 sub-queries start once the plan is back and the user exists
+            return planF.thenCombine(userF, (plan, user) -> plan)
+                    .thenCompose(plan -> runAll(request, userId, plan))
+                    .thenApplyAsync(parts -> tracer.within(request, () -> save(userF.join(), question, parts)),
+                            askExecutor);
+        }).whenComplete((planned, error) -> auditLog.record(request,
+                AuditLog.outcome(planned != null ? planned.status() : null, error), userId,
+                AuditLog.details("question", question, "planned", true,
+                        "queryId", planned != null ? planned.queryId() : null,
+                        "millis", elapsed(started),
+                        "error", error == null ? null : AuditLog.describe(error))));
+    }
+
+    static boolean looksCompound(String question) {
+        return COMPOUND.matcher(question.toLowerCase(Locale.ROOT)).find();
+    }
+
+    private CompletableFuture<List<SubQuery>> runAll(Trace.Span request, Long userId, List<String> plan) {
+        int run = Math.min(plan.size(), maxSubQueries);
+        List<CompletableFuture<SubQuery>> parts = new ArrayList<>(plan.size());
+        for (String sub : plan.subList(0, run)) {
+            parts.add(subQuery(request, userId, sub));
+        }
+        // never silently dropped: the caller sees which parts were not answered
+        for (String sub : plan.subList(run, plan.size())) {
+            parts.add(CompletableFuture.completedFuture(new SubQuery(sub, null,
+                    "⏭️ Not answered: only the first " + maxSubQueries + " parts of a question are run", null, 0,
+                    "skipped", null)));
+        }
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                .thenApply(done -> parts.stream().map(CompletableFuture::join).toList());
+    }
+
+    // fails only when the LLM is unavailable or the call was shed: a rejected, failed or late sub-query is an answer saying so
+    private CompletableFuture<SubQuery> subQuery(Trace.Span request, Long userId, String question) {
+        long started = System.nanoTime();
+        Instant deadline = Instant.now().plus(subQueryTimeout);
+        CompletableFuture<String> sqlF = stage(request, "subquery-llm",
+                () -> llmClient.generateSqlWithContextAsync(question, NO_CONTEXT, userId));
+        return sqlF
+                .thenCompose(sql -> {
+                    auditLog.record(request, "sql.generated", userId, AuditLog.details("question", question,
+                            "sql", sql, "planned", true));
+                    if (sql == null || sql.equalsIgnoreCase("UNSUPPORTED")) {
+                        return CompletableFuture.completedFuture(new SubQuery(question, sql,
+                                AskPipelineService.UNSUPPORTED_ANSWER, null, elapsed(started), "unsupported", null));
+                    }
+                    // validation happens once, in the QueryGovernor behind run; the statement
+                    // is cancelled in the database at the same deadline the future times out at
+                    return stage(request, "subquery-execute", () -> CompletableFuture.supplyAsync(
+                            tracer.wrap(() -> databaseTool.run(sql, deadline)), subQueryExecutor))
+                            .thenApply(outcome -> new SubQuery(question, sql, outcome.answer(), null,
+                                    elapsed(started), outcome.status().name().toLowerCase(Locale.ROOT), outcome.status()));
+                })
+                .orTimeout(subQueryTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof LlmUnavailableException || cause instanceof AdmissionRejectedException) {
+                        throw (RuntimeException) cause; // the whole request is a 503/429, not a failed part
+                    }
+                    boolean late = cause instanceof TimeoutException;
+                    String answer = late
+                            ? "⏱️ No answer within " + subQueryTimeout.toSeconds() + "s"
+                            : "❌ Error answering this part: " + cause.getMessage();
+                    QueryOutcome.Status status = late ? QueryOutcome.Status.TIMEOUT : QueryOutcome.Status.FAILED;
+                    return new SubQuery(question, sqlF.getNow(null), answer, null, elapsed(started),
+                            status.name().toLowerCase(Locale.ROOT), status);
+                });
+    }
+
+    private PlannedAnswer save(User user, String question, List<SubQuery> parts) {
+        // large results by reference, one blob per part
+        List<SubQuery> stored = new ArrayList<>();
+        StringBuilder combined = new StringBuilder();
+        ResultStore.Stored single = null;
+        for (SubQuery part : parts) {
+            ResultStore.Stored answer = resultStore.externalize(part.answer());
+            stored.add(new SubQuery(part.question(), part.sql(), part.answer(), answer.hash(), part.millis(),
+                    part.outcome(), part.status()));
+            if (combined.length() > 0) {
+                combined.append("\n\n");
+            }
+            combined.append(stored.size()).append(". ").append(part.question()).append('\n')
+                    .append(answer.content());
+            single = answer;
+        }
+
+        Queries query = new Queries();
+        query.setUser(user);
+        query.setQueryText(question);
+        query.setResponseText(parts.size() == 1 ? single.content() : combined.toString());
+        query.setResultHash(parts.size() == 1 ? single.hash() : null);
+        query.setCreatedAt(LocalDateTime.now());
+        Queries saved = queryRepository.save(query);
+
+        String answer = parts.size() == 1 ? parts.get(0).answer() : combined.toString();
+        return new PlannedAnswer(saved.getId(), question, answer, stored);
+    }
+
+    private static long elapsed(long started) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+
+    // timed as ask.stage{stage=...}, and a child span of the request
+    private <T> CompletableFuture<T> stage(Trace.Span request, String stage, Supplier<CompletableFuture<T>> work) {
+        return metrics.stage(stage, () -> tracer.async(request, "agent " + stage, span -> work.get()));
+    }
 }
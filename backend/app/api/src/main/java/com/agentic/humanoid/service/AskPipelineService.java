@@ -0,0 +1,313 @@
+package com.agentic.humanoid.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.agentic.humanoid.DTO.ConversationContext;
+import com.agentic.humanoid.component.AdmissionRejectedException;
+import com.agentic.humanoid.component.BulkheadFullException;
+import com.agentic.humanoid.component.LlmClient;
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.component.Trace;
+import com.agentic.humanoid.component.Tracer;
+import com.agentic.humanoid.model.Conversation;
+import com.agentic.humanoid.model.ConversationMessage;
+import com.agentic.humanoid.model.Queries;
+import com.agentic.humanoid.model.User;
+import com.agentic.humanoid.repository.ConversationRepository;
+import com.agentic.humanoid.repository.UserRepository;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+/**
+ * The ask flow as an explicit asynchronous pipeline. Stages that don't depend
+ * on each other overlap, so the critical path is roughly
+ * lookup → context → LLM → execute:
+ *
+ * <pre>
+ *  user lookup ─┬─► save question ───────────────────────────────┐
+ *  conversation ┘└► build context ─► LLM ─┬─► save SQL ───────────┤
+ *                                         └─► execute ─► save answer + Queries ─► result
+ * </pre>
+ *
+ * Every stage runs on the ask executor (or the LLM transport's own I/O) and
+ * has its own timeout; the servlet thread is released as soon as the
+ * controller returns the future. Message and Queries rows go through
+ * {@link MessageWriteBehind}, so the "save" stages only enqueue.
+ * Each stage is timed as {@code ask.stage{stage=...}} (see {@link PipelineMetrics})
+ * and is a span under the request's trace, if the caller started one.
+ */
+@Service
+public class AskPipelineService {
+
+    public static final String UNSUPPORTED_ANSWER = "I can only answer safe database-related questions. " +
+            "Examples:\n- How many users are there?\n" +
+            "- What was the first question asked by User 1?\n" +
+            "- Show me all reports for User 2.";
+
+    private final UserRepository userRepository;
+    private final ConversationRepository conversationRepository;
+    private final MessageWriteBehind writeBehind;
+    private final ConversationContextBuilder contextBuilder;
+    private final LlmClient llmClient;
+    private final DatabaseToolService databaseToolService;
+    private final ResultStore resultStore;
+    private final Executor askExecutor;
+    private final PipelineMetrics metrics;
+    private final Tracer tracer;
+    private final AuditLog auditLog;
+
+    @Value("${ask.timeout.db:5s}")
+    private Duration dbTimeout;
+
+    @Value("${ask.timeout.llm:35s}")
+    private Duration llmTimeout;
+
+    @Value("${ask.timeout.execute:30s}")
+    private Duration executeTimeout;
+
+    @Value("${queries.stream.chunk-size:100}")
+    private int streamChunkSize;
+
+    public AskPipelineService(UserRepository userRepository,
+            ConversationRepository conversationRepository,
+            MessageWriteBehind writeBehind,
+            ConversationContextBuilder contextBuilder,
+            LlmClient llmClient,
+            DatabaseToolService databaseToolService,
+            ResultStore resultStore,
+            @Qualifier("askExecutor") Executor askExecutor,
+            PipelineMetrics metrics,
+            Tracer tracer,
+            AuditLog auditLog) {
+        this.userRepository = userRepository;
+        this.conversationRepository = conversationRepository;
+        this.writeBehind = writeBehind;
+        this.contextBuilder = contextBuilder;
+        this.llmClient = llmClient;
+        this.databaseToolService = databaseToolService;
+        this.resultStore = resultStore;
+        this.askExecutor = askExecutor;
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.auditLog = auditLog;
+    }
+
+    /**
+     * {@code status} is how the generated query went (null: none was run), for
+     * the audit trail; it isn't part of the body.
+     */
+    public record AskResult(Long conversationId, String question, String sql, String answer,
+            QueryOutcome.Status status) {
+        public Map<String, Object> toBody() {
+            return toBody(ResultFormat.ROWS);
+        }
+
+        /**
+         * Rows keep {@code answer} a JSON string, as before; columnar embeds
+         * the result as a JSON object so it isn't escaped and parsed twice.
+         */
+        public Map<String, Object> toBody(ResultFormat format) {
+            String rendered = ColumnarResults.render(answer, format);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("conversationId", conversationId);
+            body.put("question", question);
+            body.put("sql", sql);
+            body.put("answer", ColumnarResults.isColumnar(rendered) ? new RawValue(rendered) : rendered);
+            return body;
+        }
+    }
+
+    /**
+     * Stage callbacks for streaming clients. Default methods are no-ops.
+     */
+    public interface AskListener {
+        AskListener NONE = new AskListener() {
+        };
+
+        // true → use the LLM's stream mode and execute the SQL in row chunks
+        default boolean streaming() {
+            return false;
+        }
+
+        default void onConversation(Long conversationId) {
+        }
+
+        default void onSqlToken(String token) {
+        }
+
+        default void onSql(String sql) {
+        }
+
+        default void onRows(int offset, List<Map<String, Object>> rows) {
+        }
+
+        // after the last onRows; truncated when the row or byte cap cut the result off
+        default void onRowsComplete(long rowCount, boolean truncated) {
+        }
+
+        default void onAnswer(String answer) {
+        }
+    }
+
+    public CompletableFuture<AskResult> ask(Long userId, String question, Long conversationId) {
+        return ask(userId, question, conversationId, AskListener.NONE);
+    }
+
+    public CompletableFuture<AskResult> ask(Long userId, String question, Long conversationId, AskListener listener) {
+        // stage callbacks run on other threads; they name the request span as their parent
+        Trace.Span request = tracer.current();
+        long started = System.nanoTime();
+        auditLog.record(request, "ask.received", userId, AuditLog.details("question", question,
+                "conversationId", conversationId, "streaming", listener.streaming()));
+        return metrics.stage("total", () -> runAsk(request, userId, question, conversationId, listener))
+                .whenComplete((result, error) -> auditLog.record(request,
+                        AuditLog.outcome(result != null ? result.status() : null, error), userId,
+                        AuditLog.details("question", question,
+                                "conversationId", result != null ? result.conversationId() : conversationId,
+                                "millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                                "error", error == null ? null : AuditLog.describe(error))));
+    }
+
+    private CompletableFuture<AskResult> runAsk(Trace.Span request, Long userId, String question,
+            Long conversationId, AskListener listener) {
+        // 🔹 Shed before anything is created or saved: a 429 must not leave a conversation or turn behind
+        try {
+            llmClient.checkAdmission(userId);
+        } catch (AdmissionRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // 🔹 Stage 1: user lookup ∥ conversation lookup (a new one is only created for a real user)
+        CompletableFuture<User> userF = db(request, "lookup", () -> userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found")));
+        CompletableFuture<Conversation> conversationF = conversationId == null
+                ? userF.thenCompose(user -> db(request, "conversation", () -> createConversation(userId)))
+                : userF.thenCombine(db(request, "conversation", () -> conversationRepository.findById(conversationId)
+                        .orElseThrow(() -> new IllegalArgumentException("Conversation not found"))),
+                        (user, conversation) -> conversation);
+        conversationF.thenAccept(conversation -> {
+            request.trace().tag("conversationId", conversation.getId());
+            listener.onConversation(conversation.getId());
+        });
+
+        // 🔹 Stage 2: save the question ∥ build the prompt context
+        CompletableFuture<Void> userMsgF = conversationF
+                .thenAccept(conversation -> saveMessage(conversation.getId(), "user", question));
+        CompletableFuture<ConversationContext> contextF = conversationF
+                .thenCompose(conversation -> db(request, "history", () -> contextBuilder.build(conversation, userId)));
+
+        // 🔹 Stage 3: LLM
+        CompletableFuture<String> sqlF = contextF
+                .thenCompose(context -> stage(request, "llm", () -> generateSql(question, context, userId, listener)))
+                .orTimeout(llmTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        sqlF.thenAccept(listener::onSql);
+        sqlF.thenAccept(sql -> auditLog.record(request, "sql.generated", userId,
+                AuditLog.details("question", question, "sql", sql)));
+
+        // 🔹 Stage 4: save SQL ∥ execute it
+        CompletableFuture<Void> sqlMsgF = conversationF
+                .thenAcceptBoth(sqlF, (conversation, sql) -> saveMessage(conversation.getId(), "sql", sql));
+        CompletableFuture<QueryOutcome> answerF = sqlF
+                .thenCompose(sql -> stage(request, "execute", () -> execute(sql, listener)));
+
+        // 🔹 Stage 5: save assistant answer ∥ legacy Queries row (large results by reference)
+        CompletableFuture<Void> answerWritesF = answerF.thenAccept(outcome -> {
+            ResultStore.Stored stored = resultStore.externalize(outcome.answer());
+            saveMessage(conversationF.join().getId(), "assistant", stored.content(), stored.hash());
+            saveQuery(userF.join(), question, stored);
+        });
+
+        return CompletableFuture.allOf(userMsgF, sqlMsgF, answerWritesF)
+                .thenApply(done -> new AskResult(conversationF.join().getId(), question, sqlF.join(),
+                        answerF.join().answer(), answerF.join().status()));
+    }
+
+    private CompletableFuture<String> generateSql(String question, ConversationContext context, Long userId,
+            AskListener listener) {
+        if (!listener.streaming()) {
+            return llmClient.generateSqlWithContextAsync(question, context, userId);
+        }
+        return CompletableFuture.supplyAsync(tracer.wrap(
+                () -> llmClient.streamSqlWithContext(question, context, userId, listener::onSqlToken)), askExecutor);
+    }
+
+    private CompletableFuture<QueryOutcome> execute(String sql, AskListener listener) {
+        if (sql == null || sql.equalsIgnoreCase("UNSUPPORTED")) {
+            listener.onAnswer(UNSUPPORTED_ANSWER);
+            return CompletableFuture.completedFuture(new QueryOutcome(UNSUPPORTED_ANSWER, null));
+        }
+
+        Supplier<QueryOutcome> work = listener.streaming()
+                ? () -> executeInChunks(sql, listener)
+                : () -> databaseToolService.runSafeQuery(sql);
+        return CompletableFuture.supplyAsync(tracer.wrap(work), askExecutor)
+                .orTimeout(executeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private QueryOutcome executeInChunks(String sql, AskListener listener) {
+        AtomicInteger sent = new AtomicInteger();
+        try {
+            DatabaseToolService.StreamedRows streamed = databaseToolService.streamSafeQuery(sql, streamChunkSize,
+                    chunk -> listener.onRows(sent.getAndAdd(chunk.size()), chunk));
+            listener.onRowsComplete(streamed.rowCount(), streamed.truncated());
+            return QueryOutcome.answered(streamed.answer());
+        } catch (QueryRejectedException | BulkheadFullException e) {
+            throw e; // the client gets a 400 / 503, not an answer
+        } catch (Exception e) {
+            String answer = "❌ Error executing query: " + e.getMessage();
+            listener.onAnswer(answer);
+            return QueryOutcome.failed(answer);
+        }
+    }
+
+    private Conversation createConversation(Long userId) {
+        Conversation conversation = new Conversation();
+        conversation.setUserId(userId);
+        conversation.setTitle("Conversation started at " + LocalDateTime.now());
+        return conversationRepository.save(conversation);
+    }
+
+    private void saveMessage(Long conversationId, String role, String content) {
+        saveMessage(conversationId, role, content, null);
+    }
+
+    private void saveMessage(Long conversationId, String role, String content, String resultHash) {
+        ConversationMessage message = new ConversationMessage();
+        message.setConversationId(conversationId);
+        message.setRole(role);
+        message.setContent(content);
+        message.setResultHash(resultHash);
+        writeBehind.append(message);
+    }
+
+    private void saveQuery(User user, String question, ResultStore.Stored answer) {
+        Queries query = new Queries();
+        query.setUser(user);
+        query.setQueryText(question);
+        query.setResponseText(answer.content());
+        query.setResultHash(answer.hash());
+        writeBehind.append(query);
+    }
+
+    private <T> CompletableFuture<T> db(Trace.Span request, String stage, Supplier<T> work) {
+        return stage(request, stage, () -> CompletableFuture.supplyAsync(tracer.wrap(work), askExecutor)
+                .orTimeout(dbTimeout.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    // timed, and a child span of the request current while the stage is started
+    private <T> CompletableFuture<T> stage(Trace.Span request, String stage, Supplier<CompletableFuture<T>> work) {
+        return metrics.stage(stage, () -> tracer.async(request, "ask " + stage, span -> work.get()));
+    }
+}
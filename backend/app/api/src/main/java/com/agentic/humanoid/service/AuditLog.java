@@ -0,0 +1,377 @@
+package com.agentic.humanoid.service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.agentic.humanoid.component.AdmissionRejectedException;
+import com.agentic.humanoid.component.BulkheadFullException;
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.component.Trace;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compliance audit trail in {@code audit_logs}: every ask, generated SQL,
+ * rejection and error.
+ *
+ * {@link #record} only stamps the event and puts it into an
+ * {@link AuditRingBuffer} (a CAS, no lock, no I/O), so the request path
+ * pays well under a microsecond. One writer thread drains the buffer in
+ * batches of up to {@code audit.batch-size} and streams each batch into the
+ * table with {@code COPY ... FROM STDIN} through pgjdbc's CopyManager; it
+ * parks for {@code audit.flush-interval} when the buffer is empty. A failed
+ * batch is retried {@code audit.retry-attempts} times; events for users that
+ * don't exist (an ask for an unknown userId is audited too) keep the id in
+ * {@code metadata.userId} instead of the foreign key.
+ *
+ * When the buffer is full, {@code audit.overflow-policy} decides:
+ * <ul>
+ * <li>{@code drop} — the new event is counted and discarded, nothing waits;</li>
+ * <li>{@code block} — the caller waits up to {@code audit.overflow-max-block}
+ * for room, then drops;</li>
+ * <li>{@code write-through} — the caller inserts the event itself, so none
+ * is ever lost, at the cost of a round trip while the writer is behind.</li>
+ * </ul>
+ * Counted as {@code audit.events{outcome=...}}, backlog as {@code audit.buffer.pending}.
+ */
+@Slf4j
+@Service
+public class AuditLog {
+
+    public enum OverflowPolicy {
+        DROP, BLOCK, WRITE_THROUGH
+    }
+
+    private static final String COPY_SQL = "COPY audit_logs (user_id, action, metadata, created_at) "
+            + "FROM STDIN WITH (FORMAT csv)";
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private record Event(Long userId, String action, Map<String, Object> metadata, String traceId, Instant at) {
+    }
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final PipelineMetrics metrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final boolean enabled;
+    private final AuditRingBuffer<Event> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final long overflowMaxBlockNanos;
+    private final int retryAttempts;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writtenThrough = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditLog(DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            PipelineMetrics metrics,
+            @Value("${audit.enabled:true}") boolean enabled,
+            @Value("${audit.buffer-size:65536}") int bufferSize,
+            @Value("${audit.batch-size:5000}") int batchSize,
+            @Value("${audit.flush-interval:20ms}") Duration flushInterval,
+            @Value("${audit.overflow-policy:block}") String overflowPolicy,
+            @Value("${audit.overflow-max-block:5ms}") Duration overflowMaxBlock,
+            @Value("${audit.retry-attempts:3}") int retryAttempts) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.buffer = new AuditRingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.toUpperCase(Locale.ROOT).replace('-', '_'));
+        this.overflowMaxBlockNanos = overflowMaxBlock.toNanos();
+        this.retryAttempts = retryAttempts;
+
+        Gauge.builder("audit.buffer.pending", buffer, AuditRingBuffer::size).register(metrics.registry());
+        FunctionCounter.builder("audit.events", published, AtomicLong::get).tag("outcome", "published")
+                .register(metrics.registry());
+        FunctionCounter.builder("audit.events", written, AtomicLong::get).tag("outcome", "written")
+                .register(metrics.registry());
+        FunctionCounter.builder("audit.events", writtenThrough, AtomicLong::get).tag("outcome", "written-through")
+                .register(metrics.registry());
+        FunctionCounter.builder("audit.events", dropped, AtomicLong::get).tag("outcome", "dropped")
+                .register(metrics.registry());
+        FunctionCounter.builder("audit.events", failed, AtomicLong::get).tag("outcome", "failed")
+                .register(metrics.registry());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Record {@code action} for {@code userId} (null: the user of the trace
+     * {@code span} belongs to, if it knows one). {@code metadata} is serialized later, on
+     * the writer thread, so it must not be changed after this call; the
+     * current trace id is added to it there.
+     */
+    public void record(Trace.Span span, String action, Long userId, Map<String, Object> metadata) {
+        if (!enabled) {
+            return;
+        }
+        Trace trace = span.trace();
+        String traceId = null;
+        if (trace.recording()) {
+            traceId = trace.traceId();
+            if (userId == null && trace.tags().get("userId") instanceof Long traced) {
+                userId = traced;
+            }
+        }
+        Event event = new Event(userId, action, metadata, traceId, Instant.now());
+        published.incrementAndGet();
+        if (buffer.offer(event)) {
+            return;
+        }
+        overflow(event);
+    }
+
+    /**
+     * Metadata from key/value pairs, skipping null values.
+     */
+    public static Map<String, Object> details(Object... keysAndValues) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            if (keysAndValues[i + 1] != null) {
+                details.put(String.valueOf(keysAndValues[i]), keysAndValues[i + 1]);
+            }
+        }
+        return details;
+    }
+
+    /**
+     * "Type: message" of what made a request fail, for {@code metadata.error}.
+     */
+    public static String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    }
+
+    /**
+     * How an ask ended: answered, rejected (bad input, shed, or refused by
+     * the governor) or failed. A request that completed has its query's
+     * {@code status} (null: nothing was run, e.g. an unsupported question);
+     * database errors and governor rejections come back as answers, not as
+     * {@code error}.
+     */
+    public static String outcome(QueryOutcome.Status status, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause != null) {
+            // QueryRejectedException is an IllegalArgumentException
+            return cause instanceof IllegalArgumentException || cause instanceof AdmissionRejectedException
+                    || cause instanceof BulkheadFullException ? "ask.rejected" : "ask.failed";
+        }
+        if (status == null) {
+            return "ask.answered";
+        }
+        return switch (status) {
+            case ANSWERED -> "ask.answered";
+            case REJECTED -> "ask.rejected";
+            case FAILED, TIMEOUT -> "ask.failed";
+        };
+    }
+
+    private void overflow(Event event) {
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                long deadline = System.nanoTime() + overflowMaxBlockNanos;
+                while (System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(50_000);
+                    if (buffer.offer(event)) {
+                        return;
+                    }
+                }
+                dropped.incrementAndGet();
+            }
+            case WRITE_THROUGH -> {
+                try {
+                    copy(List.of(event));
+                    writtenThrough.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    log.error("❌ Audit write-through failed: {}", e.getMessage());
+                }
+            }
+            default -> dropped.incrementAndGet();
+        }
+    }
+
+    private void drainLoop() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || buffer.size() > 0) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                // e.g. the users lookup for a batch with unknown ids; the thread must outlive it
+                failed.addAndGet(batch.size());
+                log.error("❌ Dropping {} audit events: {}", batch.size(), e.toString());
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Event> batch) {
+        metrics.recordBatch(batch.size());
+        for (int attempt = 1;; attempt++) {
+            Timer.Sample sample = metrics.start();
+            try {
+                copy(batch);
+                metrics.stopWrite(sample, "audit", null);
+                written.addAndGet(batch.size());
+                return;
+            } catch (SQLException e) {
+                metrics.stopWrite(sample, "audit", e);
+                boolean unknownUser = "23503".equals(e.getSQLState());
+                if (unknownUser) {
+                    // ⚠️ unknown user somewhere in the batch: keep the id in metadata instead
+                    batch = withoutUnknownUsers(batch);
+                }
+                if (attempt >= retryAttempts) {
+                    failed.addAndGet(batch.size());
+                    log.error("❌ Dropping {} audit events: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                if (unknownUser) {
+                    continue; // the cleaned batch can go straight back
+                }
+                log.warn("⚠️ Audit batch of {} events failed, retrying: {}", batch.size(), e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L << attempt));
+            }
+        }
+    }
+
+    // one COPY statement on its own autocommit connection
+    private void copy(List<Event> events) throws SQLException {
+        StringBuilder csv = new StringBuilder(events.size() * 256);
+        for (Event event : events) {
+            if (event.userId() != null) {
+                csv.append(event.userId());
+            }
+            csv.append(',');
+            quote(csv, event.action());
+            csv.append(',');
+            quote(csv, json(event));
+            csv.append(',').append(LocalDateTime.ofInstant(event.at(), ZONE)).append('\n');
+        }
+        try (Connection con = dataSource.getConnection()) {
+            con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new StringReader(csv.toString()));
+        } catch (IOException e) {
+            throw new SQLException("Could not stream audit batch", e);
+        }
+    }
+
+    private List<Event> withoutUnknownUsers(List<Event> batch) {
+        Set<Long> ids = new HashSet<>();
+        batch.stream().map(Event::userId).filter(id -> id != null).forEach(ids::add);
+        Set<Long> known = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM users WHERE id = ANY(?)",
+                Long.class, (Object) ids.toArray(Long[]::new)));
+        List<Event> cleaned = new ArrayList<>(batch.size());
+        for (Event event : batch) {
+            if (event.userId() == null || known.contains(event.userId())) {
+                cleaned.add(event);
+                continue;
+            }
+            Map<String, Object> metadata = new LinkedHashMap<>(event.metadata());
+            metadata.put("userId", event.userId());
+            cleaned.add(new Event(null, event.action(), metadata, event.traceId(), event.at()));
+        }
+        return cleaned;
+    }
+
+    private String json(Event event) {
+        Map<String, Object> metadata = event.metadata();
+        if (event.traceId() != null) {
+            metadata = new LinkedHashMap<>(metadata);
+            metadata.put("traceId", event.traceId());
+        }
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (Exception e) {
+            return "{\"unserializable\": true}";
+        }
+    }
+
+    // CSV field: always quoted, embedded quotes doubled
+    private static void quote(StringBuilder csv, String value) {
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+
+    public int pendingCount() {
+        return buffer.size();
+    }
+
+    public long writtenCount() {
+        return written.get() + writtenThrough.get();
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    // ✅ Drain what's buffered before the pool closes
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.agentic.humanoid.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer (Vyukov's
+ * array queue). Every slot carries a sequence number: a producer claims
+ * the next position with one CAS when the slot's sequence says it is free,
+ * writes the element, then publishes it by advancing the sequence; the
+ * consumer takes elements in order and hands the slot back a lap later.
+ * {@link #offer} never blocks or allocates: a full buffer just returns false.
+ */
+public class AuditRingBuffer<T> {
+
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // only the consumer thread moves head; volatile so size() can read it
+    private volatile long head;
+
+    public AuditRingBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1; // next power of two
+        this.mask = size - 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add {@code element} if there is room. Safe from any thread.
+     */
+    public boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false; // a lap behind: full
+            } else {
+                position = tail.get(); // another producer took it
+            }
+        }
+    }
+
+    /**
+     * Move up to {@code max} elements into {@code sink}. Consumer thread only.
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(List<T> sink, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break; // empty, or a producer is still writing this slot
+            }
+            sink.add((T) slots[index]);
+            slots[index] = null;
+            sequences.lazySet(index, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity(), tail.get() - head));
+    }
+}
@@ -0,0 +1,314 @@
+package com.agentic.humanoid.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The columnar result layout and conversions to and from row objects:
+ *
+ * <pre>
+ * {"format":"columnar","columns":[{"name":"id","type":"int8"},{"name":"username","type":"varchar"}],
+ *  "rowCount":2,"truncated":false,"data":[[1,2],["alice","bob"]]}
+ * </pre>
+ *
+ * Column names are written once instead of once per row, values of a column
+ * sit next to each other (which compresses well), and the header comes
+ * before the data, so row count and columns can be read without parsing
+ * the values. Answers that aren't result sets (scalars, "No results found.",
+ * error messages) stay plain text in every format.
+ *
+ * In the rows layout a truncated result is wrapped as
+ * {@code {"rows":[...],"rowCount":n,"truncated":true}} (as {@code /results}
+ * streams it), so the flag survives a conversion either way. Duplicate column
+ * names ({@code SELECT a.id, b.id}) are numbered, {@code id, id_2}, so no
+ * column is lost when rows become objects.
+ */
+public final class ColumnarResults {
+
+    public static final String FORMAT = "columnar";
+
+    private static final String PREFIX = "{\"format\":\"" + FORMAT + "\"";
+    private static final String TRUNCATED_ROWS_PREFIX = "{\"rows\":";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ColumnarResults() {
+    }
+
+    public record Shape(long rowCount, Set<String> columns, boolean truncated) {
+    }
+
+    public static boolean isColumnar(String answer) {
+        return answer != null && answer.startsWith(PREFIX);
+    }
+
+    /**
+     * {@code answer} in {@code format}; stored answers in the other layout are converted.
+     */
+    public static String render(String answer, ResultFormat format) {
+        if (format == ResultFormat.ROWS && isColumnar(answer)) {
+            return toRows(answer);
+        }
+        if (format == ResultFormat.COLUMNAR && isRows(answer)) {
+            try {
+                JsonNode root = MAPPER.readTree(answer);
+                JsonNode rows = root.isArray() ? root : root.path("rows");
+                List<Map<String, Object>> mapped = MAPPER.convertValue(rows,
+                        MAPPER.getTypeFactory().constructCollectionType(List.class, Map.class));
+                return fromRows(mapped, MAPPER, root.path("truncated").asBoolean(false));
+            } catch (IOException | RuntimeException e) {
+                return answer;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Rows layout: an array of row objects, or the truncated-rows wrapper.
+     */
+    public static boolean isRows(String answer) {
+        if (answer == null) {
+            return false;
+        }
+        String trimmed = answer.stripLeading();
+        return trimmed.startsWith("[") || trimmed.startsWith(TRUNCATED_ROWS_PREFIX);
+    }
+
+    /**
+     * Wrap a rows-layout array that was cut off at a cap, so it says so.
+     */
+    public static String truncatedRows(String rows, long rowCount) {
+        return TRUNCATED_ROWS_PREFIX + rows + ",\"rowCount\":" + rowCount + ",\"truncated\":true}";
+    }
+
+    /**
+     * {@code names} with repeats numbered ({@code id, id_2, id_3}), first occurrence unchanged.
+     */
+    public static List<String> uniqueNames(List<String> names) {
+        Set<String> taken = new HashSet<>(names);
+        Set<String> used = new HashSet<>();
+        List<String> unique = new ArrayList<>(names.size());
+        for (String name : names) {
+            String candidate = name;
+            // skip suffixes that a later column already uses as its own name
+            for (int n = 2; used.contains(candidate) || (n > 2 && taken.contains(candidate)); n++) {
+                candidate = name + "_" + n;
+            }
+            used.add(candidate);
+            unique.add(candidate);
+        }
+        return unique;
+    }
+
+    /**
+     * Columnar payload for rows that were already mapped (the chunked stream);
+     * column types are inferred from the Java values.
+     */
+    public static String fromRows(List<Map<String, Object>> rows, ObjectMapper mapper) {
+        return fromRows(rows, mapper, false);
+    }
+
+    public static String fromRows(List<Map<String, Object>> rows, ObjectMapper mapper, boolean truncated) {
+        Set<String> names = new LinkedHashSet<>();
+        rows.forEach(row -> names.addAll(row.keySet()));
+
+        ObjectNode result = mapper.createObjectNode();
+        result.put("format", FORMAT);
+        ArrayNode columns = result.putArray("columns");
+        for (String name : names) {
+            columns.addObject().put("name", name).put("type", typeOf(rows, name));
+        }
+        result.put("rowCount", rows.size());
+        result.put("truncated", truncated);
+        ArrayNode data = result.putArray("data");
+        for (String name : names) {
+            ArrayNode values = data.addArray();
+            rows.forEach(row -> values.add(mapper.valueToTree(row.get(name))));
+        }
+        try {
+            return mapper.writeValueAsString(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pretty-printed array of row objects, as answers looked before
+     * (wrapped when the result was truncated).
+     */
+    public static String toRows(String columnar) {
+        try {
+            JsonNode root = MAPPER.readTree(columnar);
+            JsonNode columns = root.path("columns");
+            JsonNode data = root.path("data");
+            List<String> labels = new ArrayList<>(columns.size());
+            columns.forEach(column -> labels.add(column.path("name").asText()));
+            List<String> names = uniqueNames(labels);
+
+            ArrayNode rows = MAPPER.createArrayNode();
+            int rowCount = root.path("rowCount").asInt();
+            for (int r = 0; r < rowCount; r++) {
+                ObjectNode row = rows.addObject();
+                for (int c = 0; c < names.size(); c++) {
+                    row.set(names.get(c), data.path(c).path(r));
+                }
+            }
+            String array = MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(rows);
+            return root.path("truncated").asBoolean(false) ? truncatedRows(array, rowCount) : array;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Row count and column names from the header only; the data is not read.
+     */
+    public static Shape shape(String columnar) {
+        long rowCount = 0;
+        boolean truncated = false;
+        Set<String> columns = new LinkedHashSet<>();
+        try (JsonParser parser = MAPPER.getFactory().createParser(columnar)) {
+            parser.nextToken(); // START_OBJECT
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "columns" -> {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            JsonNode column = MAPPER.readTree(parser);
+                            columns.add(column.path("name").asText());
+                        }
+                    }
+                    case "rowCount" -> rowCount = parser.getLongValue();
+                    case "truncated" -> truncated = parser.getBooleanValue();
+                    case "data" -> {
+                        return new Shape(rowCount, columns, truncated);
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Shape(rowCount, columns, truncated);
+    }
+
+    /**
+     * Shape of an answer in either layout, or null if it isn't a result set.
+     * Rows are counted with a streaming parser, without building them.
+     */
+    public static Shape shapeOf(String answer) {
+        if (isColumnar(answer)) {
+            return shape(answer);
+        }
+        if (!isRows(answer)) {
+            return null;
+        }
+        long rowCount = 0;
+        boolean truncated = false;
+        Set<String> columns = new LinkedHashSet<>();
+        try (JsonParser parser = MAPPER.getFactory().createParser(answer)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                // truncated wrapper: find "rows", and "truncated" after it
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    token = parser.nextToken();
+                    if ("rows".equals(field) && token == JsonToken.START_ARRAY) {
+                        rowCount = countRows(parser, columns);
+                    } else if ("truncated".equals(field)) {
+                        truncated = parser.getBooleanValue();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                rowCount = countRows(parser, columns);
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        return new Shape(rowCount, columns, truncated);
+    }
+
+    // parser is on START_ARRAY; leaves it on the matching END_ARRAY
+    private static long countRows(JsonParser parser, Set<String> columns) throws IOException {
+        long rows = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.START_OBJECT && rows == 0) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    columns.add(parser.currentName());
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+            } else {
+                parser.skipChildren();
+            }
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * One-line shape preview, {@code [n rows; columns: a, b]}, for prompts and stored rows.
+     */
+    public static String summary(String columnar) {
+        return summary(shape(columnar));
+    }
+
+    public static String summary(Shape shape) {
+        return "[" + (shape.truncated() ? "more than " : "") + shape.rowCount() + " rows; columns: "
+                + String.join(", ", shape.columns()) + "]";
+    }
+
+    private static String typeOf(List<Map<String, Object>> rows, String name) {
+        for (Map<String, Object> row : rows) {
+            Object value = row.get(name);
+            if (value != null) {
+                return typeOf(value);
+            }
+        }
+        return "unknown";
+    }
+
+    // Postgres names for what the JDBC driver hands back
+    private static String typeOf(Object value) {
+        if (value instanceof Integer || value instanceof Short) {
+            return "int4";
+        }
+        if (value instanceof Long || value instanceof BigInteger) {
+            return "int8";
+        }
+        if (value instanceof BigDecimal) {
+            return "numeric";
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return "float8";
+        }
+        if (value instanceof Boolean) {
+            return "bool";
+        }
+        if (value instanceof java.sql.Timestamp) {
+            return "timestamp";
+        }
+        if (value instanceof java.sql.Date) {
+            return "date";
+        }
+        return value instanceof CharSequence ? "text" : "unknown";
+    }
+}
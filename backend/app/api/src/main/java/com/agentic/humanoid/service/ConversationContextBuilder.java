@@ -0,0 +1,340 @@
+package com.agentic.humanoid.service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.agentic.humanoid.DTO.ConversationContext;
+import com.agentic.humanoid.model.Conversation;
+import com.agentic.humanoid.model.ConversationMessage;
+import com.agentic.humanoid.model.ConversationMessageRepository;
+import com.agentic.humanoid.model.Queries;
+import com.agentic.humanoid.repository.ConversationRepository;
+import com.agentic.humanoid.repository.QueryRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Builds the LLM prompt context for an ask without loading whole histories.
+ *
+ * The newest turns are read newest-first with keyset pages on
+ * (created_at, id) until either {@code context.max-turns} messages or the
+ * token budget is reached. Anything older is folded once into
+ * {@link Conversation#getSummary()} and never re-read: the summary keeps the
+ * (created_at, id) of the last message it covers, the same key the pages
+ * are ordered by (ids alone are not in time order across nodes). The summary
+ * is only written if no concurrent ask in the conversation moved that cursor
+ * first. Large result payloads only enter the prompt as a shape preview
+ * (row count and column names).
+ */
+@Service
+public class ConversationContextBuilder {
+
+    // lower bound for a conversation with nothing summarized yet
+    private static final LocalDateTime NOTHING_SUMMARIZED = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ConversationMessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final QueryRepository queryRepository;
+    private final MessageWriteBehind writeBehind;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Value("${context.max-turns:20}")
+    private int maxTurns;
+
+    @Value("${context.page-size:10}")
+    private int pageSize;
+
+    @Value("${context.token-budget:3000}")
+    private int tokenBudget;
+
+    @Value("${context.summary-max-chars:2000}")
+    private int summaryMaxChars;
+
+    @Value("${context.preview-chars:400}")
+    private int previewChars;
+
+    @Value("${context.recent-queries:5}")
+    private int recentQueries;
+
+    public ConversationContextBuilder(ConversationMessageRepository messageRepository,
+            ConversationRepository conversationRepository,
+            QueryRepository queryRepository,
+            MessageWriteBehind writeBehind) {
+        this.messageRepository = messageRepository;
+        this.conversationRepository = conversationRepository;
+        this.queryRepository = queryRepository;
+        this.writeBehind = writeBehind;
+    }
+
+    public ConversationContext build(Conversation conversation, Long userId) {
+        // previous turns may still be sitting in the write-behind log
+        writeBehind.flushConversation(conversation.getId());
+        writeBehind.flushUser(userId);
+        List<String> recent = loadRecentQuestions(userId);
+
+        // summary and recent questions are charged against the budget up front
+        int reserved = estimateTokens(String.join("\n", recent)) + summaryMaxChars / 4;
+        List<ConversationMessage> window = loadWindow(conversation, Math.max(tokenBudget - reserved, 0));
+
+        String summary = foldOlderTurns(conversation, window);
+        List<ConversationMessage> turns = toTurns(window);
+
+        int tokens = estimateTokens(summary) + estimateTokens(String.join("\n", recent));
+        for (ConversationMessage turn : turns) {
+            tokens += estimateTokens(turn.getContent());
+        }
+        return new ConversationContext(summary, recent, turns, tokens);
+    }
+
+    /**
+     * Newest-first keyset scan; returns the window in chronological order,
+     * starting at a user message so the prompt alternates correctly.
+     */
+    private List<ConversationMessage> loadWindow(Conversation conversation, int budget) {
+        List<ConversationMessage> window = new ArrayList<>();
+        int used = 0;
+
+        List<ConversationMessage> page = messageRepository.findByConversationIdOrderByCreatedAtDescIdDesc(
+                conversation.getId(), PageRequest.of(0, pageSize));
+        scan: while (!page.isEmpty()) {
+            for (ConversationMessage msg : page) {
+                if (isSummarized(conversation, msg)) {
+                    break scan;
+                }
+                int cost = estimateTokens(promptText(msg));
+                if (window.size() >= maxTurns || (used + cost > budget && !window.isEmpty())) {
+                    break scan;
+                }
+                window.add(msg);
+                used += cost;
+            }
+            ConversationMessage last = page.get(page.size() - 1);
+            page = messageRepository.findPageBefore(conversation.getId(), last.getCreatedAt(), last.getId(),
+                    PageRequest.of(0, pageSize));
+        }
+
+        Collections.reverse(window);
+        while (!window.isEmpty() && !"user".equals(window.get(0).getRole())) {
+            window.remove(0);
+        }
+        return window;
+    }
+
+    /**
+     * Fold every not-yet-summarized message older than the window into the
+     * stored rolling summary, oldest lines dropping off past the size cap.
+     */
+    private String foldOlderTurns(Conversation conversation, List<ConversationMessage> window) {
+        String summary = conversation.getSummary() == null ? "" : conversation.getSummary();
+        ConversationMessage windowStart = window.isEmpty() ? null : window.get(0);
+        if (windowStart == null) {
+            return summary;
+        }
+
+        Long readThroughId = conversation.getSummarizedThroughId();
+        LocalDateTime throughAt = conversation.getSummarizedThroughAt();
+        boolean summarized = readThroughId != null && throughAt != null;
+        LocalDateTime afterAt = summarized ? throughAt : NOTHING_SUMMARIZED;
+        long afterId = summarized ? readThroughId : 0L;
+        StringBuilder folded = new StringBuilder(summary);
+        ConversationMessage lastFolded = null;
+
+        List<ConversationMessage> page;
+        do {
+            page = messageRepository.findPageBetween(conversation.getId(), afterAt, afterId,
+                    windowStart.getCreatedAt(), windowStart.getId(), PageRequest.of(0, pageSize));
+            for (ConversationMessage msg : page) {
+                String line = summaryLine(msg);
+                if (!line.isEmpty()) {
+                    if (folded.length() > 0) {
+                        folded.append('\n');
+                    }
+                    folded.append(line);
+                }
+                afterAt = msg.getCreatedAt();
+                afterId = msg.getId();
+                lastFolded = msg;
+            }
+        } while (page.size() == pageSize);
+
+        if (lastFolded == null) {
+            return summary;
+        }
+
+        String updated = trimOldestLines(folded.toString(), summaryMaxChars);
+        // a concurrent ask that got there first keeps its summary; this prompt still uses ours,
+        // and the next ask folds on from the stored cursor
+        if (conversationRepository.advanceSummary(conversation.getId(), readThroughId, updated,
+                lastFolded.getCreatedAt(), lastFolded.getId()) == 1) {
+            conversation.setSummary(updated);
+            conversation.setSummarizedThroughAt(lastFolded.getCreatedAt());
+            conversation.setSummarizedThroughId(lastFolded.getId());
+        }
+        return updated;
+    }
+
+    // at or before the summary's (created_at, id) cursor
+    private static boolean isSummarized(Conversation conversation, ConversationMessage msg) {
+        LocalDateTime throughAt = conversation.getSummarizedThroughAt();
+        if (conversation.getSummarizedThroughId() == null || throughAt == null) {
+            return false;
+        }
+        int byTime = msg.getCreatedAt().compareTo(throughAt);
+        return byTime < 0 || (byTime == 0 && msg.getId() <= conversation.getSummarizedThroughId());
+    }
+
+    /**
+     * Collapse user / sql / assistant rows into alternating user and
+     * assistant turns; the assistant turn carries the SQL plus a result preview.
+     */
+    private List<ConversationMessage> toTurns(List<ConversationMessage> window) {
+        List<ConversationMessage> turns = new ArrayList<>();
+        StringBuilder assistant = null;
+
+        for (ConversationMessage msg : window) {
+            if ("user".equals(msg.getRole())) {
+                if (assistant != null) {
+                    turns.add(turn("assistant", assistant.toString()));
+                    assistant = null;
+                }
+                turns.add(turn("user", nullToEmpty(msg.getContent())));
+                continue;
+            }
+            if (assistant == null) {
+                assistant = new StringBuilder();
+            } else {
+                assistant.append('\n');
+            }
+            assistant.append(promptText(msg));
+        }
+        if (assistant != null) {
+            turns.add(turn("assistant", assistant.toString()));
+        }
+        return turns;
+    }
+
+    private List<String> loadRecentQuestions(Long userId) {
+        if (recentQueries <= 0) {
+            return List.of();
+        }
+        Set<String> questions = new LinkedHashSet<>();
+        for (Queries q : queryRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId,
+                PageRequest.of(0, recentQueries))) {
+            questions.add(truncate(nullToEmpty(q.getQueryText()), 200));
+        }
+        List<String> chronological = new ArrayList<>(questions);
+        Collections.reverse(chronological);
+        return chronological;
+    }
+
+    private String promptText(ConversationMessage msg) {
+        String content = nullToEmpty(msg.getContent());
+        if ("sql".equals(msg.getRole())) {
+            return "SQL: " + content;
+        }
+        if ("assistant".equals(msg.getRole())) {
+            return "Result: " + preview(content);
+        }
+        return content;
+    }
+
+    private String summaryLine(ConversationMessage msg) {
+        String content = nullToEmpty(msg.getContent());
+        return switch (nullToEmpty(msg.getRole())) {
+            case "user" -> "- User asked: " + truncate(content, 160);
+            case "sql" -> "  SQL: " + truncate(content, 200);
+            case "assistant" -> "  Result: " + preview(content);
+            default -> "";
+        };
+    }
+
+    /**
+     * Small answers pass through; large JSON answers become a shape-only
+     * preview. The scan stops after a few KB so huge payloads stay cheap.
+     */
+    String preview(String content) {
+        if (content.length() <= previewChars) {
+            return content;
+        }
+        if (ColumnarResults.isColumnar(content)) {
+            // the header carries the shape, no need to scan values
+            return ColumnarResults.summary(content);
+        }
+        String trimmed = content.stripLeading();
+        if (!trimmed.startsWith("[")) {
+            // a truncated rows answer carries its rows in a wrapper
+            ColumnarResults.Shape shape = ColumnarResults.shapeOf(content);
+            return shape != null ? ColumnarResults.summary(shape) : truncate(content, previewChars);
+        }
+
+        int scanLimit = Math.max(previewChars * 16, 8192);
+        Set<String> columns = new LinkedHashSet<>();
+        int rows = 0;
+        boolean partial = false;
+        try (JsonParser parser = jsonFactory.createParser(trimmed)) {
+            parser.nextToken(); // START_ARRAY
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                if (parser.currentLocation().getCharOffset() > scanLimit) {
+                    partial = true;
+                    break;
+                }
+                if (token == JsonToken.START_OBJECT && rows == 0) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        columns.add(parser.currentName());
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+                rows++;
+            }
+        } catch (IOException e) {
+            return truncate(content, previewChars);
+        }
+        return "[" + (partial ? "more than " + rows : rows) + " rows; columns: " + String.join(", ", columns)
+                + "]";
+    }
+
+    private static String trimOldestLines(String text, int maxChars) {
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        String tail = text.substring(text.length() - maxChars);
+        int firstBreak = tail.indexOf('\n');
+        return firstBreak >= 0 ? tail.substring(firstBreak + 1) : tail;
+    }
+
+    /**
+     * Rough token estimate (~4 characters per token for English and SQL).
+     */
+    static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    private static ConversationMessage turn(String role, String content) {
+        ConversationMessage msg = new ConversationMessage();
+        msg.setRole(role);
+        msg.setContent(content);
+        return msg;
+    }
+
+    private static String truncate(String text, int max) {
+        return text.length() <= max ? text : text.substring(0, max) + "…";
+    }
+
+    private static String nullToEmpty(String text) {
+        return text == null ? "" : text;
+    }
+}
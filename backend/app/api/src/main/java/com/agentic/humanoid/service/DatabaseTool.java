@@ -1,73 +1,177 @@
 package com.agentic.humanoid.service;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.time.Duration;
+import java.time.Instant;
 
 import javax.sql.DataSource;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
+import com.agentic.humanoid.component.Bulkhead;
+import com.agentic.humanoid.component.BulkheadFullException;
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.component.SqlTemplateCache;
+import com.agentic.humanoid.component.Tracer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.Timer;
+
 @Component
 public class DatabaseTool {
 
     private final DataSource dataSource;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int fetchSize;
+    private final ResultSetJsonWriter writer;
+    private final SqlTemplateCache sqlTemplates;
+    private final QueryGovernor governor;
+    private final Bulkhead bulkhead;
+    private final PipelineMetrics metrics;
+    private final Tracer tracer;
+    private final AuditLog auditLog;
+    private final ResultFormat storedFormat;
 
-    public DatabaseTool(DataSource dataSource) {
+    public DatabaseTool(@Qualifier("analyticsDataSource") DataSource dataSource,
+            SqlTemplateCache sqlTemplates,
+            QueryGovernor governor,
+            @Qualifier("analyticsBulkhead") Bulkhead bulkhead,
+            PipelineMetrics metrics,
+            Tracer tracer,
+            AuditLog auditLog,
+            @Value("${queries.result.fetch-size:500}") int fetchSize,
+            @Value("${queries.result.max-rows:10000}") long maxRows,
+            @Value("${queries.result.max-bytes:8MB}") DataSize maxBytes,
+            @Value("${queries.result.stored-format:rows}") String storedFormat) {
         this.dataSource = dataSource;
+        this.sqlTemplates = sqlTemplates;
+        this.governor = governor;
+        this.bulkhead = bulkhead;
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.auditLog = auditLog;
+        this.fetchSize = fetchSize;
+        this.writer = new ResultSetJsonWriter(maxRows, maxBytes.toBytes());
+        this.storedFormat = ResultFormat.negotiate(storedFormat, null);
     }
 
     public String runQuery(String sql) {
+        return run(sql, null).answer();
+    }
+
+    /**
+     * Run {@code sql} and say how it went. With a {@code deadline}, the
+     * statement timeout is cut to the time left, so Postgres cancels the
+     * statement when the caller stops waiting for it, and a query that only
+     * gets a connection after its deadline is not started at all.
+     */
+    public QueryOutcome run(String sql, Instant deadline) {
+        Timer.Sample sample = metrics.start();
         try {
-            String lowered = sql.toLowerCase();
-
-            // 🚫 Strictly block DDL & DML
-            if (lowered.contains("insert") ||
-                    lowered.contains("update") ||
-                    lowered.contains("delete") ||
-                    lowered.contains("drop") ||
-                    lowered.contains("alter") ||
-                    lowered.contains("create") ||
-                    lowered.contains("truncate")) {
-                return "❌ This type of query is not supported for safety reasons.";
+            String result = bulkhead.call(() -> execute(sql, deadline));
+            metrics.stopSql(sample, "tool", null);
+            return QueryOutcome.answered(result);
+        } catch (QueryRejectedException e) {
+            metrics.stopSql(sample, "tool", e);
+            auditLog.record(tracer.current(), "sql.rejected", null,
+                    AuditLog.details("sql", sql, "reason", e.getMessage()));
+            return QueryOutcome.rejected("❌ This type of query is not supported for safety reasons: " + e.getMessage());
+        } catch (BulkheadFullException e) {
+            metrics.stopSql(sample, "tool", e);
+            return QueryOutcome.failed("❌ Database is busy, try again shortly: " + e.getMessage());
+        } catch (Exception e) {
+            metrics.stopSql(sample, "tool", e);
+            if (timedOut(e)) {
+                return QueryOutcome.timeout("⏱️ Query cancelled at its deadline");
             }
+            return QueryOutcome.failed("❌ Error executing SQL: " + e.getMessage());
+        }
+    }
 
-            try (Connection conn = dataSource.getConnection();
-                    Statement stmt = conn.createStatement();
-                    ResultSet rs = stmt.executeQuery(sql)) {
+    // SQLTimeoutException from the deadline check, or 57014 query_canceled from statement_timeout
+    private static boolean timedOut(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTimeoutException
+                    || (cause instanceof SQLException sqlException && "57014".equals(sqlException.getSQLState()))) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                ResultSetMetaData metaData = rs.getMetaData();
-                int columnCount = metaData.getColumnCount();
-                List<Map<String, Object>> rows = new ArrayList<>();
+    private String execute(String sql, Instant deadline) throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            boolean readOnly = conn.isReadOnly();
+            try {
+                // 🚫 Parsed read-only SELECT within the cost budget, or rejected
+                QueryGovernor.Verdict verdict = governor.review(conn, sql);
+                if (deadline != null) {
+                    limitToDeadline(conn, verdict.timeout(), deadline);
+                }
 
-                while (rs.next()) {
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    for (int i = 1; i <= columnCount; i++) {
-                        row.put(metaData.getColumnLabel(i), rs.getObject(i));
+                // server-side cursor needs an open transaction
+                conn.setReadOnly(true);
+                conn.setAutoCommit(false);
+                try {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    ResultSetJsonWriter.Summary summary = sqlTemplates.query(conn, verdict.sql(), fetchSize, rs -> {
+                        ResultSetJsonWriter.CountingOutputStream out = new ResultSetJsonWriter.CountingOutputStream(
+                                buffer);
+                        if (storedFormat == ResultFormat.COLUMNAR) {
+                            return writer.writeColumnar(rs, objectMapper.createGenerator(out), out);
+                        }
+                        JsonGenerator gen = objectMapper.createGenerator(out).useDefaultPrettyPrinter();
+                        return writer.writeArray(rs, gen, out);
+                    });
+                    metrics.recordRows("tool", summary.rowCount());
+                    metrics.recordBytes("tool", buffer.size());
+
+                    // single scalar
+                    if (summary.rowCount() == 1 && summary.columnCount() == 1) {
+                        JsonNode result = objectMapper.readTree(buffer.toByteArray());
+                        JsonNode value = storedFormat == ResultFormat.COLUMNAR
+                                ? result.path("data").get(0).get(0)
+                                : result.get(0).elements().next();
+                        return value.isNull() ? "null" : value.isValueNode() ? value.asText() : value.toString();
                     }
-                    rows.add(row);
-                }
 
-                // single scalar
-                if (rows.size() == 1 && rows.get(0).size() == 1) {
-                    Object value = rows.get(0).values().iterator().next();
-                    return value != null ? value.toString() : "null";
+                    // full result
+                    String rows = buffer.toString(StandardCharsets.UTF_8);
+                    if (summary.truncated() && storedFormat == ResultFormat.ROWS) {
+                        return ColumnarResults.truncatedRows(rows, summary.rowCount());
+                    }
+                    return rows;
+                } finally {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                    conn.setReadOnly(readOnly);
                 }
-
-                // full JSON array
-                return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(rows);
+            } finally {
+                governor.release(conn);
             }
+        }
+    }
 
-        } catch (Exception e) {
-            return "❌ Error executing SQL: " + e.getMessage();
+    // undone with the governor's settings by release()
+    private static void limitToDeadline(Connection conn, Duration timeout, Instant deadline) throws SQLException {
+        Duration left = Duration.between(Instant.now(), deadline);
+        if (left.isNegative() || left.isZero()) {
+            throw new SQLTimeoutException("Deadline passed before the query started");
+        }
+        if (left.compareTo(timeout) < 0) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET statement_timeout = " + Math.max(left.toMillis(), 1));
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -1,70 +1,298 @@
 package com.agentic.humanoid.service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
+import com.agentic.humanoid.component.Bulkhead;
+import com.agentic.humanoid.component.BulkheadFullException;
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.component.QueryResultCache;
+import com.agentic.humanoid.component.SqlTemplate;
+import com.agentic.humanoid.component.SqlTemplateCache;
+import com.agentic.humanoid.component.Tracer;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Service
 public class DatabaseToolService {
 
+    // Generated SQL runs on the read-only analytics pool, never the write path's
     @Autowired
+    @Qualifier("analyticsJdbcTemplate")
     private JdbcTemplate jdbcTemplate;
 
-    // ✅ Safe SELECT regex
-    private static final Pattern SAFE_SQL_PATTERN = Pattern.compile(
-            "^\\s*SELECT\\s+[\\s\\S]+\\s+FROM\\s+[a-zA-Z0-9_]+[\\s\\S]*$",
-            Pattern.CASE_INSENSITIVE);
+    @Autowired
+    @Qualifier("analyticsBulkhead")
+    private Bulkhead bulkhead;
+
+    @Autowired
+    private SqlTemplateCache sqlTemplates;
+
+    @Autowired
+    private QueryResultCache resultCache;
+
+    @Autowired
+    private QueryGovernor governor;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Server-side cursor batch size and hard caps for generated queries
+    @Value("${queries.result.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${queries.result.max-rows:10000}")
+    private long maxRows;
+
+    @Value("${queries.result.max-bytes:8MB}")
+    private DataSize maxBytes;
+
+    // Layout of answers stored in messages and the result cache (rows | columnar)
+    @Value("${queries.result.stored-format:rows}")
+    private String storedFormat;
 
     /**
      * Execute only safe SELECT queries.
      * Blocks INSERT/UPDATE/DELETE/DDL.
+     * A query the {@link QueryGovernor} rejects and a full analytics bulkhead
+     * are thrown (400 and 503 to the client); database errors become the answer.
      */
     public String executeSafeQuery(String sql, Long userId) {
         if (sql == null || sql.trim().isEmpty() || sql.equalsIgnoreCase("UNSUPPORTED")) {
             // ✅ Return null so controller handles it
             return null;
         }
-        try {
-            // Run query → fetch rows
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql);
+        return runSafeQuery(sql).answer();
+    }
 
-            if (rows.isEmpty()) {
-                return "No results found.";
+    /**
+     * {@link #executeSafeQuery} with whether the answer is a result or a
+     * database error standing in for one.
+     */
+    public QueryOutcome runSafeQuery(String sql) {
+        try {
+            // ✅ Hot questions are answered from the result cache
+            SqlTemplate template = sqlTemplates.templateFor(sql);
+            Optional<String> cached = resultCache.get(template);
+            if (cached.isPresent()) {
+                return QueryOutcome.answered(cached.get());
             }
+            QueryResultCache.Ticket ticket = resultCache.ticket(template);
 
-            // ✅ Convert rows into JSON string
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(rows);
+            // Run query → rows go from the cursor into a bounded JSON buffer
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            ResultSetJsonWriter.Summary summary = withCursor("ask", template, rs -> {
+                ResultSetJsonWriter.CountingOutputStream out = new ResultSetJsonWriter.CountingOutputStream(buffer);
+                if (storedFormat() == ResultFormat.COLUMNAR) {
+                    return newWriter().writeColumnar(rs, objectMapper.createGenerator(out), out);
+                }
+                JsonGenerator gen = objectMapper.createGenerator(out).useDefaultPrettyPrinter();
+                return newWriter().writeArray(rs, gen, out);
+            });
 
+            if (summary.truncated()) {
+                log.warn("⚠️ Result truncated ({}) after {} rows: {}", summary.truncation(), summary.rowCount(), sql);
+            }
+            metrics.recordRows("ask", summary.rowCount());
+            tracer.current().tag("db.rows", summary.rowCount());
+            metrics.recordBytes("ask", buffer.size());
+            String answer = answer(buffer, summary);
+            if (resultCache.isCacheable(template)) {
+                resultCache.put(ticket, answer);
+            }
+            return QueryOutcome.answered(answer);
+
+        } catch (QueryRejectedException | BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            e.printStackTrace();
-            return "❌ Error executing query: " + e.getMessage();
+            log.warn("❌ Generated query failed: {}", e.getMessage());
+            return QueryOutcome.failed("❌ Error executing query: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Execute a SELECT on a server-side cursor and write the rows straight to
+     * {@code out} as {@code {"rows":[...],"rowCount":n,"truncated":bool}}.
+     * Nothing is materialized, so memory is constant regardless of result size.
+     * {@link ResultFormat#COLUMNAR} writes the {@link ColumnarResults} layout
+     * instead, which buffers up to the byte cap.
+     */
+    public void streamSafeQuery(String sql, OutputStream out, ResultFormat format) {
+        withCursor("results", sql, rs -> {
+            ResultSetJsonWriter.CountingOutputStream counting = new ResultSetJsonWriter.CountingOutputStream(out);
+            JsonGenerator gen = objectMapper.createGenerator(counting);
+            if (format == ResultFormat.COLUMNAR) {
+                ResultSetJsonWriter.Summary summary = newWriter().writeColumnar(rs, gen, counting);
+                metrics.recordRows("results", summary.rowCount());
+                tracer.current().tag("db.rows", summary.rowCount());
+                metrics.recordBytes("results", counting.getCount());
+                return summary;
+            }
+            gen.writeStartObject();
+            gen.writeFieldName("rows");
+            ResultSetJsonWriter.Summary summary = newWriter().writeArray(rs, gen, counting);
+            gen.writeNumberField("rowCount", summary.rowCount());
+            gen.writeBooleanField("truncated", summary.truncated());
+            if (summary.truncated()) {
+                gen.writeStringField("truncation", summary.truncation().name());
+            }
+            gen.writeEndObject();
+            gen.flush();
+            metrics.recordRows("results", summary.rowCount());
+            tracer.current().tag("db.rows", summary.rowCount());
+            metrics.recordBytes("results", counting.getCount());
+            return summary;
+        });
+    }
+
+    /**
+     * What {@link #streamSafeQuery(String, int, Consumer)} read: the answer as
+     * {@link #executeSafeQuery} would store it, and whether a cap cut it off.
+     */
+    public record StreamedRows(String answer, long rowCount, boolean truncated) {
+    }
+
+    /**
+     * Execute a SELECT under the same row and byte caps as
+     * {@link #executeSafeQuery} and hand the rows to {@code onChunk} in batches
+     * of {@code chunkSize}. The batches are held (the caps bound them) until
+     * the cursor is closed and its connection and bulkhead permit are back,
+     * so a slow client on the other end of {@code onChunk} never holds the
+     * analytics pool. Errors propagate to the caller.
+     */
+    public StreamedRows streamSafeQuery(String sql, int chunkSize, Consumer<List<Map<String, Object>>> onChunk) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        List<List<Map<String, Object>>> chunks = new ArrayList<>();
+        ResultSetJsonWriter.Summary summary = withCursor("stream", sql, rs -> {
+            ResultSetJsonWriter.CountingOutputStream out = new ResultSetJsonWriter.CountingOutputStream(buffer);
+            JsonGenerator gen = objectMapper.createGenerator(out).useDefaultPrettyPrinter();
+            return newWriter().writeArray(rs, gen, out, chunkSize, chunks::add);
+        });
+        chunks.forEach(onChunk);
+        if (summary.truncated()) {
+            log.warn("⚠️ Result truncated ({}) after {} rows: {}", summary.truncation(), summary.rowCount(), sql);
         }
+        metrics.recordRows("stream", summary.rowCount());
+        tracer.current().tag("db.rows", summary.rowCount());
+        metrics.recordBytes("stream", buffer.size());
+        return new StreamedRows(answer(buffer, summary), summary.rowCount(), summary.truncated());
+    }
+
+    // "No results found.", or the rows in the stored layout, marked when a cap cut them off
+    private String answer(ByteArrayOutputStream buffer, ResultSetJsonWriter.Summary summary) {
+        if (summary.rowCount() == 0) {
+            return "No results found.";
+        }
+        String written = buffer.toString(StandardCharsets.UTF_8);
+        if (ColumnarResults.isColumnar(written)) {
+            return written;
+        }
+        String rows = summary.truncated() ? ColumnarResults.truncatedRows(written, summary.rowCount()) : written;
+        return storedFormat() == ResultFormat.COLUMNAR ? ColumnarResults.render(rows, ResultFormat.COLUMNAR) : rows;
     }
 
     /**
-     * Check if SQL is safe.
+     * Run {@code sql} forward-only with a fetch size, with its literals
+     * extracted into bind parameters (see {@link SqlTemplateCache}), after
+     * the {@link QueryGovernor} has validated and costed it. pgjdbc only
+     * opens a server-side cursor inside a transaction, so autocommit is
+     * switched off for the duration and the read-only transaction is rolled
+     * back after. Runs on the analytics pool behind its bulkhead, timed as
+     * {@code sql.execution{path}} including the wait for a permit, and traced
+     * as an {@code sql <path>} span tagged with the parameterized statement.
      */
-    private boolean isSafeQuery(String sql) {
-        if (sql == null)
-            return false;
-        String lower = sql.toLowerCase();
-
-        // ❌ Block dangerous statements
-        if (lower.contains("insert ") || lower.contains("update ") ||
-                lower.contains("delete ") || lower.contains("drop ") ||
-                lower.contains("alter ") || lower.contains("create ") ||
-                lower.contains("truncate ")) {
-            return false;
+    private <T> T withCursor(String path, String sql, CursorCallback<T> callback) {
+        return withCursor(path, sqlTemplates.templateFor(sql), callback);
+    }
+
+    private <T> T withCursor(String path, SqlTemplate template, CursorCallback<T> callback) {
+        Timer.Sample sample = metrics.start();
+        try {
+            T result = tracer.inSpan("sql " + path, () -> {
+                tracer.current().tag("db.system", "postgresql").tag("db.statement", template.text())
+                        .tag("db.tables", String.join(",", template.tables()));
+                return execute(template, callback);
+            });
+            metrics.stopSql(sample, path, null);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.stopSql(sample, path, e);
+            throw e;
         }
+    }
+
+    private <T> T execute(SqlTemplate template, CursorCallback<T> callback) {
+        return bulkhead.call(() -> jdbcTemplate.execute((ConnectionCallback<T>) con -> {
+            boolean autoCommit = con.getAutoCommit();
+            boolean readOnly = con.isReadOnly();
+            try {
+                QueryGovernor.Verdict verdict;
+                try {
+                    verdict = governor.review(con, template.originalSql());
+                } catch (QueryRejectedException e) {
+                    auditLog.record(tracer.current(), "sql.rejected", null,
+                            AuditLog.details("sql", template.originalSql(), "reason", e.getMessage()));
+                    throw e;
+                }
+                SqlTemplate run = verdict.limited() ? sqlTemplates.templateFor(verdict.sql()) : template;
+
+                con.setReadOnly(true);
+                con.setAutoCommit(false);
+                try {
+                    return sqlTemplates.query(con, run, fetchSize, callback::apply);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    con.rollback();
+                    con.setAutoCommit(autoCommit);
+                    con.setReadOnly(readOnly);
+                }
+            } finally {
+                governor.release(con);
+            }
+        }));
+    }
+
+    private ResultFormat storedFormat() {
+        return ResultFormat.negotiate(storedFormat, null);
+    }
+
+    private ResultSetJsonWriter newWriter() {
+        return new ResultSetJsonWriter(maxRows, maxBytes.toBytes());
+    }
 
-        // ✅ Allow SELECTs with WHERE / ORDER BY / GROUP BY / LIMIT / OFFSET
-        return SAFE_SQL_PATTERN.matcher(sql).matches();
+    @FunctionalInterface
+    private interface CursorCallback<T> {
+        T apply(ResultSet rs) throws SQLException, IOException;
     }
-}
\ No newline at end of file
+}
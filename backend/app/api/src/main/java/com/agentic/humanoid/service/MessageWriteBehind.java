@@ -0,0 +1,308 @@
+package com.agentic.humanoid.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.model.ConversationMessage;
+import com.agentic.humanoid.model.ConversationMessageRepository;
+import com.agentic.humanoid.model.Queries;
+import com.agentic.humanoid.model.ResultBlob;
+import com.agentic.humanoid.repository.QueryRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind log for conversation messages, {@link Queries} rows and the
+ * {@link ResultBlob}s they reference.
+ *
+ * The ask pipeline appends instead of saving; pending rows are written in a
+ * single transaction (one JDBC batch per table, ids from the pooled
+ * sequences) once {@code persistence.write-behind.batch-size} rows are
+ * waiting or every {@code flush-interval}, whichever comes first. Blobs are
+ * inserted first with {@code ON CONFLICT DO NOTHING}: the hash is the key,
+ * so a result someone else already stored is simply skipped.
+ *
+ * Anything that reads rows back must first call the flush for what it reads:
+ * {@link #flushConversation} for a conversation's messages, {@link #flushUser}
+ * for a user's queries, {@link #flushResults} for blobs. Each one returns at
+ * once when none of those rows is still unwritten, so readers of other
+ * conversations never queue behind a batch. Otherwise it runs {@link #flush()},
+ * which holds the log's lock: a reader that arrives mid-flush waits for it and
+ * then sees every row appended before the read started.
+ *
+ * A blob that can't be written even on its own is reported to the
+ * {@link #onBlobDropped} listeners, so nothing keeps treating it as stored.
+ *
+ * Flushes are timed as {@code persistence.write{kind=batch|row}}; the
+ * backlog is the {@code persistence.write-behind.pending} gauge.
+ */
+@Slf4j
+@Service
+public class MessageWriteBehind {
+
+    private final ConversationMessageRepository messageRepository;
+    private final QueryRepository queryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor flushExecutor;
+    private final PipelineMetrics metrics;
+
+    private final ConcurrentLinkedQueue<ConversationMessage> pendingMessages = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Queries> pendingQueries = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<ResultBlob> pendingBlobs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    // rows appended but not yet committed (or dropped), by what readers look them up by
+    private final Map<Long, Integer> unwrittenByConversation = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> unwrittenByUser = new ConcurrentHashMap<>();
+    private final Map<String, Integer> unwrittenByHash = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final List<Consumer<String>> blobDroppedListeners = new CopyOnWriteArrayList<>();
+
+    @Value("${persistence.write-behind.batch-size:50}")
+    private int batchSize;
+
+    public MessageWriteBehind(ConversationMessageRepository messageRepository,
+            QueryRepository queryRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("askExecutor") Executor flushExecutor,
+            PipelineMetrics metrics) {
+        this.messageRepository = messageRepository;
+        this.queryRepository = queryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushExecutor = flushExecutor;
+        this.metrics = metrics;
+
+        Gauge.builder("persistence.write-behind.pending", pending, AtomicInteger::get)
+                .description("Rows appended but not yet written").register(metrics.registry());
+        FunctionCounter.builder("persistence.write-behind.flushed", flushedRows, AtomicLong::get)
+                .register(metrics.registry());
+        FunctionCounter.builder("persistence.write-behind.failed", failedRows, AtomicLong::get)
+                .description("Rows dropped after their row-by-row retry failed").register(metrics.registry());
+    }
+
+    public void append(ConversationMessage message) {
+        track(unwrittenByConversation, message.getConversationId());
+        pendingMessages.add(message);
+        afterAppend();
+    }
+
+    public void append(Queries query) {
+        if (query.getCreatedAt() == null) {
+            query.setCreatedAt(LocalDateTime.now());
+        }
+        track(unwrittenByUser, userId(query));
+        pendingQueries.add(query);
+        afterAppend();
+    }
+
+    public void append(ResultBlob blob) {
+        track(unwrittenByHash, blob.getHash());
+        pendingBlobs.add(blob);
+        afterAppend();
+    }
+
+    /**
+     * Call {@code listener} with the hash of every blob dropped after its retry failed.
+     */
+    public void onBlobDropped(Consumer<String> listener) {
+        blobDroppedListeners.add(listener);
+    }
+
+    private void afterAppend() {
+        // ✅ Size trigger: hand the flush to a worker, never the caller
+        if (pending.incrementAndGet() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    // ✅ Time trigger
+    @Scheduled(fixedDelayString = "${persistence.write-behind.flush-interval:200ms}")
+    public void flushOnSchedule() {
+        flush();
+    }
+
+    /**
+     * Make every message appended so far to {@code conversationId} readable.
+     */
+    public void flushConversation(Long conversationId) {
+        flushIfUnwritten(unwrittenByConversation, conversationId);
+    }
+
+    /**
+     * Make every {@link Queries} row appended so far for {@code userId} readable.
+     */
+    public void flushUser(Long userId) {
+        flushIfUnwritten(unwrittenByUser, userId);
+    }
+
+    /**
+     * Make every blob appended so far under one of {@code hashes} readable.
+     */
+    public void flushResults(Collection<String> hashes) {
+        for (String hash : hashes) {
+            if (hash != null && unwrittenByHash.containsKey(hash)) {
+                flush();
+                return;
+            }
+        }
+    }
+
+    private <K> void flushIfUnwritten(Map<K, Integer> unwritten, K key) {
+        if (key != null && unwritten.containsKey(key)) {
+            flush();
+        }
+    }
+
+    /**
+     * Write everything appended so far. Cheap when nothing is pending.
+     */
+    public synchronized void flush() {
+        List<ConversationMessage> messages = drain(pendingMessages);
+        List<Queries> queries = drain(pendingQueries);
+        List<ResultBlob> blobs = drain(pendingBlobs);
+        int rows = messages.size() + queries.size() + blobs.size();
+        if (rows == 0) {
+            return;
+        }
+
+        metrics.recordBatch(rows);
+        Timer.Sample sample = metrics.start();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                insertBlobs(blobs);
+                messageRepository.saveAll(messages);
+                queryRepository.saveAll(queries);
+            });
+            metrics.stopWrite(sample, "batch", null);
+            flushedRows.addAndGet(rows);
+        } catch (RuntimeException e) {
+            metrics.stopWrite(sample, "batch", e);
+            // ⚠️ One bad row must not take the whole batch down with it
+            log.warn("⚠️ Write-behind batch of {} rows failed, retrying row by row: {}", rows, e.getMessage());
+            for (ResultBlob blob : blobs) {
+                if (!saveOne(() -> insertBlobs(List.of(blob)))) {
+                    blobDroppedListeners.forEach(listener -> listener.accept(blob.getHash()));
+                }
+            }
+            // the rolled-back batch already gave these ids; with one, save() would merge instead of insert
+            messages.forEach(message -> saveOne(() -> {
+                message.setId(null);
+                messageRepository.save(message);
+            }));
+            queries.forEach(query -> saveOne(() -> {
+                query.setId(null);
+                queryRepository.save(query);
+            }));
+        } finally {
+            // written or dropped, nothing of these is pending any more
+            blobs.forEach(blob -> untrack(unwrittenByHash, blob.getHash()));
+            messages.forEach(message -> untrack(unwrittenByConversation, message.getConversationId()));
+            queries.forEach(query -> untrack(unwrittenByUser, userId(query)));
+        }
+    }
+
+    private void insertBlobs(List<ResultBlob> blobs) {
+        if (blobs.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO result_blobs (hash, encoding, raw_bytes, payload, created_at)
+                VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (hash) DO NOTHING""", blobs, blobs.size(), (ps, blob) -> {
+            ps.setString(1, blob.getHash());
+            ps.setString(2, blob.getEncoding());
+            ps.setInt(3, blob.getRawBytes());
+            ps.setBytes(4, blob.getPayload());
+            ps.setObject(5, blob.getCreatedAt());
+        });
+    }
+
+    private boolean saveOne(Runnable save) {
+        Timer.Sample sample = metrics.start();
+        try {
+            transactionTemplate.executeWithoutResult(status -> save.run());
+            metrics.stopWrite(sample, "row", null);
+            flushedRows.incrementAndGet();
+            return true;
+        } catch (RuntimeException e) {
+            metrics.stopWrite(sample, "row", e);
+            failedRows.incrementAndGet();
+            log.error("❌ Dropping write-behind row: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static <K> void track(Map<K, Integer> unwritten, K key) {
+        if (key != null) {
+            unwritten.merge(key, 1, Integer::sum);
+        }
+    }
+
+    private static <K> void untrack(Map<K, Integer> unwritten, K key) {
+        if (key != null) {
+            unwritten.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private static Long userId(Queries query) {
+        return query.getUser() == null ? null : query.getUser().getId();
+    }
+
+    private <T> List<T> drain(ConcurrentLinkedQueue<T> queue) {
+        List<T> drained = new ArrayList<>();
+        T item;
+        while ((item = queue.poll()) != null) {
+            drained.add(item);
+            pending.decrementAndGet();
+        }
+        return drained;
+    }
+
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    public long flushedCount() {
+        return flushedRows.get();
+    }
+
+    public long failedCount() {
+        return failedRows.get();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
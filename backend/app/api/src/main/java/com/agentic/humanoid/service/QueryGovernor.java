@@ -0,0 +1,309 @@
+package com.agentic.humanoid.service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.parser.Node;
+import net.sf.jsqlparser.parser.SimpleNode;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statements;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.ParenthesedSelect;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.WithItem;
+
+/**
+ * The single gate every generated query passes before it runs.
+ *
+ * 1. Parse once with JSqlParser: exactly one SELECT, no data-modifying CTEs,
+ *    no SELECT INTO / FOR UPDATE, and only functions on an allowlist of
+ *    aggregates, window, string, numeric, date and JSON builders (plus
+ *    {@code queries.governor.extra-functions}). A denylist can't keep up:
+ *    {@code table_to_xml('conversation_messages', ...)} and friends read a
+ *    table by name without it ever appearing as one. Functions are found by
+ *    walking the parsed tree, so quoting or schema-qualifying a name
+ *    ({@code pg_catalog."pg_sleep"}) doesn't hide it, and column names like
+ *    {@code created_at} or {@code deleted} are just identifiers here. Tables
+ *    kept out of the prompt ({@code schema-catalog.exclude-tables}: chat
+ *    history, the audit log) and their partitions can't be read either, nor
+ *    can the system catalogs ({@code pg_*}, {@code information_schema}),
+ *    which show other sessions' SQL.
+ * 2. {@code EXPLAIN (FORMAT JSON)} for the planner's cost and row estimates.
+ *    Over {@code max-cost} the query is rejected; over {@code cost-budget} it
+ *    runs with the shorter {@code expensive-statement-timeout}; over
+ *    {@code row-budget} without a tighter LIMIT, a LIMIT is injected.
+ *
+ * The timeout is set on the session before the read-only transaction opens
+ * (so a rollback inside it can't undo it); callers must {@link #release}
+ * the connection afterwards.
+ */
+@Slf4j
+@Component
+public class QueryGovernor {
+
+    private static final Set<String> ALLOWED_FUNCTIONS = Set.of(
+            // aggregates
+            "count", "sum", "avg", "min", "max", "string_agg", "array_agg", "json_agg", "jsonb_agg",
+            "json_object_agg", "jsonb_object_agg", "bool_and", "bool_or", "every", "stddev", "stddev_pop",
+            "stddev_samp", "variance", "var_pop", "var_samp", "percentile_cont", "percentile_disc", "mode",
+            // window
+            "row_number", "rank", "dense_rank", "percent_rank", "cume_dist", "ntile", "lag", "lead",
+            "first_value", "last_value", "nth_value",
+            // conditional
+            "coalesce", "nullif", "greatest", "least",
+            // string
+            "lower", "upper", "initcap", "length", "char_length", "character_length", "octet_length",
+            "substring", "substr", "left", "right", "trim", "btrim", "ltrim", "rtrim", "lpad", "rpad",
+            "concat", "concat_ws", "replace", "reverse", "position", "strpos", "split_part", "repeat",
+            "starts_with", "regexp_replace", "regexp_match", "regexp_matches", "regexp_split_to_array",
+            "format", "md5", "to_char",
+            // numeric
+            "abs", "round", "ceil", "ceiling", "floor", "trunc", "mod", "power", "sqrt", "sign", "ln", "log",
+            "exp", "width_bucket", "to_number",
+            // date and time
+            "now", "date_trunc", "date_part", "age", "to_date", "to_timestamp", "make_date",
+            "make_timestamp", "make_interval", "justify_days", "justify_hours", "justify_interval",
+            "date_bin", "isfinite",
+            // arrays, JSON, sets
+            "array_length", "array_to_string", "string_to_array", "cardinality", "unnest", "array_position",
+            "generate_series", "json_build_object", "jsonb_build_object", "json_build_array",
+            "jsonb_build_array", "to_json", "to_jsonb", "json_array_length", "jsonb_array_length",
+            "json_extract_path_text", "jsonb_extract_path_text", "jsonb_typeof", "json_typeof");
+
+    private static final Set<String> CATALOG_SCHEMAS = Set.of("pg_catalog", "information_schema");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Set<String> hiddenTables = Set.of();
+
+    private Set<String> extraFunctions = Set.of();
+
+    @Value("${queries.governor.max-cost:1000000}")
+    private double maxCost;
+
+    @Value("${queries.governor.cost-budget:100000}")
+    private double costBudget;
+
+    @Value("${queries.governor.row-budget:${queries.result.max-rows:10000}}")
+    private long rowBudget;
+
+    @Value("${queries.governor.statement-timeout:30s}")
+    private Duration statementTimeout;
+
+    @Value("${queries.governor.expensive-statement-timeout:5s}")
+    private Duration expensiveStatementTimeout;
+
+    // the same tables the schema catalog leaves out of the prompt
+    @Value("${schema-catalog.exclude-tables:result_blobs,flyway_schema_history,conversations,conversation_messages,audit_logs}")
+    void setHiddenTables(String tables) {
+        hiddenTables = Arrays.stream(tables.split(","))
+                .map(name -> name.strip().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Value("${queries.governor.extra-functions:}")
+    void setExtraFunctions(String functions) {
+        extraFunctions = Arrays.stream(functions.split(","))
+                .map(name -> name.strip().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public record Verdict(String sql, double estimatedCost, double estimatedRows, boolean limited,
+            Duration timeout) {
+    }
+
+    /**
+     * Parse and check {@code sql} without touching the database.
+     */
+    public Select validate(String sql) {
+        Statements statements;
+        try {
+            statements = CCJSqlParserUtil.parseStatements(sql);
+        } catch (JSQLParserException e) {
+            throw new QueryRejectedException("Could not parse generated SQL", e);
+        }
+        if (statements.size() != 1 || !(statements.get(0) instanceof Select select)) {
+            throw new QueryRejectedException("Only a single SELECT statement is allowed");
+        }
+
+        if (select.getWithItemsList() != null) {
+            for (WithItem<?> with : select.getWithItemsList()) {
+                if (!(with.getParenthesedStatement() instanceof ParenthesedSelect)) {
+                    throw new QueryRejectedException("Data-modifying WITH clauses are not allowed");
+                }
+            }
+        }
+        if (select.getForMode() != null) {
+            throw new QueryRejectedException("SELECT ... FOR UPDATE/SHARE is not allowed");
+        }
+        if (select instanceof PlainSelect plain
+                && (plain.getIntoTables() != null || plain.getIntoTempTable() != null)) {
+            throw new QueryRejectedException("SELECT ... INTO is not allowed");
+        }
+
+        rejectForbiddenNodes(select, sql);
+
+        return select;
+    }
+
+    /**
+     * Validate, set the session's statement timeout and check the plan.
+     * Run on an autocommit connection, before the query's own transaction.
+     */
+    public Verdict review(Connection con, String sql) throws SQLException {
+        Select select = validate(sql);
+        setStatementTimeout(con, statementTimeout);
+
+        JsonNode plan = explain(con, sql);
+        double cost = plan.path("Total Cost").asDouble();
+        double rows = plan.path("Plan Rows").asDouble();
+
+        if (cost > maxCost) {
+            throw new QueryRejectedException(String.format(Locale.ROOT,
+                    "Query is too expensive (estimated cost %.0f, limit %.0f)", cost, maxCost));
+        }
+
+        Duration timeout = statementTimeout;
+        if (cost > costBudget) {
+            timeout = expensiveStatementTimeout;
+            setStatementTimeout(con, timeout);
+        }
+
+        // one row past the budget so the result writer can still report truncation
+        long limit = rowBudget + 1;
+        if (rows > rowBudget && select.getFetch() == null && !hasLimitWithin(select.getLimit(), limit)) {
+            select.setLimit(new Limit().withRowCount(new LongValue(limit)));
+            String limited = select.toString();
+            log.info("⚠️ Governor capped query at {} rows (estimated {})", limit, (long) rows);
+            return new Verdict(limited, cost, rows, true, timeout);
+        }
+        return new Verdict(sql, cost, rows, false, timeout);
+    }
+
+    /**
+     * Undo the session settings made by {@link #review}.
+     */
+    public void release(Connection con) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("RESET statement_timeout");
+        }
+    }
+
+    private JsonNode explain(Connection con, String sql) throws SQLException {
+        try (Statement stmt = con.createStatement();
+                ResultSet rs = stmt.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+            rs.next();
+            return objectMapper.readTree(rs.getString(1)).path(0).path("Plan");
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Could not read query plan", e);
+        }
+    }
+
+    private static void setStatementTimeout(Connection con, Duration timeout) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("SET statement_timeout = " + timeout.toMillis());
+        }
+    }
+
+    /**
+     * Reject the first call not on the allowlist, or hidden table, anywhere in the
+     * statement. Walks the parser's own node tree rather than a statement
+     * visitor: those skip ORDER BY, GROUP BY, LIMIT, window and FILTER clauses.
+     */
+    private void rejectForbiddenNodes(Select select, String sql) {
+        Node root = select.getASTNode();
+        if (root == null) {
+            try {
+                root = CCJSqlParserUtil.parseAST(sql);
+            } catch (JSQLParserException e) {
+                throw new QueryRejectedException("Could not parse generated SQL", e);
+            }
+        }
+        while (root.jjtGetParent() != null) {
+            root = root.jjtGetParent(); // up to the statement, so WITH items are included
+        }
+
+        Deque<Node> nodes = new ArrayDeque<>(List.of(root));
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            Object value = node instanceof SimpleNode simple ? simple.jjtGetValue() : null;
+            if (value instanceof Function function) {
+                String name = unquotedName(function);
+                if (!ALLOWED_FUNCTIONS.contains(name) && !extraFunctions.contains(name)) {
+                    throw new QueryRejectedException("Function " + name + "() is not allowed");
+                }
+            } else if (value instanceof Table table && (isHidden(unquote(table.getName())) || isCatalog(table))) {
+                throw new QueryRejectedException("Table " + table.getName() + " is not available to queries");
+            }
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                nodes.push(node.jjtGetChild(i));
+            }
+        }
+    }
+
+    // a hidden table, or one of its monthly/default partitions (<parent>_pYYYYMM, <parent>_default)
+    private boolean isHidden(String table) {
+        if (hiddenTables.contains(table)) {
+            return true;
+        }
+        for (String hidden : hiddenTables) {
+            if (table.equals(hidden + "_default") || table.matches(Pattern.quote(hidden) + "_p\\d{6}")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // pg_stat_activity and the like, qualified or found through the search path
+    private static boolean isCatalog(Table table) {
+        return unquote(table.getName()).startsWith("pg_")
+                || CATALOG_SCHEMAS.contains(unquote(table.getSchemaName()));
+    }
+
+    // last part of a possibly schema-qualified, possibly quoted name
+    private static String unquotedName(Function function) {
+        List<String> parts = function.getMultipartName();
+        return unquote(parts == null || parts.isEmpty() ? function.getName() : parts.get(parts.size() - 1));
+    }
+
+    private static String unquote(String name) {
+        if (name == null) {
+            return "";
+        }
+        name = name.strip();
+        if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+            name = name.substring(1, name.length() - 1).replace("\"\"", "\"");
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean hasLimitWithin(Limit limit, long max) {
+        return limit != null && limit.getRowCount() instanceof LongValue count && count.getValue() <= max;
+    }
+}
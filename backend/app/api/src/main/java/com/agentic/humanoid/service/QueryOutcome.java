@@ -0,0 +1,41 @@
+package com.agentic.humanoid.service;
+
+/**
+ * What running one generated query came to: the text to show and store, and
+ * whether that text is the result or a message standing in for one. Callers
+ * branch on {@link #status()}, never on the wording of {@link #answer()}.
+ */
+public record QueryOutcome(String answer, Status status) {
+
+    // declared from best to worst
+    public enum Status {
+        /** A result set, scalar or "No results found." */
+        ANSWERED,
+        /** Turned away by the {@link QueryGovernor}. */
+        REJECTED,
+        /** Errored in the database, or the database was too busy to run it. */
+        FAILED,
+        /** Still running at its deadline; the statement was cancelled. */
+        TIMEOUT
+    }
+
+    public static QueryOutcome answered(String answer) {
+        return new QueryOutcome(answer, Status.ANSWERED);
+    }
+
+    public static QueryOutcome rejected(String answer) {
+        return new QueryOutcome(answer, Status.REJECTED);
+    }
+
+    public static QueryOutcome failed(String answer) {
+        return new QueryOutcome(answer, Status.FAILED);
+    }
+
+    public static QueryOutcome timeout(String answer) {
+        return new QueryOutcome(answer, Status.TIMEOUT);
+    }
+
+    public boolean answered() {
+        return status == Status.ANSWERED;
+    }
+}
@@ -0,0 +1,15 @@
+package com.agentic.humanoid.service;
+
+/**
+ * A generated query that failed validation or exceeded the cost budget.
+ */
+public class QueryRejectedException extends IllegalArgumentException {
+
+    public QueryRejectedException(String message) {
+        super(message);
+    }
+
+    public QueryRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,46 @@
+package com.agentic.humanoid.service;
+
+import java.util.Locale;
+
+import org.springframework.http.MediaType;
+
+/**
+ * How query results are encoded on the wire and in stored answers.
+ *
+ * {@link #ROWS} is the original pretty-printed array of row objects;
+ * {@link #COLUMNAR} names and types each column once and then lists its
+ * values (see {@link ColumnarResults}). Clients choose with
+ * {@code ?format=columnar} or {@code Accept: application/vnd.humanoid.columnar+json};
+ * the default stays {@link #ROWS} so existing clients see no change.
+ */
+public enum ResultFormat {
+
+    ROWS(MediaType.APPLICATION_JSON),
+    COLUMNAR(MediaType.parseMediaType(ResultFormat.COLUMNAR_MEDIA_TYPE));
+
+    public static final String COLUMNAR_MEDIA_TYPE = "application/vnd.humanoid.columnar+json";
+
+    private final MediaType mediaType;
+
+    ResultFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * An explicit {@code format} parameter wins over the Accept header.
+     */
+    public static ResultFormat negotiate(String format, String accept) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return valueOf(format.strip().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown result format: " + format);
+            }
+        }
+        return accept != null && accept.contains(COLUMNAR_MEDIA_TYPE) ? COLUMNAR : ROWS;
+    }
+}
@@ -0,0 +1,236 @@
+package com.agentic.humanoid.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Writes a forward-only ResultSet straight into a JsonGenerator as an array of
+ * row objects, one row at a time, so memory stays flat no matter how many rows
+ * the cursor returns. Stops at a hard row or byte cap (a row is never split, so
+ * the byte cap can be exceeded by at most one row).
+ *
+ * {@link #writeColumnar} writes the same rows in the {@link ColumnarResults}
+ * layout instead; there memory is bounded by the byte cap, since each column
+ * is serialized into its own buffer until the cursor is done.
+ *
+ * Repeated column labels ({@code SELECT a.id, b.id}) are numbered by
+ * {@link ColumnarResults#uniqueNames} so the second one isn't lost.
+ */
+final class ResultSetJsonWriter {
+
+    enum Truncation {
+        NONE, MAX_ROWS, MAX_BYTES
+    }
+
+    record Summary(long rowCount, int columnCount, long bytes, Truncation truncation) {
+        boolean truncated() {
+            return truncation != Truncation.NONE;
+        }
+    }
+
+    private final long maxRows;
+    private final long maxBytes;
+
+    ResultSetJsonWriter(long maxRows, long maxBytes) {
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    Summary writeArray(ResultSet rs, JsonGenerator gen, CountingOutputStream out) throws SQLException, IOException {
+        return writeArray(rs, gen, out, 0, null);
+    }
+
+    /**
+     * {@link #writeArray(ResultSet, JsonGenerator, CountingOutputStream)}, also
+     * handing the rows written to {@code onChunk} as maps, {@code chunkSize} at
+     * a time. The caps apply to the JSON, so the chunks end where the array does.
+     */
+    Summary writeArray(ResultSet rs, JsonGenerator gen, CountingOutputStream out, int chunkSize,
+            Consumer<List<Map<String, Object>>> onChunk) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        // column labels are serialized once and reused for every row
+        List<String> names = columnNames(metaData);
+        SerializedString[] labels = new SerializedString[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            labels[i] = new SerializedString(names.get(i));
+        }
+
+        long rows = 0;
+        Truncation truncation = Truncation.NONE;
+        List<Map<String, Object>> chunk = onChunk == null ? null : new ArrayList<>(chunkSize);
+
+        gen.writeStartArray();
+        while (rs.next()) {
+            if (rows >= maxRows) {
+                truncation = Truncation.MAX_ROWS;
+                break;
+            }
+            if (out.getCount() + Math.max(gen.getOutputBuffered(), 0) >= maxBytes) {
+                truncation = Truncation.MAX_BYTES;
+                break;
+            }
+            Map<String, Object> row = chunk == null ? null : new LinkedHashMap<>(columnCount * 2);
+            gen.writeStartObject();
+            for (int i = 0; i < columnCount; i++) {
+                Object value = JdbcUtils.getResultSetValue(rs, i + 1);
+                gen.writeFieldName(labels[i]);
+                gen.writeObject(value);
+                if (row != null) {
+                    row.put(names.get(i), value);
+                }
+            }
+            gen.writeEndObject();
+            rows++;
+            if (row != null) {
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    onChunk.accept(List.copyOf(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+        gen.writeEndArray();
+        gen.flush();
+        if (chunk != null && !chunk.isEmpty()) {
+            onChunk.accept(List.copyOf(chunk));
+        }
+
+        return new Summary(rows, columnCount, out.getCount(), truncation);
+    }
+
+    /**
+     * {@code {"format":"columnar","columns":[{"name","type"}],"rowCount":n,"truncated":b,"data":[[col]...]}}
+     * with one JSON array of values per column.
+     */
+    Summary writeColumnar(ResultSet rs, JsonGenerator gen, CountingOutputStream out)
+            throws SQLException, IOException {
+        // gen must write to out: the column buffers are copied into out between its tokens
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        JsonFactory factory = gen.getCodec() != null ? gen.getCodec().getFactory() : new JsonFactory();
+
+        ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[columnCount];
+        JsonGenerator[] columns = new JsonGenerator[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            buffers[i] = new ByteArrayOutputStream();
+            columns[i] = factory.createGenerator(buffers[i]);
+            columns[i].setCodec(gen.getCodec());
+            columns[i].writeStartArray();
+        }
+
+        long rows = 0;
+        Truncation truncation = Truncation.NONE;
+        while (rs.next()) {
+            if (rows >= maxRows) {
+                truncation = Truncation.MAX_ROWS;
+                break;
+            }
+            if (bufferedBytes(buffers, columns) >= maxBytes) {
+                truncation = Truncation.MAX_BYTES;
+                break;
+            }
+            for (int i = 0; i < columnCount; i++) {
+                columns[i].writeObject(JdbcUtils.getResultSetValue(rs, i + 1));
+            }
+            rows++;
+        }
+
+        gen.writeStartObject();
+        gen.writeStringField("format", ColumnarResults.FORMAT);
+        List<String> names = columnNames(metaData);
+        gen.writeArrayFieldStart("columns");
+        for (int i = 0; i < columnCount; i++) {
+            gen.writeStartObject();
+            gen.writeStringField("name", names.get(i));
+            String type = metaData.getColumnTypeName(i + 1);
+            gen.writeStringField("type", type == null ? "unknown" : type.toLowerCase(Locale.ROOT));
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeNumberField("rowCount", rows);
+        gen.writeBooleanField("truncated", truncation != Truncation.NONE);
+        gen.writeArrayFieldStart("data");
+        gen.flush();
+        for (int i = 0; i < columnCount; i++) {
+            columns[i].writeEndArray();
+            columns[i].close();
+            if (i > 0) {
+                out.write(',');
+            }
+            buffers[i].writeTo(out);
+        }
+        // column arrays went to out directly; the generator still closes the array it opened
+        gen.writeEndArray();
+        gen.writeEndObject();
+        gen.flush();
+
+        return new Summary(rows, columnCount, out.getCount(), truncation);
+    }
+
+    /**
+     * Column labels in select order, repeats numbered.
+     */
+    static List<String> columnNames(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<String> names = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            names.add(JdbcUtils.lookupColumnName(metaData, i + 1));
+        }
+        return ColumnarResults.uniqueNames(names);
+    }
+
+    private static long bufferedBytes(ByteArrayOutputStream[] buffers, JsonGenerator[] columns) {
+        long bytes = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            bytes += buffers[i].size() + Math.max(columns[i].getOutputBuffered(), 0);
+        }
+        return bytes;
+    }
+
+    /**
+     * Byte-counting pass-through stream used to enforce the byte cap.
+     */
+    static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
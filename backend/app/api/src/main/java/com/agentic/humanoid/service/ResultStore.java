@@ -0,0 +1,295 @@
+package com.agentic.humanoid.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.model.ResultBlob;
+import com.agentic.humanoid.repository.ResultBlobRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Content-addressed store for query results.
+ *
+ * Answers larger than {@code queries.result-store.inline-max-bytes} are
+ * deflated and written once to {@code result_blobs} under the SHA-256 of
+ * their text; the message and query rows keep only the hash and a shape
+ * preview ({@code [n rows; columns: ...]}), which is also all the prompt
+ * context needs. The same result asked for a thousand times is one blob.
+ * Full payloads are read back by hash on demand.
+ *
+ * Blobs go through the {@link MessageWriteBehind} log with the rows that
+ * reference them, so they land in the same transaction. Hashes written
+ * recently are remembered and not queued again; a blob the log had to drop
+ * is forgotten, so the next answer with that hash queues it again.
+ *
+ * Blobs no message or query refers to any more (once partition maintenance
+ * drops old months of messages) are deleted on {@code orphan-cron}, unless
+ * younger than {@code orphan-grace} or still remembered here. Nothing is
+ * collected while {@code partitions.archive-schema} is set, since archived
+ * messages still point at their blobs.
+ */
+@Slf4j
+@Service
+public class ResultStore {
+
+    public record Stored(String content, String hash) {
+    }
+
+    private static final int ORPHAN_PAGE_SIZE = 500;
+
+    private final ResultBlobRepository blobRepository;
+    private final MessageWriteBehind writeBehind;
+    private final JdbcTemplate jdbcTemplate;
+    private final long inlineMaxBytes;
+    private final int compressionLevel;
+    private final Duration orphanGrace;
+    private final boolean archiving;
+    private final Map<String, Boolean> knownHashes;
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicLong orphansDeleted = new AtomicLong();
+
+    public ResultStore(ResultBlobRepository blobRepository,
+            MessageWriteBehind writeBehind,
+            JdbcTemplate jdbcTemplate,
+            PipelineMetrics metrics,
+            @Value("${queries.result-store.inline-max-bytes:1KB}") DataSize inlineMaxBytes,
+            @Value("${queries.result-store.compression-level:6}") int compressionLevel,
+            @Value("${queries.result-store.known-hashes:10000}") int knownHashes,
+            @Value("${queries.result-store.orphan-grace:7d}") Duration orphanGrace,
+            @Value("${partitions.archive-schema:}") String archiveSchema) {
+        this.blobRepository = blobRepository;
+        this.writeBehind = writeBehind;
+        this.jdbcTemplate = jdbcTemplate;
+        this.inlineMaxBytes = inlineMaxBytes.toBytes();
+        this.compressionLevel = compressionLevel;
+        this.orphanGrace = orphanGrace;
+        this.archiving = !archiveSchema.isBlank();
+        this.knownHashes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > knownHashes;
+            }
+        };
+
+        FunctionCounter.builder("result-store.blobs", stored, AtomicLong::get).tag("outcome", "stored")
+                .register(metrics.registry());
+        FunctionCounter.builder("result-store.blobs", deduplicated, AtomicLong::get).tag("outcome", "deduplicated")
+                .register(metrics.registry());
+        FunctionCounter.builder("result-store.bytes", rawBytes, AtomicLong::get).tag("kind", "raw")
+                .baseUnit("bytes").register(metrics.registry());
+        FunctionCounter.builder("result-store.bytes", storedBytes, AtomicLong::get).tag("kind", "stored")
+                .baseUnit("bytes").register(metrics.registry());
+        FunctionCounter.builder("result-store.blobs", orphansDeleted, AtomicLong::get).tag("outcome", "orphaned")
+                .register(metrics.registry());
+
+        // a dropped blob was never stored: queue it again next time
+        writeBehind.onBlobDropped(this::forget);
+    }
+
+    /**
+     * What to put in a message or query row for {@code answer}: the answer
+     * itself if it's small or not a result set, otherwise a preview and the
+     * hash of the blob holding it.
+     */
+    public Stored externalize(String answer) {
+        // at most 3 UTF-8 bytes per char: surely small enough without encoding it
+        if (answer == null || answer.length() * 3L <= inlineMaxBytes) {
+            return new Stored(answer, null);
+        }
+        // shape straight from the stored layout, without converting it
+        ColumnarResults.Shape shape = ColumnarResults.shapeOf(answer);
+        if (shape == null) {
+            return new Stored(answer, null);
+        }
+
+        byte[] raw = answer.getBytes(StandardCharsets.UTF_8);
+        if (raw.length <= inlineMaxBytes) {
+            return new Stored(answer, null);
+        }
+        String hash = sha256(raw);
+        if (remember(hash)) {
+            ResultBlob blob = compress(hash, raw);
+            writeBehind.append(blob);
+            stored.incrementAndGet();
+            rawBytes.addAndGet(raw.length);
+            storedBytes.addAndGet(blob.getPayload().length);
+        } else {
+            deduplicated.incrementAndGet();
+        }
+        return new Stored(ColumnarResults.summary(shape), hash);
+    }
+
+    public Optional<String> load(String hash) {
+        writeBehind.flushResults(List.of(hash));
+        return blobRepository.findById(hash).map(ResultStore::decompress);
+    }
+
+    /**
+     * Full answers for many hashes in one query (missing hashes are left out).
+     */
+    public Map<String, String> loadAll(Collection<String> hashes) {
+        if (hashes.isEmpty()) {
+            return Map.of();
+        }
+        writeBehind.flushResults(hashes);
+        Map<String, String> answers = new HashMap<>();
+        for (ResultBlob blob : blobRepository.findAllById(hashes)) {
+            answers.put(blob.getHash(), decompress(blob));
+        }
+        return answers;
+    }
+
+    /**
+     * Delete blobs older than the grace period that no message or query row
+     * references, a page at a time. Returns how many were deleted.
+     */
+    @Scheduled(cron = "${queries.result-store.orphan-cron:0 45 3 * * *}")
+    public long collectOrphans() {
+        if (archiving) {
+            return 0;
+        }
+        // rows still in the log would otherwise look like they reference nothing
+        writeBehind.flush();
+        Set<String> known;
+        synchronized (knownHashes) {
+            known = new HashSet<>(knownHashes.keySet());
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(orphanGrace);
+
+        long deleted = 0;
+        String after = "";
+        List<String> page;
+        do {
+            page = jdbcTemplate.queryForList("""
+                    SELECT b.hash FROM result_blobs b
+                    WHERE b.hash > ? AND b.created_at < ?
+                      AND NOT EXISTS (SELECT 1 FROM conversation_messages m WHERE m.result_hash = b.hash)
+                      AND NOT EXISTS (SELECT 1 FROM queries q WHERE q.result_hash = b.hash)
+                    ORDER BY b.hash
+                    LIMIT ?""", String.class, after, cutoff, ORPHAN_PAGE_SIZE);
+            if (page.isEmpty()) {
+                break;
+            }
+            after = page.get(page.size() - 1);
+            // remembered hashes may be referenced by a row appended since the flush
+            Object[] orphans = page.stream().filter(hash -> !known.contains(hash)).toArray();
+            if (orphans.length > 0) {
+                // the reference check is repeated: a row may have been written since the select
+                deleted += jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement("""
+                            DELETE FROM result_blobs b
+                            WHERE b.hash = ANY (?)
+                              AND NOT EXISTS (SELECT 1 FROM conversation_messages m WHERE m.result_hash = b.hash)
+                              AND NOT EXISTS (SELECT 1 FROM queries q WHERE q.result_hash = b.hash)""");
+                    ps.setArray(1, con.createArrayOf("varchar", orphans));
+                    return ps;
+                });
+            }
+        } while (page.size() == ORPHAN_PAGE_SIZE);
+
+        orphansDeleted.addAndGet(deleted);
+        if (deleted > 0) {
+            log.info("🧹 Deleted {} unreferenced result blobs", deleted);
+        }
+        return deleted;
+    }
+
+    private boolean remember(String hash) {
+        synchronized (knownHashes) {
+            return knownHashes.put(hash, Boolean.TRUE) == null;
+        }
+    }
+
+    void forget(String hash) {
+        synchronized (knownHashes) {
+            knownHashes.remove(hash);
+        }
+        log.warn("⚠️ Result blob {} was not stored; it will be queued again when next seen", hash);
+    }
+
+    private ResultBlob compress(String hash, byte[] raw) {
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            boolean smaller = out.size() < raw.length;
+            return ResultBlob.builder()
+                    .hash(hash)
+                    .encoding(smaller ? ResultBlob.DEFLATE : ResultBlob.IDENTITY)
+                    .rawBytes(raw.length)
+                    .payload(smaller ? out.toByteArray() : raw)
+                    .createdAt(LocalDateTime.now())
+                    .build();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String decompress(ResultBlob blob) {
+        if (!ResultBlob.DEFLATE.equals(blob.getEncoding())) {
+            return new String(blob.getPayload(), StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(blob.getPayload());
+            byte[] raw = new byte[blob.getRawBytes()];
+            int length = 0;
+            while (!inflater.finished() && length < raw.length) {
+                int n = inflater.inflate(raw, length, raw.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            return new String(raw, 0, length, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt result blob " + blob.getHash(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String sha256(byte[] raw) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(raw));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+-- Re-applied on every start (${flyway:timestamp} changes the checksum), so
+-- tables created outside the app pick up the change trigger even where the
+-- event trigger below can't be installed.
+
+-- Result-cache invalidation for writes made outside the app: every statement
+-- that writes a table sends NOTIFY table_changes '<table>' on commit.
+-- Partitions are skipped; writes go through their parent, whose trigger fires.
+CREATE OR REPLACE FUNCTION notify_table_change() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('table_changes', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    t text;
+BEGIN
+    FOR t IN SELECT c.relname FROM pg_class c
+             WHERE c.relnamespace = current_schema()::regnamespace
+               AND c.relkind IN ('r', 'p') AND NOT c.relispartition LOOP
+        EXECUTE format('CREATE OR REPLACE TRIGGER %I AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON %I '
+                || 'FOR EACH STATEMENT EXECUTE FUNCTION notify_table_change()', t || '_notify_change', t);
+    END LOOP;
+    FOR t IN SELECT c.relname FROM pg_class c
+             WHERE c.relnamespace = current_schema()::regnamespace
+               AND c.relkind IN ('r', 'p') AND c.relispartition LOOP
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON %I', t || '_notify_change', t);
+    END LOOP;
+END;
+$$;
+
+-- Schema catalog refresh: DDL on tables and views sends NOTIFY schema_changes,
+-- and new tables get the change trigger above. Event triggers need superuser;
+-- without it the app falls back to re-reading the schema on a timer.
+CREATE OR REPLACE FUNCTION notify_schema_change() RETURNS event_trigger AS $$
+DECLARE
+    r record;
+BEGIN
+    FOR r IN SELECT c.relname FROM pg_event_trigger_ddl_commands() d JOIN pg_class c ON c.oid = d.objid
+             WHERE d.command_tag IN ('CREATE TABLE', 'CREATE TABLE AS', 'SELECT INTO')
+               AND d.schema_name = current_schema() AND c.relkind IN ('r', 'p') AND NOT c.relispartition LOOP
+        EXECUTE format('CREATE OR REPLACE TRIGGER %I AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON %I '
+                || 'FOR EACH STATEMENT EXECUTE FUNCTION notify_table_change()', r.relname || '_notify_change', r.relname);
+    END LOOP;
+    PERFORM pg_notify('schema_changes', tg_tag);
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+BEGIN
+    DROP EVENT TRIGGER IF EXISTS schema_change_notify;
+    CREATE EVENT TRIGGER schema_change_notify ON ddl_command_end
+        WHEN TAG IN ('CREATE TABLE', 'CREATE TABLE AS', 'SELECT INTO', 'ALTER TABLE', 'DROP TABLE',
+                     'CREATE VIEW', 'ALTER VIEW', 'DROP VIEW', 'CREATE MATERIALIZED VIEW',
+                     'ALTER MATERIALIZED VIEW', 'DROP MATERIALIZED VIEW', 'COMMENT')
+        EXECUTE FUNCTION notify_schema_change();
+EXCEPTION WHEN insufficient_privilege THEN
+    RAISE NOTICE 'schema_change_notify not installed (needs superuser)';
+END;
+$$;
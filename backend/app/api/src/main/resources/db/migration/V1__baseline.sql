@@ -0,0 +1,85 @@
+-- Baseline: the schema as it stood before migrations, i.e. the root
+-- schema.sql plus what Hibernate's ddl-auto=update added on top. Every
+-- statement is idempotent so the same script also runs cleanly against
+-- databases created the old way (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGSERIAL PRIMARY KEY,
+    username VARCHAR(100) UNIQUE NOT NULL,
+    email VARCHAR(200) UNIQUE,
+    role VARCHAR(255) DEFAULT 'user', -- user / admin
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS queries (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
+    query_text TEXT NOT NULL,
+    response_text TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS reports (
+    id SERIAL PRIMARY KEY,
+    user_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
+    report_name VARCHAR(255),
+    report_file VARCHAR(255), -- file path / S3 URL later
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS audit_logs (
+    id SERIAL PRIMARY KEY,
+    user_id BIGINT REFERENCES users(id) ON DELETE SET NULL,
+    action VARCHAR(255),
+    metadata JSONB,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS conversations (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT,
+    title VARCHAR(255),
+    summary TEXT,
+    summarized_through_id BIGINT,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS conversation_messages (
+    id BIGSERIAL PRIMARY KEY,
+    conversation_id BIGINT,
+    role VARCHAR(255),
+    content TEXT,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS result_blobs (
+    hash VARCHAR(64) PRIMARY KEY,
+    encoding VARCHAR(16) NOT NULL,
+    raw_bytes INT NOT NULL,
+    payload BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+-- Columns added after the first deployments
+ALTER TABLE queries ADD COLUMN IF NOT EXISTS result_hash VARCHAR(64);
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS summary TEXT;
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS summarized_through_id BIGINT;
+ALTER TABLE conversation_messages ADD COLUMN IF NOT EXISTS result_hash VARCHAR(64);
+
+-- Entity ids come from pooled sequences (allocationSize = 50); start each one
+-- ahead of rows written before the switch from IDENTITY/SERIAL.
+CREATE SEQUENCE IF NOT EXISTS queries_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS conversations_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS conversation_messages_seq INCREMENT BY 50;
+SELECT setval('conversations_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM conversations), (SELECT last_value FROM conversations_seq)));
+SELECT setval('conversation_messages_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM conversation_messages), (SELECT last_value FROM conversation_messages_seq)));
+SELECT setval('queries_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM queries), (SELECT last_value FROM queries_seq)));
+
+-- Table comments are part of the schema the SQL prompt sees
+COMMENT ON TABLE users IS 'people using the assistant';
+COMMENT ON TABLE queries IS 'questions users asked and the answers they got';
+COMMENT ON TABLE reports IS 'generated report files per user';
+COMMENT ON TABLE audit_logs IS 'user activity and actions';
+COMMENT ON TABLE conversations IS 'chat sessions per user';
+COMMENT ON TABLE conversation_messages IS 'chat turns: user questions, generated sql, assistant answers';
+COMMENT ON TABLE result_blobs IS 'deflated query results keyed by sha-256, referenced by result_hash';
@@ -0,0 +1,10 @@
+-- Per-user and per-conversation reads are "newest first for one owner":
+-- (owner, created_at, id) serves both the filter and the keyset order
+-- without a sort. Built CONCURRENTLY so writes carry on during the build
+-- (no transaction, see the .conf next to this file); IF NOT EXISTS skips
+-- the ones Hibernate already created from the @Table indexes.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_queries_user_created ON queries (user_id, created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_conversations_user_created ON conversations (user_id, created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_conversation_messages_conversation_created ON conversation_messages (conversation_id, created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_created ON users (created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_audit_logs_user_created ON audit_logs (user_id, created_at);
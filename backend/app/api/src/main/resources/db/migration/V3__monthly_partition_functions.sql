@@ -0,0 +1,70 @@
+-- Helpers for tables range-partitioned by month on created_at. Partitions
+-- are named <parent>_pYYYYMM; rows outside every month land in
+-- <parent>_default. Called by the migrations below and by PartitionMaintenance.
+
+-- Create the monthly partitions covering [from_ts, to_ts] that don't exist
+-- yet and return their names. Rows already sitting in the default partition
+-- for such a month are moved into the new partition first (attaching it
+-- would fail otherwise).
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parent text, from_ts timestamp, to_ts timestamp)
+RETURNS SETOF text AS $$
+DECLARE
+    month_start timestamp := date_trunc('month', from_ts);
+    month_end timestamp;
+    partition text;
+    fallback text := parent || '_default';
+    stray boolean;
+BEGIN
+    WHILE month_start <= to_ts LOOP
+        month_end := month_start + interval '1 month';
+        partition := parent || '_p' || to_char(month_start, 'YYYYMM');
+        IF to_regclass(partition) IS NULL THEN
+            stray := false;
+            IF to_regclass(fallback) IS NOT NULL THEN
+                EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I WHERE created_at >= %L AND created_at < %L)',
+                        fallback, month_start, month_end) INTO stray;
+            END IF;
+            IF stray THEN
+                EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', partition, parent);
+                EXECUTE format('WITH moved AS (DELETE FROM %I WHERE created_at >= %L AND created_at < %L RETURNING *) '
+                        || 'INSERT INTO %I SELECT * FROM moved', fallback, month_start, month_end, partition);
+                EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                        parent, partition, month_start, month_end);
+            ELSE
+                EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                        partition, parent, month_start, month_end);
+            END IF;
+            RETURN NEXT partition;
+        END IF;
+        month_start := month_end;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detach every monthly partition that ends on or before cutoff, then drop
+-- it, or move it to archive_schema when one is given (it can be dumped and
+-- dropped from there). The default partition is never touched. Returns the
+-- names of the partitions removed.
+CREATE OR REPLACE FUNCTION drop_partitions_before(parent text, cutoff timestamp, archive_schema text DEFAULT NULL)
+RETURNS SETOF text AS $$
+DECLARE
+    r record;
+    upper_bound text;
+BEGIN
+    FOR r IN SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound
+             FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+             WHERE i.inhparent = parent::regclass
+             ORDER BY c.relname LOOP
+        upper_bound := substring(r.bound FROM 'TO \(''([^'']+)''\)');
+        CONTINUE WHEN upper_bound IS NULL OR upper_bound::timestamp > cutoff;
+        EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent, r.relname);
+        IF coalesce(archive_schema, '') = '' THEN
+            EXECUTE format('DROP TABLE %I', r.relname);
+        ELSE
+            EXECUTE format('CREATE SCHEMA IF NOT EXISTS %I', archive_schema);
+            EXECUTE format('ALTER TABLE %I SET SCHEMA %I', r.relname, archive_schema);
+        END IF;
+        RETURN NEXT r.relname;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
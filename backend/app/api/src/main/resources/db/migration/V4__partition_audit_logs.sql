@@ -0,0 +1,43 @@
+-- audit_logs becomes range-partitioned by month on created_at: old months
+-- are dropped or archived whole (PartitionMaintenance) instead of deleted
+-- row by row, and scans bounded by time only read the months they cover.
+-- The primary key must include the partition key, so it is (id, created_at)
+-- and created_at is NOT NULL. Ids keep coming from audit_logs_id_seq,
+-- widened to bigint.
+--
+-- This rewrites the table under an exclusive lock; on a large table run it
+-- in a maintenance window.
+ALTER TABLE audit_logs RENAME TO audit_logs_unpartitioned;
+ALTER INDEX audit_logs_pkey RENAME TO audit_logs_unpartitioned_pkey;
+ALTER TABLE audit_logs_unpartitioned RENAME CONSTRAINT audit_logs_user_id_fkey TO audit_logs_unpartitioned_user_id_fkey;
+ALTER SEQUENCE audit_logs_id_seq OWNED BY NONE;
+ALTER SEQUENCE audit_logs_id_seq AS BIGINT;
+
+CREATE TABLE audit_logs (
+    id BIGINT NOT NULL DEFAULT nextval('audit_logs_id_seq'),
+    user_id BIGINT REFERENCES users(id) ON DELETE SET NULL,
+    action VARCHAR(255),
+    metadata JSONB,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+-- same owner as the table it replaces (and as the sequence it takes over)
+DO $$
+BEGIN
+    EXECUTE format('ALTER TABLE audit_logs OWNER TO %I',
+            (SELECT pg_get_userbyid(relowner) FROM pg_class WHERE oid = 'audit_logs_unpartitioned'::regclass));
+END;
+$$;
+ALTER SEQUENCE audit_logs_id_seq OWNED BY audit_logs.id;
+
+SELECT create_monthly_partitions('audit_logs',
+        (SELECT COALESCE(MIN(created_at), CURRENT_TIMESTAMP) FROM audit_logs_unpartitioned)::timestamp,
+        (CURRENT_TIMESTAMP + INTERVAL '3 months')::timestamp);
+CREATE TABLE audit_logs_default PARTITION OF audit_logs DEFAULT;
+
+INSERT INTO audit_logs (id, user_id, action, metadata, created_at)
+SELECT id, user_id, action, metadata, COALESCE(created_at, CURRENT_TIMESTAMP) FROM audit_logs_unpartitioned;
+DROP TABLE audit_logs_unpartitioned;
+
+CREATE INDEX idx_audit_logs_user_created ON audit_logs (user_id, created_at);
+COMMENT ON TABLE audit_logs IS 'user activity and actions';
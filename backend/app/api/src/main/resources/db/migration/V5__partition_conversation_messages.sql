@@ -0,0 +1,39 @@
+-- conversation_messages becomes range-partitioned by month on created_at,
+-- like audit_logs (V4). The primary key is (id, created_at); ids still come
+-- from conversation_messages_seq, allocated by Hibernate. Per-conversation
+-- pages use idx_conversation_messages_conversation_created in each month.
+--
+-- This rewrites the table under an exclusive lock; on a large table run it
+-- in a maintenance window.
+ALTER TABLE conversation_messages RENAME TO conversation_messages_unpartitioned;
+ALTER INDEX conversation_messages_pkey RENAME TO conversation_messages_unpartitioned_pkey;
+
+CREATE TABLE conversation_messages (
+    id BIGINT NOT NULL,
+    conversation_id BIGINT,
+    role VARCHAR(255),
+    content TEXT,
+    result_hash VARCHAR(64),
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+-- same owner as the table it replaces (and as the sequence it takes over)
+DO $$
+BEGIN
+    EXECUTE format('ALTER TABLE conversation_messages OWNER TO %I',
+            (SELECT pg_get_userbyid(relowner) FROM pg_class WHERE oid = 'conversation_messages_unpartitioned'::regclass));
+END;
+$$;
+
+SELECT create_monthly_partitions('conversation_messages',
+        (SELECT COALESCE(MIN(created_at), CURRENT_TIMESTAMP) FROM conversation_messages_unpartitioned)::timestamp,
+        (CURRENT_TIMESTAMP + INTERVAL '3 months')::timestamp);
+CREATE TABLE conversation_messages_default PARTITION OF conversation_messages DEFAULT;
+
+INSERT INTO conversation_messages (id, conversation_id, role, content, result_hash, created_at)
+SELECT id, conversation_id, role, content, result_hash, created_at FROM conversation_messages_unpartitioned;
+DROP TABLE conversation_messages_unpartitioned;
+
+CREATE INDEX idx_conversation_messages_conversation_created
+    ON conversation_messages (conversation_id, created_at, id);
+COMMENT ON TABLE conversation_messages IS 'chat turns: user questions, generated sql, assistant answers';
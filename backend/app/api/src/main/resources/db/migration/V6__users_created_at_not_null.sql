@@ -0,0 +1,9 @@
+-- /api/users/page walks users newest first by (created_at, id); a row compares
+-- as NULL against any cursor, so users without created_at were never listed.
+-- Their creation time is unknown, so they are backfilled as the oldest users.
+UPDATE users
+SET created_at = COALESCE((SELECT min(created_at) FROM users), CURRENT_TIMESTAMP)
+WHERE created_at IS NULL;
+
+ALTER TABLE users ALTER COLUMN created_at SET DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE users ALTER COLUMN created_at SET NOT NULL;
@@ -0,0 +1,33 @@
+-- Databases created from the root schema.sql have SERIAL/INT user and query
+-- ids; V1 leaves existing tables as they are, and the entities map these
+-- columns as Long, which ddl-auto=validate rejects for int4. Widen the ones
+-- still int, and the sequences behind the serial ids. Databases V1 created
+-- already have bigints and are left alone.
+--
+-- Widening rewrites the table under an exclusive lock; on large tables run
+-- it in a maintenance window.
+DO $$
+DECLARE
+    col RECORD;
+    seq TEXT;
+BEGIN
+    FOR col IN
+        SELECT w.table_name, w.column_name
+        FROM (VALUES (1, 'users', 'id'), (2, 'queries', 'id'), (3, 'queries', 'user_id'),
+                     (4, 'reports', 'user_id'), (5, 'audit_logs', 'user_id'))
+                AS w(position, table_name, column_name)
+        JOIN information_schema.columns c
+          ON c.table_schema = current_schema()
+         AND c.table_name = w.table_name
+         AND c.column_name = w.column_name
+        WHERE c.data_type = 'integer'
+        ORDER BY w.position
+    LOOP
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN %I TYPE BIGINT', col.table_name, col.column_name);
+        seq := pg_get_serial_sequence(quote_ident(col.table_name), col.column_name);
+        IF seq IS NOT NULL THEN
+            EXECUTE format('ALTER SEQUENCE %s AS BIGINT', seq);
+        END IF;
+    END LOOP;
+END;
+$$;
@@ -0,0 +1,17 @@
+-- The rolling summary's cursor becomes the (created_at, id) of the last
+-- folded message, the same key the message pages are ordered by. Ids come
+-- from pooled sequences and are not in time order across nodes, so an id
+-- alone folded some messages twice and skipped others.
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS summarized_through_at TIMESTAMP;
+
+-- Existing cursors: the folded message's own timestamp, or the newest one
+-- at or below its id when that message is gone.
+UPDATE conversations c
+SET summarized_through_at = COALESCE(
+        (SELECT m.created_at FROM conversation_messages m
+         WHERE m.conversation_id = c.id AND m.id = c.summarized_through_id),
+        (SELECT max(m.created_at) FROM conversation_messages m
+         WHERE m.conversation_id = c.id AND m.id <= c.summarized_through_id),
+        c.created_at)
+WHERE c.summarized_through_id IS NOT NULL
+  AND c.summarized_through_at IS NULL;
@@ -0,0 +1,38 @@
+package com.agentic.humanoid.DTO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class KeysetPageTest {
+
+	private static final LocalDateTime T = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 123456000);
+
+	@Test
+	void cursorRoundTrips() {
+		PageCursor cursor = new PageCursor(T, 42);
+		assertEquals(cursor, PageCursor.decode(cursor.encode()));
+		assertEquals(PageCursor.FIRST, PageCursor.decode(null));
+		assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not-a-cursor"));
+	}
+
+	@Test
+	void extraRowOnlySignalsANextPage() {
+		List<UserSummary> fetched = List.of(user(3), user(2), user(1));
+
+		KeysetPage<UserSummary> page = KeysetPage.of(fetched, 2, UserSummary::cursor);
+		assertEquals(List.of(user(3), user(2)), page.items());
+		assertEquals(new PageCursor(T, 2), PageCursor.decode(page.nextCursor()));
+
+		assertNull(KeysetPage.of(fetched, 3, UserSummary::cursor).nextCursor());
+	}
+
+	private static UserSummary user(long id) {
+		return new UserSummary(id, "user" + id, null, "user", T);
+	}
+}
@@ -0,0 +1,47 @@
+package com.agentic.humanoid.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class BulkheadTest {
+
+	@Test
+	void turnsAwayCallersPastTheLimitAfterTheWait() throws Exception {
+		Bulkhead bulkhead = new Bulkhead("analytics", 1, Duration.ofMillis(50));
+		CountDownLatch inside = new CountDownLatch(1);
+		CompletableFuture<Void> release = new CompletableFuture<>();
+		CompletableFuture<String> holder = CompletableFuture.supplyAsync(() -> bulkhead.call(() -> {
+			inside.countDown();
+			release.join();
+			return "done";
+		}));
+		inside.await(5, TimeUnit.SECONDS);
+
+		assertEquals(1, bulkhead.active());
+		assertThrows(BulkheadFullException.class, () -> bulkhead.call(() -> "late"));
+		assertEquals(1, bulkhead.rejected());
+
+		release.complete(null);
+		assertEquals("done", holder.get(5, TimeUnit.SECONDS));
+		assertEquals("next", bulkhead.call(() -> "next"));
+		assertEquals(0, bulkhead.active());
+	}
+
+	@Test
+	void releasesThePermitWhenTheWorkFails() {
+		Bulkhead bulkhead = new Bulkhead("analytics", 1, Duration.ofMillis(50));
+
+		assertThrows(IllegalStateException.class, () -> bulkhead.call(() -> {
+			throw new IllegalStateException("boom");
+		}));
+		assertEquals(0, bulkhead.active());
+		assertEquals("ok", bulkhead.call(() -> "ok"));
+	}
+}
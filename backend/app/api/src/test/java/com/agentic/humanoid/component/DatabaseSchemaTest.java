@@ -0,0 +1,49 @@
+package com.agentic.humanoid.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.agentic.humanoid.component.DatabaseSchema.Column;
+import com.agentic.humanoid.component.DatabaseSchema.Table;
+
+class DatabaseSchemaTest {
+
+	private static final DatabaseSchema SCHEMA = new DatabaseSchema(List.of(
+			new Table("users", List.of(new Column("id", "bigint", true, null), new Column("username", "varchar", false, null),
+					new Column("email", "varchar", false, null), new Column("created_at", "timestamp", false, null)),
+					"people using the assistant"),
+			new Table("queries", List.of(new Column("id", "bigint", true, null),
+					new Column("user_id", "bigint", false, "users.id"), new Column("query_text", "text", false, null),
+					new Column("created_at", "timestamp", false, null)), "questions users asked"),
+			new Table("reports", List.of(new Column("id", "int", true, null),
+					new Column("user_id", "int", false, "users.id"), new Column("report_name", "varchar", false, null),
+					new Column("created_at", "timestamp", false, null)), null),
+			new Table("audit_logs", List.of(new Column("id", "int", true, null),
+					new Column("action", "varchar", false, null), new Column("created_at", "timestamp", false, null)),
+					null)));
+
+	@Test
+	void keepsMatchingTablesAndWhatTheyReference() {
+		DatabaseSchema pruned = SCHEMA.prune("What was the first question asked by Alice?", 6, 12);
+
+		assertEquals(List.of("users", "queries"), pruned.tableNames());
+	}
+
+	@Test
+	void sharedColumnsDoNotPullInEveryTable() {
+		DatabaseSchema pruned = SCHEMA.prune("reports created last week", 6, 12);
+
+		assertEquals(List.of("users", "reports"), pruned.tableNames());
+	}
+
+	@Test
+	void noMatchKeepsWholeSchemaAndWideTablesKeepKeysFirst() {
+		assertEquals(SCHEMA, SCHEMA.prune("hello there", 6, 12));
+
+		Table reports = SCHEMA.prune("report", 6, 2).tables().get(1);
+		assertEquals("reports(id int PK, user_id int → users.id)\n", new DatabaseSchema(List.of(reports)).render());
+	}
+}
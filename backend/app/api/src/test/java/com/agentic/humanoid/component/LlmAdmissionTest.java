@@ -0,0 +1,93 @@
+package com.agentic.humanoid.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LlmAdmissionTest {
+
+	@Test
+	void userOverTheirBurstIsShed() {
+		LlmAdmission admission = admission(3, 10);
+
+		for (int i = 0; i < 3; i++) {
+			admission.submit(1L, true, () -> CompletableFuture.completedFuture("ok")).join();
+		}
+		CompletionException e = assertThrows(CompletionException.class,
+				() -> admission.submit(1L, true, () -> CompletableFuture.completedFuture("ok")).join());
+		assertInstanceOf(AdmissionRejectedException.class, e.getCause());
+		// someone else still has their whole burst
+		assertEquals("ok", admission.submit(2L, true, () -> CompletableFuture.completedFuture("ok")).join());
+	}
+
+	@Test
+	void checkShedsLikeSubmitWithoutTakingATurn() {
+		LlmAdmission admission = admission(2, 10);
+
+		admission.check(1L);
+		admission.check(1L);
+		for (int i = 0; i < 2; i++) {
+			admission.submit(1L, true, () -> CompletableFuture.completedFuture("ok")).join();
+		}
+		assertThrows(AdmissionRejectedException.class, () -> admission.check(1L));
+		admission.check(2L);
+	}
+
+	@Test
+	void queuedBurstDoesNotDelayAnotherUser() {
+		LlmAdmission admission = admission(100, 1);
+		List<String> order = new CopyOnWriteArrayList<>();
+		CompletableFuture<Void> blocker = new CompletableFuture<>();
+		admission.submit(1L, false, () -> blocker);
+
+		List<CompletableFuture<Void>> calls = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			calls.add(admission.submit(1L, false, () -> record(order, "burst")));
+		}
+		calls.add(admission.submit(2L, false, () -> record(order, "other")));
+		assertEquals(6, admission.queued());
+
+		blocker.complete(null);
+		CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+		assertEquals("other", order.get(0));
+	}
+
+	@Test
+	void limitShrinksOnSlowOrDroppedCallsAndGrowsWhenBusyAndFast() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 100, 1.5, 0.9);
+		for (int i = 0; i < 50; i++) {
+			limit.onSample(100_000_000L, 20);
+		}
+		int grown = limit.limit();
+		assertTrue(grown > 20);
+
+		limit.onSample(1_000_000_000L, grown);
+		assertTrue(limit.limit() < grown);
+
+		int beforeDrop = limit.limit();
+		limit.onDropped();
+		assertTrue(limit.limit() < beforeDrop);
+	}
+
+	private static CompletableFuture<Void> record(List<String> order, String who) {
+		order.add(who);
+		return CompletableFuture.completedFuture(null);
+	}
+
+	private static LlmAdmission admission(int burst, int limit) {
+		return new LlmAdmission(0.001, burst, "", limit, limit, limit, 1.5, 0.9, 100, 20, Duration.ofSeconds(5),
+				new SimpleMeterRegistry());
+	}
+}
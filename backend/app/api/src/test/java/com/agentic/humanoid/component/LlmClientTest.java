@@ -0,0 +1,26 @@
+package com.agentic.humanoid.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LlmClientTest {
+
+	private static final String QUESTION = "How many users are there, and what did Alice ask last?";
+
+	@Test
+	void planIsTheArrayOfSubQuestions() {
+		assertEquals(List.of("How many users are there?", "What did Alice ask last?"),
+				LlmClient.parsePlan("[\"How many users are there?\", \" What did Alice ask last? \", "
+						+ "\"How many users are there?\", \"\"]", QUESTION));
+	}
+
+	@Test
+	void anythingElseFallsBackToTheQuestion() {
+		assertEquals(List.of(QUESTION), LlmClient.parsePlan("Sure! Here are the parts: ...", QUESTION));
+		assertEquals(List.of(QUESTION), LlmClient.parsePlan("{\"questions\": [\"a\"]}", QUESTION));
+		assertEquals(List.of(QUESTION), LlmClient.parsePlan("[]", QUESTION));
+	}
+}
@@ -0,0 +1,188 @@
+package com.agentic.humanoid.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LlmRouterTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final Tracer tracer = new Tracer(new TraceBuffer(true, 10, Duration.ofSeconds(2), 0.0, registry), 200);
+
+	@Test
+	void slowPrimaryIsHedgedAndTheFirstAnswerWins() {
+		FakeTransport slow = new FakeTransport("slow", 2_000, false);
+		FakeTransport fast = new FakeTransport("fast", 10, false);
+		LlmRouter router = router(provider("slow", slow), provider("fast", fast));
+
+		JsonNode answer = router.complete(Map.of("model", "m"), Duration.ofSeconds(5)).join();
+
+		assertEquals("fast", answer.path("from").asText());
+		assertEquals(1, fast.calls.get());
+		assertEquals(1.0, registry.get("llm.router.hedges").tags("provider", "fast", "outcome", "won").counter()
+				.count());
+	}
+
+	@Test
+	void hedgesAtMostTheBudgetedShareOfCalls() {
+		FakeTransport slow = new FakeTransport("slow", 150, false);
+		FakeTransport fast = new FakeTransport("fast", 0, false);
+		LlmRouter router = router(0.25, provider("slow", slow), provider("fast", fast));
+
+		for (int i = 0; i < 8; i++) {
+			// every fourth call has earned a whole hedge, the others wait for the slow answer
+			String expected = i % 4 == 3 ? "fast" : "slow";
+			assertEquals(expected, router.complete(Map.of(), Duration.ofSeconds(5)).join().path("from").asText());
+		}
+		assertEquals(2, fast.calls.get());
+	}
+
+	@Test
+	void quietCallsDoNotSaveUpABurstOfHedges() {
+		// a lone provider is hedged against itself, so every call past one per request is a hedge
+		FakeTransport only = new FakeTransport("only", 0, false);
+		LlmRouter router = router(0.1, provider("only", only));
+		for (int i = 0; i < 200; i++) {
+			router.complete(Map.of(), Duration.ofSeconds(5)).join();
+		}
+		int quiet = only.calls.get();
+
+		// 200 calls at 10% would allow 20 hedges, every one of the next 10; the bucket kept 5
+		// (4 if a quiet call happened to be slow), and 10 more calls earn 1
+		only.delayMillis.set(150);
+		for (int i = 0; i < 10; i++) {
+			router.complete(Map.of(), Duration.ofSeconds(5)).join();
+		}
+		int hedges = only.calls.get() - quiet - 10;
+		assertTrue(hedges >= 4 && hedges <= 6, "hedges sent: " + hedges);
+	}
+
+	@Test
+	void failedProviderFailsOverAndOpensItsBreaker() {
+		FakeTransport down = new FakeTransport("down", 0, true);
+		FakeTransport up = new FakeTransport("up", 0, false);
+		LlmRouter router = router(provider("down", down), provider("up", up));
+
+		for (int i = 0; i < 4; i++) {
+			assertEquals("up", router.complete(Map.of(), Duration.ofSeconds(5)).join().path("from").asText());
+		}
+
+		// min-calls is 2: two failures open it, later calls skip it
+		assertEquals(2, down.calls.get());
+		assertEquals(CircuitBreaker.State.OPEN, router.providers().get(0).breaker().state());
+	}
+
+	@Test
+	void outageIsUnavailableNotAnAnswer() {
+		LlmRouter router = router(provider("a", new FakeTransport("a", 0, true)),
+				provider("b", new FakeTransport("b", 0, true)));
+
+		CompletionException e = assertThrows(CompletionException.class,
+				() -> router.complete(Map.of(), Duration.ofSeconds(5)).join());
+		assertInstanceOf(LlmUnavailableException.class, e.getCause());
+	}
+
+	@Test
+	void refusedRequestIsReturnedWithoutFailover() {
+		RefusingTransport refusing = new RefusingTransport(401, new AtomicInteger());
+		FakeTransport up = new FakeTransport("up", 0, false);
+		LlmRouter router = router(provider("refusing", refusing), provider("up", up));
+
+		for (int i = 0; i < 3; i++) {
+			CompletionException e = assertThrows(CompletionException.class,
+					() -> router.complete(Map.of(), Duration.ofSeconds(5)).join());
+			assertEquals(401, assertInstanceOf(LlmTransportException.class, e.getCause()).getStatusCode());
+		}
+		assertEquals(0, up.calls.get());
+		assertEquals(CircuitBreaker.State.CLOSED, router.providers().get(0).breaker().state());
+		assertFalse(LlmRouter.isProviderFault(new LlmTransportException(422, "bad request")));
+		assertTrue(LlmRouter.isProviderFault(new LlmTransportException(429, "slow down")));
+		assertTrue(LlmRouter.isProviderFault(new LlmTransportException("timed out", null)));
+	}
+
+	@Test
+	void breakerHalfOpensForOneTrialCall() {
+		AtomicLong now = new AtomicLong();
+		CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, Duration.ofSeconds(10), now::get);
+		breaker.onSuccess();
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		breaker.onSuccess();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+	}
+
+	private LlmRouter router(LlmProvider... providers) {
+		return router(1.0, providers);
+	}
+
+	private LlmRouter router(double hedgeBudget, LlmProvider... providers) {
+		return new LlmRouter(List.of(providers), true, Duration.ofMillis(10), Duration.ofMillis(50), hedgeBudget, 20,
+				registry, tracer);
+	}
+
+	private static LlmProvider provider(String name, LlmTransport transport) {
+		return new LlmProvider(name, "", transport, new CircuitBreaker(10, 2, 0.5, Duration.ofMinutes(1)), 100);
+	}
+
+	private record RefusingTransport(int status, AtomicInteger calls) implements LlmTransport {
+
+		@Override
+		public CompletableFuture<JsonNode> complete(Object requestBody, Duration deadline) {
+			calls.incrementAndGet();
+			return CompletableFuture.failedFuture(new LlmTransportException(status, "HTTP " + status));
+		}
+
+		@Override
+		public CompletableFuture<Void> stream(Object requestBody, Duration deadline, Consumer<JsonNode> onChunk) {
+			return complete(requestBody, deadline).thenAccept(onChunk);
+		}
+	}
+
+	private record FakeTransport(String name, AtomicLong delayMillis, boolean fails, AtomicInteger calls)
+			implements LlmTransport {
+
+		FakeTransport(String name, long delayMillis, boolean fails) {
+			this(name, new AtomicLong(delayMillis), fails, new AtomicInteger());
+		}
+
+		@Override
+		public CompletableFuture<JsonNode> complete(Object requestBody, Duration deadline) {
+			calls.incrementAndGet();
+			return CompletableFuture.supplyAsync(() -> {
+				if (fails) {
+					throw new LlmTransportException(503, name + " is down");
+				}
+				return JsonNodeFactory.instance.objectNode().put("from", name);
+			}, CompletableFuture.delayedExecutor(delayMillis.get(), TimeUnit.MILLISECONDS));
+		}
+
+		@Override
+		public CompletableFuture<Void> stream(Object requestBody, Duration deadline, Consumer<JsonNode> onChunk) {
+			return complete(requestBody, deadline).thenAccept(onChunk);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.agentic.humanoid.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RequestCoalescerTest {
+
+	@Test
+	void identicalCallsShareOneUpstreamCall() {
+		RequestCoalescer coalescer = new RequestCoalescer(new SimpleMeterRegistry());
+		CompletableFuture<String> upstream = new CompletableFuture<>();
+		AtomicInteger calls = new AtomicInteger();
+
+		CompletableFuture<String> a = coalescer.coalesce("k", () -> {
+			calls.incrementAndGet();
+			return upstream;
+		});
+		CompletableFuture<String> b = coalescer.coalesce("k", () -> {
+			calls.incrementAndGet();
+			return upstream;
+		});
+		upstream.complete("SELECT 1");
+
+		assertEquals("SELECT 1", a.join());
+		assertEquals("SELECT 1", b.join());
+		assertEquals(1, calls.get());
+		assertEquals(1L, coalescer.stats().get("coalesced"));
+		assertEquals(0, coalescer.stats().get("inFlight"));
+	}
+
+	@Test
+	void oneWaiterGivingUpDoesNotCancelTheOthers() {
+		RequestCoalescer coalescer = new RequestCoalescer(new SimpleMeterRegistry());
+		CompletableFuture<String> upstream = new CompletableFuture<>();
+
+		CompletableFuture<String> a = coalescer.coalesce("k", () -> upstream);
+		CompletableFuture<String> b = coalescer.coalesce("k", () -> upstream);
+		a.cancel(true);
+
+		assertFalse(upstream.isCancelled());
+		upstream.complete("SELECT 1");
+		assertTrue(a.isCancelled());
+		assertEquals("SELECT 1", b.join());
+	}
+
+	@Test
+	void finishedCallIsNotReused() {
+		RequestCoalescer coalescer = new RequestCoalescer(new SimpleMeterRegistry());
+
+		coalescer.coalesce("k", () -> CompletableFuture.completedFuture("first")).join();
+
+		assertEquals("second", coalescer.coalesce("k", () -> CompletableFuture.completedFuture("second")).join());
+		assertEquals(2L, coalescer.stats().get("upstream"));
+	}
+}
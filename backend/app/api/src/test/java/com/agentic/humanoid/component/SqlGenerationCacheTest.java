@@ -0,0 +1,78 @@
+package com.agentic.humanoid.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.agentic.humanoid.DTO.ConversationContext;
+import com.agentic.humanoid.model.ConversationMessage;
+
+class SqlGenerationCacheTest {
+
+	@Test
+	void normalizedQuestionHitsForSameUserOnly() {
+		SqlGenerationCache cache = new SqlGenerationCache(10, Duration.ofMinutes(5), "v1");
+		cache.put("How many users are there?", 1L, "SELECT COUNT(*) FROM users;");
+
+		assertEquals("SELECT COUNT(*) FROM users;", cache.get("  how many USERS are there ", 1L).orElseThrow());
+		assertTrue(cache.get("How many users are there?", 2L).isEmpty());
+		assertEquals(1L, cache.stats().get("hits"));
+		assertEquals(1L, cache.stats().get("misses"));
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		SqlGenerationCache cache = new SqlGenerationCache(2, Duration.ofMinutes(5), "v1");
+		cache.put("a", 1L, "SELECT 1");
+		cache.put("b", 1L, "SELECT 2");
+		cache.get("a", 1L);
+		cache.put("c", 1L, "SELECT 3");
+
+		assertTrue(cache.get("a", 1L).isPresent());
+		assertTrue(cache.get("b", 1L).isEmpty());
+		assertEquals(1L, cache.stats().get("evictions"));
+	}
+
+	@Test
+	void expiredAndInvalidatedEntriesMiss() {
+		SqlGenerationCache cache = new SqlGenerationCache(10, Duration.ZERO, "v1");
+		cache.put("a", 1L, "SELECT 1");
+		assertTrue(cache.get("a", 1L).isEmpty());
+
+		SqlGenerationCache longLived = new SqlGenerationCache(10, Duration.ofMinutes(5), "v1");
+		longLived.put("a", 1L, "SELECT 1");
+		longLived.invalidateAll();
+		assertTrue(longLived.get("a", 1L).isEmpty());
+	}
+
+	@Test
+	void followUpsMissInAnotherConversation() {
+		SqlGenerationCache cache = new SqlGenerationCache(10, Duration.ofMinutes(5), "v1");
+		ConversationContext users = context("list users", "SELECT * FROM users");
+		ConversationContext queries = context("list queries", "SELECT * FROM queries");
+		cache.put("sort them by date", 1L, users, "SELECT * FROM users ORDER BY created_at");
+
+		assertTrue(cache.get("sort them by date", 1L, queries).isEmpty());
+		assertEquals("SELECT * FROM users ORDER BY created_at",
+				cache.get("sort them by date", 1L, context("list users", "SELECT * FROM users")).orElseThrow());
+		// a first question has no history, so it is shared across conversations
+		cache.put("how many users", 1L, context(), "SELECT COUNT(*) FROM users");
+		assertTrue(cache.get("how many users", 1L, new ConversationContext(" ", List.of(), List.of(), 0)).isPresent());
+	}
+
+	private static ConversationContext context(String... turns) {
+		List<ConversationMessage> messages = new ArrayList<>();
+		for (int i = 0; i < turns.length; i++) {
+			ConversationMessage message = new ConversationMessage();
+			message.setRole(i % 2 == 0 ? "user" : "assistant");
+			message.setContent(turns[i]);
+			messages.add(message);
+		}
+		return new ConversationContext(null, List.of(), messages, 0);
+	}
+}
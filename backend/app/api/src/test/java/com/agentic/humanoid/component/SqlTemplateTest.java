@@ -0,0 +1,73 @@
+package com.agentic.humanoid.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class SqlTemplateTest {
+
+	@Test
+	void extractsPredicateLiterals() {
+		SqlTemplate t = SqlTemplate.parse("SELECT q.query_text FROM queries q JOIN users u ON q.user_id = u.id\n"
+				+ "WHERE LOWER(u.username) = 'o''brien' AND q.id > -5 ORDER BY q.created_at ASC;");
+
+		assertEquals("SELECT q.query_text FROM queries q JOIN users u ON q.user_id = u.id "
+				+ "WHERE LOWER(u.username) = ? AND q.id > ? ORDER BY q.created_at ASC;", t.text());
+		assertEquals(List.of("o'brien", -5), t.params());
+		assertEquals(Set.of("queries", "users"), t.tables());
+	}
+
+	@Test
+	void sameShapeForDifferentValues() {
+		SqlTemplate a = SqlTemplate.parse("SELECT * FROM queries WHERE user_id = 3");
+		SqlTemplate b = SqlTemplate.parse("SELECT *  FROM queries -- mine\n WHERE user_id = 42");
+
+		assertEquals(a.text(), b.text());
+		assertEquals(List.of(42), b.params());
+	}
+
+	@Test
+	void keepsOrdinalsLimitsTypedLiteralsAndSelectList() {
+		SqlTemplate t = SqlTemplate.parse("SELECT date_trunc('day', created_at), COUNT(*) FROM queries "
+				+ "WHERE created_at > NOW() - INTERVAL '7 days' AND cost::numeric(10,2) > 1.5 "
+				+ "AND id IN (SELECT user_id FROM users LIMIT 3) GROUP BY 1 ORDER BY 2 DESC LIMIT 10");
+
+		assertEquals("SELECT date_trunc('day', created_at), COUNT(*) FROM queries "
+				+ "WHERE created_at > NOW() - INTERVAL '7 days' AND cost::numeric(10,2) > ? "
+				+ "AND id IN (SELECT user_id FROM users LIMIT 3) GROUP BY 1 ORDER BY 2 DESC LIMIT 10", t.text());
+		assertEquals(List.of(new BigDecimal("1.5")), t.params());
+		assertEquals(Set.of("queries", "users"), t.tables());
+	}
+
+	@Test
+	void bindsNumbersWithTheTypeOfTheInlineLiteral() throws Exception {
+		SqlTemplate t = SqlTemplate.parse("SELECT id FROM queries WHERE id * 0.5 > 2 AND user_id <> 9000000000 "
+				+ "AND query_text = '7'");
+		PreparedStatement ps = mock(PreparedStatement.class);
+
+		t.bind(ps);
+
+		// an untyped 0.5 would be inferred as bigint from id and fail to parse
+		verify(ps).setObject(1, new BigDecimal("0.5"));
+		verify(ps).setObject(2, 2);
+		verify(ps).setObject(3, 9000000000L);
+		verify(ps).setObject(4, "7", Types.OTHER);
+	}
+
+	@Test
+	void leavesQuestionMarkOperatorsAlone() {
+		SqlTemplate t = SqlTemplate.parse("SELECT id FROM audit_logs WHERE metadata ? 'ip' AND user_id = 1");
+
+		assertFalse(t.isParameterized());
+		assertEquals(t.originalSql(), t.text());
+	}
+}
@@ -0,0 +1,71 @@
+package com.agentic.humanoid.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TracerTest {
+
+	private final TraceBuffer buffer = new TraceBuffer(true, 10, Duration.ofSeconds(2), 0.0,
+			new SimpleMeterRegistry());
+	private final Tracer tracer = new Tracer(buffer, 200);
+
+	@Test
+	void spansFollowWorkOntoOtherThreads() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Trace trace = tracer.startTrace("request");
+		try {
+			CompletableFuture<String> stage = tracer.within(trace.root(), () -> tracer.async(tracer.current(),
+					"stage", span -> CompletableFuture.supplyAsync(tracer.wrap(() -> tracer.inSpan("db", () -> "ok")),
+							executor)));
+			assertEquals("ok", stage.get());
+		} finally {
+			executor.shutdown();
+		}
+		tracer.finish(trace, null);
+
+		List<Trace.Span> spans = trace.spans();
+		assertEquals(List.of("request", "stage", "db"), spans.stream().map(Trace.Span::name).toList());
+		assertEquals(spans.get(0).spanId(), spans.get(1).parentId());
+		assertEquals(spans.get(1).spanId(), spans.get(2).parentId());
+		assertTrue(spans.stream().allMatch(Trace.Span::ended));
+	}
+
+	@Test
+	void tailSamplingKeepsFailedAndDropsFastTraces() {
+		Trace fast = tracer.startTrace("fast");
+		tracer.finish(fast, null);
+		Trace failed = tracer.startTrace("failed");
+		tracer.within(failed.root(), () -> {
+			try {
+				return tracer.inSpan("sql", () -> {
+					throw new IllegalStateException("boom");
+				});
+			} catch (IllegalStateException e) {
+				return null;
+			}
+		});
+		tracer.finish(failed, null);
+
+		assertTrue(buffer.find(failed.traceId()).isPresent());
+		assertFalse(buffer.find(fast.traceId()).isPresent());
+		assertEquals(1L, buffer.stats().get("dropped"));
+	}
+
+	@Test
+	void nothingIsRecordedOutsideATrace() {
+		assertEquals("ok", tracer.inSpan("repository UserRepository.findById", () -> "ok"));
+		assertFalse(tracer.current().trace().recording());
+		assertTrue(Trace.NOOP.spans().isEmpty());
+	}
+}
@@ -0,0 +1,52 @@
+package com.agentic.humanoid.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.agentic.humanoid.DTO.KeysetPage;
+import com.agentic.humanoid.DTO.MessageItem;
+import com.agentic.humanoid.model.ConversationMessageRepository;
+import com.agentic.humanoid.repository.ConversationRepository;
+import com.agentic.humanoid.service.MessageWriteBehind;
+
+class ConversationControllerTest {
+
+	private final ConversationRepository conversations = mock(ConversationRepository.class);
+	private final ConversationMessageRepository messages = mock(ConversationMessageRepository.class);
+	private final MessageWriteBehind writeBehind = mock(MessageWriteBehind.class);
+	private final ConversationController controller = new ConversationController(conversations, messages,
+			writeBehind);
+
+	@Test
+	void anotherUsersConversationIsNotFound() {
+		when(conversations.existsByIdAndUserId(7L, 2L)).thenReturn(false);
+
+		ResponseEntity<KeysetPage<MessageItem>> response = controller.getMessages(7L, 2L, null, 20, true);
+
+		assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+		verifyNoInteractions(messages, writeBehind);
+	}
+
+	@Test
+	void ownConversationIsPaged() {
+		when(conversations.existsByIdAndUserId(7L, 1L)).thenReturn(true);
+		MessageItem item = new MessageItem(3L, "user", "hello", null, LocalDateTime.now());
+		when(messages.findItemPageWithContent(anyLong(), any(), anyLong(), any())).thenReturn(List.of(item));
+
+		ResponseEntity<KeysetPage<MessageItem>> response = controller.getMessages(7L, 1L, null, 20, true);
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(List.of(item), response.getBody().items());
+	}
+}
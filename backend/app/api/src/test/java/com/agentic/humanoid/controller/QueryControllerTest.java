@@ -0,0 +1,57 @@
+package com.agentic.humanoid.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.agentic.humanoid.component.Tracer;
+import com.agentic.humanoid.model.ConversationMessageRepository;
+import com.agentic.humanoid.repository.ConversationRepository;
+import com.agentic.humanoid.repository.QueryRepository;
+import com.agentic.humanoid.repository.UserRepository;
+import com.agentic.humanoid.service.AgentService;
+import com.agentic.humanoid.service.AskPipelineService;
+import com.agentic.humanoid.service.DatabaseToolService;
+import com.agentic.humanoid.service.MessageWriteBehind;
+import com.agentic.humanoid.service.ResultStore;
+
+class QueryControllerTest {
+
+	private static final String HASH = "a".repeat(64);
+
+	private final QueryRepository queries = mock(QueryRepository.class);
+	private final ConversationMessageRepository messages = mock(ConversationMessageRepository.class);
+	private final MessageWriteBehind writeBehind = mock(MessageWriteBehind.class);
+	private final ResultStore resultStore = mock(ResultStore.class);
+	private final QueryController controller = new QueryController(queries, mock(UserRepository.class),
+			mock(DatabaseToolService.class), messages, mock(ConversationRepository.class),
+			mock(AskPipelineService.class), mock(AgentService.class), writeBehind, resultStore, mock(Tracer.class));
+
+	@Test
+	void anotherUsersAnswerIsNotFound() {
+		ResponseEntity<String> response = controller.getAnswer(HASH, 2L, null, null);
+
+		assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+		verify(writeBehind).flushUser(2L);
+		verifyNoInteractions(resultStore);
+	}
+
+	@Test
+	void answerOfOwnMessageIsServed() {
+		when(messages.existsByUserIdAndResultHash(1L, HASH)).thenReturn(true);
+		when(resultStore.load(HASH)).thenReturn(Optional.of("No results found."));
+
+		ResponseEntity<String> response = controller.getAnswer(HASH, 1L, null, null);
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("No results found.", response.getBody());
+	}
+}
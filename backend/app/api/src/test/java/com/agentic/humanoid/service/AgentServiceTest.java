@@ -0,0 +1,143 @@
+package com.agentic.humanoid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.agentic.humanoid.component.LlmClient;
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.component.TraceBuffer;
+import com.agentic.humanoid.component.Tracer;
+import com.agentic.humanoid.model.Queries;
+import com.agentic.humanoid.model.User;
+import com.agentic.humanoid.repository.QueryRepository;
+import com.agentic.humanoid.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AgentServiceTest {
+
+	private static final String QUESTION = "How many users are there, and how many queries, and how many reports?";
+	private static final List<String> PLAN = List.of("How many users?", "How many queries?", "How many reports?");
+
+	private final QueryRepository queries = mock(QueryRepository.class);
+	private final UserRepository users = mock(UserRepository.class);
+	private final LlmClient llm = mock(LlmClient.class);
+	private final DatabaseTool databaseTool = mock(DatabaseTool.class);
+	private final ResultStore resultStore = mock(ResultStore.class);
+	private final AuditLog auditLog = mock(AuditLog.class);
+	private final ExecutorService askExecutor = Executors.newCachedThreadPool();
+	private final ExecutorService subQueryExecutor = Executors.newFixedThreadPool(3);
+
+	@AfterEach
+	void shutDown() {
+		askExecutor.shutdownNow();
+		subQueryExecutor.shutdownNow();
+	}
+
+	@Test
+	void runsPartsInParallelAndReportsTheOnesPastTheLimit() {
+		AgentService agent = agent(2, Duration.ofSeconds(5));
+		// each part waits for the other: they only both answer if they run at the same time
+		CountDownLatch bothRunning = new CountDownLatch(2);
+		when(databaseTool.run(anyString(), any())).thenAnswer(call -> {
+			bothRunning.countDown();
+			return bothRunning.await(2, TimeUnit.SECONDS)
+					? QueryOutcome.answered("42")
+					: QueryOutcome.failed("❌ ran alone");
+		});
+
+		AgentService.PlannedAnswer answer = agent.handlePlannedQuery(1L, QUESTION).join();
+
+		assertEquals(List.of("answered", "answered", "skipped"), outcomes(answer));
+		assertEquals(PLAN.get(2), answer.parts().get(2).question());
+		assertTrue(answer.answer().contains("Not answered"));
+	}
+
+	@Test
+	void aPartPastItsDeadlineTimesOutWithoutHoldingUpTheOthers() {
+		Duration timeout = Duration.ofMillis(300);
+		AgentService agent = agent(3, timeout);
+		CountDownLatch release = new CountDownLatch(1);
+		when(databaseTool.run(anyString(), any())).thenReturn(QueryOutcome.answered("42"));
+		when(databaseTool.run(eq("SELECT 2"), any())).thenAnswer(call -> {
+			release.await(5, TimeUnit.SECONDS);
+			return QueryOutcome.answered("too late");
+		});
+		Instant asked = Instant.now();
+
+		AgentService.PlannedAnswer answer = agent.handlePlannedQuery(1L, QUESTION).join();
+		release.countDown();
+
+		assertEquals(List.of("answered", "timeout", "answered"), outcomes(answer));
+		// the database is told the same deadline, so it cancels the statement too
+		ArgumentCaptor<Instant> deadline = ArgumentCaptor.forClass(Instant.class);
+		verify(databaseTool).run(eq("SELECT 2"), deadline.capture());
+		assertFalse(deadline.getValue().isAfter(Instant.now().plus(timeout)));
+		assertFalse(deadline.getValue().isBefore(asked.plus(timeout)));
+	}
+
+	@Test
+	void failedAndRejectedPartsAreAnswersNotErrors() {
+		AgentService agent = agent(3, Duration.ofSeconds(5));
+		when(databaseTool.run(eq("SELECT 1"), any())).thenReturn(QueryOutcome.rejected("❌ not allowed"));
+		when(databaseTool.run(eq("SELECT 2"), any())).thenReturn(QueryOutcome.failed("❌ relation missing"));
+		when(databaseTool.run(eq("SELECT 3"), any())).thenReturn(QueryOutcome.answered("7"));
+
+		AgentService.PlannedAnswer answer = agent.handlePlannedQuery(1L, QUESTION).join();
+
+		assertEquals(List.of("rejected", "failed", "answered"), outcomes(answer));
+		assertEquals(99L, answer.queryId());
+		assertTrue(answer.answer().contains("❌ relation missing"));
+		assertTrue(answer.answer().contains("7"));
+		// answered, but not every part: audited as failed
+		assertEquals(QueryOutcome.Status.FAILED, answer.status());
+		verify(auditLog).record(any(), eq("ask.failed"), eq(1L), any());
+	}
+
+	private AgentService agent(int maxSubQueries, Duration timeout) {
+		User user = new User();
+		user.setId(1L);
+		when(users.findById(1L)).thenReturn(Optional.of(user));
+		when(llm.planQuestionsAsync(QUESTION, 1L)).thenReturn(CompletableFuture.completedFuture(PLAN));
+		for (int i = 0; i < PLAN.size(); i++) {
+			when(llm.generateSqlWithContextAsync(eq(PLAN.get(i)), any(), eq(1L)))
+					.thenReturn(CompletableFuture.completedFuture("SELECT " + (i + 1)));
+		}
+		when(resultStore.externalize(any())).thenAnswer(call -> new ResultStore.Stored(call.getArgument(0), null));
+		when(queries.save(any(Queries.class))).thenAnswer(call -> {
+			Queries saved = call.getArgument(0);
+			saved.setId(99L);
+			return saved;
+		});
+
+		Tracer tracer = new Tracer(new TraceBuffer(false, 10, Duration.ofSeconds(2), 0.0, new SimpleMeterRegistry()),
+				200);
+		return new AgentService(queries, users, llm, databaseTool, resultStore, askExecutor, subQueryExecutor,
+				new PipelineMetrics(new SimpleMeterRegistry()), tracer, auditLog, maxSubQueries, timeout);
+	}
+
+	private static List<String> outcomes(AgentService.PlannedAnswer answer) {
+		return answer.parts().stream().map(AgentService.SubQuery::outcome).toList();
+	}
+}
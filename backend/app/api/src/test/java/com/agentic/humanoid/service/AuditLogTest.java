@@ -0,0 +1,67 @@
+package com.agentic.humanoid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.component.Trace;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AuditLogTest {
+
+	@Test
+	void outcomeComesFromTheQueryStatusUnlessTheAskThrew() {
+		assertEquals("ask.answered", AuditLog.outcome(QueryOutcome.Status.ANSWERED, null));
+		assertEquals("ask.answered", AuditLog.outcome(null, null));
+		assertEquals("ask.rejected", AuditLog.outcome(QueryOutcome.Status.REJECTED, null));
+		assertEquals("ask.failed", AuditLog.outcome(QueryOutcome.Status.FAILED, null));
+		assertEquals("ask.failed", AuditLog.outcome(QueryOutcome.Status.TIMEOUT, null));
+		assertEquals("ask.rejected",
+				AuditLog.outcome(null, new CompletionException(new QueryRejectedException("too costly"))));
+		assertEquals("ask.failed", AuditLog.outcome(null, new CompletionException(new IllegalStateException())));
+	}
+
+	@Test
+	void writerOutlivesAnUncheckedErrorInABatch() throws Exception {
+		DataSource dataSource = mock(DataSource.class);
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		// an unknown user sends the batch to the users lookup, which fails unchecked
+		when(dataSource.getConnection()).thenThrow(new SQLException("fk", "23503"));
+		when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any()))
+				.thenThrow(new DataAccessResourceFailureException("connection lost"));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		AuditLog audit = new AuditLog(dataSource, jdbcTemplate, new PipelineMetrics(registry), true, 16, 10,
+				Duration.ofMillis(5), "drop", Duration.ofMillis(1), 3);
+		audit.start();
+		try {
+			audit.record(Trace.NOOP.root(), "ask.received", 42L, Map.of());
+			verify(dataSource, timeout(5000).times(1)).getConnection();
+
+			audit.record(Trace.NOOP.root(), "ask.received", 42L, Map.of());
+			verify(dataSource, timeout(5000).times(2)).getConnection();
+			verify(jdbcTemplate, timeout(5000).times(2)).queryForList(anyString(), eq(Long.class), any());
+		} finally {
+			audit.stop();
+		}
+		assertEquals(2.0, registry.get("audit.events").tag("outcome", "failed").functionCounter().count());
+		assertEquals(0, audit.pendingCount());
+	}
+}
@@ -0,0 +1,66 @@
+package com.agentic.humanoid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class AuditRingBufferTest {
+
+	@Test
+	void fullBufferRefusesUntilDrained() {
+		AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(4));
+
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(2, buffer.drainTo(drained, 2));
+		assertEquals(List.of(0, 1), drained);
+		assertTrue(buffer.offer(4));
+		assertEquals(3, buffer.size());
+	}
+
+	@Test
+	void concurrentProducersLoseNothing() throws Exception {
+		int producers = 4;
+		int perProducer = 50_000;
+		AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+		List<Future<?>> running = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			int base = p * perProducer;
+			running.add(executor.submit(() -> {
+				for (int i = 0; i < perProducer; i++) {
+					while (!buffer.offer(base + i)) {
+						Thread.onSpinWait();
+					}
+				}
+			}));
+		}
+
+		Set<Integer> seen = new HashSet<>();
+		List<Integer> batch = new ArrayList<>();
+		while (seen.size() < producers * perProducer) {
+			buffer.drainTo(batch, 256);
+			seen.addAll(batch);
+			batch.clear();
+		}
+		for (Future<?> producer : running) {
+			producer.get();
+		}
+		executor.shutdown();
+		assertEquals(producers * perProducer, seen.size());
+		assertEquals(0, buffer.size());
+	}
+}
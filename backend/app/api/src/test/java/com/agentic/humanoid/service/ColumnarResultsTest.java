@@ -0,0 +1,86 @@
+package com.agentic.humanoid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ColumnarResultsTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	void roundTripsRowsThroughColumnar() throws Exception {
+		String columnar = ColumnarResults.fromRows(List.of(row(1L, "alice"), row(2L, null)), mapper);
+
+		assertTrue(ColumnarResults.isColumnar(columnar));
+		assertEquals(mapper.readTree("{\"format\":\"columnar\",\"columns\":[{\"name\":\"id\",\"type\":\"int8\"},"
+				+ "{\"name\":\"username\",\"type\":\"text\"}],\"rowCount\":2,\"truncated\":false,"
+				+ "\"data\":[[1,2],[\"alice\",null]]}"), mapper.readTree(columnar));
+		assertEquals(mapper.readTree("[{\"id\":1,\"username\":\"alice\"},{\"id\":2,\"username\":null}]"),
+				mapper.readTree(ColumnarResults.render(columnar, ResultFormat.ROWS)));
+		assertEquals(new ColumnarResults.Shape(2, Set.of("id", "username"), false), ColumnarResults.shape(columnar));
+	}
+
+	@Test
+	void keepsTheTruncatedFlagInBothLayouts() throws Exception {
+		String columnar = ColumnarResults.fromRows(List.of(row(1L, "alice")), mapper, true);
+		String rows = ColumnarResults.render(columnar, ResultFormat.ROWS);
+
+		assertEquals(mapper.readTree("{\"rows\":[{\"id\":1,\"username\":\"alice\"}],\"rowCount\":1,"
+				+ "\"truncated\":true}"), mapper.readTree(rows));
+		// column types are inferred again from the JSON values, so compare the rest
+		JsonNode back = mapper.readTree(ColumnarResults.render(rows, ResultFormat.COLUMNAR));
+		assertTrue(back.path("truncated").asBoolean());
+		assertEquals(mapper.readTree(columnar).path("data"), back.path("data"));
+		assertEquals(new ColumnarResults.Shape(1, Set.of("id", "username"), true), ColumnarResults.shapeOf(rows));
+	}
+
+	@Test
+	void numbersRepeatedColumnNames() throws Exception {
+		assertEquals(List.of("id", "id_3", "id_2", "name"),
+				ColumnarResults.uniqueNames(List.of("id", "id", "id_2", "name")));
+
+		String columnar = "{\"format\":\"columnar\",\"columns\":[{\"name\":\"id\",\"type\":\"int4\"},"
+				+ "{\"name\":\"id\",\"type\":\"int4\"}],\"rowCount\":1,\"truncated\":false,\"data\":[[1],[2]]}";
+		assertEquals(mapper.readTree("[{\"id\":1,\"id_2\":2}]"),
+				mapper.readTree(ColumnarResults.render(columnar, ResultFormat.ROWS)));
+	}
+
+	@Test
+	void shapesRowsWithoutConvertingThem() {
+		assertEquals(new ColumnarResults.Shape(2, Set.of("id", "username"), false),
+				ColumnarResults.shapeOf("[{\"id\":1,\"username\":\"a\"},{\"id\":2,\"username\":{\"x\":[1]}}]"));
+		assertEquals(null, ColumnarResults.shapeOf("No results found."));
+	}
+
+	@Test
+	void leavesPlainAnswersAlone() {
+		assertEquals("No results found.", ColumnarResults.render("No results found.", ResultFormat.COLUMNAR));
+		assertEquals("42", ColumnarResults.render("42", ResultFormat.ROWS));
+	}
+
+	@Test
+	void negotiatesFormat() {
+		assertEquals(ResultFormat.ROWS, ResultFormat.negotiate(null, "application/json"));
+		assertEquals(ResultFormat.COLUMNAR, ResultFormat.negotiate(null, ResultFormat.COLUMNAR_MEDIA_TYPE));
+		assertEquals(ResultFormat.ROWS, ResultFormat.negotiate("rows", ResultFormat.COLUMNAR_MEDIA_TYPE));
+		assertThrows(IllegalArgumentException.class, () -> ResultFormat.negotiate("csv", null));
+	}
+
+	private static Map<String, Object> row(Long id, String username) {
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("id", id);
+		row.put("username", username);
+		return row;
+	}
+}
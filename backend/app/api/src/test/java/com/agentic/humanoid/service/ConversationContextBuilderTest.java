@@ -0,0 +1,186 @@
+package com.agentic.humanoid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.agentic.humanoid.DTO.ConversationContext;
+import com.agentic.humanoid.model.Conversation;
+import com.agentic.humanoid.model.ConversationMessage;
+import com.agentic.humanoid.model.ConversationMessageRepository;
+import com.agentic.humanoid.repository.ConversationRepository;
+import com.agentic.humanoid.repository.QueryRepository;
+
+class ConversationContextBuilderTest {
+
+	private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+	private final ConversationMessageRepository messages = mock(ConversationMessageRepository.class);
+	private final ConversationRepository conversations = mock(ConversationRepository.class);
+	private final ConversationContextBuilder builder = new ConversationContextBuilder(messages, conversations,
+			mock(QueryRepository.class), mock(MessageWriteBehind.class));
+
+	@Test
+	void windowStopsAtTheTokenBudgetAndFoldsTheRest() {
+		// questions cost 25 tokens and answers 27; the 60 left after the summary reservation fit two
+		configure(60 + 250, 1000);
+		List<ConversationMessage> history = history(1, 6);
+		givenNewestFirst(history);
+		givenBetween(0L, 5L, history.subList(0, 4));
+		Conversation conversation = conversation(null, null);
+
+		ConversationContext context = builder.build(conversation, 1L);
+
+		assertEquals(2, context.getTurns().size());
+		assertEquals("user", context.getTurns().get(0).getRole());
+		assertEquals(history.get(4).getContent(), context.getTurns().get(0).getContent());
+		assertEquals("Result: " + history.get(5).getContent(), context.getTurns().get(1).getContent());
+		assertEquals(String.join("\n", summaryLines(history.subList(0, 4))), context.getSummary());
+		assertEquals(4L, conversation.getSummarizedThroughId());
+		verify(conversations).advanceSummary(7L, null, context.getSummary(), START.plusSeconds(4), 4L);
+	}
+
+	@Test
+	void summaryOnlyFoldsNewTurnsAndDropsItsOldestLines() {
+		// room for the two new lines (225 chars) but not the old one as well
+		configure(60 + 57, 230);
+		List<ConversationMessage> history = history(5, 8);
+		givenNewestFirst(history);
+		givenBetween(4L, 7L, history.subList(0, 2));
+		Conversation conversation = conversation("- User asked: old", 4L);
+
+		ConversationContext context = builder.build(conversation, 1L);
+
+		assertEquals(String.join("\n", summaryLines(history.subList(0, 2))), context.getSummary());
+		assertEquals(6L, conversation.getSummarizedThroughId());
+		assertEquals(2, context.getTurns().size());
+		// turns already in the summary are never read again
+		verify(messages, never()).findPageBetween(any(), any(), eq(0L), any(), anyLong(), any());
+	}
+
+	@Test
+	void cursorFollowsCreationTimeNotIds() {
+		// another node's pooled ids: message 50 was written before 3 and 4
+		configure(60 + 250, 1000);
+		List<ConversationMessage> history = history(1, 6);
+		history.get(4).setId(50L);
+		history.get(5).setId(2L);
+		history.get(1).setId(60L);
+		givenNewestFirst(history);
+		when(messages.findPageBetween(eq(7L), eq(START.plusSeconds(2)), eq(60L), eq(START.plusSeconds(5)), eq(50L),
+				any(Pageable.class))).thenReturn(history.subList(2, 4));
+		// the first two messages are already summarized
+		Conversation conversation = conversation("- User asked: old", 60L);
+		conversation.setSummarizedThroughAt(START.plusSeconds(2));
+
+		ConversationContext context = builder.build(conversation, 1L);
+
+		// the newest turns have ids below the cursor's and still count as new
+		assertEquals(2, context.getTurns().size());
+		assertEquals(history.get(4).getContent(), context.getTurns().get(0).getContent());
+		assertEquals(4L, conversation.getSummarizedThroughId());
+		assertEquals(START.plusSeconds(4), conversation.getSummarizedThroughAt());
+	}
+
+	@Test
+	void concurrentFoldKeepsTheSummaryThatWasStoredFirst() {
+		configure(60 + 250, 1000);
+		List<ConversationMessage> history = history(1, 6);
+		givenNewestFirst(history);
+		givenBetween(0L, 5L, history.subList(0, 4));
+		when(conversations.advanceSummary(eq(7L), any(), any(), any(), anyLong())).thenReturn(0);
+		Conversation conversation = conversation(null, null);
+
+		ConversationContext context = builder.build(conversation, 1L);
+
+		// this prompt still gets its fold, but the stored cursor is the other ask's
+		assertEquals(String.join("\n", summaryLines(history.subList(0, 4))), context.getSummary());
+		assertEquals(null, conversation.getSummarizedThroughId());
+	}
+
+	@Test
+	void estimatesTokensAndPreviewsLargeResults() {
+		configure(3000, 2000);
+		assertEquals(0, ConversationContextBuilder.estimateTokens(null));
+		assertEquals(1, ConversationContextBuilder.estimateTokens("abcd"));
+		assertEquals(2, ConversationContextBuilder.estimateTokens("abcde"));
+
+		StringBuilder rows = new StringBuilder("[");
+		for (int i = 0; i < 50; i++) {
+			rows.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"username\":\"user").append(i)
+					.append("\"}");
+		}
+		assertEquals("[50 rows; columns: id, username]", builder.preview(rows.append("]").toString()));
+		assertEquals("small", builder.preview("small"));
+	}
+
+	private static List<String> summaryLines(List<ConversationMessage> folded) {
+		return folded.stream()
+				.map(m -> ("user".equals(m.getRole()) ? "- User asked: " : "  Result: ") + m.getContent())
+				.toList();
+	}
+
+	private void configure(int tokenBudget, int summaryMaxChars) {
+		ReflectionTestUtils.setField(builder, "maxTurns", 20);
+		ReflectionTestUtils.setField(builder, "pageSize", 10);
+		ReflectionTestUtils.setField(builder, "tokenBudget", tokenBudget);
+		ReflectionTestUtils.setField(builder, "summaryMaxChars", summaryMaxChars);
+		ReflectionTestUtils.setField(builder, "previewChars", 400);
+		ReflectionTestUtils.setField(builder, "recentQueries", 0);
+		when(conversations.advanceSummary(eq(7L), any(), any(), any(), anyLong())).thenReturn(1);
+	}
+
+	private void givenNewestFirst(List<ConversationMessage> history) {
+		List<ConversationMessage> newestFirst = new ArrayList<>(history);
+		Collections.reverse(newestFirst);
+		when(messages.findByConversationIdOrderByCreatedAtDescIdDesc(eq(7L), any(Pageable.class)))
+				.thenReturn(newestFirst);
+		when(messages.findPageBefore(eq(7L), any(), anyLong(), any(Pageable.class))).thenReturn(List.of());
+	}
+
+	private void givenBetween(long afterId, long beforeId, List<ConversationMessage> page) {
+		when(messages.findPageBetween(eq(7L), any(), eq(afterId), any(), eq(beforeId), any(Pageable.class)))
+				.thenReturn(page);
+	}
+
+	private static Conversation conversation(String summary, Long summarizedThroughId) {
+		Conversation conversation = new Conversation();
+		conversation.setId(7L);
+		conversation.setUserId(1L);
+		conversation.setSummary(summary);
+		conversation.setSummarizedThroughId(summarizedThroughId);
+		if (summarizedThroughId != null) {
+			conversation.setSummarizedThroughAt(START.plusSeconds(summarizedThroughId));
+		}
+		return conversation;
+	}
+
+	// odd ids are questions, even ids answers; 100 characters (25 tokens) each
+	private static List<ConversationMessage> history(int fromId, int toId) {
+		List<ConversationMessage> history = new ArrayList<>();
+		for (long id = fromId; id <= toId; id++) {
+			ConversationMessage msg = new ConversationMessage();
+			msg.setId(id);
+			msg.setConversationId(7L);
+			msg.setRole(id % 2 == 1 ? "user" : "assistant");
+			msg.setContent(String.valueOf((char) ('a' + id)).repeat(100 - 8) + String.format("%08d", id));
+			msg.setCreatedAt(START.plusSeconds(id));
+			history.add(msg);
+		}
+		return history;
+	}
+}
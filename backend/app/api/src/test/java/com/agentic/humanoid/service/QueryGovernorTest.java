@@ -0,0 +1,92 @@
+package com.agentic.humanoid.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class QueryGovernorTest {
+
+	private final QueryGovernor governor = governor("conversation_messages, audit_logs");
+
+	@Test
+	void acceptsSelectsWithKeywordLikeColumns() {
+		assertDoesNotThrow(() -> governor.validate(
+				"SELECT id, created_at, updated, deleted FROM queries WHERE user_id = 1 ORDER BY created_at"));
+		assertDoesNotThrow(() -> governor.validate(
+				"WITH recent AS (SELECT * FROM queries LIMIT 5) SELECT COUNT(*) FROM recent"));
+	}
+
+	@Test
+	void rejectsWritesAndMultipleStatements() {
+		assertThrows(QueryRejectedException.class, () -> governor.validate("DELETE FROM users"));
+		assertThrows(QueryRejectedException.class, () -> governor.validate("SELECT 1; DROP TABLE users"));
+		assertThrows(QueryRejectedException.class,
+				() -> governor.validate("WITH gone AS (DELETE FROM users RETURNING id) SELECT * FROM gone"));
+		assertThrows(QueryRejectedException.class, () -> governor.validate("SELECT * FROM users FOR UPDATE"));
+	}
+
+	@Test
+	void rejectsDangerousFunctionsAnywhere() {
+		assertThrows(QueryRejectedException.class, () -> governor.validate(
+				"SELECT id FROM users WHERE id IN (SELECT user_id FROM queries WHERE pg_sleep(10) IS NULL)"));
+		assertThrows(QueryRejectedException.class,
+				() -> governor.validate("WITH t AS (SELECT 1 AS x) SELECT * FROM t ORDER BY PG_SLEEP(1)"));
+		assertThrows(QueryRejectedException.class, () -> governor.validate("SELECT * FROM pg_ls_dir('.')"));
+	}
+
+	@Test
+	void rejectsQuotedAndQualifiedFunctionNames() {
+		assertThrows(QueryRejectedException.class, () -> governor.validate("SELECT \"pg_read_file\"('/etc/passwd')"));
+		assertThrows(QueryRejectedException.class, () -> governor.validate("SELECT pg_catalog.\"pg_sleep\"(10)"));
+		assertThrows(QueryRejectedException.class,
+				() -> governor.validate("SELECT * FROM pg_catalog.pg_read_file('/etc/hostname')"));
+		// a string that merely mentions one is fine
+		assertDoesNotThrow(() -> governor.validate("SELECT id FROM queries WHERE query_text = 'pg_sleep(10)'"));
+	}
+
+	@Test
+	void rejectsFunctionsThatReadTablesByName() {
+		assertThrows(QueryRejectedException.class,
+				() -> governor.validate("SELECT table_to_xml('conversation_messages', true, false, '')"));
+		assertThrows(QueryRejectedException.class, () -> governor.validate(
+				"SELECT query_to_xml('SELECT content FROM conversation_messages', true, false, '')"));
+		assertThrows(QueryRejectedException.class,
+				() -> governor.validate("SELECT * FROM ts_stat('SELECT to_tsvector(content) FROM conversation_messages')"));
+		assertDoesNotThrow(() -> governor.validate("SELECT date_trunc('month', created_at) AS month, COUNT(*), "
+				+ "rank() OVER (ORDER BY COUNT(*) DESC) FROM queries GROUP BY 1"));
+	}
+
+	@Test
+	void extraFunctionsCanBeAllowed() {
+		QueryGovernor extended = governor("conversation_messages");
+		assertThrows(QueryRejectedException.class, () -> extended.validate("SELECT soundex(username) FROM users"));
+		extended.setExtraFunctions("soundex");
+		assertDoesNotThrow(() -> extended.validate("SELECT soundex(username) FROM users"));
+	}
+
+	@Test
+	void rejectsSystemCatalogs() {
+		assertThrows(QueryRejectedException.class, () -> governor.validate("SELECT query FROM pg_stat_activity"));
+		assertThrows(QueryRejectedException.class,
+				() -> governor.validate("SELECT * FROM pg_catalog.pg_stat_activity"));
+		assertThrows(QueryRejectedException.class,
+				() -> governor.validate("SELECT table_name FROM information_schema.tables"));
+	}
+
+	@Test
+	void rejectsHiddenTablesAndTheirPartitions() {
+		assertThrows(QueryRejectedException.class, () -> governor.validate("SELECT content FROM conversation_messages"));
+		assertThrows(QueryRejectedException.class, () -> governor.validate(
+				"SELECT q.id FROM queries q WHERE EXISTS (SELECT 1 FROM public.\"audit_logs\" a WHERE a.user_id = q.user_id)"));
+		assertThrows(QueryRejectedException.class, () -> governor.validate("SELECT * FROM audit_logs_p202610"));
+		assertThrows(QueryRejectedException.class, () -> governor.validate("SELECT * FROM audit_logs_default"));
+		assertDoesNotThrow(() -> governor.validate("SELECT action_log FROM queries"));
+	}
+
+	private static QueryGovernor governor(String hiddenTables) {
+		QueryGovernor governor = new QueryGovernor();
+		governor.setHiddenTables(hiddenTables);
+		return governor;
+	}
+}
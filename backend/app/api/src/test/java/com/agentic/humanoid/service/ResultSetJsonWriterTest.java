@@ -0,0 +1,74 @@
+package com.agentic.humanoid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ResultSetJsonWriterTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	void chunksStopAtTheByteCapWithTheArray() throws Exception {
+		List<List<Map<String, Object>>> chunks = new ArrayList<>();
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ResultSetJsonWriter.CountingOutputStream out = new ResultSetJsonWriter.CountingOutputStream(buffer);
+
+		ResultSetJsonWriter.Summary summary = new ResultSetJsonWriter(1000, 200)
+				.writeArray(users(100), mapper.createGenerator(out), out, 3, chunks::add);
+
+		assertEquals(ResultSetJsonWriter.Truncation.MAX_BYTES, summary.truncation());
+		assertTrue(summary.rowCount() > 3 && summary.rowCount() < 100, "rows: " + summary.rowCount());
+		List<Map<String, Object>> written = mapper.readValue(buffer.toString(StandardCharsets.UTF_8),
+				new TypeReference<List<Map<String, Object>>>() {
+				});
+		assertEquals(written, chunks.stream().flatMap(List::stream).toList());
+		assertTrue(chunks.stream().allMatch(chunk -> chunk.size() <= 3));
+	}
+
+	@Test
+	void chunksCoverEveryRowUnderTheCaps() throws Exception {
+		List<List<Map<String, Object>>> chunks = new ArrayList<>();
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ResultSetJsonWriter.CountingOutputStream out = new ResultSetJsonWriter.CountingOutputStream(buffer);
+
+		ResultSetJsonWriter.Summary summary = new ResultSetJsonWriter(1000, 1 << 20)
+				.writeArray(users(7), mapper.createGenerator(out), out, 3, chunks::add);
+
+		assertEquals(ResultSetJsonWriter.Truncation.NONE, summary.truncation());
+		assertEquals(List.of(3, 3, 1), chunks.stream().map(List::size).toList());
+		assertEquals(Map.of("id", 6, "username", "user6"), chunks.get(2).get(0));
+	}
+
+	// rows (id, username) for ids 0..count-1
+	private static ResultSet users(int count) throws Exception {
+		ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+		when(metaData.getColumnCount()).thenReturn(2);
+		when(metaData.getColumnLabel(1)).thenReturn("id");
+		when(metaData.getColumnLabel(2)).thenReturn("username");
+		ResultSet rs = mock(ResultSet.class);
+		when(rs.getMetaData()).thenReturn(metaData);
+		AtomicInteger row = new AtomicInteger(-1);
+		when(rs.next()).thenAnswer(call -> row.incrementAndGet() < count);
+		when(rs.getObject(anyInt())).thenAnswer(call -> (int) call.getArgument(0) == 1
+				? (Object) row.get()
+				: "user" + row.get());
+		return rs;
+	}
+}
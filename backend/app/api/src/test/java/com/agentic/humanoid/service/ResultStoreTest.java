@@ -0,0 +1,146 @@
+package com.agentic.humanoid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.util.unit.DataSize;
+
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.model.ResultBlob;
+import com.agentic.humanoid.repository.ResultBlobRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ResultStoreTest {
+
+	private final ResultBlobRepository blobs = mock(ResultBlobRepository.class);
+	private final MessageWriteBehind writeBehind = mock(MessageWriteBehind.class);
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+	@Test
+	void storesLargeResultsOnceAndKeepsTheRestInline() {
+		ResultStore store = store("");
+		String answer = rows(100);
+
+		ResultStore.Stored first = store.externalize(answer);
+		ResultStore.Stored second = store.externalize(answer);
+
+		assertEquals("[100 rows; columns: id, username]", first.content());
+		assertEquals(64, first.hash().length());
+		assertEquals(first, second);
+		verify(writeBehind, times(1)).append(any(ResultBlob.class));
+
+		assertEquals(new ResultStore.Stored(rows(2), null), store.externalize(rows(2)));
+		String error = "❌ Error executing query: " + "x".repeat(2000);
+		assertEquals(new ResultStore.Stored(error, null), store.externalize(error));
+		assertNull(store.externalize(null).hash());
+	}
+
+	@Test
+	void loadsWhatItStored() {
+		ResultStore store = store("");
+		String answer = rows(100);
+		String hash = store.externalize(answer).hash();
+		ResultBlob blob = appendedBlobs().get(0);
+		when(blobs.findById(hash)).thenReturn(Optional.of(blob));
+
+		assertEquals(Optional.of(answer), store.load(hash));
+		verify(writeBehind).flushResults(List.of(hash));
+	}
+
+	@Test
+	void queuesADroppedBlobAgain() {
+		ResultStore store = store("");
+		String hash = store.externalize(rows(100)).hash();
+
+		droppedListener().accept(hash);
+		store.externalize(rows(100));
+
+		List<ResultBlob> appended = appendedBlobs();
+		assertEquals(2, appended.size());
+		assertEquals(hash, appended.get(1).getHash());
+	}
+
+	@Test
+	void deletesOnlyOrphansItDoesNotRemember() throws Exception {
+		ResultStore store = store("");
+		String remembered = store.externalize(rows(100)).hash();
+		when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(), any(), any()))
+				.thenReturn(List.of("0orphan", remembered));
+		when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenReturn(1);
+
+		assertEquals(1, store.collectOrphans());
+
+		verify(writeBehind).flush();
+		ArgumentCaptor<PreparedStatementCreator> delete = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+		verify(jdbcTemplate).update(delete.capture());
+		Connection con = mock(Connection.class);
+		when(con.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+		delete.getValue().createPreparedStatement(con);
+		verify(con).createArrayOf("varchar", new Object[] { "0orphan" });
+	}
+
+	@Test
+	void keepsBlobsWhileMessagesAreArchived() {
+		ResultStore store = store("archive");
+
+		assertEquals(0, store.collectOrphans());
+		verifyNoInteractions(jdbcTemplate);
+	}
+
+	@Test
+	void compressesWhenItHelps() {
+		store("").externalize(rows(100));
+
+		ResultBlob blob = appendedBlobs().get(0);
+		assertEquals(ResultBlob.DEFLATE, blob.getEncoding());
+		assertEquals(rows(100).length(), blob.getRawBytes());
+	}
+
+	private ResultStore store(String archiveSchema) {
+		return new ResultStore(blobs, writeBehind, jdbcTemplate, new PipelineMetrics(new SimpleMeterRegistry()),
+				DataSize.ofKilobytes(1), 6, 100, Duration.ofDays(7), archiveSchema);
+	}
+
+	private List<ResultBlob> appendedBlobs() {
+		ArgumentCaptor<ResultBlob> appended = ArgumentCaptor.forClass(ResultBlob.class);
+		verify(writeBehind, atLeastOnce()).append(appended.capture());
+		return appended.getAllValues();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Consumer<String> droppedListener() {
+		ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+		verify(writeBehind).onBlobDropped(listener.capture());
+		return listener.getValue();
+	}
+
+	private static String rows(int count) {
+		StringBuilder rows = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			rows.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"username\":\"user").append(i)
+					.append("\"}");
+		}
+		return rows.append("]").toString();
+	}
+}
@@ -0,0 +1,306 @@
+package com.agentic.humanoid.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+import org.springframework.data.domain.Pageable;
+
+import com.agentic.humanoid.component.DatabaseSchema;
+import com.agentic.humanoid.component.DatabaseSchema.Column;
+import com.agentic.humanoid.component.DatabaseSchema.Table;
+import com.agentic.humanoid.model.ConversationMessage;
+import com.agentic.humanoid.model.ConversationMessageRepository;
+import com.agentic.humanoid.model.Queries;
+import com.agentic.humanoid.repository.ConversationRepository;
+import com.agentic.humanoid.repository.QueryRepository;
+
+/**
+ * Shared benchmark data shaped like production: rows of the queries table,
+ * chat histories of user / sql / assistant triples, generated SQL, and
+ * in-memory stand-ins for the repositories the services read through.
+ * Everything is generated from a fixed seed so runs are comparable.
+ */
+public final class Fixtures {
+
+    private static final String[] QUESTIONS = {
+            "How many users signed up last week?",
+            "What was the first question asked by User 3?",
+            "Show the ten most active users by number of questions",
+            "List reports generated by alice this month",
+            "Which actions appear most often in the audit log?",
+            "Average number of questions per user per day",
+    };
+
+    private static final String[] SQL = {
+            "SELECT COUNT(*) FROM users WHERE created_at > NOW() - INTERVAL '7 days';",
+            "SELECT query_text FROM queries WHERE user_id = 3 ORDER BY created_at ASC LIMIT 1;",
+            "SELECT u.username, COUNT(q.id) AS questions FROM users u JOIN queries q ON q.user_id = u.id "
+                    + "GROUP BY u.username ORDER BY questions DESC LIMIT 10;",
+            "SELECT r.report_name, r.created_at FROM reports r JOIN users u ON r.user_id = u.id "
+                    + "WHERE LOWER(u.username) = 'alice' AND r.created_at >= date_trunc('month', NOW());",
+            "SELECT action, COUNT(*) FROM audit_logs GROUP BY action ORDER BY 2 DESC;",
+            "SELECT AVG(c) FROM (SELECT user_id, date_trunc('day', created_at) d, COUNT(*) c FROM queries "
+                    + "GROUP BY 1, 2) per_day;",
+    };
+
+    private Fixtures() {
+    }
+
+    /**
+     * Generated SELECTs from simple to heavy, keyed by a short name.
+     */
+    public static final Map<String, String> GENERATED_SQL = Map.of(
+            "simple", "SELECT COUNT(*) FROM users;",
+            "filtered", "SELECT query_text FROM queries WHERE user_id = 3 AND created_at > '2024-01-01' "
+                    + "ORDER BY created_at ASC LIMIT 1;",
+            "join", SQL[3],
+            "analytic", "WITH per_user AS (SELECT u.id, u.username, COUNT(q.id) AS questions, "
+                    + "MAX(q.created_at) AS last_asked FROM users u LEFT JOIN queries q ON q.user_id = u.id "
+                    + "WHERE u.role IN ('user', 'admin') GROUP BY u.id, u.username HAVING COUNT(q.id) > 2), "
+                    + "ranked AS (SELECT *, RANK() OVER (ORDER BY questions DESC) AS r FROM per_user) "
+                    + "SELECT r.username, r.questions, r.last_asked, (SELECT COUNT(*) FROM audit_logs a "
+                    + "WHERE a.user_id = r.id AND a.action = 'login') AS logins FROM ranked r "
+                    + "WHERE r.r <= 20 ORDER BY r.r, r.username;");
+
+    /**
+     * {@code rows} rows of (id, user_id, query_text, response_text, created_at).
+     */
+    public static CachedRowSet queryRows(int rows) throws SQLException {
+        CachedRowSet rs = RowSetProvider.newFactory().createCachedRowSet();
+        RowSetMetaDataImpl meta = new RowSetMetaDataImpl();
+        String[] names = { "id", "user_id", "query_text", "response_text", "created_at" };
+        int[] types = { Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP };
+        String[] typeNames = { "int8", "int8", "text", "text", "timestamp" };
+        meta.setColumnCount(names.length);
+        for (int i = 0; i < names.length; i++) {
+            meta.setColumnName(i + 1, names[i]);
+            meta.setColumnLabel(i + 1, names[i]);
+            meta.setColumnType(i + 1, types[i]);
+            meta.setColumnTypeName(i + 1, typeNames[i]);
+        }
+        rs.setMetaData(meta);
+
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int i = 0; i < rows; i++) {
+            rs.moveToInsertRow();
+            rs.updateLong(1, i + 1L);
+            rs.updateLong(2, random.nextLong(1, 500));
+            rs.updateString(3, QUESTIONS[random.nextInt(QUESTIONS.length)]);
+            rs.updateString(4, answer(random, 2 + random.nextInt(6)));
+            rs.updateTimestamp(5, Timestamp.valueOf(start.plusMinutes(i * 7L)));
+            rs.insertRow();
+            rs.moveToCurrentRow();
+        }
+        rs.beforeFirst();
+        return rs;
+    }
+
+    /**
+     * {@code size} messages in user → sql → assistant order, ids and
+     * timestamps increasing.
+     */
+    public static List<ConversationMessage> history(long conversationId, int size) {
+        SplittableRandom random = new SplittableRandom(7);
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 10, 0);
+        List<ConversationMessage> messages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int kind = i % 3;
+            int pick = random.nextInt(QUESTIONS.length);
+            ConversationMessage msg = new ConversationMessage();
+            msg.setId(i + 1L);
+            msg.setConversationId(conversationId);
+            msg.setCreatedAt(start.plusSeconds(i * 20L));
+            msg.setRole(kind == 0 ? "user" : kind == 1 ? "sql" : "assistant");
+            msg.setContent(kind == 0 ? QUESTIONS[pick] : kind == 1 ? SQL[pick] : answer(random, random.nextInt(40)));
+            messages.add(msg);
+        }
+        return messages;
+    }
+
+    /**
+     * History collapsed into alternating prompt turns, as
+     * ConversationContextBuilder hands them to LlmClient.
+     */
+    public static List<ConversationMessage> turns(int size) {
+        List<ConversationMessage> turns = new ArrayList<>(size);
+        List<ConversationMessage> history = history(1L, size * 3 / 2 + 3);
+        for (int i = 0; turns.size() < size; i++) {
+            ConversationMessage source = history.get(i);
+            if ("sql".equals(source.getRole())) {
+                continue;
+            }
+            ConversationMessage turn = new ConversationMessage();
+            turn.setRole(source.getRole());
+            turn.setContent("assistant".equals(source.getRole())
+                    ? "SQL: " + history.get(i - 1).getContent() + "\nResult: " + truncate(source.getContent(), 400)
+                    : source.getContent());
+            turns.add(turn);
+        }
+        return turns;
+    }
+
+    public static List<String> recentQuestions() {
+        return List.of(QUESTIONS).subList(0, 5);
+    }
+
+    /**
+     * The application schema as the catalog renders it.
+     */
+    public static DatabaseSchema schema() {
+        return new DatabaseSchema(List.of(
+                new Table("audit_logs", List.of(new Column("id", "int", true, null),
+                        new Column("user_id", "int", false, "users.id"), new Column("action", "varchar", false, null),
+                        new Column("metadata", "jsonb", false, null),
+                        new Column("created_at", "timestamp", false, null)), "user activity and actions"),
+                new Table("conversation_messages", List.of(new Column("id", "bigint", true, null),
+                        new Column("content", "text", false, null),
+                        new Column("conversation_id", "bigint", false, "conversations.id"),
+                        new Column("created_at", "timestamp", false, null), new Column("role", "varchar", false, null)),
+                        "chat turns: user questions, generated sql, assistant answers"),
+                new Table("conversations", List.of(new Column("id", "bigint", true, null),
+                        new Column("created_at", "timestamp", false, null), new Column("summary", "text", false, null),
+                        new Column("title", "varchar", false, null),
+                        new Column("user_id", "bigint", false, "users.id")), "chat sessions per user"),
+                new Table("queries", List.of(new Column("id", "bigint", true, null),
+                        new Column("user_id", "bigint", false, "users.id"),
+                        new Column("query_text", "text", false, null), new Column("response_text", "text", false, null),
+                        new Column("created_at", "timestamp", false, null)),
+                        "questions users asked and the answers they got"),
+                new Table("reports", List.of(new Column("id", "int", true, null),
+                        new Column("user_id", "int", false, "users.id"),
+                        new Column("report_name", "varchar", false, null),
+                        new Column("report_file", "varchar", false, null),
+                        new Column("created_at", "timestamp", false, null)), "generated report files per user"),
+                new Table("users", List.of(new Column("id", "bigint", true, null),
+                        new Column("username", "varchar", false, null), new Column("email", "varchar", false, null),
+                        new Column("role", "varchar", false, null), new Column("created_at", "timestamp", false, null)),
+                        "people using the assistant")));
+    }
+
+    /**
+     * Repository over an in-memory, chronologically ordered history whose
+     * ids are 1..n; answers the keyset queries ConversationContextBuilder uses.
+     */
+    public static ConversationMessageRepository messageRepository(List<ConversationMessage> history) {
+        return repository(ConversationMessageRepository.class, (name, args) -> switch (name) {
+            case "findByConversationIdOrderByCreatedAtDescIdDesc" ->
+                newestFirst(history, history.size(), (Pageable) args[1]);
+            case "findPageBefore" -> newestFirst(history, (int) ((Long) args[2] - 1), (Pageable) args[3]);
+            case "findPageBetween" -> {
+                int from = (int) (long) (Long) args[1];
+                int to = Math.min((int) ((Long) args[3] - 1), from + ((Pageable) args[4]).getPageSize());
+                yield from >= to ? List.of() : List.copyOf(history.subList(from, to));
+            }
+            case "saveAll" -> args[0];
+            default -> throw new UnsupportedOperationException(name);
+        });
+    }
+
+    public static ConversationRepository conversationRepository() {
+        return repository(ConversationRepository.class, (name, args) -> {
+            if (name.equals("save")) {
+                return args[0];
+            }
+            throw new UnsupportedOperationException(name);
+        });
+    }
+
+    public static QueryRepository queryRepository() {
+        List<Queries> recent = new ArrayList<>();
+        for (String question : recentQuestions()) {
+            Queries q = new Queries();
+            q.setQueryText(question);
+            recent.add(q);
+        }
+        return repository(QueryRepository.class, (name, args) -> {
+            if (name.equals("findByUserIdOrderByCreatedAtDescIdDesc")) {
+                return recent;
+            }
+            throw new UnsupportedOperationException(name);
+        });
+    }
+
+    /**
+     * Set a Spring-injected field on an object built outside the container.
+     */
+    public static void inject(Object target, String field, Object value) {
+        try {
+            Field f = target.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + field, e);
+        }
+    }
+
+    /**
+     * Swap System.out for a sink; code under test still pays for building
+     * whatever it prints.
+     */
+    public static PrintStream silenceStdout() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+
+    private static <T> T repository(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> type.getSimpleName() + "(in-memory)";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> handler.handle(method.getName(), args);
+                }));
+    }
+
+    private static List<ConversationMessage> newestFirst(List<ConversationMessage> history, int before,
+            Pageable page) {
+        List<ConversationMessage> result = new ArrayList<>(page.getPageSize());
+        for (int i = before - 1; i >= 0 && result.size() < page.getPageSize(); i--) {
+            result.add(history.get(i));
+        }
+        return result;
+    }
+
+    // a JSON result like executeSafeQuery stores: [{"username": ..., "questions": ...}, ...]
+    private static String answer(SplittableRandom random, int rows) {
+        if (rows == 0) {
+            return "No results found.";
+        }
+        StringBuilder json = new StringBuilder("[ ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append("{\n  \"username\" : \"user").append(random.nextInt(1000))
+                    .append("\",\n  \"questions\" : ").append(random.nextInt(300))
+                    .append(",\n  \"last_asked\" : \"2025-03-0").append(1 + random.nextInt(9))
+                    .append("T10:15:00\"\n}");
+        }
+        return json.append(" ]").toString();
+    }
+
+    private static String truncate(String text, int max) {
+        return text.length() <= max ? text : text.substring(0, max) + "…";
+    }
+}
@@ -0,0 +1,102 @@
+package com.agentic.humanoid.component;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.agentic.humanoid.DTO.ConversationContext;
+import com.agentic.humanoid.bench.Fixtures;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Everything {@link LlmClient#generateSqlWithContextAsync} does around the
+ * HTTP call: schema pruning, system prompt and message-list assembly, the
+ * coalescing key, the request debug print and response parsing. The
+ * transport answers instantly and the SQL cache is off, so every call builds
+ * a full prompt. {@code turns} is the history handed in, far past what the
+ * context builder would normally pass, to show how assembly scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptAssemblyBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int turns;
+
+    private LlmClient client;
+    private ConversationContext context;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() throws Exception {
+        JsonNode response = new ObjectMapper().readTree(
+                "{\"choices\":[{\"message\":{\"content\":\"```sql\\nSELECT COUNT(*) FROM users;\\n```\"}}]}");
+        LlmTransport transport = new LlmTransport() {
+            @Override
+            public CompletableFuture<JsonNode> complete(Object requestBody, Duration deadline) {
+                return CompletableFuture.completedFuture(response);
+            }
+
+            @Override
+            public CompletableFuture<Void> stream(Object requestBody, Duration deadline, Consumer<JsonNode> onChunk) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        SqlGenerationCache sqlCache = new SqlGenerationCache(0, Duration.ofMinutes(10), "bench");
+        SchemaCatalog catalog = new SchemaCatalog(null, sqlCache, "", 6, 12) {
+            private final DatabaseSchema schema = Fixtures.schema();
+
+            @Override
+            public DatabaseSchema schema() {
+                return schema;
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // tracing off: no request trace is active in the benchmark anyway
+        Tracer tracer = new Tracer(new TraceBuffer(false, 1, Duration.ZERO, 0, registry), 200);
+        // admission wide open: the benchmark measures prompt assembly, not shedding
+        LlmAdmission admission = new LlmAdmission(1e9, Integer.MAX_VALUE, "", 1_000, 1_000, 1_000, 1.5, 0.9, 0, 0,
+                Duration.ZERO, registry);
+        client = new LlmClient(transport, sqlCache, catalog, new RequestCoalescer(registry),
+                new PipelineMetrics(registry), tracer, admission);
+        Fixtures.inject(client, "model", "sonar-pro");
+        Fixtures.inject(client, "requestTimeout", Duration.ofSeconds(30));
+
+        context = new ConversationContext("- User asked: How many users are there?\n  SQL: SELECT COUNT(*) FROM users;",
+                Fixtures.recentQuestions(), Fixtures.turns(turns), 0);
+        stdout = Fixtures.silenceStdout();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public String generateSqlWithContext() {
+        return client.generateSqlWithContextAsync("Which users asked the most questions this month?", context, 1L)
+                .join();
+    }
+}
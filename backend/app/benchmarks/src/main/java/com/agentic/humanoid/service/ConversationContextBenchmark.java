@@ -0,0 +1,86 @@
+package com.agentic.humanoid.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.agentic.humanoid.DTO.ConversationContext;
+import com.agentic.humanoid.bench.Fixtures;
+import com.agentic.humanoid.component.PipelineMetrics;
+import com.agentic.humanoid.model.Conversation;
+import com.agentic.humanoid.model.ConversationMessage;
+import com.agentic.humanoid.model.ConversationMessageRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * History merging for an ask (what askQuestion used to do inline, now
+ * {@link ConversationContextBuilder#build}) over in-memory repositories, so
+ * only the merging, previews and summary folding are measured.
+ *
+ * {@code firstAsk} starts from an unsummarized conversation and folds all
+ * older turns; {@code followUp} is the steady state where the summary is
+ * already stored and only the newest window is read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversationContextBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int messages;
+
+    private ConversationContextBuilder builder;
+    private Conversation summarized;
+
+    @Setup
+    public void setUp() {
+        List<ConversationMessage> history = Fixtures.history(1L, messages);
+        ConversationMessageRepository messageRepository = Fixtures.messageRepository(history);
+        MessageWriteBehind writeBehind = new MessageWriteBehind(messageRepository, Fixtures.queryRepository(),
+                null, null, Runnable::run, new PipelineMetrics(new SimpleMeterRegistry()));
+        builder = new ConversationContextBuilder(messageRepository, Fixtures.conversationRepository(),
+                Fixtures.queryRepository(), writeBehind);
+        // application.properties defaults
+        Fixtures.inject(builder, "maxTurns", 20);
+        Fixtures.inject(builder, "pageSize", 10);
+        Fixtures.inject(builder, "tokenBudget", 3000);
+        Fixtures.inject(builder, "summaryMaxChars", 2000);
+        Fixtures.inject(builder, "previewChars", 400);
+        Fixtures.inject(builder, "recentQueries", 5);
+
+        summarized = conversation();
+        builder.build(summarized, 1L);
+    }
+
+    @Benchmark
+    public ConversationContext firstAsk() {
+        return builder.build(conversation(), 1L);
+    }
+
+    @Benchmark
+    public ConversationContext followUp() {
+        return builder.build(summarized, 1L);
+    }
+
+    private static Conversation conversation() {
+        Conversation conversation = new Conversation();
+        conversation.setId(1L);
+        conversation.setUserId(1L);
+        return conversation;
+    }
+}
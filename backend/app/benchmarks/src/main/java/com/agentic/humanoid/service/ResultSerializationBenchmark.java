@@ -0,0 +1,87 @@
+package com.agentic.humanoid.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.rowset.CachedRowSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+
+import com.agentic.humanoid.bench.Fixtures;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Rows → JSON answer, as executeSafeQuery / DatabaseTool.runQuery produce it.
+ *
+ * {@code streaming} is the rows layout (cursor rows written straight into a
+ * pretty-printed generator); {@code columnar} is the stored default
+ * ({@link ColumnarResults}); {@code materialized} is the List&lt;Map&gt; +
+ * writeValueAsString path that the chunked stream still uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultSerializationBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    public int rows;
+
+    private CachedRowSet resultSet;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ResultSetJsonWriter writer = new ResultSetJsonWriter(Long.MAX_VALUE, Long.MAX_VALUE);
+    private final ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+
+    @Setup
+    public void setUp() throws Exception {
+        resultSet = Fixtures.queryRows(rows);
+    }
+
+    @Benchmark
+    public String streaming() throws Exception {
+        resultSet.beforeFirst();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ResultSetJsonWriter.CountingOutputStream out = new ResultSetJsonWriter.CountingOutputStream(buffer);
+        JsonGenerator gen = objectMapper.createGenerator(out).useDefaultPrettyPrinter();
+        writer.writeArray(resultSet, gen, out);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String columnar() throws Exception {
+        resultSet.beforeFirst();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ResultSetJsonWriter.CountingOutputStream out = new ResultSetJsonWriter.CountingOutputStream(buffer);
+        writer.writeColumnar(resultSet, objectMapper.createGenerator(out), out);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String materialized() throws Exception {
+        resultSet.beforeFirst();
+        List<Map<String, Object>> list = new ArrayList<>();
+        int rowNum = 0;
+        while (resultSet.next()) {
+            list.add(rowMapper.mapRow(resultSet, rowNum++));
+        }
+        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(list);
+    }
+}
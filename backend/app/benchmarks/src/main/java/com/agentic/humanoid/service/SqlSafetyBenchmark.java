@@ -0,0 +1,56 @@
+package com.agentic.humanoid.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.agentic.humanoid.bench.Fixtures;
+import com.agentic.humanoid.component.SqlTemplate;
+
+import net.sf.jsqlparser.statement.select.Select;
+
+/**
+ * The CPU side of checking a generated query before it runs: the parser-based
+ * validation in {@link QueryGovernor#validate} and the literal extraction in
+ * {@link SqlTemplate#parse} (EXPLAIN costing needs a database and is not
+ * measured here).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlSafetyBenchmark {
+
+    @Param({ "simple", "filtered", "join", "analytic" })
+    public String query;
+
+    private String sql;
+    private final QueryGovernor governor = new QueryGovernor();
+
+    @Setup
+    public void setUp() {
+        sql = Fixtures.GENERATED_SQL.get(query);
+    }
+
+    @Benchmark
+    public Select validate() {
+        return governor.validate(sql);
+    }
+
+    @Benchmark
+    public SqlTemplate template() {
+        return SqlTemplate.parse(sql);
+    }
+}
@@ -0,0 +1,306 @@
+package com.agentic.humanoid.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.agentic.humanoid.HumanoidApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Closed-loop load test of the running application: {@code loadtest.users}
+ * virtual users each pick an endpoint by the configured mix, call it, and go
+ * again, for {@code loadtest.duration} after a {@code loadtest.warmup}.
+ *
+ * The LLM is {@link LlmStubServer}, the database {@link LoadTestDatabase},
+ * so a run needs no network and costs nothing. Results go to the console
+ * and to target/loadtest-report.json: throughput and p50/p95/p99 per
+ * endpoint, and the peak of every pool / queue gauge sampled during the run
+ * (Hikari pending connections, ask executor queue, bulkhead, in-flight LLM
+ * calls) to show where it saturates.
+ *
+ * <pre>
+ * mvn -B verify -Ploadtest -Dloadtest.users=50 -Dloadtest.llm.latency=lognormal:800ms,0.6
+ * </pre>
+ */
+@SpringBootTest(classes = HumanoidApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class AskLoadTest {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 20);
+    private static final int SEED_USERS = Integer.getInteger("loadtest.seed-users", 50);
+    private static final Duration WARMUP = duration("loadtest.warmup", "10s");
+    private static final Duration DURATION = duration("loadtest.duration", "30s");
+    private static final Duration THINK_TIME = duration("loadtest.think-time", "0ms");
+    private static final String MIX = System.getProperty("loadtest.mix", "ask:50,ask-stream:10,history:25,users:15");
+    private static final double MAX_ERROR_RATE = Double.parseDouble(
+            System.getProperty("loadtest.max-error-rate", "0.01"));
+
+    // gauges whose peak shows which pool or queue saturates first
+    private static final List<String> SATURATION_GAUGES = List.of("hikaricp.connections.active",
+            "hikaricp.connections.pending", "executor.active", "executor.queued", "bulkhead.active",
+            "bulkhead.waiting", "llm.requests.in-flight", "llm.admission.limit", "llm.admission.queued",
+            "jvm.threads.live");
+
+    private static final String[] QUESTIONS = {
+            "How many users are there?",
+            "Show the questions asked by user %d",
+            "Who are the most active users?",
+            "Show details of user %d",
+            "How many questions did user %d ask per day?",
+    };
+
+    private static final LoadTestDatabase DATABASE;
+    private static final LlmStubServer LLM;
+
+    static {
+        try {
+            DATABASE = LoadTestDatabase.start(Path.of(System.getProperty("loadtest.schema", "../../../schema.sql")));
+            LLM = LlmStubServer.start(
+                    LatencyDistribution.parse(System.getProperty("loadtest.llm.latency", "lognormal:400ms,0.5")),
+                    duration("loadtest.llm.chunk-delay", "15ms"),
+                    Double.parseDouble(System.getProperty("loadtest.llm.error-rate", "0")));
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void pointAppAtStubs(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", DATABASE::url);
+        registry.add("spring.datasource.username", DATABASE::username);
+        registry.add("spring.datasource.password", DATABASE::password);
+        registry.add("llm.api.url", LLM::url);
+        registry.add("perplexity.api.key", () -> "loadtest");
+    }
+
+    @AfterAll
+    static void stopStubs() throws IOException {
+        LLM.close();
+        DATABASE.close();
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LoadReport report = new LoadReport();
+
+    @Test
+    void askHistoryAndUsersUnderLoad() throws Exception {
+        List<Long> userIds = seedUsers();
+        List<String> mix = expandMix(MIX);
+        PrintStream console = System.out;
+
+        ExecutorService virtualUsers = Executors.newFixedThreadPool(USERS);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(this::sampleGauges, 0, 250, TimeUnit.MILLISECONDS);
+
+        long end = System.nanoTime() + WARMUP.toNanos() + DURATION.toNanos();
+        for (int i = 0; i < USERS; i++) {
+            long seed = i;
+            virtualUsers.submit(() -> runUser(new SplittableRandom(seed), userIds, mix, end));
+        }
+
+        // the app prints every prompt; keep the console for the report
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            Thread.sleep(WARMUP.toMillis());
+            report.start();
+            Thread.sleep(DURATION.toMillis());
+            report.stop();
+        } finally {
+            System.setOut(console);
+            virtualUsers.shutdownNow();
+            virtualUsers.awaitTermination(30, TimeUnit.SECONDS);
+            sampler.shutdownNow();
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("users", USERS);
+        summary.put("mix", MIX);
+        summary.put("llmLatency", System.getProperty("loadtest.llm.latency", "lognormal:400ms,0.5"));
+        summary.put("embeddedDatabase", DATABASE.embedded());
+        summary.putAll(report.summarize(DURATION));
+        summary.put("llmStub", LLM.stats());
+        LoadReport.write(summary, Path.of("target", "loadtest-report.json"));
+        console.println(LoadReport.table(summary));
+
+        assertTrue(report.requests() > 0, "no requests completed");
+        assertTrue(report.errorRate() <= MAX_ERROR_RATE, "error rate " + report.errorRate());
+    }
+
+    private void runUser(SplittableRandom random, List<Long> userIds, List<String> mix, long end) {
+        Long conversationId = null;
+        int turns = 0;
+        while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+            long userId = userIds.get(random.nextInt(userIds.size()));
+            String endpoint = mix.get(random.nextInt(mix.size()));
+            long start = System.nanoTime();
+            try {
+                switch (endpoint) {
+                    case "ask" -> {
+                        // follow-ups in the same conversation, then a fresh one
+                        JsonNode body = ask(userId, question(random, userIds), turns < 5 ? conversationId : null);
+                        conversationId = body.path("conversationId").asLong();
+                        turns = turns < 5 ? turns + 1 : 0;
+                    }
+                    case "ask-stream" -> askStream(userId, question(random, userIds), start);
+                    case "history" -> get("/api/queries/history?userId=" + userId);
+                    case "users" -> get("/api/users");
+                    default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+                }
+                report.success(endpoint, System.nanoTime() - start);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                report.error(endpoint);
+            }
+            if (!THINK_TIME.isZero()) {
+                try {
+                    Thread.sleep(THINK_TIME.toMillis());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private JsonNode ask(long userId, String question, Long conversationId) throws Exception {
+        String query = "userId=" + userId + "&question=" + URLEncoder.encode(question, StandardCharsets.UTF_8)
+                + (conversationId == null ? "" : "&conversationId=" + conversationId);
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(uri("/api/queries/ask?" + query))
+                .POST(HttpRequest.BodyPublishers.noBody()).timeout(Duration.ofSeconds(120)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return checked(response);
+    }
+
+    private void askStream(long userId, String question, long start) throws Exception {
+        String query = "userId=" + userId + "&question=" + URLEncoder.encode(question, StandardCharsets.UTF_8);
+        HttpResponse<Stream<String>> response = http.send(HttpRequest.newBuilder(uri("/api/queries/ask/stream?"
+                + query)).POST(HttpRequest.BodyPublishers.noBody()).timeout(Duration.ofSeconds(120)).build(),
+                HttpResponse.BodyHandlers.ofLines());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+        boolean firstToken = true;
+        String event = "";
+        try (Stream<String> lines = response.body()) {
+            for (String line : (Iterable<String>) lines::iterator) {
+                if (line.startsWith("event:")) {
+                    event = line.substring(6).strip();
+                    if (firstToken && (event.equals("sql-token") || event.equals("sql"))) {
+                        report.success("ask-stream first token", System.nanoTime() - start);
+                        firstToken = false;
+                    }
+                    if (event.equals("error")) {
+                        throw new IOException("error event");
+                    }
+                }
+            }
+        }
+        if (!event.equals("done")) {
+            throw new IOException("stream ended after " + event);
+        }
+    }
+
+    private JsonNode get(String path) throws Exception {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(uri(path)).GET()
+                .timeout(Duration.ofSeconds(60)).build(), HttpResponse.BodyHandlers.ofString());
+        return checked(response);
+    }
+
+    private JsonNode checked(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() >= 400) {
+            throw new IOException("HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return mapper.readTree(response.body());
+    }
+
+    private List<Long> seedUsers() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        for (int i = 0; i < SEED_USERS; i++) {
+            String user = "{\"username\":\"load-" + run + "-" + i + "\",\"email\":\"load-" + run + "-" + i
+                    + "@example.com\",\"role\":\"user\"}";
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(uri("/api/users"))
+                    .header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(user))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            ids.add(checked(response).path("id").asLong());
+        }
+        return ids;
+    }
+
+    private void sampleGauges() {
+        for (String name : SATURATION_GAUGES) {
+            for (Gauge gauge : meterRegistry.find(name).gauges()) {
+                StringBuilder key = new StringBuilder(name);
+                gauge.getId().getTags().forEach(tag -> key.append(' ').append(tag.getKey()).append('=')
+                        .append(tag.getValue()));
+                report.gauge(key.toString(), gauge.value());
+            }
+        }
+    }
+
+    private static String question(SplittableRandom random, List<Long> userIds) {
+        String template = QUESTIONS[random.nextInt(QUESTIONS.length)];
+        return template.formatted(userIds.get(random.nextInt(userIds.size())));
+    }
+
+    // "ask:50,history:25" → a list to draw endpoints from uniformly
+    private static List<String> expandMix(String mix) {
+        List<String> expanded = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] weighted = part.strip().split(":");
+            for (int i = 0; i < Integer.parseInt(weighted[1]); i++) {
+                expanded.add(weighted[0]);
+            }
+        }
+        return expanded;
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+}
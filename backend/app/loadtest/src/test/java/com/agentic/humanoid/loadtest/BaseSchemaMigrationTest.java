@@ -0,0 +1,95 @@
+package com.agentic.humanoid.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.agentic.humanoid.HumanoidApplication;
+import com.agentic.humanoid.DTO.UserSummary;
+import com.agentic.humanoid.model.User;
+import com.agentic.humanoid.repository.UserRepository;
+
+/**
+ * Boots the application on a database created from the root schema.sql, the
+ * way existing deployments were set up, so the Flyway migrations have to
+ * bring its SERIAL/INT tables up to what the entities map before
+ * {@code ddl-auto=validate} checks them. The context starting at all is
+ * most of the test.
+ */
+@SpringBootTest(classes = HumanoidApplication.class)
+class BaseSchemaMigrationTest {
+
+    private static final LoadTestDatabase DATABASE;
+
+    static {
+        try {
+            DATABASE = LoadTestDatabase.fresh(Path.of(System.getProperty("loadtest.schema", "../../../schema.sql")));
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void pointAppAtDatabase(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", DATABASE::url);
+        registry.add("spring.datasource.username", DATABASE::username);
+        registry.add("spring.datasource.password", DATABASE::password);
+        // never called: nothing here asks a question
+        registry.add("llm.api.url", () -> "http://localhost:9/chat/completions");
+        registry.add("perplexity.api.key", () -> "migration-test");
+    }
+
+    @AfterAll
+    static void dropDatabase() throws IOException {
+        DATABASE.close();
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void migrationsWidenTheBaseSchemaIds() {
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM flyway_schema_history WHERE NOT success", Integer.class));
+
+        List<String> types = jdbcTemplate.queryForList("""
+                SELECT table_name || '.' || column_name || ' ' || data_type FROM information_schema.columns
+                WHERE table_schema = current_schema()
+                  AND (table_name, column_name) IN (('users', 'id'), ('queries', 'id'), ('queries', 'user_id'),
+                                                    ('reports', 'user_id'), ('audit_logs', 'user_id'))
+                ORDER BY 1""", String.class);
+        assertEquals(List.of("audit_logs.user_id bigint", "queries.id bigint", "queries.user_id bigint",
+                "reports.user_id bigint", "users.id bigint"), types);
+        assertEquals("bigint", jdbcTemplate.queryForObject("""
+                SELECT data_type FROM information_schema.sequences
+                WHERE sequence_schema = current_schema() AND sequence_name = 'users_id_seq'""", String.class));
+    }
+
+    @Test
+    void usersWithoutCreatedAtStillPage() {
+        User user = new User();
+        user.setUsername("migration-" + System.nanoTime());
+        user.setCreatedAt(null);
+        Long id = userRepository.save(user).getId();
+
+        List<UserSummary> page = userRepository.findSummaryPage(LocalDateTime.now().plusDays(1), Long.MAX_VALUE,
+                PageRequest.of(0, 100));
+        assertTrue(page.stream().anyMatch(summary -> summary.id().equals(id)));
+    }
+}
@@ -0,0 +1,54 @@
+package com.agentic.humanoid.loadtest;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Latency the LLM stub waits before answering, parsed from a spec:
+ *
+ * <pre>
+ * fixed:200ms
+ * uniform:100ms..600ms
+ * lognormal:400ms,0.5     median 400ms, sigma 0.5 (long right tail, like real completions)
+ * </pre>
+ */
+public interface LatencyDistribution {
+
+    Duration sample(SplittableRandom random);
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.strip().split(":", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Expected <kind>:<args>, got " + spec);
+        }
+        String args = parts[1];
+        switch (parts[0]) {
+            case "fixed" -> {
+                Duration fixed = DurationStyle.detectAndParse(args);
+                return random -> fixed;
+            }
+            case "uniform" -> {
+                String[] range = args.split("\\.\\.");
+                long min = DurationStyle.detectAndParse(range[0]).toNanos();
+                long max = DurationStyle.detectAndParse(range[1]).toNanos();
+                return random -> Duration.ofNanos(min + (max > min ? random.nextLong(max - min) : 0));
+            }
+            case "lognormal" -> {
+                String[] params = args.split(",");
+                double median = DurationStyle.detectAndParse(params[0]).toNanos();
+                double sigma = Double.parseDouble(params[1]);
+                return random -> Duration.ofNanos((long) (median * Math.exp(sigma * gaussian(random))));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution " + parts[0]);
+        }
+    }
+
+    // Box-Muller; SplittableRandom has no nextGaussian on Java 17
+    private static double gaussian(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+    }
+}
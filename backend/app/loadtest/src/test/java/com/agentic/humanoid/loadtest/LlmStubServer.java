@@ -0,0 +1,160 @@
+package com.agentic.humanoid.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the OpenAI-compatible chat completions endpoint.
+ *
+ * Answers every prompt with canned SQL picked by the question's wording
+ * (":n" is replaced by the first number in the question), after a delay
+ * drawn from a {@link LatencyDistribution}. {@code stream: true} requests
+ * get the SQL as SSE deltas, the first after the sampled delay and the rest
+ * {@code chunkDelay} apart. A fraction of calls can be failed with a 503.
+ */
+public final class LlmStubServer implements AutoCloseable {
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    private static final Map<String, String> CANNED_SQL = Map.of(
+            "how many users", "SELECT COUNT(*) FROM users",
+            "questions asked by", "SELECT query_text FROM queries WHERE user_id = :n ORDER BY created_at DESC LIMIT 5",
+            "most active", "SELECT u.username, COUNT(q.id) AS questions FROM users u JOIN queries q "
+                    + "ON q.user_id = u.id GROUP BY u.username ORDER BY questions DESC LIMIT 10",
+            "details of user", "SELECT id, username, email, role FROM users WHERE id = :n",
+            "per day", "SELECT date_trunc('day', created_at) AS day, COUNT(*) FROM queries "
+                    + "WHERE user_id = :n GROUP BY 1 ORDER BY 1 DESC LIMIT 30");
+
+    private final HttpServer server;
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LatencyDistribution latency;
+    private final Duration chunkDelay;
+    private final double errorRate;
+
+    private final AtomicLong completions = new AtomicLong();
+    private final AtomicLong streams = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private LlmStubServer(LatencyDistribution latency, Duration chunkDelay, double errorRate) throws IOException {
+        this.latency = latency;
+        this.chunkDelay = chunkDelay;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.setExecutor(workers);
+        server.createContext("/chat/completions", this::handle);
+        server.start();
+    }
+
+    public static LlmStubServer start(LatencyDistribution latency, Duration chunkDelay, double errorRate)
+            throws IOException {
+        return new LlmStubServer(latency, chunkDelay, errorRate);
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/chat/completions";
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of("completions", completions.get(), "streams", streams.get(), "failures", failures.get());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = mapper.readTree(exchange.getRequestBody());
+            SplittableRandom random = new SplittableRandom();
+            sleep(latency.sample(random));
+
+            if (random.nextDouble() < errorRate) {
+                failures.incrementAndGet();
+                send(exchange, 503, "{\"error\":{\"message\":\"stub overloaded\"}}");
+                return;
+            }
+
+            String sql = sqlFor(lastUserMessage(request));
+            if (request.path("stream").asBoolean()) {
+                streams.incrementAndGet();
+                stream(exchange, sql);
+                return;
+            }
+            completions.incrementAndGet();
+            send(exchange, 200, mapper.writeValueAsString(Map.of(
+                    "choices", List.of(Map.of("message", Map.of("role", "assistant", "content", sql))),
+                    "usage", Map.of("prompt_tokens", request.toString().length() / 4, "completion_tokens",
+                            sql.length() / 4))));
+        }
+    }
+
+    private void stream(HttpExchange exchange, String sql) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (String token : sql.split("(?<= )")) {
+            String chunk = mapper.writeValueAsString(Map.of("choices", List.of(Map.of("delta",
+                    Map.of("content", token)))));
+            out.write(("data: " + chunk + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            sleep(chunkDelay);
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static String lastUserMessage(JsonNode request) {
+        String question = "";
+        for (JsonNode message : request.path("messages")) {
+            if ("user".equals(message.path("role").asText())) {
+                question = message.path("content").asText();
+            }
+        }
+        return question;
+    }
+
+    static String sqlFor(String question) {
+        String lower = question.toLowerCase();
+        Matcher number = NUMBER.matcher(question);
+        String n = number.find() ? number.group() : "1";
+        return CANNED_SQL.entrySet().stream()
+                .filter(entry -> lower.contains(entry.getKey()))
+                .map(entry -> entry.getValue().replace(":n", n))
+                .findFirst()
+                .orElse("SELECT COUNT(*) FROM queries");
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+}
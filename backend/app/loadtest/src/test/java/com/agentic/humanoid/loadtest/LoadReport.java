@@ -0,0 +1,131 @@
+package com.agentic.humanoid.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Per-endpoint latencies and errors for one run, plus the highest values
+ * seen for each sampled saturation gauge (pool waiters, queue depths, ...).
+ */
+public final class LoadReport {
+
+    private final Map<String, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+    private final Map<String, Double> gaugeMax = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    public void start() {
+        latencies.clear();
+        errors.clear();
+        gaugeMax.clear();
+        recording = true;
+    }
+
+    public void stop() {
+        recording = false;
+    }
+
+    public void success(String endpoint, long nanos) {
+        if (recording) {
+            latencies.computeIfAbsent(endpoint, e -> new ConcurrentLinkedQueue<>()).add(nanos);
+        }
+    }
+
+    public void error(String endpoint) {
+        if (recording) {
+            errors.computeIfAbsent(endpoint, e -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public void gauge(String name, double value) {
+        if (recording && !Double.isNaN(value)) {
+            gaugeMax.merge(name, value, Math::max);
+        }
+    }
+
+    public long requests() {
+        return latencies.values().stream().mapToLong(ConcurrentLinkedQueue::size).sum()
+                + errors.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public double errorRate() {
+        long total = requests();
+        return total == 0 ? 0.0 : errors.values().stream().mapToLong(AtomicLong::get).sum() / (double) total;
+    }
+
+    public Map<String, Object> summarize(Duration measured) {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        latencies.keySet().stream().sorted().forEach(endpoint -> {
+            long[] sorted = latencies.get(endpoint).stream().mapToLong(Long::longValue).sorted().toArray();
+            long failed = errors.getOrDefault(endpoint, new AtomicLong()).get();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("ok", sorted.length);
+            row.put("errors", failed);
+            row.put("throughputPerSec", round((sorted.length + failed) / (measured.toMillis() / 1000.0)));
+            row.put("meanMs", round(Arrays.stream(sorted).average().orElse(0) / 1e6));
+            row.put("p50Ms", percentileMs(sorted, 0.50));
+            row.put("p95Ms", percentileMs(sorted, 0.95));
+            row.put("p99Ms", percentileMs(sorted, 0.99));
+            row.put("maxMs", sorted.length == 0 ? 0.0 : round(sorted[sorted.length - 1] / 1e6));
+            endpoints.put(endpoint, row);
+        });
+        errors.keySet().stream().filter(endpoint -> !endpoints.containsKey(endpoint))
+                .forEach(endpoint -> endpoints.put(endpoint, Map.of("ok", 0, "errors", errors.get(endpoint).get())));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("measuredSeconds", measured.toSeconds());
+        summary.put("requests", requests());
+        summary.put("errorRate", round(errorRate()));
+        summary.put("endpoints", endpoints);
+        summary.put("saturationMax", new TreeMap<>(gaugeMax));
+        return summary;
+    }
+
+    /**
+     * Fixed-width table for the console.
+     */
+    @SuppressWarnings("unchecked")
+    public static String table(Map<String, Object> summary) {
+        StringBuilder out = new StringBuilder(String.format("%n%-22s %7s %6s %9s %9s %9s %9s %9s%n", "endpoint", "ok",
+                "err", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        Map<String, Object> endpoints = (Map<String, Object>) summary.get("endpoints");
+        endpoints.forEach((endpoint, value) -> {
+            Map<String, Object> row = (Map<String, Object>) value;
+            out.append(String.format("%-22s %7s %6s %9s %9s %9s %9s %9s%n", endpoint, row.get("ok"), row.get("errors"),
+                    row.getOrDefault("throughputPerSec", "-"), row.getOrDefault("p50Ms", "-"),
+                    row.getOrDefault("p95Ms", "-"), row.getOrDefault("p99Ms", "-"), row.getOrDefault("maxMs", "-")));
+        });
+        out.append(String.format("%nsaturation (max sampled):%n"));
+        ((Map<String, Object>) summary.get("saturationMax"))
+                .forEach((name, value) -> out.append(String.format("  %-60s %s%n", name, value)));
+        return out.toString();
+    }
+
+    public static void write(Map<String, Object> summary, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), summary);
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return round(sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
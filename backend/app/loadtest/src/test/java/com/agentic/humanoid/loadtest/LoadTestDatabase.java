@@ -0,0 +1,128 @@
+package com.agentic.humanoid.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * The database under load: an embedded Postgres (zonky binaries, no network
+ * or Docker needed) unless {@code -Dloadtest.db.url} points at an existing
+ * one. Embedded Postgres refuses to start as root; use a URL there.
+ *
+ * The base tables come from the repository's schema.sql, as for a new
+ * deployment; the app's Flyway migrations baseline it and do the rest on startup.
+ * {@link #fresh} always starts from an empty database: a new embedded
+ * instance, or a scratch database on the given server that is dropped on close.
+ */
+public final class LoadTestDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres embedded;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String scratchDatabase;
+
+    private LoadTestDatabase(EmbeddedPostgres embedded, String url, String username, String password) {
+        this(embedded, url, username, password, null);
+    }
+
+    private LoadTestDatabase(EmbeddedPostgres embedded, String url, String username, String password,
+            String scratchDatabase) {
+        this.embedded = embedded;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.scratchDatabase = scratchDatabase;
+    }
+
+    public static LoadTestDatabase start(Path schema) throws IOException, SQLException {
+        String url = System.getProperty("loadtest.db.url", "");
+        LoadTestDatabase db;
+        if (url.isBlank()) {
+            EmbeddedPostgres embedded = EmbeddedPostgres.builder().start();
+            db = new LoadTestDatabase(embedded, embedded.getJdbcUrl("postgres", "postgres"), "postgres", "");
+        } else {
+            db = new LoadTestDatabase(null, url, System.getProperty("loadtest.db.username", ""),
+                    System.getProperty("loadtest.db.password", ""));
+        }
+        db.applyBaseSchema(schema);
+        return db;
+    }
+
+    public static LoadTestDatabase fresh(Path schema) throws IOException, SQLException {
+        String url = System.getProperty("loadtest.db.url", "");
+        if (url.isBlank()) {
+            return start(schema);
+        }
+        String username = System.getProperty("loadtest.db.username", "");
+        String password = System.getProperty("loadtest.db.password", "");
+        String name = "humanoid_" + UUID.randomUUID().toString().replace("-", "");
+        try (Connection conn = DriverManager.getConnection(url, username, password);
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE DATABASE " + name);
+        }
+        LoadTestDatabase db = new LoadTestDatabase(null, withDatabase(url, name), username, password, name);
+        db.applyBaseSchema(schema);
+        return db;
+    }
+
+    // jdbc:postgresql://host:port/db?params with db replaced
+    private static String withDatabase(String url, String database) {
+        int query = url.indexOf('?');
+        String base = query < 0 ? url : url.substring(0, query);
+        return base.substring(0, base.lastIndexOf('/') + 1) + database + (query < 0 ? "" : url.substring(query));
+    }
+
+    private void applyBaseSchema(Path schema) throws IOException, SQLException {
+        try (Connection conn = DriverManager.getConnection(url, username, password)) {
+            try (ResultSet rs = conn.getMetaData().getTables(null, conn.getSchema(), "users", null)) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(Files.readString(schema));
+            }
+        }
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public String username() {
+        return username;
+    }
+
+    public String password() {
+        return password;
+    }
+
+    public boolean embedded() {
+        return embedded != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (embedded != null) {
+            embedded.close();
+        }
+        if (scratchDatabase != null) {
+            String server = System.getProperty("loadtest.db.url");
+            try (Connection conn = DriverManager.getConnection(server, username, password);
+                    Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP DATABASE IF EXISTS " + scratchDatabase + " WITH (FORCE)");
+            } catch (SQLException e) {
+                throw new IOException("Could not drop " + scratchDatabase, e);
+            }
+        }
+    }
+}
@@ -1,3 +1,9 @@
+-- Original base schema. The application now owns its schema through the Flyway
+-- migrations in backend/app/api/src/main/resources/db/migration. On a database
+-- created from this file V1 leaves these tables as they are and V7 widens their
+-- SERIAL/INT ids to the BIGINTs the entities map; BaseSchemaMigrationTest in
+-- backend/app/loadtest starts the application on such a database.
+
 -- Users table
 CREATE TABLE users (
     id SERIAL PRIMARY KEY,
@@ -33,3 +39,18 @@ CREATE TABLE audit_logs (
     metadata JSONB,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
+
+
+-- Pooled id sequences used by the JPA entities (allocationSize = 50, so one
+-- nextval covers 50 inserts and inserts can be JDBC-batched). The app also
+-- re-syncs them against MAX(id) on startup.
+CREATE SEQUENCE IF NOT EXISTS queries_seq INCREMENT BY 50;
+SELECT setval('queries_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM queries), 1));
+CREATE SEQUENCE IF NOT EXISTS conversations_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS conversation_messages_seq INCREMENT BY 50;
+
+-- Table comments feed the schema catalog the SQL prompt is built from
+COMMENT ON TABLE users IS 'people using the assistant';
+COMMENT ON TABLE queries IS 'questions users asked and the answers they got';
+COMMENT ON TABLE reports IS 'generated report files per user';
+COMMENT ON TABLE audit_logs IS 'user activity and actions';